@@ -43,6 +43,7 @@ public class AuditController {
     // TODO: Implementerer ikke controller → service → DB. Flytt all forretningslogikk og *Repository-aksess til tjenestelaget. 
 
     private final AuditVersionRepository repository;
+    private final AuditDeltaService auditDeltaService;
     private final StorageService storage;
     private final MailLogRepository mailLogRepository;
 
@@ -52,12 +53,14 @@ public class AuditController {
     public ResponseEntity<RestResponsePage<AuditResponse>> getAll(PageParameters paging, @RequestParam(required = false) String table) {
         log.info("Received request for Audit {} table {}", paging, table);
         Pageable pageable = paging.createSortedPageByFieldDescending(AuditVersion.Fields.time);
-        Page<AuditResponse> page;
+        Page<AuditVersion> audits;
         if (table != null) {
-            page = repository.findAll(exampleFrom(AuditVersion.builder().table(table).build()), pageable).map(AuditResponse::buildFrom);
+            audits = repository.findAll(exampleFrom(AuditVersion.builder().table(table).build()), pageable);
         } else {
-            page = repository.findAll(pageable).map(AuditResponse::buildFrom);
+            audits = repository.findAll(pageable);
         }
+        auditDeltaService.reconstruct(audits.getContent());
+        Page<AuditResponse> page = audits.map(AuditResponse::buildFrom);
         return new ResponseEntity<>(new RestResponsePage<>(page), HttpStatus.OK);
     }
 
@@ -66,7 +69,7 @@ public class AuditController {
     @GetMapping("/log/{id}")
     public ResponseEntity<AuditLogResponse> findForId(@PathVariable String id) {
         log.info("Received request for Audit with the id={}", id);
-        List<AuditVersion> log = repository.findByTableIdOrderByTimeDesc(id);
+        List<AuditVersion> log = auditDeltaService.reconstruct(repository.findByTableIdOrderByTimeDesc(id));
         return new ResponseEntity<>(new AuditLogResponse(id, convert(log, AuditResponse::buildFrom)), HttpStatus.OK);
     }
 
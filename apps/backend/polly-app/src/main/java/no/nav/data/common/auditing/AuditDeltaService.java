@@ -0,0 +1,307 @@
+package no.nav.data.common.auditing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.prometheus.client.Summary;
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.auditing.domain.AuditDeltaRepository;
+import no.nav.data.common.auditing.domain.AuditDeltaRepository.AuditDelta;
+import no.nav.data.common.auditing.domain.AuditDeltaRepository.VersionRange;
+import no.nav.data.common.auditing.domain.AuditVersion;
+import no.nav.data.common.jpa.RepoUtil;
+import no.nav.data.common.utils.JsonPatch;
+import no.nav.data.common.utils.JsonUtils;
+import no.nav.data.common.utils.MetricUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Stores audit versions as JSON Patches, RFC 6902, from the previous version of the same table id, with the full data at checkpoints.
+ * <p>
+ * A version is a checkpoint when it is the first of its table id, when it follows polly.audit.checkpoint.interval - 1 patches,
+ * or when its patch is not smaller than its data. Reconstructing versions reads the last checkpoint before them and the patches after it,
+ * in one query for all the versions of a page. Reconstructed data has its keys in the order of jsonb, so the audit responses are the same as
+ * when every version was stored with data.
+ * <p>
+ * Versions written before patches were stored are checkpoints without a number. They are numbered, and turned into patches,
+ * by {@link #compact()} in the background, see V1.51__audit_delta.sql. The versions of a table id about to get a new version are numbered first.
+ */
+@Slf4j
+@Service
+public class AuditDeltaService {
+
+    private static final int COMPACTION_SIZE = 100;
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    /**
+     * jsonb keeps object keys with the shorter keys first, and keys of the same length by their bytes
+     */
+    private static final Comparator<String> JSONB_KEY_ORDER = Comparator.comparingInt((String key) -> key.getBytes(UTF_8).length)
+            .thenComparing(key -> key.getBytes(UTF_8), Arrays::compareUnsigned);
+
+    private final AuditDeltaRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final int checkpointInterval;
+    private final Summary latency;
+
+    public AuditDeltaService(AuditDeltaRepository repository, TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate,
+            @Value("${polly.audit.checkpoint.interval:20}") int checkpointInterval) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.checkpointInterval = checkpointInterval;
+        this.latency = MetricUtils.summary()
+                .labels("prepare").labels("reconstruct").labels("compact")
+                .labelNames("action")
+                .name("polly_audit_delta_seconds")
+                .help("Time to store audit versions as patches, and to reconstruct them")
+                .quantile(.5, .01).quantile(.99, .001)
+                .maxAgeSeconds(Duration.ofHours(6).getSeconds())
+                .ageBuckets(6)
+                .register();
+    }
+
+    /**
+     * Numbers audit versions about to be written, and replaces the data of versions between checkpoints with a patch.
+     * Versions of the same table id must be in the order they are written.
+     */
+    public void prepare(List<AuditVersion> audits) {
+        try (var ignored = latency.labels("prepare").startTimer()) {
+            Map<String, Head> heads = new HashMap<>();
+            var tableIds = audits.stream().map(AuditVersion::getTableId).distinct().toList();
+            repository.number(tableIds);
+            var latest = repository.findLatest(tableIds);
+            latest.stream().collect(groupingBy(AuditDelta::tableId)).forEach((tableId, chain) -> {
+                JsonNode data = null;
+                for (AuditDelta delta : chain) {
+                    data = next(data, delta);
+                }
+                heads.put(tableId, new Head(chain.getLast().version(), chain.size() - 1, data));
+            });
+
+            for (AuditVersion audit : audits) {
+                Head head = heads.get(audit.getTableId());
+                JsonNode data = JsonUtils.toJsonNode(audit.getData());
+                int version = head == null ? 1 : head.version() + 1;
+                String patch = head == null ? null : patch(head.data(), head.sinceCheckpoint(), data, audit.getData());
+                audit.setVersion(version);
+                if (patch != null) {
+                    audit.setData(null);
+                    audit.setPatch(patch);
+                }
+                heads.put(audit.getTableId(), new Head(version, patch == null ? 0 : head.sinceCheckpoint() + 1, data));
+            }
+        }
+    }
+
+    /**
+     * Sets the data of the audit versions stored as patches. The versions given are used where they reach back to a checkpoint, the rest is read.
+     */
+    public List<AuditVersion> reconstruct(List<AuditVersion> audits) {
+        var missing = audits.stream().filter(audit -> audit.getData() == null).collect(groupingBy(AuditVersion::getTableId));
+        if (missing.isEmpty()) {
+            return audits;
+        }
+        try (var ignored = latency.labels("reconstruct").startTimer()) {
+            var given = audits.stream().filter(audit -> audit.getVersion() != null).map(AuditDelta::from).collect(groupingBy(AuditDelta::tableId));
+            Map<String, List<AuditDelta>> chains = new HashMap<>();
+            List<VersionRange> ranges = new ArrayList<>();
+            missing.forEach((tableId, versions) -> {
+                var stats = versions.stream().mapToInt(AuditVersion::getVersion).summaryStatistics();
+                givenChain(given.get(tableId), stats.getMin(), stats.getMax()).ifPresentOrElse(chain -> chains.put(tableId, chain),
+                        () -> ranges.add(new VersionRange(tableId, stats.getMin(), stats.getMax())));
+            });
+            if (!ranges.isEmpty()) {
+                chains.putAll(repository.findChains(ranges).stream().collect(groupingBy(AuditDelta::tableId)));
+            }
+
+            missing.forEach((tableId, versions) -> {
+                Set<Integer> wanted = versions.stream().map(AuditVersion::getVersion).collect(Collectors.toSet());
+                Map<Integer, String> data = new HashMap<>();
+                JsonNode current = null;
+                for (AuditDelta delta : chains.getOrDefault(tableId, List.of())) {
+                    current = next(current, delta);
+                    if (wanted.contains(delta.version())) {
+                        data.put(delta.version(), JsonUtils.toJson(jsonbOrder(current)));
+                    }
+                }
+                versions.forEach(audit -> audit.setData(Optional.ofNullable(data.get(audit.getVersion()))
+                        .orElseThrow(() -> new IllegalStateException("no checkpoint for audit version " + audit.getId()))));
+            });
+        }
+        return audits;
+    }
+
+    /**
+     * Reads the versions of the table from time from to time to with their data, in order of table id and version.
+     * Each table id starts with versions from before the period, so the first version in the period can be compared to the one before it.
+     */
+    public void replay(String table, LocalDateTime from, LocalDateTime to, BiConsumer<AuditDelta, JsonNode> consumer) {
+        var replay = new Object() {
+            String tableId;
+            JsonNode data;
+        };
+        repository.forEachInPeriod(table, from, to, delta -> {
+            replay.data = next(delta.tableId().equals(replay.tableId) ? replay.data : null, delta);
+            replay.tableId = delta.tableId();
+            consumer.accept(delta, replay.data);
+        });
+    }
+
+    /**
+     * Numbers the versions written before patches were stored and turns them into patches, in batches of table ids with one transaction each
+     *
+     * @return number of versions changed
+     */
+    @Scheduled(initialDelayString = "${polly.audit.compaction.delay:PT1M}", fixedDelayString = "${polly.audit.compaction.delay:PT1M}")
+    public int compact() {
+        int numbered = 0;
+        int found;
+        do {
+            var batch = transactionTemplate.execute(status -> {
+                try (var ignored = latency.labels("compact").startTimer()) {
+                    var tableIds = repository.findUnnumbered(COMPACTION_SIZE);
+                    return new CompactionBatch(tableIds.size(), repository.number(tableIds));
+                }
+            });
+            found = batch == null ? 0 : batch.tableIds();
+            numbered += batch == null ? 0 : batch.versions();
+        } while (found == COMPACTION_SIZE);
+        if (numbered > 0) {
+            log.info("Numbered {} audit versions", numbered);
+        }
+
+        int compacted = 0;
+        int taken;
+        do {
+            var batch = transactionTemplate.execute(status -> {
+                try (var ignored = latency.labels("compact").startTimer()) {
+                    RepoUtil.disableStatementTimeout(jdbcTemplate);
+                    var tableIds = repository.takeCompaction(COMPACTION_SIZE);
+                    List<AuditDelta> changed = new ArrayList<>();
+                    for (String tableId : tableIds) {
+                        try {
+                            changed.addAll(compacted(repository.findAll(tableId)));
+                        } catch (RuntimeException e) {
+                            log.warn("Could not compact audit versions of {}, they are kept as they are", tableId, e);
+                        }
+                    }
+                    repository.store(changed);
+                    return new CompactionBatch(tableIds.size(), changed.size());
+                }
+            });
+            taken = batch == null ? 0 : batch.tableIds();
+            compacted += batch == null ? 0 : batch.versions();
+        } while (taken == COMPACTION_SIZE);
+        if (compacted > 0) {
+            log.info("Compacted {} audit versions", compacted);
+        }
+        return compacted;
+    }
+
+    /**
+     * @return versions stored differently with the checkpoint interval, all versions of a table id in order
+     */
+    private List<AuditDelta> compacted(List<AuditDelta> stored) {
+        List<AuditDelta> changed = new ArrayList<>();
+        JsonNode previous = null;
+        int sinceCheckpoint = 0;
+        for (AuditDelta delta : stored) {
+            JsonNode data = next(previous, delta);
+            String json = delta.isCheckpoint() ? delta.data() : JsonUtils.toJson(jsonbOrder(data));
+            String patch = previous == null ? null : patch(previous, sinceCheckpoint, data, json);
+            if (patch == null) {
+                sinceCheckpoint = 0;
+                if (!delta.isCheckpoint()) {
+                    changed.add(delta.asCheckpoint(json));
+                }
+            } else {
+                sinceCheckpoint++;
+                if (delta.isCheckpoint()) {
+                    changed.add(delta.asPatch(patch));
+                }
+            }
+            previous = data;
+        }
+        return changed;
+    }
+
+    /**
+     * @return patch from the previous data, or null if the version is to be a checkpoint
+     */
+    private String patch(JsonNode previous, int sinceCheckpoint, JsonNode data, String json) {
+        if (sinceCheckpoint + 1 >= checkpointInterval) {
+            return null;
+        }
+        String patch = JsonUtils.toJson(JsonPatch.diff(previous, data));
+        return patch.length() < json.length() ? patch : null;
+    }
+
+    private static JsonNode next(JsonNode previous, AuditDelta delta) {
+        if (delta.isCheckpoint()) {
+            return JsonUtils.toJsonNode(delta.data());
+        }
+        if (previous == null) {
+            throw new IllegalStateException("no checkpoint before audit version " + delta.id());
+        }
+        return JsonPatch.apply(previous, JsonUtils.toJsonNode(delta.patch()));
+    }
+
+    /**
+     * @return the given versions from the last checkpoint at or before from up to to, if none are missing
+     */
+    private static Optional<List<AuditDelta>> givenChain(List<AuditDelta> given, int from, int to) {
+        TreeMap<Integer, AuditDelta> byVersion = given.stream().collect(Collectors.toMap(AuditDelta::version, Function.identity(), (a, b) -> a, TreeMap::new));
+        return byVersion.headMap(from, true).descendingMap().values().stream()
+                .filter(AuditDelta::isCheckpoint)
+                .findFirst()
+                .map(checkpoint -> List.copyOf(byVersion.subMap(checkpoint.version(), true, to, true).values()))
+                .filter(chain -> chain.size() == to - chain.getFirst().version() + 1);
+    }
+
+    private static JsonNode jsonbOrder(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            ObjectNode ordered = NODES.objectNode();
+            List<String> keys = new ArrayList<>();
+            object.fieldNames().forEachRemaining(keys::add);
+            keys.stream().sorted(JSONB_KEY_ORDER).forEach(key -> ordered.set(key, jsonbOrder(object.get(key))));
+            return ordered;
+        } else if (node instanceof ArrayNode array) {
+            ArrayNode ordered = NODES.arrayNode();
+            array.forEach(element -> ordered.add(jsonbOrder(element)));
+            return ordered;
+        }
+        return node;
+    }
+
+    private record Head(int version, int sinceCheckpoint, JsonNode data) {
+
+    }
+
+    private record CompactionBatch(int tableIds, int versions) {
+
+    }
+}
@@ -2,15 +2,23 @@ package no.nav.data.common.auditing;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import no.nav.data.common.auditing.domain.Action;
+import no.nav.data.common.auditing.domain.AuditVersion;
 import no.nav.data.common.auditing.domain.AuditVersionRepository;
 import no.nav.data.common.auditing.dto.AuditMetadata;
+import no.nav.data.polly.process.domain.Process;
 import no.nav.data.polly.process.domain.ProcessAuditField;
 
 @Service
@@ -18,6 +26,7 @@ import no.nav.data.polly.process.domain.ProcessAuditField;
 public class AuditService {
 
     private final AuditVersionRepository auditVersionRepository;
+    private final AuditDeltaService auditDeltaService;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -26,32 +35,35 @@ public class AuditService {
         return auditVersionRepository.getLastChangedProcessesByUser(user, 20);
     }
 
+    /**
+     * Counts processes with a version in the period where the field differs from the previous version, deleted versions left out.
+     * Versions are stored as patches, so the versions of the processes changed in the period are replayed, streamed within the transaction.
+     */
+    @Transactional(readOnly = true)
     public long countProcessesWithFieldChanges(ProcessAuditField field, LocalDate from, LocalDate to) {
-        // field.jsonKey comes from a validated enum, not user input - safe to embed in SQL
-        String sql = """
-                WITH ranked AS (
-                    SELECT
-                        table_id,
-                        time,
-                        DATA #> '{data,%s}' AS field_value,
-                        LAG(DATA #> '{data,%s}') OVER (PARTITION BY table_id ORDER BY time) AS prev_field_value
-                    FROM audit_version
-                    WHERE table_name = 'PROCESS' AND action != 'DELETE'
-                )
-                SELECT COUNT(DISTINCT table_id)
-                FROM ranked
-                WHERE time >= :from AND time < :to
-                  AND prev_field_value IS NOT NULL
-                  AND field_value::text IS DISTINCT FROM prev_field_value::text
-                """.formatted(field.jsonKey, field.jsonKey);
-
+        JsonPointer pointer = JsonPointer.compile("/data/" + field.jsonKey.replace(',', '/'));
         LocalDateTime fromDt = from.atStartOfDay();
         LocalDateTime toDt = to.plusDays(1).atStartOfDay();
 
-        return ((Number) entityManager.createNativeQuery(sql)
-                .setParameter("from", fromDt)
-                .setParameter("to", toDt)
-                .getSingleResult()).longValue();
+        Set<String> changed = new HashSet<>();
+        var previous = new Object() {
+            String tableId;
+            JsonNode value;
+        };
+        auditDeltaService.replay(AuditVersion.tableName(Process.class), fromDt, toDt, (delta, data) -> {
+            if (delta.action() == Action.DELETE) {
+                return;
+            }
+            JsonNode value = data.at(pointer);
+            JsonNode previousValue = delta.tableId().equals(previous.tableId) ? previous.value : null;
+            if (!delta.time().isBefore(fromDt) && delta.time().isBefore(toDt)
+                    && previousValue != null && !previousValue.isMissingNode() && !value.equals(previousValue)) {
+                changed.add(delta.tableId());
+            }
+            previous.tableId = delta.tableId();
+            previous.value = value;
+        });
+        return changed.size();
     }
 
     public long countProcessesAtEndOfPeriod(LocalDate to) {
@@ -17,7 +17,6 @@ import jakarta.persistence.PreUpdate;
 import lombok.extern.slf4j.Slf4j;
 import no.nav.data.common.auditing.domain.Action;
 import no.nav.data.common.auditing.domain.AuditVersion;
-import no.nav.data.common.auditing.domain.AuditVersionRepository;
 import no.nav.data.common.auditing.domain.Auditable;
 import no.nav.data.common.storage.domain.GenericStorage;
 import no.nav.data.common.utils.HibernateUtils;
@@ -39,7 +38,7 @@ public class AuditVersionListener {
     // Dette er løst med et hæck der Spring kaller en statisk metode i denne klassen for å tilby bønna.
     // Men dette hacket virker ikke alltid for integrasjonstesting, så det er et hæck til i IntegrationTestBase for å få det til å gå.
     
-    private static volatile AuditVersionRepository repository;
+    private static volatile AuditWriter writer;
 
     private static final ObjectWriter wr;
 
@@ -51,8 +50,8 @@ public class AuditVersionListener {
         wr = om.writer(filters);
     }
 
-    public static void setRepo(AuditVersionRepository repository) {
-        AuditVersionListener.repository = repository;
+    public static void setWriter(AuditWriter writer) {
+        AuditVersionListener.writer = writer;
     }
 
     @PrePersist
@@ -84,12 +83,23 @@ public class AuditVersionListener {
             AuditVersion auditVersion = AuditVersion.builder()
                     .action(action).table(tableName).tableId(id).data(data).user(user)
                     .build();
-            repository.save(auditVersion);
+            writer.write(auditVersion);
         } catch (JsonProcessingException e) {
             log.error("failed to serialize object", e);
         }
     }
 
+    /**
+     * @return the entity as audit data, with relations as ids
+     */
+    public static String toJson(Object entity) {
+        try {
+            return wr.writeValueAsString(entity);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("failed to serialize object", e);
+        }
+    }
+
     public static String getIdForObject(Object entity) {
         String id;
         if (entity instanceof Codelist clEntity) {
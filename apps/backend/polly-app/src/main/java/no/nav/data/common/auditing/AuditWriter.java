@@ -0,0 +1,193 @@
+package no.nav.data.common.auditing;
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.auditing.domain.AuditBatchRepository;
+import no.nav.data.common.auditing.domain.AuditVersion;
+import no.nav.data.common.utils.MetricUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the audit versions of {@link AuditVersionListener}.
+ * <p>
+ * The audit versions of a transaction are collected and written as one JDBC batch before it commits.
+ * The batch is registered as each read-write transaction begins, as a listener of the transaction manager, and flushes pending entity changes first,
+ * so the audits of changes only found by dirty checking at commit are in the batch.
+ * With polly.audit.mode=queue the batch goes to the audit_queue table instead, and is moved to audit_version in the background.
+ * The queue is in the same database and transaction, so no audit is lost, but the audit log lags behind by the queue delay.
+ * <p>
+ * Before they are written the audit versions are numbered, and stored as patches between checkpoints, see {@link AuditDeltaService}.
+ * The previous version is read after the flush, so a concurrent change of the same entity waits for its row lock and is numbered after this one.
+ */
+@Slf4j
+@Service
+public class AuditWriter implements TransactionExecutionListener {
+
+    private static final int DRAIN_SIZE = 1000;
+
+    public enum Mode {
+        BATCH, QUEUE
+    }
+
+    private final AuditBatchRepository repository;
+    private final AuditDeltaService deltas;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Mode mode;
+    private final Summary latency;
+    private final Summary batchSize;
+    private final Gauge queued;
+    private volatile boolean queueHadRows = true;
+
+    public AuditWriter(AuditBatchRepository repository, AuditDeltaService deltas, EntityManagerFactory entityManagerFactory,
+            @Value("${polly.audit.mode:batch}") String mode) {
+        this.repository = repository;
+        this.deltas = deltas;
+        this.entityManagerFactory = entityManagerFactory;
+        this.mode = Mode.valueOf(mode.toUpperCase());
+        this.latency = MetricUtils.summary()
+                .labels("batch").labels("queue").labels("drain")
+                .labelNames("mode")
+                .name("polly_audit_write_seconds")
+                .help("Time to write a batch of audit versions")
+                .quantile(.5, .01).quantile(.99, .001)
+                .maxAgeSeconds(Duration.ofHours(6).getSeconds())
+                .ageBuckets(6)
+                .register();
+        this.batchSize = MetricUtils.summary()
+                .labels("batch").labels("queue").labels("drain")
+                .labelNames("mode")
+                .name("polly_audit_batch_size")
+                .help("Audit versions written per batch")
+                .quantile(.5, .01).quantile(.99, .001)
+                .maxAgeSeconds(Duration.ofHours(6).getSeconds())
+                .ageBuckets(6)
+                .register();
+        this.queued = MetricUtils.gauge()
+                .name("polly_audit_queued")
+                .help("Audit versions moved from the audit queue by the last drain of this pod")
+                .register();
+        log.info("Writing audit versions in {} mode", this.mode);
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure == null && transaction.isNewTransaction() && !transaction.isReadOnly() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending();
+        }
+    }
+
+    /**
+     * Without a transaction, or once the batch of the transaction is written, the audit version is written at once
+     */
+    public void write(AuditVersion audit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            flush(List.of(audit));
+            return;
+        }
+        var pending = pending();
+        if (pending.written) {
+            flush(List.of(audit));
+        } else {
+            pending.audits.add(audit);
+        }
+    }
+
+    private PendingAudits pending() {
+        var pending = (PendingAudits) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingAudits();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    private void flush(List<AuditVersion> audits) {
+        if (audits.isEmpty()) {
+            return;
+        }
+        String label = mode.name().toLowerCase();
+        try (var ignored = latency.labels(label).startTimer()) {
+            deltas.prepare(audits);
+            switch (mode) {
+                case BATCH -> repository.insert(audits);
+                case QUEUE -> repository.enqueue(audits);
+            }
+        }
+        batchSize.labels(label).observe(audits.size());
+    }
+
+    /**
+     * Moves queued audit versions to audit_version. In batch mode the queue is only drained until a pass finds it empty,
+     * the first pass after start writes audits queued before a switch to batch mode.
+     *
+     * @return number of audit versions moved
+     */
+    @Scheduled(initialDelayString = "${polly.audit.queue.delay:PT2S}", fixedDelayString = "${polly.audit.queue.delay:PT2S}")
+    public int drainQueue() {
+        if (mode == Mode.BATCH && !queueHadRows) {
+            return 0;
+        }
+        int drained = 0;
+        int moved;
+        do {
+            try (var ignored = latency.labels("drain").startTimer()) {
+                moved = repository.drain(DRAIN_SIZE);
+            }
+            if (moved > 0) {
+                batchSize.labels("drain").observe(moved);
+            }
+            drained += moved;
+        } while (moved == DRAIN_SIZE);
+        queueHadRows = drained > 0;
+        queued.set(drained);
+        return drained;
+    }
+
+    /**
+     * Audit versions of one transaction, unbound while the transaction is suspended so a nested transaction writes its own
+     */
+    private class PendingAudits implements TransactionSynchronization {
+
+        private final List<AuditVersion> audits = new ArrayList<>();
+        private boolean written;
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(AuditWriter.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(AuditWriter.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            var entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+            if (!readOnly && entityManager != null) {
+                entityManager.flush();
+            }
+            written = true;
+            flush(audits);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AuditWriter.this);
+        }
+    }
+}
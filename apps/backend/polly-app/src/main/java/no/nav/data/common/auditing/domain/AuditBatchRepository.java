@@ -0,0 +1,60 @@
+package no.nav.data.common.auditing.domain;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes audit versions as JDBC batches, directly to audit_version or to the audit_queue table, see V1.50__audit_queue.sql.
+ * The versions are numbered and stored as checkpoint or patch before they are written, see {@link no.nav.data.common.auditing.AuditDeltaService}
+ */
+@Repository
+@RequiredArgsConstructor
+public class AuditBatchRepository {
+
+    private static final String COLUMNS = "audit_id, action, table_name, table_id, time, user_id, version, data, patch";
+    private static final String VALUES = "values (:auditId, :action, :table, :tableId, :time, :user, :version, cast(:data as jsonb), cast(:patch as jsonb))";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void insert(Collection<AuditVersion> audits) {
+        jdbcTemplate.batchUpdate("insert into audit_version (" + COLUMNS + ") " + VALUES, params(audits));
+    }
+
+    public void enqueue(Collection<AuditVersion> audits) {
+        jdbcTemplate.batchUpdate("insert into audit_queue (" + COLUMNS + ") " + VALUES, params(audits));
+    }
+
+    /**
+     * Moves the oldest queued audit versions to audit_version in one statement. Rows locked by another pod are skipped.
+     *
+     * @return number of audit versions moved
+     */
+    public int drain(int limit) {
+        return jdbcTemplate.update("""
+                with moved as (
+                    delete from audit_queue where queue_id in (select queue_id from audit_queue order by queue_id limit :limit for update skip locked)
+                    returning queue_id, %1$s
+                )
+                insert into audit_version (%1$s) select %1$s from moved order by queue_id
+                """.formatted(COLUMNS), Map.of("limit", limit));
+    }
+
+    private static SqlParameterSource[] params(Collection<AuditVersion> audits) {
+        return audits.stream().map(audit -> new MapSqlParameterSource()
+                .addValue("auditId", audit.getId())
+                .addValue("action", audit.getAction().name())
+                .addValue("table", audit.getTable())
+                .addValue("tableId", audit.getTableId())
+                .addValue("time", audit.getTime())
+                .addValue("user", audit.getUser())
+                .addValue("version", audit.getVersion())
+                .addValue("data", audit.getData())
+                .addValue("patch", audit.getPatch())).toArray(SqlParameterSource[]::new);
+    }
+}
@@ -0,0 +1,186 @@
+package no.nav.data.common.auditing.domain;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Reads audit versions as stored, checkpoints with data and versions with a patch from the previous version, see V1.51__audit_delta.sql.
+ * <p>
+ * Versions are read in chains, from the last checkpoint before the versions wanted, through the index on table id and version.
+ * Versions written before V1.51 and by pods of the release before it have no number until {@link #number(Collection)}, and are left out until then.
+ */
+@Repository
+public class AuditDeltaRepository {
+
+    private static final String COLUMNS = "audit_id, table_id, version, action, time, cast(data as text) as data, cast(patch as text) as patch";
+    private static final int FETCH_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingTemplate;
+
+    public AuditDeltaRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        var streaming = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(FETCH_SIZE);
+        this.streamingTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    /**
+     * Versions from the last checkpoint to the latest version of each table id, queued versions included
+     */
+    public List<AuditDelta> findLatest(Collection<String> tableIds) {
+        return jdbcTemplate.query("""
+                with stored as (
+                    select audit_id, table_id, version, action, time, data, patch from audit_version where table_id in (:tableIds)
+                    union all
+                    select audit_id, table_id, version, action, time, data, patch from audit_queue where table_id in (:tableIds)
+                )
+                select %s from stored s
+                where version >= (select max(c.version) from stored c where c.table_id = s.table_id and c.data is not null)
+                order by table_id, version
+                """.formatted(COLUMNS), Map.of("tableIds", tableIds), AuditDeltaRepository::toDelta);
+    }
+
+    /**
+     * Versions needed to reconstruct the versions from and to of each range: from the last checkpoint at or before from, up to to
+     */
+    public List<AuditDelta> findChains(Collection<VersionRange> ranges) {
+        var params = Map.of(
+                "tableIds", new SqlArrayValue("text", ranges.stream().map(VersionRange::tableId).toArray()),
+                "froms", new SqlArrayValue("int4", ranges.stream().map(VersionRange::from).toArray()),
+                "tos", new SqlArrayValue("int4", ranges.stream().map(VersionRange::to).toArray())
+        );
+        return jdbcTemplate.query("""
+                select av.audit_id, av.table_id, av.version, av.action, av.time, cast(av.data as text) as data, cast(av.patch as text) as patch
+                from unnest(:tableIds, :froms, :tos) as wanted(table_id, from_version, to_version)
+                join audit_version av on av.table_id = wanted.table_id and av.version <= wanted.to_version
+                    and av.version >= (select max(c.version) from audit_version c
+                                       where c.table_id = wanted.table_id and c.version <= wanted.from_version and c.data is not null)
+                order by av.table_id, av.version
+                """, params, AuditDeltaRepository::toDelta);
+    }
+
+    public List<AuditDelta> findAll(String tableId) {
+        return jdbcTemplate.query("select %s from audit_version where table_id = :tableId and version is not null order by version".formatted(COLUMNS),
+                Map.of("tableId", tableId), AuditDeltaRepository::toDelta);
+    }
+
+    /**
+     * Versions of the table ids with a version from time from to time to, and the versions needed to compare them to the version before:
+     * from the last checkpoint at or before the version before the first in the period, up to the last in the period.
+     * In order of table id and version, streamed within the transaction in rows of {@value FETCH_SIZE}.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void forEachInPeriod(String table, LocalDateTime from, LocalDateTime to, Consumer<AuditDelta> consumer) {
+        streamingTemplate.query("""
+                with period as (
+                    select table_id, min(version) as first_version, max(version) as last_version from audit_version
+                    where table_name = :table and time >= :from and time < :to
+                    group by table_id
+                )
+                select av.audit_id, av.table_id, av.version, av.action, av.time, cast(av.data as text) as data, cast(av.patch as text) as patch
+                from period p
+                join audit_version av on av.table_id = p.table_id and av.version <= p.last_version
+                    and av.version >= (select max(c.version) from audit_version c
+                                       where c.table_id = p.table_id and c.version <= greatest(p.first_version - 1, 1) and c.data is not null)
+                order by av.table_id, av.version
+                """, Map.of("table", table, "from", from, "to", to), rs -> consumer.accept(toDelta(rs, 0)));
+    }
+
+    /**
+     * Stores the versions as checkpoints or patches, the versions must describe the same data as stored
+     */
+    public void store(Collection<AuditDelta> deltas) {
+        jdbcTemplate.batchUpdate("update audit_version set data = cast(:data as jsonb), patch = cast(:patch as jsonb) where audit_id = :auditId",
+                deltas.stream().map(delta -> new MapSqlParameterSource()
+                        .addValue("auditId", delta.id())
+                        .addValue("data", delta.data())
+                        .addValue("patch", delta.patch())).toArray(SqlParameterSource[]::new));
+    }
+
+    /**
+     * Table ids with versions without a number, through the partial index of V1.54__audit_version_index.sql
+     */
+    public List<String> findUnnumbered(int limit) {
+        return jdbcTemplate.queryForList("select distinct table_id from audit_version where version is null limit :limit", Map.of("limit", limit), String.class);
+    }
+
+    /**
+     * Numbers the versions without a number of the table ids after their numbered versions, in order of time, and leaves the table ids to compact.
+     * Versions numbered by a concurrent transaction are skipped once its lock is released.
+     *
+     * @return number of versions numbered
+     */
+    public int number(Collection<String> tableIds) {
+        if (tableIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.queryForObject("""
+                with numbered as (
+                    update audit_version av set version = n.version
+                    from (select u.audit_id,
+                                 coalesce((select max(m.version) from audit_version m where m.table_id = u.table_id), 0)
+                                     + row_number() over (partition by u.table_id order by u.time, u.audit_id) as version
+                          from audit_version u where u.table_id in (:tableIds) and u.version is null) n
+                    where av.audit_id = n.audit_id and av.version is null
+                    returning av.table_id
+                ), compaction as (
+                    insert into audit_compaction (table_id) select distinct table_id from numbered on conflict do nothing
+                )
+                select count(*) from numbered
+                """, Map.of("tableIds", tableIds), Integer.class);
+    }
+
+    /**
+     * Takes table ids left to compact, ids taken by another transaction are skipped. The ids are back if the transaction rolls back.
+     */
+    public List<String> takeCompaction(int limit) {
+        return jdbcTemplate.queryForList("""
+                delete from audit_compaction where table_id in (select table_id from audit_compaction limit :limit for update skip locked)
+                returning table_id
+                """, Map.of("limit", limit), String.class);
+    }
+
+    private static AuditDelta toDelta(ResultSet rs, int rowNum) throws SQLException {
+        return new AuditDelta(rs.getObject("audit_id", UUID.class), rs.getString("table_id"), rs.getInt("version"), Action.valueOf(rs.getString("action")),
+                rs.getObject("time", LocalDateTime.class), rs.getString("data"), rs.getString("patch"));
+    }
+
+    public record AuditDelta(UUID id, String tableId, int version, Action action, LocalDateTime time, String data, String patch) {
+
+        public static AuditDelta from(AuditVersion audit) {
+            return new AuditDelta(audit.getId(), audit.getTableId(), audit.getVersion(), audit.getAction(), audit.getTime(), audit.getData(), audit.getPatch());
+        }
+
+        public boolean isCheckpoint() {
+            return data != null;
+        }
+
+        public AuditDelta asCheckpoint(String data) {
+            return new AuditDelta(id, tableId, version, action, time, data, null);
+        }
+
+        public AuditDelta asPatch(String patch) {
+            return new AuditDelta(id, tableId, version, action, time, null, patch);
+        }
+    }
+
+    public record VersionRange(String tableId, int from, int to) {
+
+    }
+}
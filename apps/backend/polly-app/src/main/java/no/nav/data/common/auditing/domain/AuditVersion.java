@@ -62,10 +62,26 @@ public class AuditVersion {
     @Column(name = "USER_ID", nullable = false, updatable = false)
     private String user;
 
+    /**
+     * Number of the version among the audit versions of the same table id, starting at 1
+     */
+    @Column(name = "VERSION", nullable = false, updatable = false)
+    private Integer version;
+
+    /**
+     * The audited object, set on checkpoints. Versions between checkpoints only have the patch, see {@link no.nav.data.common.auditing.AuditDeltaService}
+     */
     @Type(value = JsonBinaryType.class)
-    @Column(name = "DATA", nullable = false, updatable = false)
+    @Column(name = "DATA", updatable = false)
     private String data;
 
+    /**
+     * JSON Patch from the data of the previous version, set when data is not
+     */
+    @Type(value = JsonBinaryType.class)
+    @Column(name = "PATCH", updatable = false)
+    private String patch;
+
     // TODO: Snu avhengigheten innover (ikke triviell). Flytt all forretningslogikk i domeneklassen ut til tjenestelaget.
     public EventResponse convertToEventResponse() {
         return EventResponse.builder()
@@ -6,6 +6,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.auditing.AuditDeltaService;
 import no.nav.data.common.auditing.domain.Action;
 import no.nav.data.common.auditing.domain.AuditVersion;
 import no.nav.data.common.auditing.domain.AuditVersion.Fields;
@@ -41,6 +42,7 @@ public class EventController {
     // TODO: Implementerer ikke controller → service → DB. Flytt all forretningslogikk, *Repository-aksess og @Transactional til tjenestelaget.
 
     private final AuditVersionRepository repository;
+    private final AuditDeltaService auditDeltaService;
     private final List<String> allowedTables = convert(
             List.of(InformationType.class, Process.class, Policy.class, Disclosure.class, Document.class),
             AuditVersion::tableName);
@@ -52,7 +54,9 @@ public class EventController {
         log.info("Received request for Events {} table {}", paging, table);
         validateTable(table);
         Pageable pageable = paging.createSortedPageByFieldDescending(Fields.time);
-        Page<EventResponse> page = repository.findForTableAndAction(table, action.name(), pageable).map(AuditVersion::convertToEventResponse);
+        Page<AuditVersion> audits = repository.findForTableAndAction(table, action.name(), pageable);
+        auditDeltaService.reconstruct(audits.getContent());
+        Page<EventResponse> page = audits.map(AuditVersion::convertToEventResponse);
         return new ResponseEntity<>(new RestResponsePage<>(page), HttpStatus.OK);
     }
 
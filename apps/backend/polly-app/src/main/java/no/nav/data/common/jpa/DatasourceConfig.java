@@ -2,27 +2,65 @@ package no.nav.data.common.jpa;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.jpa.DatasourceProperties.Pool;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
-import static java.util.concurrent.TimeUnit.MINUTES;
+import javax.sql.DataSource;
 
+import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
+
+/**
+ * Pools are exported as hikaricp_* metrics tagged with the pool name, see {@link ReadReplicaRoutingDataSource} for the replica.
+ */
+@Slf4j
 @Configuration
+@ConditionalOnProperty(name = "polly.jpa.enabled", havingValue = "true", matchIfMissing = true)
 public class DatasourceConfig {
 
-    static HikariDataSource hikariDataSource(
+    static final String PRIMARY_POOL = "polly-primary";
+    static final String REPLICA_POOL = "polly-replica";
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
             @Value("${spring.datasource.url}") String url,
             @Value("${spring.datasource.username}") String username,
-            @Value("${spring.datasource.password}") String password) {
+            @Value("${spring.datasource.password}") String password,
+            DatasourceProperties properties, MeterRegistry meterRegistry) {
+        HikariDataSource primary = hikariDataSource(PRIMARY_POOL, url, username, password, properties.getPool(), meterRegistry);
+        var replicaProperties = properties.getReplica();
+        if (!replicaProperties.isEnabled()) {
+            return primary;
+        }
+        log.info("Routing read only transactions to replica pool {}", REPLICA_POOL);
+        HikariDataSource replica = hikariDataSource(REPLICA_POOL, replicaProperties.getUrl(),
+                defaultIfBlank(replicaProperties.getUsername(), username), defaultIfBlank(replicaProperties.getPassword(), password),
+                replicaProperties.getPool(), meterRegistry);
+        return new ReadReplicaRoutingDataSource(primary, replica);
+    }
+
+    static HikariDataSource hikariDataSource(String poolName, String url, String username, String password, Pool pool, MeterRegistry meterRegistry) {
         HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
         config.setJdbcUrl(url);
-        config.setMinimumIdle(1);
-        config.setMaximumPoolSize(2);
-        config.setIdleTimeout(MINUTES.toMillis(5));
-        config.setMaxLifetime(MINUTES.toMillis(9));
         config.setUsername(username);
         config.setPassword(password);
+        config.setMaximumPoolSize(pool.getMaximumPoolSize());
+        config.setMinimumIdle(pool.getMinimumIdle());
+        config.setConnectionTimeout(pool.getConnectionTimeout().toMillis());
+        config.setIdleTimeout(pool.getIdleTimeout().toMillis());
+        config.setMaxLifetime(pool.getMaxLifetime().toMillis());
+        if (!pool.getStatementTimeout().isZero()) {
+            config.addDataSourceProperty("options", "-c statement_timeout=" + pool.getStatementTimeout().toMillis());
+        }
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
         return new HikariDataSource(config);
     }
-
 }
@@ -0,0 +1,48 @@
+package no.nav.data.common.jpa;
+
+import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "polly.datasource")
+public class DatasourceProperties {
+
+    private Pool pool = new Pool();
+    private Replica replica = new Replica();
+
+    @Data
+    public static class Pool {
+
+        private int maximumPoolSize = 10;
+        private int minimumIdle = 2;
+        private Duration connectionTimeout = Duration.ofSeconds(10);
+        private Duration idleTimeout = Duration.ofMinutes(5);
+        private Duration maxLifetime = Duration.ofMinutes(9);
+        /**
+         * Server side limit for a single statement, zero disables it
+         */
+        private Duration statementTimeout = Duration.ofMinutes(2);
+
+    }
+
+    /**
+     * Read only transactions are routed to the replica when an url is set
+     */
+    @Data
+    public static class Replica {
+
+        private String url;
+        private String username;
+        private String password;
+        private Pool pool = new Pool();
+
+        public boolean isEnabled() {
+            return StringUtils.isNotBlank(url);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import io.prometheus.client.hibernate.HibernateStatisticsCollector;
 import jakarta.persistence.EntityManagerFactory;
 import no.nav.data.AppStarter;
 import no.nav.data.common.auditing.AuditVersionListener;
+import no.nav.data.common.auditing.AuditWriter;
 import no.nav.data.common.auditing.AuditorAwareImpl;
 import no.nav.data.common.auditing.domain.AuditVersionRepository;
 import no.nav.data.common.utils.MdcUtils;
@@ -40,8 +41,8 @@ public class JpaConfig {
     }
 
     @Bean
-    public ApplicationRunner initAudit(AuditVersionRepository repository) {
-        return args -> AuditVersionListener.setRepo(repository);
+    public ApplicationRunner initAudit(AuditWriter writer) {
+        return args -> AuditVersionListener.setWriter(writer);
     }
 
     @Bean
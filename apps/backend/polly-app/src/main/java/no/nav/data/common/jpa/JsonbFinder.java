@@ -0,0 +1,116 @@
+package no.nav.data.common.jpa;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Table;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Finds managed entities by a native sql condition on the entity table, typically a jsonb lookup on <code>data</code>.
+ * Entities are hydrated by the same statement, instead of selecting ids first and then loading them with findAllById.
+ * <p>
+ * Named parameters use the <code>:name</code> syntax, casts must be written as <code>cast(:name as jsonb)</code>.
+ */
+@Component
+public class JsonbFinder {
+
+    private static final int FETCH_SIZE = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <T> List<T> find(Class<T> type, String condition) {
+        return find(type, condition, Map.of());
+    }
+
+    public <T> List<T> find(Class<T> type, String condition, String paramName, Object paramValue) {
+        return find(type, condition, Map.of(paramName, paramValue));
+    }
+
+    public <T> List<T> find(Class<T> type, String condition, Map<String, ?> params) {
+        return createQuery(type, condition, params).getResultList();
+    }
+
+    public long count(Class<?> type, String condition, Map<String, ?> params) {
+        var query = entityManager.createNativeQuery("select count(*) from " + tableName(type) + " where " + condition, Long.class);
+        params.forEach(query::setParameter);
+        return (Long) query.getSingleResult();
+    }
+
+    /**
+     * Reads the rows through a server side cursor and hands them to the consumer {@value FETCH_SIZE} at a time, must be called in a transaction.
+     * The persistence context is cleared after each chunk to keep memory bounded, so entities are only managed until the consumer returns
+     * and the caller must not have pending changes.
+     */
+    public <T> void forEachChunk(Class<T> type, String condition, Map<String, ?> params, Consumer<List<T>> consumer) {
+        try (ScrollableResults<T> results = createQuery(type, condition, params).setFetchSize(FETCH_SIZE).scroll(ScrollMode.FORWARD_ONLY)) {
+            List<T> chunk = new ArrayList<>(FETCH_SIZE);
+            while (results.next()) {
+                chunk.add(results.get());
+                if (chunk.size() == FETCH_SIZE) {
+                    consumer.accept(chunk);
+                    chunk = new ArrayList<>(FETCH_SIZE);
+                    entityManager.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+            }
+        }
+    }
+
+    /**
+     * Rows ordered by <code>keyColumn</code> descending, the order of the offset paged listings, limited to the keyset. One row more than the limit is returned when there is a next page,
+     * see {@link no.nav.data.common.rest.RestResponsePage#ofKeyset}. A null keyset returns every row matching the condition, unordered.
+     */
+    public <T> List<T> find(Class<T> type, String condition, Map<String, ?> params, String keyColumn, Keyset keyset) {
+        if (keyset == null) {
+            return find(type, condition, params);
+        }
+        Map<String, Object> keysetParams = new HashMap<>(params);
+        String keysetCondition = "(" + condition + ")";
+        if (keyset.after() != null) {
+            keysetCondition += " and " + keyColumn + " < :keysetAfter";
+            keysetParams.put("keysetAfter", keyset.after());
+        }
+        keysetCondition += " order by " + keyColumn + " desc limit :keysetLimit";
+        keysetParams.put("keysetLimit", keyset.limit() + 1);
+        return find(type, keysetCondition, keysetParams);
+    }
+
+    public <T> Optional<T> findOne(Class<T> type, String condition, Map<String, ?> params) {
+        return find(type, condition, params).stream().findFirst();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> NativeQuery<T> createQuery(Class<T> type, String condition, Map<String, ?> params) {
+        NativeQuery<T> query = entityManager.createNativeQuery("select * from " + tableName(type) + " where " + condition, type).unwrap(NativeQuery.class);
+        params.forEach((name, value) -> {
+            if (value instanceof Collection<?> values) {
+                query.setParameterList(name, values);
+            } else {
+                query.setParameter(name, value);
+            }
+        });
+        return query;
+    }
+
+    private static String tableName(Class<?> type) {
+        Table table = type.getAnnotation(Table.class);
+        if (table == null) {
+            throw new IllegalArgumentException(type.getSimpleName() + " is not mapped to a table");
+        }
+        return table.name();
+    }
+}
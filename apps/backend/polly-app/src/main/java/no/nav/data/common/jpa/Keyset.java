@@ -0,0 +1,9 @@
+package no.nav.data.common.jpa;
+
+/**
+ * Keyset page in descending key order, at most <code>limit</code> rows with a key less than <code>after</code>, or from the highest key if <code>after</code> is null.
+ * The database seeks directly to the start of the page through the key index, so deep pages cost the same as the first one.
+ */
+public record Keyset(Integer after, int limit) {
+
+}
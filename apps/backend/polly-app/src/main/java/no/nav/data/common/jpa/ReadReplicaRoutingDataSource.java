@@ -0,0 +1,31 @@
+package no.nav.data.common.jpa;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.io.Closeable;
+
+/**
+ * Connections are fetched on the first statement instead of when the transaction begins. By then a <code>@Transactional(readOnly = true)</code>
+ * transaction has marked the connection read only, and it is taken from the replica pool instead of the primary.
+ * <p>
+ * Work outside a transaction and read-write transactions always use the primary.
+ */
+class ReadReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+
+    ReadReplicaRoutingDataSource(HikariDataSource primary, HikariDataSource replica) {
+        super(primary);
+        setReadOnlyDataSource(replica);
+        this.primary = primary;
+        this.replica = replica;
+    }
+
+    @Override
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+}
@@ -1,15 +1,21 @@
 package no.nav.data.common.jpa;
 
 import lombok.experimental.UtilityClass;
+import no.nav.data.common.utils.JsonUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
+import static no.nav.data.common.utils.StreamUtils.convert;
+
 @UtilityClass
 public class RepoUtil {
 
@@ -25,4 +31,29 @@ public class RepoUtil {
             consumer.accept(page.getContent());
         } while (page.hasNext());
     }
+
+    /**
+     * Lifts the statement timeout of the pool, see {@link DatasourceProperties.Pool#getStatementTimeout()}, for the rest of the current transaction.
+     * For batch work that scans whole tables, the timeout is there to stop runaway request queries.
+     */
+    public static void disableStatementTimeout(JdbcOperations jdbcOperations) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("statement timeout can only be disabled within a transaction");
+        }
+        jdbcOperations.execute("set local statement_timeout = 0");
+    }
+
+    /**
+     * Single element json array, used as right hand side of jsonb containment <code>@></code> so queries can use jsonb_path_ops indexes
+     */
+    public static String jsonArrayOf(Object value) {
+        return JsonUtils.toJson(List.of(value));
+    }
+
+    /**
+     * One single element json array per value, used with <code>@> any(cast(array[ :values ] as jsonb[]))</code>
+     */
+    public static List<String> jsonArraysOf(Collection<?> values) {
+        return convert(values, RepoUtil::jsonArrayOf);
+    }
 }
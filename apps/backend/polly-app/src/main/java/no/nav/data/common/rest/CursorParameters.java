@@ -0,0 +1,50 @@
+package no.nav.data.common.rest;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.jpa.Keyset;
+import org.springdoc.core.annotations.ParameterObject;
+
+@Slf4j
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@ParameterObject
+public class CursorParameters {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 250;
+
+    @Schema(description = "Cursor, pass next from the previous page")
+    private Integer after;
+    @Schema(description = "Cursor paging is used if after or limit is set", defaultValue = "20", minimum = "1", maximum = "250")
+    private Integer limit;
+
+    /**
+     * @return null if neither after nor limit is set, the endpoint then returns all elements
+     */
+    public Keyset createKeyset() {
+        if (after == null && limit == null) {
+            return null;
+        }
+        validate();
+        return new Keyset(after, limit);
+    }
+
+    public void validate() {
+        if (limit == null) {
+            limit = DEFAULT_LIMIT;
+        }
+        if (limit < 1) {
+            log.warn("invalid limit {}, setting to 1", limit);
+            limit = 1;
+        }
+        if (limit > MAX_LIMIT) {
+            log.warn("invalid limit {}, setting to {}", limit, MAX_LIMIT);
+            limit = MAX_LIMIT;
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package no.nav.data.common.rest;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import io.swagger.v3.oas.annotations.Parameter;
 import lombok.Getter;
+import no.nav.data.common.jpa.Keyset;
 import no.nav.data.common.utils.StreamUtils;
 import org.springframework.data.domain.Page;
 
@@ -12,7 +15,7 @@ import java.util.List;
 import java.util.function.Function;
 
 @Getter
-@JsonPropertyOrder({"pageNumber", "pageSize", "pages", "numberOfElements", "totalElements", "paged", "content"})
+@JsonPropertyOrder({"pageNumber", "pageSize", "pages", "numberOfElements", "totalElements", "paged", "next", "nextCursor", "content"})
 public class RestResponsePage<T> {
 
     private final long pageNumber;
@@ -22,6 +25,12 @@ public class RestResponsePage<T> {
     private final long totalElements;
     @Parameter(description = "False if operation always returns all elements")
     private final boolean paged;
+    @Parameter(description = "Cursor for the next page, pass as after. Only set for cursor paged operations when there are more elements")
+    @JsonInclude(Include.NON_NULL)
+    private final Integer next;
+    @Parameter(description = "Cursor for the next page of operations sorted on other columns than a number, pass as after. Only set when there are more elements")
+    @JsonInclude(Include.NON_NULL)
+    private final String nextCursor;
     private final List<T> content;
 
     @JsonCreator
@@ -32,6 +41,8 @@ public class RestResponsePage<T> {
             @JsonProperty("numberOfElements") long numberOfElements,
             @JsonProperty("totalElements") long totalElements,
             @JsonProperty("paged") boolean paged,
+            @JsonProperty("next") Integer next,
+            @JsonProperty("nextCursor") String nextCursor,
             @JsonProperty("content") List<T> content) {
         this.pageNumber = pageNumber;
         this.pageSize = pageSize;
@@ -39,6 +50,8 @@ public class RestResponsePage<T> {
         this.numberOfElements = numberOfElements;
         this.totalElements = totalElements;
         this.paged = paged;
+        this.next = next;
+        this.nextCursor = nextCursor;
         this.content = content != null ? content : List.of();
     }
 
@@ -50,6 +63,8 @@ public class RestResponsePage<T> {
         this.numberOfElements = page.getNumberOfElements();
         this.totalElements = page.getTotalElements();
         this.paged = true;
+        this.next = null;
+        this.nextCursor = null;
     }
 
     public RestResponsePage() {
@@ -68,9 +83,35 @@ public class RestResponsePage<T> {
         this.numberOfElements = content.size();
         this.totalElements = totalResults;
         this.paged = false;
+        this.next = null;
+        this.nextCursor = null;
+    }
+
+    /**
+     * @param rows as returned for the keyset, one more than the limit if there is a next page. If keyset is null all rows are returned unpaged.
+     * @param key the keyset column value of a row. The total is not counted, pages and totalElements are -1 for a cursor page.
+     */
+    public static <T> RestResponsePage<T> ofKeyset(List<T> rows, Keyset keyset, Function<T, Integer> key) {
+        if (keyset == null) {
+            return new RestResponsePage<>(rows);
+        }
+        if (rows.size() <= keyset.limit()) {
+            return new RestResponsePage<>(0, keyset.limit(), -1, rows.size(), -1, true, null, null, rows);
+        }
+        var content = rows.subList(0, keyset.limit());
+        return new RestResponsePage<>(0, keyset.limit(), -1, content.size(), -1, true, key.apply(content.get(content.size() - 1)), null, content);
+    }
+
+    /**
+     * Page of a cursor over several columns. The total is not counted, pages and totalElements are -1.
+     *
+     * @param nextCursor null if there are no more elements
+     */
+    public static <T> RestResponsePage<T> ofCursor(List<T> content, int limit, String nextCursor) {
+        return new RestResponsePage<>(0, limit, -1, content.size(), -1, true, null, nextCursor, content);
     }
 
     public <R> RestResponsePage<R> convert(Function<T, R> converter) {
-        return new RestResponsePage<>(pageNumber, pageSize, pages, numberOfElements, totalElements, paged, StreamUtils.convert(content, converter));
+        return new RestResponsePage<>(pageNumber, pageSize, pages, numberOfElements, totalElements, paged, next, nextCursor, StreamUtils.convert(content, converter));
     }
 }
\ No newline at end of file
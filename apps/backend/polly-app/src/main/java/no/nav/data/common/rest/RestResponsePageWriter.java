@@ -0,0 +1,124 @@
+package no.nav.data.common.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.SneakyThrows;
+import no.nav.data.common.utils.JsonUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes an unpaged {@link RestResponsePage} directly to the response while the source produces the elements,
+ * so only the element being serialized is held in memory no matter how many there are.
+ * <p>
+ * The count and the source run in one read only repeatable read transaction, so the count matches the elements, and the page fields
+ * are written before <code>content</code> in the order of {@link RestResponsePage}.
+ * The first {@value FIRST_PAGE} elements are read before anything is written, so errors in the query fail the request as usual.
+ * An error after that leaves the response incomplete, it is not closed as valid json.
+ * <p>
+ * Controller methods taking the {@link HttpServletResponse} may return null after writing, the response is then considered handled.
+ */
+@Component
+public class RestResponsePageWriter {
+
+    private static final int FIRST_PAGE = 100;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter elementWriter = JsonUtils.getObjectMapper().writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    public RestResponsePageWriter(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * @param count number of elements the source will produce
+     * @param source passes each element of the page to the given consumer
+     */
+    public <T> void write(HttpServletResponse response, LongSupplier count, Consumer<Consumer<T>> source) {
+        transactionTemplate.executeWithoutResult(status -> {
+            var page = new PageStream<T>(response, count.getAsLong());
+            source.accept(page);
+            page.end();
+        });
+    }
+
+    private class PageStream<T> implements Consumer<T> {
+
+        private final HttpServletResponse response;
+        private final long total;
+        private final List<T> firstPage = new ArrayList<>(FIRST_PAGE);
+        private JsonGenerator generator;
+        private long written;
+
+        private PageStream(HttpServletResponse response, long total) {
+            this.response = response;
+            this.total = total;
+        }
+
+        @Override
+        public void accept(T element) {
+            if (generator != null) {
+                writeElement(element);
+                return;
+            }
+            firstPage.add(element);
+            if (firstPage.size() == FIRST_PAGE) {
+                start();
+            }
+        }
+
+        @SneakyThrows
+        private void start() {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+            generator = JsonUtils.getObjectMapper().getFactory().createGenerator(response.getOutputStream())
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartObject();
+            generator.writeNumberField("pageNumber", 0);
+            generator.writeNumberField("pageSize", total);
+            generator.writeNumberField("pages", 1);
+            generator.writeNumberField("numberOfElements", total);
+            generator.writeNumberField("totalElements", total);
+            generator.writeBooleanField("paged", false);
+            generator.writeArrayFieldStart("content");
+            firstPage.forEach(this::writeElement);
+            firstPage.clear();
+        }
+
+        @SneakyThrows
+        private void writeElement(T element) {
+            elementWriter.writeValue(generator, element);
+            written++;
+        }
+
+        @SneakyThrows
+        private void end() {
+            long produced = written + firstPage.size();
+            if (produced != total) {
+                throw new IllegalStateException("counted %d elements, source produced %d".formatted(total, produced));
+            }
+            if (generator == null) {
+                start();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.close();
+        }
+    }
+}
@@ -79,7 +79,8 @@ public class WebSecurityConfig {
                 "/alert/**",
                 "/export/**",
                 "/dash/**",
-                "/nom/**"
+                "/nom/**",
+                "/search/**"
         );
 
         adminOnly(http,
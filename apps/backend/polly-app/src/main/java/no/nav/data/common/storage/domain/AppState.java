@@ -12,6 +12,5 @@ import lombok.NoArgsConstructor;
 public class AppState implements GenericStorageData {
 
     private boolean lock;
-    private boolean alertEventsInitialized;
     private ChangeStamp changeStamp;
 }
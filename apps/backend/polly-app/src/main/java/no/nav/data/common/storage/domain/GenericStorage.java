@@ -17,7 +17,6 @@ import lombok.NoArgsConstructor;
 import no.nav.data.common.auditing.domain.Auditable;
 import no.nav.data.common.security.azure.support.MailLog;
 import no.nav.data.common.utils.JsonUtils;
-import no.nav.data.polly.alert.domain.AlertEvent;
 import org.hibernate.annotations.Type;
 import org.springframework.util.Assert;
 
@@ -77,10 +76,6 @@ public class GenericStorage extends Auditable {
         }
     }
 
-    public AlertEvent toAlertEvent() {
-        return getDataObject(AlertEvent.class);
-    }
-
     public MailLog toMailLog() {
         return getDataObject(MailLog.class);
     }
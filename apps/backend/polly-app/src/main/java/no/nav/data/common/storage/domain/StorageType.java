@@ -3,7 +3,6 @@ package no.nav.data.common.storage.domain;
 import lombok.Getter;
 import no.nav.data.common.mail.MailTask;
 import no.nav.data.common.security.azure.support.MailLog;
-import no.nav.data.polly.alert.domain.AlertEvent;
 import no.nav.data.polly.settings.dto.Settings;
 
 import java.util.EnumSet;
@@ -14,7 +13,6 @@ public enum StorageType {
 
     SETTINGS(Settings.class),
     APP_STATE(AppState.class, false),
-    ALERT_EVENT(AlertEvent.class, false),
     MAIL_LOG(MailLog.class, false),
     MAIL_TASK(MailTask.class, false);
 
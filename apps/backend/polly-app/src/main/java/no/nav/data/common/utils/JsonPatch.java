@@ -0,0 +1,137 @@
+package no.nav.data.common.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+
+/**
+ * JSON Patch, RFC 6902, with the add, remove and replace operations.
+ * <p>
+ * The diff compares objects field by field and arrays of the same size element by element. An array that changed size is replaced as a whole,
+ * which is a valid patch, if not the smallest one.
+ */
+public final class JsonPatch {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private JsonPatch() {
+    }
+
+    /**
+     * @return patch turning source into target, an empty array if they are equal
+     */
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode patch = NODES.arrayNode();
+        diff(source, target, "", patch);
+        return patch;
+    }
+
+    /**
+     * @return a patched copy of the document, the document is not changed
+     */
+    public static JsonNode apply(JsonNode document, JsonNode patch) {
+        JsonNode result = document.deepCopy();
+        for (JsonNode operation : patch) {
+            String op = operation.path("op").asText();
+            String path = operation.path("path").asText();
+            if (path.isEmpty()) {
+                switch (op) {
+                    case "add", "replace" -> result = operation.get("value").deepCopy();
+                    default -> throw new IllegalArgumentException("invalid operation on document root " + operation);
+                }
+                continue;
+            }
+            int last = path.lastIndexOf('/');
+            JsonNode parent = result.at(path.substring(0, last));
+            String key = unescape(path.substring(last + 1));
+            switch (op) {
+                case "add" -> add(parent, key, operation.get("value").deepCopy());
+                case "remove" -> remove(parent, key);
+                case "replace" -> replace(parent, key, operation.get("value").deepCopy());
+                default -> throw new IllegalArgumentException("unsupported operation " + operation);
+            }
+        }
+        return result;
+    }
+
+    private static void diff(JsonNode source, JsonNode target, String path, ArrayNode patch) {
+        if (source.equals(target)) {
+            return;
+        }
+        if (source.isObject() && target.isObject()) {
+            for (Iterator<String> names = source.fieldNames(); names.hasNext(); ) {
+                String name = names.next();
+                if (target.has(name)) {
+                    diff(source.get(name), target.get(name), path + "/" + escape(name), patch);
+                } else {
+                    patch.addObject().put("op", "remove").put("path", path + "/" + escape(name));
+                }
+            }
+            for (Iterator<String> names = target.fieldNames(); names.hasNext(); ) {
+                String name = names.next();
+                if (!source.has(name)) {
+                    patch.addObject().put("op", "add").put("path", path + "/" + escape(name)).set("value", target.get(name));
+                }
+            }
+        } else if (source.isArray() && target.isArray() && source.size() == target.size()) {
+            for (int i = 0; i < source.size(); i++) {
+                diff(source.get(i), target.get(i), path + "/" + i, patch);
+            }
+        } else {
+            patch.addObject().put("op", "replace").put("path", path).set("value", target);
+        }
+    }
+
+    private static void add(JsonNode parent, String key, JsonNode value) {
+        if (parent instanceof ObjectNode object) {
+            object.set(key, value);
+        } else if (parent instanceof ArrayNode array) {
+            if (key.equals("-")) {
+                array.add(value);
+            } else {
+                array.insert(index(array, key, array.size()), value);
+            }
+        } else {
+            throw new IllegalArgumentException("no container at path for " + key);
+        }
+    }
+
+    private static void remove(JsonNode parent, String key) {
+        if (parent instanceof ObjectNode object && object.has(key)) {
+            object.remove(key);
+        } else if (parent instanceof ArrayNode array) {
+            array.remove(index(array, key, array.size() - 1));
+        } else {
+            throw new IllegalArgumentException("nothing to remove at " + key);
+        }
+    }
+
+    private static void replace(JsonNode parent, String key, JsonNode value) {
+        if (parent instanceof ObjectNode object && object.has(key)) {
+            object.set(key, value);
+        } else if (parent instanceof ArrayNode array) {
+            array.set(index(array, key, array.size() - 1), value);
+        } else {
+            throw new IllegalArgumentException("nothing to replace at " + key);
+        }
+    }
+
+    private static int index(ArrayNode array, String key, int max) {
+        int index = Integer.parseInt(key);
+        if (index < 0 || index > max) {
+            throw new IllegalArgumentException("index " + key + " out of bounds for array of size " + array.size());
+        }
+        return index;
+    }
+
+    private static String escape(String name) {
+        return name.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static String unescape(String name) {
+        return name.replace("~1", "/").replace("~0", "~");
+    }
+}
@@ -6,10 +6,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -58,6 +61,38 @@ public final class StreamUtils {
         return difference(before, after, comparing(identity()));
     }
 
+    /**
+     * Get change in two collections with elements matched on a key, in linear time.
+     * Elements with the same key as an earlier element are duplicates, duplicates in before are removed and duplicates in after are not added.
+     *
+     * @param before collection before
+     * @param after collection after
+     * @param key function giving the key of an element, must have equals and hashCode
+     * @param <T> the type of the collections
+     */
+    public static <T> CollectionDifference<T> differenceByKey(Collection<T> before, Collection<T> after, Function<? super T, ?> key) {
+        Map<Object, T> afterByKey = new LinkedHashMap<>();
+        after.forEach(afterElement -> afterByKey.putIfAbsent(key.apply(afterElement), afterElement));
+        List<T> removed = new ArrayList<>();
+        List<T> shared = new ArrayList<>();
+        Set<Object> matched = new HashSet<>();
+        for (T beforeElement : before) {
+            Object beforeKey = key.apply(beforeElement);
+            if (afterByKey.containsKey(beforeKey) && matched.add(beforeKey)) {
+                shared.add(afterByKey.get(beforeKey));
+            } else {
+                removed.add(beforeElement);
+            }
+        }
+        List<T> added = new ArrayList<>();
+        afterByKey.forEach((afterKey, afterElement) -> {
+            if (!matched.contains(afterKey)) {
+                added.add(afterElement);
+            }
+        });
+        return new CollectionDifference<>(new ArrayList<>(before), new ArrayList<>(after), removed, shared, added);
+    }
+
     public static <K, V> Map<K, V> toMap(Iterable<V> from, Function<? super V, K> keyExtractor) {
         return safeStream(from).collect(Collectors.toMap(keyExtractor, Function.identity()));
     }
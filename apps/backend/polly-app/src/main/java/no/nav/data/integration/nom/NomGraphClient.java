@@ -1,5 +1,6 @@
 package no.nav.data.integration.nom;
 
+import static no.nav.data.common.utils.StreamUtils.convert;
 import static no.nav.data.common.utils.StreamUtils.safeStream;
 import static no.nav.data.common.web.TraceHeaderRequestInterceptor.correlationInterceptor;
 
@@ -9,14 +10,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
 
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestOperations;
@@ -50,14 +52,27 @@ public class NomGraphClient {
     private final NomGraphQlProperties nomGraphQlProperties;
 
     private static final String getUnderOrganiseringerQuery = readCpFile("nom/graphql/queries/get_all_under_organiseringer.graphql");
+    private static final String getOrgTreeQuery = readCpFile("nom/graphql/queries/get_org_tree.graphql");
     private static final String getByIdQuery = readCpFile("nom/graphql/queries/get_by_id.graphql");
     private static final String searchOrgenhetByTermQuary = readCpFile("nom/graphql/queries/search_orgenhet_by_term.graphql");
+    private static final String orgTreeKey = "singleton";
     private static final String scopeTemplate = "api://%s-gcp.nom.nom-api/.default";
-
-    private final LoadingCache<String, Map<String, OrgEnhet>> allAvdelingCache = MetricUtils
-            .register("nomAvdelingCache", Caffeine.newBuilder().recordStats()
+    private static final String avdelingRootId = "bu431e";
+    private static final String fylkeRootId = "ry630r";
+
+    /**
+     * Reloaded in the background once older than the refresh time, readers get the current tree meanwhile.
+     * A failed reload keeps the last tree loaded, only the first load can fail the caller.
+     */
+    private final LoadingCache<String, NomOrgTree> orgTreeCache = MetricUtils
+            .register("nomOrgTreeCache", Caffeine.newBuilder().recordStats()
+                    .refreshAfterWrite(Duration.ofMinutes(10))
+                    .maximumSize(1).build(k -> loadOrgTree()));
+
+    private final LoadingCache<String, List<OrgEnhet>> navKontorSearchCache = MetricUtils
+            .register("nomNavKontorSearchCache", Caffeine.newBuilder().recordStats()
                     .expireAfterWrite(Duration.ofMinutes(10))
-                    .maximumSize(1).build(k -> getAvdelingCache()));
+                    .maximumSize(1000).build(this::searchNavkontor));
 
 
     @SneakyThrows
@@ -65,7 +80,23 @@ public class NomGraphClient {
         return StreamUtils.copyToString(new ClassPathResource(path).getInputStream(), StandardCharsets.UTF_8);
     }
 
-    private Map<String, OrgEnhet> getAvdelingCache() {
+    /**
+     * Refreshes the tree ahead of the refresh time, so readers rarely see a tree older than the schedule rate
+     */
+    @Scheduled(initialDelayString = "${client.nom.refresh.rate:PT5M}", fixedRateString = "${client.nom.refresh.rate:PT5M}")
+    public void refreshOrgTree() {
+        try {
+            orgTreeCache.refresh(orgTreeKey).join();
+        } catch (CompletionException e) {
+            log.warn("Failed to refresh nom organisation tree, keeping last known tree", e.getCause());
+        }
+    }
+
+    public NomOrgTree getOrgTree() {
+        return orgTreeCache.get(orgTreeKey);
+    }
+
+    private NomOrgTree loadOrgTree() {
         if (securityProperties.isDev()) {
             var devAvdelinger = List.of(
                     createDevOrganisering("arbeidsavdelingen", "Arbeidsavdelingen"),
@@ -83,101 +114,79 @@ public class NomGraphClient {
                     createDevOrganisering("ytelsesavdelingen", "Ytelsesavdelingen"),
                     createDevOrganisering("okonomi_og_styringsavdelingen", "Økonomi- og styringsavdelingen")
             );
-            return safeStream(devAvdelinger)
-                    .collect(Collectors.toMap(OrgEnhet::getId, Function.identity()));
+            var devFylker = List.of(
+                    createDevOrganisering("fylke_1", "fylke 1"),
+                    createDevOrganisering("fylke_2", "fylke 2"),
+                    createDevOrganisering("fylke_3", "fylke 3"),
+                    createDevOrganisering("fylke_4", "fylke 4"),
+                    createDevOrganisering("fylke_5", "fylke 5"),
+                    createDevOrganisering("fylke_6", "fylke 6"),
+                    createDevOrganisering("fylke_7", "fylke 7"),
+                    createDevOrganisering("fylke_8", "fylke 8"),
+                    createDevOrganisering("fylke_9", "fylke 9"),
+                    createDevOrganisering("fylke_10", "fylke 10"),
+                    createDevOrganisering("fylke_11", "fylke 11")
+            );
+            Map<String, List<OrgEnhet>> devSeksjoner = new HashMap<>();
+            devAvdelinger.forEach(avdeling -> devSeksjoner.put(avdeling.getId(), getDevSeksjoner(avdeling.getId())));
+            return NomOrgTree.of(devAvdelinger, devSeksjoner, devFylker);
         } else {
-            var request = new GraphQLRequest(getUnderOrganiseringerQuery, Map.of("id", "bu431e"));
-            var res = template().postForEntity(nomGraphQlProperties.getUrl(), request, OrgEnhetGraphqlResponse.class);
+            List<OrgEnhet> avdelinger = new ArrayList<>();
+            Map<String, List<OrgEnhet>> seksjoner = new HashMap<>();
+            for (OrgEnhet avdeling : underOrganiseringer(queryOrgEnhet(getOrgTreeQuery, avdelingRootId))) {
+                avdelinger.add(withoutOrganiseringer(avdeling));
+                seksjoner.put(avdeling.getId(), convert(underOrganiseringer(avdeling), NomGraphClient::withoutOrganiseringer));
+            }
+            var fylker = underOrganiseringer(queryOrgEnhet(getUnderOrganiseringerQuery, fylkeRootId));
+            log.info("Loaded nom organisation tree with {} avdelinger, {} seksjoner and {} fylker",
+                    avdelinger.size(), seksjoner.values().stream().mapToInt(List::size).sum(), fylker.size());
+            return NomOrgTree.of(avdelinger, seksjoner, fylker);
+        }
+    }
 
-            assert res.getBody() != null;
-            assert res.getBody().getData() != null;
+    private OrgEnhet queryOrgEnhet(String query, String id) {
+        var request = new GraphQLRequest(query, Map.of("id", id));
+        var res = template().postForEntity(nomGraphQlProperties.getUrl(), request, OrgEnhetGraphqlResponse.class);
 
-            var response = res.getBody().getData();
+        assert res.getBody() != null;
+        assert res.getBody().getData() != null;
 
-            if (response.getOrgEnhet() == null) {
-                return new HashMap<>();
-            }
-
-            var alleAvdelinger = response.getOrgEnhet().getOrganiseringer().stream().map(Organisering::getOrgEnhet).toList();
+        return res.getBody().getData().getOrgEnhet();
+    }
 
-            return safeStream(alleAvdelinger)
-                    .collect(Collectors.toMap(OrgEnhet::getId, Function.identity()));
+    private static List<OrgEnhet> underOrganiseringer(OrgEnhet orgEnhet) {
+        if (orgEnhet == null) {
+            return List.of();
         }
+        return safeStream(orgEnhet.getOrganiseringer()).map(Organisering::getOrgEnhet).filter(Objects::nonNull).toList();
     }
 
-    private Map<String, OrgEnhet> getAvdelingerFromCache() {
-        return allAvdelingCache.get("singleton");
+    /**
+     * The tree query fetches seksjoner nested in the avdeling, they are kept apart so avdelinger are returned as before
+     */
+    private static OrgEnhet withoutOrganiseringer(OrgEnhet orgEnhet) {
+        return OrgEnhet.builder().id(orgEnhet.getId()).navn(orgEnhet.getNavn()).orgEnhetsType(orgEnhet.getOrgEnhetsType()).nomNivaa(orgEnhet.getNomNivaa()).build();
     }
 
     public List<OrgEnhet> getAllAvdelinger() {
-        return new ArrayList<>(getAvdelingerFromCache().values());
+        return new ArrayList<>(getOrgTree().avdelinger());
     }
 
     public Optional<OrgEnhet> getAvdelingById(String id) {
-        return Optional.ofNullable(getAvdelingCache().get(id));
+        return getOrgTree().getAvdeling(id);
     }
 
     public List<OrgEnhet> getAllSeksjonForAvdeling(String avdelingId) {
-        var avdeling = getAvdelingById(avdelingId);
-        if (avdeling.isEmpty()) {
+        var tree = getOrgTree();
+        if (tree.getAvdeling(avdelingId).isEmpty()) {
             throw new ValidationException("Invalid avdeling id: " +  avdelingId);
-        } else {
-            if (securityProperties.isDev()) {
-                return getDevSeksjoner(avdelingId);
-            } else {
-                var request = new GraphQLRequest(getUnderOrganiseringerQuery, Map.of("id", avdelingId));
-                var res = template().postForEntity(nomGraphQlProperties.getUrl(), request, OrgEnhetGraphqlResponse.class);
-
-                assert res.getBody() != null;
-                assert res.getBody().getData() != null;
-
-                var response = res.getBody().getData();
-
-                if (response.getOrgEnhet() == null) {
-                    return List.of();
-                }
-
-               return response.getOrgEnhet().getOrganiseringer().stream().map(Organisering::getOrgEnhet).toList();
-
-            }
         }
+        return tree.getSeksjoner(avdelingId);
     }
 
-
-
     public List<OrgEnhet> getAllFylker() {
-            if (securityProperties.isDev()) {
-                return List.of(
-                        createDevOrganisering("fylke_1", "fylke 1"),
-                        createDevOrganisering("fylke_2", "fylke 2"),
-                        createDevOrganisering("fylke_3", "fylke 3"),
-                        createDevOrganisering("fylke_4", "fylke 4"),
-                        createDevOrganisering("fylke_5", "fylke 5"),
-                        createDevOrganisering("fylke_6", "fylke 6"),
-                        createDevOrganisering("fylke_7", "fylke 7"),
-                        createDevOrganisering("fylke_8", "fylke 8"),
-                        createDevOrganisering("fylke_9", "fylke 9"),
-                        createDevOrganisering("fylke_10", "fylke 10"),
-                        createDevOrganisering("fylke_11", "fylke 11")
-                );
-            } else {
-                var request = new GraphQLRequest(getUnderOrganiseringerQuery, Map.of("id", "ry630r"));
-                var res = template().postForEntity(nomGraphQlProperties.getUrl(), request, OrgEnhetGraphqlResponse.class);
-
-                assert res.getBody() != null;
-                assert res.getBody().getData() != null;
-
-                var response = res.getBody().getData();
-
-                if (response.getOrgEnhet() == null) {
-                    return List.of();
-                }
-
-                return response.getOrgEnhet().getOrganiseringer().stream().map(Organisering::getOrgEnhet).toList();
-
-            }
-        }
-
+        return getOrgTree().fylker();
+    }
 
     public List<OrgEnhet> searchNavkontorByTerm(String searchTerm) {
         if (searchTerm.length() > 2) {
@@ -196,29 +205,39 @@ public class NomGraphClient {
                         createDevOrganisering("kontor_11", "kontor 11")
                 );
             } else {
-                var request = new GraphQLRequest(searchOrgenhetByTermQuary, Map.of("searchTerm", searchTerm));
-                var res = template().postForEntity(nomGraphQlProperties.getUrl(), request, SearchOrgEnhetGraphqlResponse.class);
-
-                assert res.getBody() != null;
-                assert res.getBody().getData() != null;
+                return navKontorSearchCache.get(searchTerm.toLowerCase());
+            }
+        } else {
+           return List.of();
+        }
+    }
 
-                var response = res.getBody().getData();
+    private List<OrgEnhet> searchNavkontor(String searchTerm) {
+        var request = new GraphQLRequest(searchOrgenhetByTermQuary, Map.of("searchTerm", searchTerm));
+        var res = template().postForEntity(nomGraphQlProperties.getUrl(), request, SearchOrgEnhetGraphqlResponse.class);
 
-                if (response.getSearchOrgEnhet() == null) {
-                    return List.of();
-                }
+        assert res.getBody() != null;
+        assert res.getBody().getData() != null;
 
-                return response.getSearchOrgEnhet().stream()
-                        .filter(orgEnhet -> orgEnhet.getOrgEnhetsType() == OrgEnhetsType.NAV_KONTOR && orgEnhet.getNomNivaa() == null)
-                        .toList();
+        var response = res.getBody().getData();
 
-            }
-        } else {
-           return List.of();
+        if (response.getSearchOrgEnhet() == null) {
+            return List.of();
         }
+
+        return response.getSearchOrgEnhet().stream()
+                .filter(orgEnhet -> orgEnhet.getOrgEnhetsType() == OrgEnhetsType.NAV_KONTOR && orgEnhet.getNomNivaa() == null)
+                .toList();
     }
 
+    /**
+     * Units in the organisation tree are served from memory, other units are looked up in nom
+     */
     public OrgEnhet getById(String id) {
+        var cached = getOrgTree().get(id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         if (securityProperties.isProd()) {
             var request = new GraphQLRequest(getByIdQuery, Map.of("id", id));
             var res = template().postForEntity(nomGraphQlProperties.getUrl(), request, OrgEnhetGraphqlResponse.class);
@@ -0,0 +1,52 @@
+package no.nav.data.integration.nom;
+
+import no.nav.data.integration.nom.domain.OrgEnhet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Snapshot of the organisation tree from NOM, avdelinger with their seksjoner, and fylker.
+ * Built once per refresh and shared by all readers, the units returned must not be changed by the caller.
+ */
+public record NomOrgTree(List<OrgEnhet> avdelinger, List<OrgEnhet> fylker, Map<String, OrgEnhet> avdelingById, Map<String, List<OrgEnhet>> seksjonerByAvdeling,
+                         Map<String, OrgEnhet> byId) {
+
+    public static NomOrgTree of(List<OrgEnhet> avdelinger, Map<String, List<OrgEnhet>> seksjonerByAvdeling, List<OrgEnhet> fylker) {
+        Map<String, OrgEnhet> avdelingById = new HashMap<>();
+        Map<String, List<OrgEnhet>> seksjoner = new HashMap<>();
+        Map<String, OrgEnhet> byId = new HashMap<>();
+        avdelinger.forEach(avdeling -> {
+            avdelingById.putIfAbsent(avdeling.getId(), avdeling);
+            byId.putIfAbsent(avdeling.getId(), avdeling);
+        });
+        seksjonerByAvdeling.forEach((avdelingId, avdelingSeksjoner) -> {
+            seksjoner.put(avdelingId, List.copyOf(avdelingSeksjoner));
+            avdelingSeksjoner.forEach(seksjon -> byId.putIfAbsent(seksjon.getId(), seksjon));
+        });
+        fylker.forEach(fylke -> byId.putIfAbsent(fylke.getId(), fylke));
+        return new NomOrgTree(List.copyOf(avdelinger), List.copyOf(fylker), unmodifiableMap(avdelingById), unmodifiableMap(seksjoner), unmodifiableMap(byId));
+    }
+
+    public Optional<OrgEnhet> getAvdeling(String id) {
+        return Optional.ofNullable(avdelingById.get(id));
+    }
+
+    /**
+     * @return seksjoner of the avdeling, empty for unknown avdelinger
+     */
+    public List<OrgEnhet> getSeksjoner(String avdelingId) {
+        return seksjonerByAvdeling.getOrDefault(avdelingId, List.of());
+    }
+
+    /**
+     * Any unit in the tree, avdeling, seksjon or fylke
+     */
+    public Optional<OrgEnhet> get(String id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+}
@@ -0,0 +1,249 @@
+package no.nav.data.polly.alert;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.exceptions.NotFoundException;
+import no.nav.data.common.jpa.RepoUtil;
+import no.nav.data.common.utils.MdcExecutor;
+import no.nav.data.common.utils.MetricUtils;
+import no.nav.data.polly.alert.domain.AlertBackfillRepository;
+import no.nav.data.polly.alert.domain.AlertBackfillRepository.Partition;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
+import no.nav.data.polly.alert.dto.AlertBackfillResponse;
+import no.nav.data.polly.alert.dto.AlertBackfillResponse.TargetProgress;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Calculates the alert events of all processes and disclosures, when the events of {@link #EVENT_VERSION} are not yet calculated.
+ * <p>
+ * Each type is split in partitions of id ranges worked in parallel, by the threads of this pod and by other pods.
+ * The events of a page of ids are calculated together, over a snapshot loaded with one query per table.
+ * Progress is saved per partition after each page, a backfill stopped by a restart continues where it was.
+ * Information types are not backfilled on their own, their events are the events of the processes using them.
+ * <p>
+ * Once the backfill is complete the events of the whole catalog are checked at polly.alert.catalog.rate, in one pass over a snapshot of the catalog,
+ * correcting events missed by the outbox, such as after changes made outside the services.
+ */
+@Slf4j
+@Service
+public class AlertBackfillService {
+
+    /**
+     * Increase when the events calculated change, to recalculate the events of all entities
+     */
+    static final int EVENT_VERSION = 1;
+
+    private static final List<AlertTarget> TARGETS = List.of(AlertTarget.PROCESS, AlertTarget.DISCLOSURE);
+    private static final int PAGE_SIZE = 100;
+
+    private final AlertBackfillRepository backfillRepository;
+    private final AlertService alertService;
+    private final JdbcTemplate jdbcTemplate;
+    private final int concurrency;
+    private final int partitions;
+    private final Duration lease;
+    private final ThreadPoolExecutor executor;
+    private final String owner = UUID.randomUUID().toString();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter processed;
+    private final Gauge remaining;
+
+    public AlertBackfillService(AlertBackfillRepository backfillRepository, AlertService alertService, JdbcTemplate jdbcTemplate,
+            @Value("${polly.alert.backfill.concurrency:4}") int concurrency, @Value("${polly.alert.backfill.partitions:16}") int partitions,
+            @Value("${polly.alert.backfill.lease:PT5M}") Duration lease) {
+        this.backfillRepository = backfillRepository;
+        this.alertService = alertService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.concurrency = concurrency;
+        this.partitions = partitions;
+        this.lease = lease;
+        this.executor = MdcExecutor.newThreadPool(concurrency + 1, "alert-backfill");
+        this.executor.setRejectedExecutionHandler(new CallerRunsPolicy());
+        this.processed = MetricUtils.counter()
+                .labels("process").labels("disclosure")
+                .labelNames("target")
+                .name("polly_alert_backfill_processed_counter")
+                .help("Entities with alert events calculated by the backfill")
+                .register();
+        this.remaining = MetricUtils.gauge()
+                .labels("process").labels("disclosure")
+                .labelNames("target")
+                .name("polly_alert_backfill_remaining_partitions")
+                .help("Partitions of the alert backfill not completed")
+                .register();
+    }
+
+    /**
+     * Starts the backfill in the background unless it is complete or already running here.
+     * Runs again at the check rate to take over partitions left by pods that stopped.
+     */
+    @Scheduled(initialDelayString = "${polly.alert.backfill.initial-delay:PT30S}", fixedDelayString = "${polly.alert.backfill.check:PT5M}")
+    public void start() {
+        if (running.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    run();
+                } catch (RuntimeException e) {
+                    log.error("Alert backfill failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Works the partitions of the backfill until none are left to claim
+     */
+    public void run() {
+        if (!backfillRepository.exists(EVENT_VERSION)) {
+            backfillRepository.create(createPartitions());
+            log.info("Created alert backfill for event version {}", EVENT_VERSION);
+        }
+        var workers = IntStream.range(0, concurrency).mapToObj(i -> CompletableFuture.runAsync(this::work, executor)).toList();
+        workers.forEach(CompletableFuture::join);
+        var progress = progress();
+        if (progress.isCompleted()) {
+            log.info("Alert backfill for event version {} completed", EVENT_VERSION);
+        }
+    }
+
+    private void work() {
+        Optional<Partition> partition;
+        while ((partition = backfillRepository.claim(EVENT_VERSION, owner, claimedUntil())).isPresent()) {
+            backfill(partition.get());
+        }
+    }
+
+    private void backfill(Partition partition) {
+        log.info("Alert backfill of {} partition {} starting after {}", partition.target(), partition.partition(), partition.lastId());
+        UUID lastId = partition.lastId();
+        List<UUID> ids;
+        do {
+            ids = backfillRepository.findIds(partition, lastId, PAGE_SIZE);
+            calculate(partition.target(), ids);
+            processed.labels(partition.target().name().toLowerCase()).inc(ids.size());
+            if (!ids.isEmpty()) {
+                lastId = ids.getLast();
+                if (!backfillRepository.checkpoint(partition, owner, lastId, ids.size(), claimedUntil())) {
+                    log.warn("Alert backfill of {} partition {} was taken over, stopping", partition.target(), partition.partition());
+                    return;
+                }
+            }
+        } while (ids.size() == PAGE_SIZE);
+        backfillRepository.complete(partition, owner);
+    }
+
+    /**
+     * A page is calculated over one snapshot of its entities. If that fails the page is calculated entity by entity,
+     * and an entity failing is logged and skipped, it will be recalculated when it is changed.
+     */
+    private void calculate(AlertTarget target, List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            alertService.calculateEvents(target, ids);
+        } catch (RuntimeException e) {
+            log.warn("Alert backfill failed for a page of {} {}, calculating one at a time", ids.size(), target, e);
+            ids.forEach(id -> calculate(target, id));
+        }
+    }
+
+    private void calculate(AlertTarget target, UUID id) {
+        try {
+            alertService.calculateEvents(target, id);
+        } catch (NotFoundException e) {
+            log.debug("{} {} deleted during alert backfill", target, id);
+        } catch (RuntimeException e) {
+            log.error("Alert backfill failed for {} {}", target, id, e);
+        }
+    }
+
+    /**
+     * Calculates the events of the whole catalog in one pass, unless the backfill of the current events is still running.
+     * Repeatable read gives one snapshot of the catalog and the events, and fails rather than overwriting events changed meanwhile.
+     *
+     * @return number of events, -1 if skipped
+     */
+    @Scheduled(initialDelayString = "${polly.alert.catalog.initial-delay:PT15M}", fixedRateString = "${polly.alert.catalog.rate:PT6H}")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int checkCatalog() {
+        if (!backfillRepository.tryCatalogLock()) {
+            log.info("Alert catalog check running elsewhere, skipping");
+            return -1;
+        }
+        var partitions = backfillRepository.findAll(EVENT_VERSION);
+        if (partitions.isEmpty() || !partitions.stream().allMatch(Partition::completed)) {
+            log.info("Alert backfill for event version {} not completed, skipping catalog check", EVENT_VERSION);
+            return -1;
+        }
+        RepoUtil.disableStatementTimeout(jdbcTemplate);
+        return alertService.calculateCatalogEvents();
+    }
+
+    public AlertBackfillResponse progress() {
+        var byTarget = backfillRepository.findAll(EVENT_VERSION).stream().collect(groupingBy(Partition::target));
+        var response = AlertBackfillResponse.builder().version(EVENT_VERSION);
+        boolean completed = !byTarget.isEmpty();
+        for (AlertTarget target : TARGETS) {
+            var targetPartitions = byTarget.getOrDefault(target, List.of());
+            int completedPartitions = (int) targetPartitions.stream().filter(Partition::completed).count();
+            remaining.labels(target.name().toLowerCase()).set(targetPartitions.size() - completedPartitions);
+            completed &= completedPartitions == targetPartitions.size();
+            response.target(TargetProgress.builder()
+                    .target(target)
+                    .partitions(targetPartitions.size())
+                    .completedPartitions(completedPartitions)
+                    .processed(targetPartitions.stream().mapToLong(Partition::processed).sum())
+                    .build());
+        }
+        return response.completed(completed).build();
+    }
+
+    private List<Partition> createPartitions() {
+        var bounds = partitionBounds(partitions);
+        var created = new ArrayList<Partition>();
+        for (AlertTarget target : TARGETS) {
+            for (int i = 0; i < partitions; i++) {
+                created.add(new Partition(EVENT_VERSION, target, i, bounds.get(i), i + 1 < partitions ? bounds.get(i + 1) : null, null, 0, false));
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Lower bounds of equal ranges of the uuid space, uuids are ordered by their unsigned bytes in the database
+     */
+    private static List<UUID> partitionBounds(int partitions) {
+        var space = BigInteger.ONE.shiftLeft(64);
+        return IntStream.range(0, partitions)
+                .mapToObj(i -> new UUID(space.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(partitions)).longValue(), 0))
+                .toList();
+    }
+
+    private LocalDateTime claimedUntil() {
+        return LocalDateTime.now().plus(lease);
+    }
+}
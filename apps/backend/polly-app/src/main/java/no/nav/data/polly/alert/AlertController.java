@@ -2,9 +2,11 @@ package no.nav.data.polly.alert;
 
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import no.nav.data.common.rest.CursorParameters;
 import no.nav.data.common.rest.PageParameters;
 import no.nav.data.common.rest.RestResponsePage;
 import no.nav.data.polly.alert.AlertController.EventPage.AlertSort;
@@ -12,9 +14,12 @@ import no.nav.data.polly.alert.AlertController.EventPage.SortDir;
 import no.nav.data.polly.alert.domain.AlertEvent;
 import no.nav.data.polly.alert.domain.AlertEventLevel;
 import no.nav.data.polly.alert.domain.AlertEventType;
-import no.nav.data.polly.alert.domain.AlertRepositoryImpl.AlertEventRequest;
+import no.nav.data.polly.alert.domain.AlertRepository.AlertCursor;
+import no.nav.data.polly.alert.domain.AlertRepository.AlertEventRequest;
+import no.nav.data.polly.alert.dto.AlertBackfillResponse;
 import no.nav.data.polly.alert.dto.AlertEventResponse;
 import no.nav.data.polly.alert.dto.AlertEventResponse.AlertEventResponseBuilder;
+import no.nav.data.polly.alert.dto.AlertStatusResponse;
 import no.nav.data.polly.alert.dto.DisclosureAlert;
 import no.nav.data.polly.alert.dto.InformationTypeAlert;
 import no.nav.data.polly.alert.dto.ProcessAlert;
@@ -35,10 +40,14 @@ import java.util.UUID;
 public class AlertController {
 
     private final AlertService alertService;
+    private final AlertOutboxService alertOutboxService;
+    private final AlertBackfillService alertBackfillService;
     private final DomainCache domainCache;
 
-    public AlertController(AlertService alertService, DomainCache domainCache) {
+    public AlertController(AlertService alertService, AlertOutboxService alertOutboxService, AlertBackfillService alertBackfillService, DomainCache domainCache) {
         this.alertService = alertService;
+        this.alertOutboxService = alertOutboxService;
+        this.alertBackfillService = alertBackfillService;
         this.domainCache = domainCache;
     }
 
@@ -66,7 +75,7 @@ public class AlertController {
         return ResponseEntity.ok(alerts);
     }
 
-    @Operation(summary = "Get Alerts events")
+    @Operation(summary = "Get Alerts events, paged by pageNumber or by the cursor after. Use after to page deep into the events")
     @ApiResponse(description = "Alert events fetched")
     @GetMapping("/events")
     public ResponseEntity<RestResponsePage<AlertEventResponse>> alertsEvents(PageParameters parameters,
@@ -76,14 +85,42 @@ public class AlertController {
             @RequestParam(value = "type", required = false) AlertEventType type,
             @RequestParam(value = "level", required = false) AlertEventLevel level,
             @RequestParam(value = "sort", required = false) AlertSort sort,
-            @RequestParam(value = "dir", required = false) SortDir dir
+            @RequestParam(value = "dir", required = false) SortDir dir,
+            @Parameter(description = "Cursor, pass nextCursor from the previous page") @RequestParam(value = "after", required = false) String after,
+            @Parameter(description = "Cursor paging is used if after or limit is set") @RequestParam(value = "limit", required = false) Integer limit
     ) {
+        if (after != null || limit != null) {
+            var cursorParameters = new CursorParameters(null, limit);
+            cursorParameters.validate();
+            var request = new AlertEventRequest(processId, informationTypeId, disclosureId, type, level, 0, cursorParameters.getLimit(), sort, dir);
+            var page = alertService.getEventsAfter(request, after != null ? AlertCursor.decode(after) : null);
+            var nextCursor = page.next() != null ? page.next().encode() : null;
+            return ResponseEntity.ok(RestResponsePage.ofCursor(page.events(), cursorParameters.getLimit(), nextCursor).convert(this::convertEventResponse));
+        }
         parameters.validate();
         var request = new AlertEventRequest(processId, informationTypeId, disclosureId, type, level, parameters.getPageNumber(), parameters.getPageSize(), sort, dir);
         var events = alertService.getEvents(request).map(this::convertEventResponse);
         return ResponseEntity.ok(new RestResponsePage<>(events));
     }
 
+    @Operation(summary = "Get whether Alert events are up to date, for all events or those of a process, information type or disclosure")
+    @ApiResponse(description = "Alert event status fetched")
+    @GetMapping("/status")
+    public ResponseEntity<AlertStatusResponse> alertStatus(
+            @RequestParam(value = "processId", required = false) UUID processId,
+            @RequestParam(value = "informationTypeId", required = false) UUID informationTypeId,
+            @RequestParam(value = "disclosureId", required = false) UUID disclosureId
+    ) {
+        return ResponseEntity.ok(alertOutboxService.status(processId, informationTypeId, disclosureId));
+    }
+
+    @Operation(summary = "Get progress of the Alert event backfill")
+    @ApiResponse(description = "Alert event backfill progress fetched")
+    @GetMapping("/backfill")
+    public ResponseEntity<AlertBackfillResponse> alertBackfill() {
+        return ResponseEntity.ok(alertBackfillService.progress());
+    }
+
     @Operation(summary = "mail test")
     @ApiResponses(value = {@ApiResponse(description = "mail")})
     @GetMapping(value = "/mail", produces = "text/html")
@@ -0,0 +1,247 @@
+package no.nav.data.polly.alert;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.exceptions.NotFoundException;
+import no.nav.data.common.utils.MetricUtils;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.Marker;
+import no.nav.data.polly.alert.dto.AlertStatusResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Alert recalculation out of the request path.
+ * <p>
+ * Changes mark the entity in the alert outbox within their own transaction, so a marker exists exactly when the change is committed.
+ * The worker claims the oldest markers and recalculates them in batches, an entity changed many times before the worker gets to it is recalculated once.
+ */
+@Slf4j
+@Service
+public class AlertOutboxService {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final AlertOutboxRepository outboxRepository;
+    private final AlertService alertService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final Summary lag;
+    private final Counter recalculated;
+    private final Gauge pending;
+    private final Gauge parked;
+
+    public AlertOutboxService(AlertOutboxRepository outboxRepository, AlertService alertService, PlatformTransactionManager transactionManager,
+            @Value("${polly.alert.outbox.max-attempts:5}") int maxAttempts) {
+        this.outboxRepository = outboxRepository;
+        this.alertService = alertService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.lag = MetricUtils.summary()
+                .name("polly_alert_outbox_lag_seconds")
+                .help("Time from an entity is first marked until its alerts are recalculated")
+                .quantile(.5, .01).quantile(.99, .001)
+                .maxAgeSeconds(Duration.ofHours(6).getSeconds())
+                .ageBuckets(6)
+                .register();
+        this.recalculated = MetricUtils.counter()
+                .labels("process", "ok").labels("information_type", "ok").labels("disclosure", "ok")
+                .labels("process", "failed").labels("information_type", "failed").labels("disclosure", "failed")
+                .labels("process", "parked").labels("information_type", "parked").labels("disclosure", "parked")
+                .labelNames("target", "result")
+                .name("polly_alert_outbox_recalculated_counter")
+                .help("Entities recalculated from the alert outbox")
+                .register();
+        this.pending = MetricUtils.gauge()
+                .name("polly_alert_outbox_pending")
+                .help("Entities waiting for alert recalculation")
+                .register();
+        this.parked = MetricUtils.gauge()
+                .name("polly_alert_outbox_parked")
+                .help("Entities whose alert recalculation failed too many times, waiting for the entity to change")
+                .register();
+    }
+
+    // MARK
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markProcess(UUID processId) {
+        outboxRepository.mark(AlertTarget.PROCESS, List.of(processId));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markProcesses(Collection<UUID> processIds) {
+        outboxRepository.mark(AlertTarget.PROCESS, processIds);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markInformationTypes(Collection<UUID> informationTypeIds) {
+        outboxRepository.mark(AlertTarget.INFORMATION_TYPE, informationTypeIds);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markDisclosure(UUID disclosureId) {
+        outboxRepository.mark(AlertTarget.DISCLOSURE, List.of(disclosureId));
+    }
+
+    /**
+     * Deleted entities have their events deleted directly, and need no recalculation.
+     * Call before deleting the entity and its events: if the worker is recalculating the entity, this waits for the worker's marker lock,
+     * so events the worker writes are deleted after it instead of outliving the entity.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void unmark(AlertTarget target, UUID id) {
+        outboxRepository.delete(target, List.of(id));
+    }
+
+    // WORK
+
+    /**
+     * Recalculates marked entities until the outbox is empty, or a batch has markers that fail
+     *
+     * @return number of markers processed
+     */
+    @Scheduled(initialDelayString = "${polly.alert.outbox.delay:PT5S}", fixedDelayString = "${polly.alert.outbox.delay:PT5S}")
+    public int processOutbox() {
+        int processed = 0;
+        Batch batch;
+        do {
+            batch = processBatch();
+            processed += batch.processed();
+        } while (batch.claimed() == BATCH_SIZE && batch.failed() == 0);
+        pending.set(outboxRepository.count());
+        parked.set(outboxRepository.countParked());
+        if (processed > 0) {
+            log.info("Recalculated alerts for {} marked entities", processed);
+        }
+        return processed;
+    }
+
+    /**
+     * Markers are claimed in the transaction recalculating them, so they stay in the outbox if the transaction fails.
+     * A failed batch is retried marker by marker, so one failing entity does not hold back the rest.
+     */
+    private Batch processBatch() {
+        List<Marker> claimed = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                claimed.addAll(outboxRepository.claim(BATCH_SIZE));
+                claimed.forEach(this::recalculate);
+            });
+            claimed.forEach(this::recalculated);
+            return new Batch(claimed.size(), claimed.size(), 0);
+        } catch (RuntimeException e) {
+            if (claimed.isEmpty()) {
+                throw e;
+            }
+            log.warn("Failed to recalculate alert batch of {}, retrying one by one", claimed.size(), e);
+            int failed = (int) claimed.stream().filter(marker -> !processMarker(marker)).count();
+            return new Batch(claimed.size(), claimed.size() - failed, failed);
+        }
+    }
+
+    /**
+     * A marker of a deleted entity is dropped with the events of the entity.
+     * A marker failing is left in the outbox with its attempt counted, and is parked after {@code polly.alert.outbox.max-attempts} attempts.
+     *
+     * @return false if the marker failed and is left in the outbox
+     */
+    private boolean processMarker(Marker marker) {
+        try {
+            Boolean done = transactionTemplate.execute(status -> {
+                if (!outboxRepository.claim(marker)) {
+                    return false;
+                }
+                recalculate(marker);
+                return true;
+            });
+            if (Boolean.TRUE.equals(done)) {
+                recalculated(marker);
+            }
+            return true;
+        } catch (NotFoundException e) {
+            log.info("Dropping alert marker for deleted {} {}", marker.target(), marker.id());
+            transactionTemplate.executeWithoutResult(status -> {
+                outboxRepository.delete(marker.target(), List.of(marker.id()));
+                alertService.deleteEvents(marker.target(), marker.id());
+            });
+            return true;
+        } catch (RuntimeException e) {
+            if (outboxRepository.failed(marker, maxAttempts)) {
+                log.error("Failed to recalculate alerts for {} {} {} times, parking it until it changes", marker.target(), marker.id(), maxAttempts, e);
+                recalculated.labels(targetLabel(marker), "parked").inc();
+            } else {
+                log.error("Failed to recalculate alerts for {} {}", marker.target(), marker.id(), e);
+                recalculated.labels(targetLabel(marker), "failed").inc();
+            }
+            return false;
+        }
+    }
+
+    private void recalculate(Marker marker) {
+        alertService.calculateEvents(marker.target(), marker.id());
+    }
+
+    private void recalculated(Marker marker) {
+        recalculated.labels(targetLabel(marker), "ok").inc();
+        lag.observe(Duration.between(marker.firstMarked(), LocalDateTime.now()).toMillis() / 1000.0);
+    }
+
+    private static String targetLabel(Marker marker) {
+        return marker.target().name().toLowerCase();
+    }
+
+    private record Batch(int claimed, int processed, int failed) {
+
+    }
+
+    // STATUS
+
+    /**
+     * Alerts of a process are pending while the process, or an information type it has a policy for, is marked.
+     * Without an entity the status is for all alerts.
+     */
+    @Transactional(readOnly = true)
+    public AlertStatusResponse status(UUID processId, UUID informationTypeId, UUID disclosureId) {
+        List<Optional<LocalDateTime>> oldest = new ArrayList<>();
+        if (processId != null) {
+            oldest.add(outboxRepository.oldestMarkedForProcess(processId));
+        }
+        if (informationTypeId != null) {
+            oldest.add(outboxRepository.oldestMarkedForInformationType(informationTypeId));
+        }
+        if (disclosureId != null) {
+            oldest.add(outboxRepository.oldestMarkedForDisclosure(disclosureId));
+        }
+        if (oldest.isEmpty()) {
+            int count = outboxRepository.count();
+            return AlertStatusResponse.builder()
+                    .upToDate(count == 0)
+                    .pending(count)
+                    .oldestPending(outboxRepository.oldestMarked().orElse(null))
+                    .build();
+        }
+        var pendingTimes = oldest.stream().flatMap(Optional::stream).toList();
+        return AlertStatusResponse.builder()
+                .upToDate(pendingTimes.isEmpty())
+                .pending(pendingTimes.size())
+                .oldestPending(pendingTimes.stream().min(LocalDateTime::compareTo).orElse(null))
+                .build();
+    }
+}
@@ -1,25 +1,33 @@
 package no.nav.data.polly.alert;
 
+import io.prometheus.client.Summary;
 import lombok.extern.slf4j.Slf4j;
 import no.nav.data.common.exceptions.NotFoundException;
 import no.nav.data.common.mail.MailTask;
 import no.nav.data.common.security.SecurityUtils;
 import no.nav.data.common.security.azure.AzureAdService;
-import no.nav.data.common.storage.domain.GenericStorage;
+import no.nav.data.common.utils.MetricUtils;
 import no.nav.data.common.utils.StreamUtils;
 import no.nav.data.polly.alert.domain.AlertEvent;
 import no.nav.data.polly.alert.domain.AlertEventType;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
 import no.nav.data.polly.alert.domain.AlertRepository;
-import no.nav.data.polly.alert.domain.AlertRepositoryImpl.AlertEventRequest;
+import no.nav.data.polly.alert.domain.AlertRepository.AlertCursor;
+import no.nav.data.polly.alert.domain.AlertRepository.AlertEventPage;
+import no.nav.data.polly.alert.domain.AlertRepository.AlertEventRequest;
+import no.nav.data.polly.alert.domain.AlertSnapshotRepository;
 import no.nav.data.polly.alert.dto.DisclosureAlert;
 import no.nav.data.polly.alert.dto.InformationTypeAlert;
 import no.nav.data.polly.alert.dto.PolicyAlert;
 import no.nav.data.polly.alert.dto.ProcessAlert;
+import no.nav.data.polly.alert.rule.AlertRules;
+import no.nav.data.polly.alert.rule.AlertSnapshot;
+import no.nav.data.polly.alert.rule.AlertSnapshot.DisclosureFacts;
+import no.nav.data.polly.alert.rule.AlertSnapshot.ProcessFacts;
+import no.nav.data.polly.dashboard.DashboardService;
 import no.nav.data.polly.disclosure.domain.DisclosureRepository;
 import no.nav.data.polly.informationtype.InformationTypeRepository;
 import no.nav.data.polly.informationtype.domain.InformationType;
-import no.nav.data.polly.legalbasis.domain.LegalBasis;
-import no.nav.data.polly.policy.domain.LegalBasesUse;
 import no.nav.data.polly.policy.domain.Policy;
 import no.nav.data.polly.policy.domain.PolicyRepository;
 import no.nav.data.polly.process.domain.Process;
@@ -28,39 +36,62 @@ import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static no.nav.data.common.utils.StreamUtils.convert;
-import static no.nav.data.common.utils.StreamUtils.safeStream;
 
 @Slf4j
 @Service
 public class AlertService {
 
-    private static final String SENSITIVITY_ART9 = "SAERLIGE";
-
-    private static final String ART_6_PREFIX = "ART6";
-    private static final String ART_9_PREFIX = "ART9";
-
     private final AlertRepository alertRepository;
+    private final AlertSnapshotRepository snapshotRepository;
 
     private final ProcessRepository processRepository;
     private final PolicyRepository policyRepository;
     private final InformationTypeRepository informationTypeRepository;
     private final DisclosureRepository disclosureRepository;
     private final AzureAdService azureAdService;
+    private final DashboardService dashboardService;
+    private final Summary updateSummary;
+    private final Summary catalogSummary;
 
-    public AlertService(AlertRepository alertRepository, ProcessRepository processRepository, PolicyRepository policyRepository,
-            InformationTypeRepository informationTypeRepository, DisclosureRepository disclosureRepository, AzureAdService azureAdService) {
+    public AlertService(AlertRepository alertRepository, AlertSnapshotRepository snapshotRepository, ProcessRepository processRepository, PolicyRepository policyRepository,
+            InformationTypeRepository informationTypeRepository, DisclosureRepository disclosureRepository, AzureAdService azureAdService,
+            DashboardService dashboardService) {
         this.alertRepository = alertRepository;
+        this.snapshotRepository = snapshotRepository;
         this.processRepository = processRepository;
         this.policyRepository = policyRepository;
         this.informationTypeRepository = informationTypeRepository;
         this.disclosureRepository = disclosureRepository;
         this.azureAdService = azureAdService;
+        this.dashboardService = dashboardService;
+        this.updateSummary = MetricUtils.summary()
+                .labels("diffed").labels("deleted").labels("inserted")
+                .labelNames("action")
+                .name("polly_alert_event_update_summary")
+                .help("Alert events diffed and written per update")
+                .quantile(.5, .01).quantile(.99, .001)
+                .maxAgeSeconds(Duration.ofHours(6).getSeconds())
+                .ageBuckets(6)
+                .register();
+        this.catalogSummary = MetricUtils.summary()
+                .labels("load").labels("evaluate")
+                .labelNames("phase")
+                .name("polly_alert_catalog_check_seconds")
+                .help("Time to load and check the alerts of the catalog, or of a page of it")
+                .quantile(.5, .01).quantile(.99, .001)
+                .maxAgeSeconds(Duration.ofHours(6).getSeconds())
+                .ageBuckets(6)
+                .register();
     }
 
     public void testMail() {
@@ -71,11 +102,65 @@ public class AlertService {
 
     // CALCULATE AND SAVE EVENTS
 
+    @Transactional
+    public void calculateEvents(AlertTarget target, UUID id) {
+        switch (target) {
+            case PROCESS -> calculateEventsForProcess(id);
+            case INFORMATION_TYPE -> calculateEventsForInforamtionType(id);
+            case DISCLOSURE -> calculateEventsForDisclosure(id);
+        }
+    }
+
+    /**
+     * Calculates the events of the processes or disclosures over a snapshot loaded in one query per table, as used by the alert backfill.
+     * The events are those {@link #calculateEventsForProcess} and {@link #calculateEventsForDisclosure} save.
+     */
+    @Transactional
+    public void calculateEvents(AlertTarget target, List<UUID> ids) {
+        long start = System.nanoTime();
+        var snapshot = snapshotRepository.load(target, ids);
+        long loaded = System.nanoTime();
+
+        var currentEvents = new ArrayList<AlertEvent>();
+        snapshot.processes().forEach(process -> currentEvents.addAll(convertAlertsToEvents(AlertRules.checkProcess(process, snapshot.specialCategoryInformationTypes()))));
+        snapshot.disclosures().forEach(disclosure -> currentEvents.addAll(convertAlertsToEvents(AlertRules.checkDisclosure(disclosure))));
+        catalogSummary.labels("load").observe((loaded - start) / 1e9);
+        catalogSummary.labels("evaluate").observe((System.nanoTime() - loaded) / 1e9);
+
+        var existingEvents = target == AlertTarget.PROCESS ? alertRepository.findByProcessIds(ids) : alertRepository.findByDisclosureIds(ids);
+        updateEvents(existingEvents, currentEvents);
+    }
+
+    /**
+     * Calculates the events of all processes and disclosures in one pass over a snapshot of the whole catalog, and saves those that differ.
+     * The events are those {@link #calculateEventsForProcess} and {@link #calculateEventsForDisclosure} save.
+     *
+     * @return number of events
+     */
+    @Transactional
+    public int calculateCatalogEvents() {
+        long start = System.nanoTime();
+        var snapshot = snapshotRepository.load();
+        long loaded = System.nanoTime();
+
+        var currentEvents = new ArrayList<AlertEvent>();
+        snapshot.processes().forEach(process -> currentEvents.addAll(convertAlertsToEvents(AlertRules.checkProcess(process, snapshot.specialCategoryInformationTypes()))));
+        snapshot.disclosures().forEach(disclosure -> currentEvents.addAll(convertAlertsToEvents(AlertRules.checkDisclosure(disclosure))));
+        long evaluated = System.nanoTime();
+        catalogSummary.labels("load").observe((loaded - start) / 1e9);
+        catalogSummary.labels("evaluate").observe((evaluated - loaded) / 1e9);
+        log.info("Checked alerts of {} processes and {} disclosures, {} events. Load {} ms, evaluate {} ms", snapshot.processes().size(),
+                snapshot.disclosures().size(), currentEvents.size(), (loaded - start) / 1_000_000, (evaluated - loaded) / 1_000_000);
+
+        updateEvents(alertRepository.findAllOfProcessesAndDisclosures(), currentEvents);
+        return currentEvents.size();
+    }
+
     @Transactional
     public void calculateEventsForInforamtionType(UUID informationTypeId) {
         var alerts = checkAlertsForInformationType(informationTypeId);
         var currentEvents = StreamUtils.convertFlat(alerts.getProcesses(), this::convertAlertsToEvents);
-        var existingEvents = convert(alertRepository.findByInformationTypeId(informationTypeId), GenericStorage::toAlertEvent);
+        var existingEvents = alertRepository.findByInformationTypeId(informationTypeId);
         updateEvents(existingEvents, currentEvents);
     }
 
@@ -83,7 +168,7 @@ public class AlertService {
     public void calculateEventsForProcess(UUID processId) {
         var alerts = checkAlertsForProcess(processId);
         var currentEvents = convertAlertsToEvents(alerts);
-        var existingEvents = convert(alertRepository.findByProcessId(processId), GenericStorage::toAlertEvent);
+        var existingEvents = alertRepository.findByProcessId(processId);
         updateEvents(existingEvents, currentEvents);
     }
 
@@ -93,7 +178,7 @@ public class AlertService {
         var currentEvents = convertAlertsToEvents(alerts);
         UUID processId = policy.getProcess().getId();
         UUID informationTypeId = policy.getInformationTypeId();
-        var existingEvents = convert(alertRepository.findByProcessIdAndInformationTypeId(processId, informationTypeId), GenericStorage::toAlertEvent);
+        var existingEvents = alertRepository.findByProcessIdAndInformationTypeId(processId, informationTypeId);
         updateEvents(existingEvents, currentEvents);
     }
 
@@ -101,24 +186,52 @@ public class AlertService {
     public void calculateEventsForDisclosure(UUID disclosureId) {
         var alerts = checkAlertsForDisclosure(disclosureId);
         var currentEvents = convertAlertsToEvents(alerts);
-        var existingEvents = convert(alertRepository.findByDisclosureId(disclosureId), GenericStorage::toAlertEvent);
+        var existingEvents = alertRepository.findByDisclosureId(disclosureId);
         updateEvents(existingEvents, currentEvents);
     }
 
+    /**
+     * Events are matched on what they are about, so unchanged events keep their id and time, and duplicates are removed
+     */
     private void updateEvents(List<AlertEvent> existingEvents, List<AlertEvent> currentEvents) {
-        var diff = StreamUtils.difference(existingEvents, currentEvents);
+        var diff = StreamUtils.differenceByKey(existingEvents, currentEvents, EventKey::of);
 
-        diff.getRemoved().forEach(e -> alertRepository.deleteById(e.getId()));
-        var newEvents = convert(diff.getAdded(), GenericStorage::new);
-        alertRepository.saveAll(newEvents);
+        alertRepository.deleteByIds(convert(diff.getRemoved(), AlertEvent::getId));
+        alertRepository.saveAll(diff.getAdded());
+        updateSummary.labels("diffed").observe(existingEvents.size() + currentEvents.size());
+        updateSummary.labels("deleted").observe(diff.getRemoved().size());
+        updateSummary.labels("inserted").observe(diff.getAdded().size());
+
+        // The dashboard counts processes with alerts
+        dashboardService.updateProcesses(StreamUtils.union(diff.getRemoved(), diff.getAdded()).stream()
+                .map(AlertEvent::getProcessId).filter(Objects::nonNull).collect(toSet()));
+    }
+
+    private record EventKey(UUID processId, UUID informationTypeId, UUID disclosureId, AlertEventType type) {
+
+        static EventKey of(AlertEvent event) {
+            return new EventKey(event.getProcessId(), event.getInformationTypeId(), event.getDisclosureId(), event.getType());
+        }
     }
 
     // DELETE
 
+    @Transactional
+    public void deleteEvents(AlertTarget target, UUID id) {
+        switch (target) {
+            case PROCESS -> deleteEventsForProcess(id);
+            case INFORMATION_TYPE -> deleteEventsForInformationType(id);
+            case DISCLOSURE -> deleteEventsForDisclosure(id);
+        }
+    }
+
     @Transactional
     public void deleteEventsForInformationType(UUID informationTypeId) {
+        var processIds = alertRepository.findByInformationTypeId(informationTypeId).stream()
+                .map(AlertEvent::getProcessId).filter(Objects::nonNull).collect(toSet());
         int deleted = alertRepository.deleteByInformationTypeId(informationTypeId);
         log.info("deleted {} events for informationType {}", deleted, informationTypeId);
+        dashboardService.updateProcesses(processIds);
     }
 
     @Transactional
@@ -131,6 +244,7 @@ public class AlertService {
     public void deleteEventsForPolicy(Policy policy) {
         int deleted = alertRepository.deleteByProcessIdAndInformationTypeId(policy.getProcess().getId(), policy.getInformationTypeId());
         log.info("deleted {} events for process {} informationType {}", deleted, policy.getProcess().getId(), policy.getInformationTypeId());
+        dashboardService.updateProcess(policy.getProcess().getId());
     }
 
     @Transactional
@@ -200,7 +314,7 @@ public class AlertService {
 
     @Transactional(readOnly = true)
     public ProcessAlert checkAlertsForProcess(UUID processId) {
-        var process = processRepository.findById(processId)
+        var process = processRepository.findWithPoliciesById(processId)
                 .orElseThrow(() -> new NotFoundException("No process for id " + processId + " found"));
         return checkProcess(process, null);
     }
@@ -214,45 +328,28 @@ public class AlertService {
     public DisclosureAlert checkAlertsForDisclosure(UUID disclosureId) {
         var disclosure = disclosureRepository.findById(disclosureId)
                 .orElseThrow(() -> new NotFoundException("No disclosure for id " + disclosureId + " found"));
-        var art6 = containsArticle(disclosure.getData().getLegalBases(), ART_6_PREFIX);
-        return new DisclosureAlert(disclosure.getId(), !art6);
+        return AlertRules.checkDisclosure(DisclosureFacts.of(disclosure));
     }
 
+    /**
+     * The information types of the policies are looked up in one query, or not at all when checking for one information type
+     */
     private ProcessAlert checkProcess(Process process, InformationType informationType) {
-        var alert = new ProcessAlert(process.getId(), process.getData().isUsesAllInformationTypes(), new ArrayList<>());
-
-        var processArt6 = containsArticle(process.getData().getLegalBases(), ART_6_PREFIX);
-        var processArt9 = containsArticle(process.getData().getLegalBases(), ART_9_PREFIX);
-
-        List<Policy> policies = StreamUtils.filter(process.getPolicies(), policy -> (informationType == null || policy.getInformationType().equals(informationType)));
-        for (Policy policy : policies) {
-            checkPolicy(processArt6, processArt9, policy).resolve().ifPresent(alert.getPolicies()::add);
+        List<Policy> policies = StreamUtils.filter(process.getPolicies(),
+                policy -> informationType == null || policy.getInformationTypeId().equals(informationType.getId()));
+        Set<UUID> specialCategory;
+        if (informationType != null) {
+            specialCategory = isSpecialCategory(informationType) ? Set.of(informationType.getId()) : Set.of();
+        } else {
+            var informationTypeIds = policies.stream().map(Policy::getInformationTypeId).collect(toSet());
+            specialCategory = informationTypeRepository.findAllById(informationTypeIds).stream()
+                    .filter(AlertService::isSpecialCategory).map(InformationType::getId).collect(toSet());
         }
-
-        return alert;
-    }
-
-    private PolicyAlert checkPolicy(boolean processArt6, boolean processArt9, Policy policy) {
-        var requiresArt9 = requiresArt9(policy.getInformationType());
-
-        var policyArt6 = containsArticle(policy.getData().getLegalBases(), ART_6_PREFIX);
-        var policyArt9 = containsArticle(policy.getData().getLegalBases(), ART_9_PREFIX);
-
-        var missingLegalBasis = policy.getData().getLegalBasesUse() == LegalBasesUse.UNRESOLVED;
-        var excessInfo = policy.getData().getLegalBasesUse() == LegalBasesUse.EXCESS_INFO;
-
-        var missingArt6 = !missingLegalBasis && !excessInfo && !policyArt6 && !processArt6;
-        var missingArt9 = !missingLegalBasis && !excessInfo && requiresArt9 && !policyArt9 && !processArt9;
-
-        return new PolicyAlert(policy.getId(), policy.getInformationTypeId(), missingLegalBasis, excessInfo, missingArt6, missingArt9);
+        return AlertRules.checkProcess(ProcessFacts.of(process, policies), specialCategory);
     }
 
-    private boolean requiresArt9(InformationType informationType) {
-        return SENSITIVITY_ART9.equals(informationType.getData().getSensitivity());
-    }
-
-    private boolean containsArticle(List<LegalBasis> legalBases, String articlePrefix) {
-        return safeStream(legalBases).anyMatch(lb -> lb.getGdpr().startsWith(articlePrefix));
+    private static boolean isSpecialCategory(InformationType informationType) {
+        return AlertSnapshot.SENSITIVITY_ART9.equals(informationType.getData().getSensitivity());
     }
 
     @Transactional
@@ -260,4 +357,9 @@ public class AlertService {
         return alertRepository.findAlerts(request);
     }
 
+    @Transactional(readOnly = true)
+    public AlertEventPage getEventsAfter(AlertEventRequest request, AlertCursor after) {
+        return alertRepository.findAlertsAfter(request, after);
+    }
+
 }
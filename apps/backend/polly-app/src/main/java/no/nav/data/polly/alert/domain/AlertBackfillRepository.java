@@ -0,0 +1,163 @@
+package no.nav.data.polly.alert.domain;
+
+import lombok.RequiredArgsConstructor;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Checkpoints of the alert event backfill in the alert_backfill table, see V1.48__alert_backfill.sql.
+ * <p>
+ * Each entity type is split in partitions of id ranges. A partition is claimed for a lease time, renewed with every checkpoint,
+ * so partitions of a pod that stopped are taken over by others when the lease runs out.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AlertBackfillRepository {
+
+    private static final String SELECT = "select version, target_type, partition, lower_id, upper_id, last_id, processed, completed from alert_backfill ";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public boolean exists(int version) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select exists(select 1 from alert_backfill where version = :version)",
+                Map.of("version", version), Boolean.class));
+    }
+
+    /**
+     * Creates the partitions unless they exist, so pods starting at the same time create them once
+     */
+    public void create(List<Partition> partitions) {
+        LocalDateTime now = LocalDateTime.now();
+        var params = partitions.stream().map(partition -> new MapSqlParameterSource()
+                .addValue("version", partition.version())
+                .addValue("targetType", partition.target().name())
+                .addValue("partition", partition.partition())
+                .addValue("lowerId", partition.lowerId())
+                .addValue("upperId", partition.upperId())
+                .addValue("now", now)).toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("""
+                insert into alert_backfill (version, target_type, partition, lower_id, upper_id, created_date, last_modified_date)
+                values (:version, :targetType, :partition, :lowerId, :upperId, :now, :now)
+                on conflict do nothing
+                """, params);
+    }
+
+    /**
+     * Only one pod checks the catalog at a time, the lock is released with the transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryCatalogLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.getJdbcOperations().queryForObject("select pg_try_advisory_xact_lock(hashtext('alert_catalog'))", Boolean.class));
+    }
+
+    public List<Partition> findAll(int version) {
+        return jdbcTemplate.query(SELECT + "where version = :version order by target_type, partition", Map.of("version", version), AlertBackfillRepository::toPartition);
+    }
+
+    /**
+     * Claims an incomplete partition not held by anyone else
+     */
+    public Optional<Partition> claim(int version, String owner, LocalDateTime claimedUntil) {
+        var params = new MapSqlParameterSource()
+                .addValue("version", version)
+                .addValue("owner", owner)
+                .addValue("claimedUntil", claimedUntil)
+                .addValue("now", LocalDateTime.now());
+        return jdbcTemplate.query("""
+                update alert_backfill set claimed_by = :owner, claimed_until = :claimedUntil, last_modified_date = :now
+                where (version, target_type, partition) = (
+                    select version, target_type, partition from alert_backfill
+                    where version = :version and not completed and (claimed_until is null or claimed_until < :now)
+                    order by target_type, partition
+                    limit 1 for update skip locked
+                )
+                returning version, target_type, partition, lower_id, upper_id, last_id, processed, completed
+                """, params, AlertBackfillRepository::toPartition).stream().findFirst();
+    }
+
+    /**
+     * Ids of the partition after the last id, in id order
+     */
+    public List<UUID> findIds(Partition partition, UUID lastId, int limit) {
+        var table = switch (partition.target()) {
+            case PROCESS -> "process";
+            case INFORMATION_TYPE -> "information_type";
+            case DISCLOSURE -> "disclosure";
+        };
+        var idColumn = table + "_id";
+        var params = new MapSqlParameterSource()
+                .addValue("lowerId", partition.lowerId())
+                .addValue("upperId", partition.upperId())
+                .addValue("lastId", lastId)
+                .addValue("limit", limit);
+        var sql = "select " + idColumn + " from " + table + " where " + idColumn + " >= :lowerId "
+                + (partition.upperId() != null ? "and " + idColumn + " < :upperId " : "")
+                + (lastId != null ? "and " + idColumn + " > :lastId " : "")
+                + "order by " + idColumn + " limit :limit";
+        return jdbcTemplate.queryForList(sql, params, UUID.class);
+    }
+
+    /**
+     * Saves progress and renews the claim
+     *
+     * @return false if the claim was lost to another owner
+     */
+    public boolean checkpoint(Partition partition, String owner, UUID lastId, int processed, LocalDateTime claimedUntil) {
+        return jdbcTemplate.update("""
+                update alert_backfill set last_id = :lastId, processed = processed + :processed, claimed_until = :claimedUntil, last_modified_date = :now
+                where version = :version and target_type = :targetType and partition = :partition and claimed_by = :owner
+                """, key(partition, owner)
+                .addValue("lastId", lastId)
+                .addValue("processed", processed)
+                .addValue("claimedUntil", claimedUntil)
+                .addValue("now", LocalDateTime.now())) > 0;
+    }
+
+    public boolean complete(Partition partition, String owner) {
+        return jdbcTemplate.update("""
+                update alert_backfill set completed = true, claimed_by = null, claimed_until = null, last_modified_date = :now
+                where version = :version and target_type = :targetType and partition = :partition and claimed_by = :owner
+                """, key(partition, owner).addValue("now", LocalDateTime.now())) > 0;
+    }
+
+    private static MapSqlParameterSource key(Partition partition, String owner) {
+        return new MapSqlParameterSource()
+                .addValue("version", partition.version())
+                .addValue("targetType", partition.target().name())
+                .addValue("partition", partition.partition())
+                .addValue("owner", owner);
+    }
+
+    private static Partition toPartition(ResultSet rs, int rowNum) throws SQLException {
+        return new Partition(
+                rs.getInt("version"),
+                AlertTarget.valueOf(rs.getString("target_type")),
+                rs.getInt("partition"),
+                rs.getObject("lower_id", UUID.class),
+                rs.getObject("upper_id", UUID.class),
+                rs.getObject("last_id", UUID.class),
+                rs.getInt("processed"),
+                rs.getBoolean("completed")
+        );
+    }
+
+    /**
+     * Ids from lowerId inclusive to upperId exclusive, upperId is null for the last partition
+     */
+    public record Partition(int version, AlertTarget target, int partition, UUID lowerId, UUID upperId, UUID lastId, int processed, boolean completed) {
+
+    }
+}
@@ -3,16 +3,17 @@ package no.nav.data.polly.alert.domain;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import no.nav.data.common.rest.ChangeStampResponse;
 import no.nav.data.common.storage.domain.ChangeStamp;
-import no.nav.data.common.storage.domain.GenericStorageIdData;
 import org.apache.commons.lang3.builder.CompareToBuilder;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class AlertEvent implements GenericStorageIdData, Comparable<AlertEvent> {
+public class AlertEvent implements Comparable<AlertEvent> {
 
     private UUID id;
     private UUID processId;
@@ -39,6 +40,16 @@ public class AlertEvent implements GenericStorageIdData, Comparable<AlertEvent>
         this.level = type.getLevel();
     }
 
+    public ChangeStampResponse convertChangeStampResponse() {
+        if (changeStamp == null) {
+            return null;
+        }
+        return ChangeStampResponse.builder()
+                .lastModifiedBy(changeStamp.getLastModifiedBy())
+                .lastModifiedDate(changeStamp.getLastModifiedDate() == null ? LocalDateTime.now() : changeStamp.getLastModifiedDate())
+                .build();
+    }
+
     @Override
     public int compareTo(AlertEvent o) {
         return CompareToBuilder.reflectionCompare(this, o, "id");
@@ -0,0 +1,168 @@
+package no.nav.data.polly.alert.domain;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Markers of entities needing alert recalculation in the alert_outbox table, see V1.47__alert_outbox.sql.
+ * <p>
+ * Marking is done in the transaction changing the entity, an entity has at most one marker however often it is changed.
+ * Markers are claimed with {@code for update skip locked}, so several pods can work the outbox without taking the same markers,
+ * and a marker updated by an open transaction is not claimed until that transaction is done.
+ * A change marking an entity while the worker holds its marker waits for the worker, and leaves a new marker once the worker commits.
+ * <p>
+ * Markers failing too often are parked, they are not claimed until the entity is marked again.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AlertOutboxRepository {
+
+    private static final String MARK = """
+            insert into alert_outbox (target_type, target_id, first_marked, last_marked)
+            values (:targetType, :targetId, :now, :now)
+            on conflict (target_type, target_id) do update
+            set last_marked = excluded.last_marked, attempts = 0, parked = null
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void mark(AlertTarget target, Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        var params = ids.stream().distinct().map(id -> new MapSqlParameterSource()
+                .addValue("targetType", target.name())
+                .addValue("targetId", id)
+                .addValue("now", now)).toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(MARK, params);
+    }
+
+    /**
+     * Removes and returns the oldest markers not locked by other transactions.
+     * Run in the transaction recalculating the markers, so they are back in the outbox if it rolls back.
+     */
+    public List<Marker> claim(int limit) {
+        return jdbcTemplate.query("""
+                delete from alert_outbox
+                where (target_type, target_id) in (
+                    select target_type, target_id from alert_outbox where parked is null order by first_marked limit :limit for update skip locked
+                )
+                returning target_type, target_id, first_marked
+                """, Map.of("limit", limit), AlertOutboxRepository::toMarker);
+    }
+
+    /**
+     * Removes the marker unless locked by another transaction
+     *
+     * @return if the marker was removed
+     */
+    public boolean claim(Marker marker) {
+        return jdbcTemplate.update("""
+                delete from alert_outbox
+                where (target_type, target_id) in (
+                    select target_type, target_id from alert_outbox
+                    where target_type = :targetType and target_id = :targetId and parked is null
+                    for update skip locked
+                )
+                """, Map.of("targetType", marker.target().name(), "targetId", marker.id())) > 0;
+    }
+
+    /**
+     * Counts a failed attempt of the marker, and parks it at the last attempt
+     *
+     * @return if the marker was parked
+     */
+    public boolean failed(Marker marker, int maxAttempts) {
+        return jdbcTemplate.query("""
+                update alert_outbox
+                set attempts = attempts + 1, parked = case when attempts + 1 >= :maxAttempts then :now end
+                where target_type = :targetType and target_id = :targetId and parked is null
+                returning parked is not null as parked
+                """, new MapSqlParameterSource()
+                .addValue("targetType", marker.target().name())
+                .addValue("targetId", marker.id())
+                .addValue("maxAttempts", maxAttempts)
+                .addValue("now", LocalDateTime.now()), (rs, rowNum) -> rs.getBoolean("parked")).stream().findFirst().orElse(false);
+    }
+
+    /**
+     * Markers waiting for recalculation, parked markers are not counted
+     */
+    public int count() {
+        return Optional.ofNullable(jdbcTemplate.getJdbcTemplate().queryForObject("select count(*) from alert_outbox where parked is null", Integer.class)).orElse(0);
+    }
+
+    public int countParked() {
+        return Optional.ofNullable(jdbcTemplate.getJdbcTemplate().queryForObject("select count(*) from alert_outbox where parked is not null", Integer.class)).orElse(0);
+    }
+
+    public Optional<LocalDateTime> oldestMarked() {
+        return Optional.ofNullable(jdbcTemplate.getJdbcTemplate().queryForObject("select min(first_marked) from alert_outbox where parked is null", LocalDateTime.class));
+    }
+
+    /**
+     * Oldest marker of the process, or of an information type used by a policy of the process
+     */
+    public Optional<LocalDateTime> oldestMarkedForProcess(UUID processId) {
+        return oldest("""
+                select min(first_marked) from alert_outbox
+                where (target_type = 'PROCESS' and target_id = :id)
+                   or (target_type = 'INFORMATION_TYPE' and target_id in (select information_type_id from policy where process_id = :id))
+                """, processId);
+    }
+
+    /**
+     * Oldest marker of the information type, or of a process with a policy for the information type
+     */
+    public Optional<LocalDateTime> oldestMarkedForInformationType(UUID informationTypeId) {
+        return oldest("""
+                select min(first_marked) from alert_outbox
+                where (target_type = 'INFORMATION_TYPE' and target_id = :id)
+                   or (target_type = 'PROCESS' and target_id in (select process_id from policy where information_type_id = :id))
+                """, informationTypeId);
+    }
+
+    public Optional<LocalDateTime> oldestMarkedForDisclosure(UUID disclosureId) {
+        return oldest("select min(first_marked) from alert_outbox where target_type = 'DISCLOSURE' and target_id = :id", disclosureId);
+    }
+
+    public int delete(AlertTarget target, Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("delete from alert_outbox where target_type = :targetType and target_id = any(:ids)",
+                Map.of("targetType", target.name(), "ids", new SqlArrayValue("uuid", ids.toArray())));
+    }
+
+    private Optional<LocalDateTime> oldest(String sql, UUID id) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(sql, Map.of("id", id), LocalDateTime.class));
+    }
+
+    private static Marker toMarker(ResultSet rs, int rowNum) throws SQLException {
+        return new Marker(AlertTarget.valueOf(rs.getString("target_type")), rs.getObject("target_id", UUID.class), rs.getObject("first_marked", LocalDateTime.class));
+    }
+
+    public enum AlertTarget {
+        PROCESS,
+        INFORMATION_TYPE,
+        DISCLOSURE
+    }
+
+    public record Marker(AlertTarget target, UUID id, LocalDateTime firstMarked) {
+
+    }
+}
@@ -1,44 +1,325 @@
 package no.nav.data.polly.alert.domain;
 
-import no.nav.data.common.storage.domain.GenericStorage;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
-import org.springframework.data.jpa.repository.Query;
+import lombok.RequiredArgsConstructor;
+import no.nav.data.common.exceptions.ValidationException;
+import no.nav.data.common.storage.domain.ChangeStamp;
+import no.nav.data.common.utils.JsonUtils;
+import no.nav.data.common.utils.MdcUtils;
+import no.nav.data.polly.alert.AlertController.EventPage.AlertSort;
+import no.nav.data.polly.alert.AlertController.EventPage.SortDir;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
-public interface AlertRepository extends JpaRepository<GenericStorage, UUID>, AlertRepositoryCustom {
+import static no.nav.data.common.utils.StreamUtils.convert;
 
-    @Query(value = "select * from generic_storage where data ->> 'informationTypeId' = cast(?1 as text) and type = 'ALERT_EVENT'", nativeQuery = true)
-    List<GenericStorage> findByInformationTypeId(UUID informationTypeId);
+/**
+ * Alert events in the alert_event table, see V1.46__alert_event.sql.
+ * Lookups by process, information type and disclosure use the index of each column.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AlertRepository {
 
-    @Query(value = "select * from generic_storage where data ->> 'processId' = cast(?1 as text) and (data ->> 'informationTypeId' = cast(?2 as text) or data ->> 'informationTypeId' is null) and type = 'ALERT_EVENT'", nativeQuery = true)
-    List<GenericStorage> findByProcessIdAndInformationTypeId(UUID processId, UUID informationTypeId);
+    private static final String SELECT = "select id, process_id, information_type_id, disclosure_id, type, level, created_by, created_date, last_modified_by, last_modified_date "
+            + "from alert_event ";
 
-    @Query(value = "select * from generic_storage where data ->> 'processId' = cast(?1 as text) and type = 'ALERT_EVENT'", nativeQuery = true)
-    List<GenericStorage> findByProcessId(UUID processId);
+    private final NamedParameterJdbcTemplate jdbcTemplate;
 
-    @Query(value = "select * from generic_storage where cast(data ->> 'processId' as uuid) in ?1 and type = 'ALERT_EVENT'", nativeQuery = true)
-    List<GenericStorage> findByProcessIds(List<UUID> processIds);
+    public List<AlertEvent> findByInformationTypeId(UUID informationTypeId) {
+        return jdbcTemplate.query(SELECT + "where information_type_id = :informationTypeId", Map.of("informationTypeId", informationTypeId), AlertRepository::toEvent);
+    }
 
-    @Query(value = "select * from generic_storage where data ->> 'disclosureId' = cast(?1 as text) and type = 'ALERT_EVENT'", nativeQuery = true)
-    List<GenericStorage> findByDisclosureId(UUID disclosureId);
+    /**
+     * Events of the process for the information type, and those of the process itself
+     */
+    public List<AlertEvent> findByProcessIdAndInformationTypeId(UUID processId, UUID informationTypeId) {
+        return jdbcTemplate.query(SELECT + "where process_id = :processId and (information_type_id = :informationTypeId or information_type_id is null)",
+                Map.of("processId", processId, "informationTypeId", informationTypeId), AlertRepository::toEvent);
+    }
+
+    public List<AlertEvent> findByProcessId(UUID processId) {
+        return jdbcTemplate.query(SELECT + "where process_id = :processId", Map.of("processId", processId), AlertRepository::toEvent);
+    }
+
+    public List<AlertEvent> findByProcessIds(Collection<UUID> processIds) {
+        if (processIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(SELECT + "where process_id in (:processIds)", Map.of("processIds", processIds), AlertRepository::toEvent);
+    }
+
+    public List<AlertEvent> findByDisclosureId(UUID disclosureId) {
+        return jdbcTemplate.query(SELECT + "where disclosure_id = :disclosureId", Map.of("disclosureId", disclosureId), AlertRepository::toEvent);
+    }
+
+    public List<AlertEvent> findByDisclosureIds(Collection<UUID> disclosureIds) {
+        if (disclosureIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(SELECT + "where disclosure_id in (:disclosureIds)", Map.of("disclosureIds", disclosureIds), AlertRepository::toEvent);
+    }
+
+    /**
+     * Events of all processes and disclosures, including the events of processes for an information type
+     */
+    public List<AlertEvent> findAllOfProcessesAndDisclosures() {
+        return jdbcTemplate.query(SELECT + "where process_id is not null or disclosure_id is not null", AlertRepository::toEvent);
+    }
+
+    /**
+     * Inserts the events in one batch, ids and change stamps are set on the events
+     */
+    public void saveAll(Collection<AlertEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        String user = Optional.ofNullable(MdcUtils.getUser()).orElse("no-user-set");
+        LocalDateTime now = LocalDateTime.now();
+        var params = events.stream().map(event -> {
+            if (event.getId() == null) {
+                event.setId(UUID.randomUUID());
+            }
+            event.setChangeStamp(new ChangeStamp(user, now, user, now));
+            return new MapSqlParameterSource()
+                    .addValue("id", event.getId())
+                    .addValue("processId", event.getProcessId())
+                    .addValue("informationTypeId", event.getInformationTypeId())
+                    .addValue("disclosureId", event.getDisclosureId())
+                    .addValue("type", event.getType().name())
+                    .addValue("level", event.getLevel().name())
+                    .addValue("user", user)
+                    .addValue("now", now);
+        }).toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("""
+                insert into alert_event (id, process_id, information_type_id, disclosure_id, type, level, created_by, created_date, last_modified_by, last_modified_date)
+                values (:id, :processId, :informationTypeId, :disclosureId, :type, :level, :user, :now, :user, :now)
+                """, params);
+    }
 
     // Deletes
-    @Modifying
-    @Query(value = "delete from generic_storage where data ->> 'informationTypeId' = cast(?1 as text) and type = 'ALERT_EVENT'", nativeQuery = true)
-    int deleteByInformationTypeId(UUID informationTypeId);
+    /**
+     * Deletes the events in one statement, the ids are bound as one array parameter
+     */
+    public int deleteByIds(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("delete from alert_event where id = any(:ids)", Map.of("ids", new SqlArrayValue("uuid", ids.toArray())));
+    }
+
+    public int deleteByInformationTypeId(UUID informationTypeId) {
+        return jdbcTemplate.update("delete from alert_event where information_type_id = :informationTypeId", Map.of("informationTypeId", informationTypeId));
+    }
+
+    public int deleteByProcessIdAndInformationTypeId(UUID processId, UUID informationTypeId) {
+        return jdbcTemplate.update("delete from alert_event where process_id = :processId and information_type_id = :informationTypeId",
+                Map.of("processId", processId, "informationTypeId", informationTypeId));
+    }
+
+    public int deleteByProcessId(UUID processId) {
+        return jdbcTemplate.update("delete from alert_event where process_id = :processId", Map.of("processId", processId));
+    }
+
+    public int deleteByDisclosureId(UUID disclosureId) {
+        return jdbcTemplate.update("delete from alert_event where disclosure_id = :disclosureId", Map.of("disclosureId", disclosureId));
+    }
+
+    /**
+     * Page by page number, the events before the page are read and skipped. See {@link #findAlertsAfter} for paging deep into the events.
+     */
+    public Page<AlertEvent> findAlerts(AlertEventRequest request) {
+        var query = eventQuery(request, null);
+        var pageParams = new MapSqlParameterSource(query.params().getValues())
+                .addValue("pageSize", request.pageSize())
+                .addValue("offset", request.page() * request.pageSize());
+
+        List<AlertEvent> alertEvents = jdbcTemplate.query(query.sql() + " limit :pageSize offset :offset", pageParams, AlertRepository::toEvent);
+        // A partially filled page is the last page, so the total is known without counting
+        boolean lastPage = alertEvents.size() < request.pageSize() && (request.page() == 0 || !alertEvents.isEmpty());
+        long total = lastPage
+                ? (long) request.page() * request.pageSize() + alertEvents.size()
+                : jdbcTemplate.queryForObject("select count(*) from alert_event ae where " + query.where(), query.params(), Long.class);
+        return new PageImpl<>(alertEvents, PageRequest.of(request.page(), request.pageSize()), total);
+    }
+
+    /**
+     * Keyset page, the events sorted after the cursor. The database seeks to the cursor, so deep pages cost the same as the first one.
+     * Only the time sort has an index to seek through, see V1.49__alert_event_keyset.sql. The other sorts read and sort
+     * all events of the request for every page, the name sorts by a column of the joined table, which no index on alert_event can order.
+     *
+     * @param after cursor of the last event of the previous page, null for the first page
+     */
+    public AlertEventPage findAlertsAfter(AlertEventRequest request, AlertCursor after) {
+        var query = eventQuery(request, after);
+        var params = new MapSqlParameterSource(query.params().getValues()).addValue("limit", request.pageSize() + 1);
+        List<SortedEvent> rows = jdbcTemplate.query(query.sql() + " limit :limit", params,
+                (rs, rowNum) -> new SortedEvent(toEvent(rs, rowNum), rs.getString("sort_value")));
+        if (rows.size() <= request.pageSize()) {
+            return new AlertEventPage(convert(rows, SortedEvent::event), null);
+        }
+        var content = rows.subList(0, request.pageSize());
+        var last = content.getLast();
+        return new AlertEventPage(convert(content, SortedEvent::event), new AlertCursor(sortOf(request), last.sortValue(), last.event().getId()));
+    }
+
+    /**
+     * The events of the request in sort order, the referenced table of a name sort is joined once for all events
+     */
+    EventQuery eventQuery(AlertEventRequest request, AlertCursor after) {
+        var where = "true ";
+        var params = new MapSqlParameterSource();
+        if (request.processId() != null) {
+            where += "and ae.process_id = :processId ";
+            params.addValue("processId", request.processId());
+        }
+        if (request.informationTypeId() != null) {
+            where += "and ae.information_type_id = :informationTypeId ";
+            params.addValue("informationTypeId", request.informationTypeId());
+        }
+        if (request.disclosureId() != null) {
+            where += "and ae.disclosure_id = :disclosureId ";
+            params.addValue("disclosureId", request.disclosureId());
+        }
+        if (request.type() != null) {
+            where += "and ae.type = :type ";
+            params.addValue("type", request.type().name());
+        }
+        if (request.level() != null) {
+            where += "and ae.level = :level ";
+            params.addValue("level", request.level().name());
+        }
+
+        AlertSort sort = sortOf(request);
+        boolean asc = request.dir() == SortDir.ASC;
+        var sortValue = switch (sort) {
+            case PROCESS -> "coalesce(p.data ->> 'name', '')";
+            case INFORMATION_TYPE -> "coalesce(it.data ->> 'name', '')";
+            case DISCLOSURE -> "coalesce(d.data ->> 'name', '')";
+            case TYPE -> "ae.type";
+            case LEVEL -> "ae.level";
+            case TIME -> "ae.created_date";
+            case USER -> "ae.created_by";
+        };
+        var join = switch (sort) {
+            case PROCESS -> "left join process p on p.process_id = ae.process_id ";
+            case INFORMATION_TYPE -> "left join information_type it on it.information_type_id = ae.information_type_id ";
+            case DISCLOSURE -> "left join disclosure d on d.disclosure_id = ae.disclosure_id ";
+            default -> "";
+        };
+
+        var seek = "";
+        if (after != null) {
+            if (after.sort() != sort) {
+                throw new ValidationException("Cursor is for sort " + after.sort() + ", not " + sort);
+            }
+            seek = "and (" + sortValue + ", ae.id) " + (asc ? ">" : "<") + " (:afterValue, :afterId) ";
+            params.addValue("afterValue", sort == AlertSort.TIME ? after.time() : after.value()).addValue("afterId", after.id());
+        }
+        var dirSql = asc ? " asc" : " desc";
+        var sql = "select ae.id, ae.process_id, ae.information_type_id, ae.disclosure_id, ae.type, ae.level, "
+                + "ae.created_by, ae.created_date, ae.last_modified_by, ae.last_modified_date, cast(" + sortValue + " as text) as sort_value "
+                + "from alert_event ae " + join
+                + "where " + where + seek
+                + "order by " + sortValue + dirSql + ", ae.id" + dirSql;
+        return new EventQuery(sql, where, params);
+    }
+
+    private static AlertSort sortOf(AlertEventRequest request) {
+        return request.sort() != null ? request.sort() : AlertSort.TIME;
+    }
+
+    private static AlertEvent toEvent(ResultSet rs, int rowNum) throws SQLException {
+        return new AlertEvent(
+                rs.getObject("id", UUID.class),
+                rs.getObject("process_id", UUID.class),
+                rs.getObject("information_type_id", UUID.class),
+                rs.getObject("disclosure_id", UUID.class),
+                AlertEventType.valueOf(rs.getString("type")),
+                AlertEventLevel.valueOf(rs.getString("level")),
+                new ChangeStamp(rs.getString("created_by"), rs.getObject("created_date", LocalDateTime.class),
+                        rs.getString("last_modified_by"), rs.getObject("last_modified_date", LocalDateTime.class))
+        );
+    }
+
+    public record AlertEventRequest(
+            UUID processId, UUID informationTypeId, UUID disclosureId,
+            AlertEventType type, AlertEventLevel level,
+            int page, int pageSize, AlertSort sort, SortDir dir
+    ) {
+    }
+
+    public record AlertEventPage(List<AlertEvent> events, AlertCursor next) {
+
+    }
+
+    /**
+     * Sort value and id of the last event of a page, passed to the client as an opaque string
+     */
+    public record AlertCursor(AlertSort sort, String value, UUID id) {
+
+        private static final DateTimeFormatter TIME_VALUE = new DateTimeFormatterBuilder()
+                .append(DateTimeFormatter.ISO_LOCAL_DATE).appendLiteral(' ').append(DateTimeFormatter.ISO_LOCAL_TIME).toFormatter();
+
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(JsonUtils.toJson(this).getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static AlertCursor decode(String cursor) {
+            try {
+                var cursorObject = JsonUtils.toObject(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8), AlertCursor.class);
+                if (cursorObject.sort() == null || cursorObject.id() == null) {
+                    throw new ValidationException("Invalid cursor " + cursor);
+                }
+                if (cursorObject.sort() == AlertSort.TIME) {
+                    cursorObject.time();
+                }
+                return cursorObject;
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Invalid cursor " + cursor);
+            }
+        }
+
+        /**
+         * Value of a time sort, as written by postgres when the created date is cast to text
+         */
+        LocalDateTime time() {
+            if (value == null) {
+                throw new ValidationException("Invalid time in cursor " + value);
+            }
+            try {
+                return LocalDateTime.parse(value, TIME_VALUE);
+            } catch (DateTimeParseException e) {
+                throw new ValidationException("Invalid time in cursor " + value);
+            }
+        }
+    }
+
+    record EventQuery(String sql, String where, MapSqlParameterSource params) {
+
+    }
 
-    @Modifying
-    @Query(value = "delete from generic_storage where data ->> 'processId' = cast(?1 as text) and data ->> 'informationTypeId' = cast(?2 as text) and type = 'ALERT_EVENT'", nativeQuery = true)
-    int deleteByProcessIdAndInformationTypeId(UUID processId, UUID informationTypeId);
+    private record SortedEvent(AlertEvent event, String sortValue) {
 
-    @Modifying
-    @Query(value = "delete from generic_storage where data ->> 'processId' = cast(?1 as text) and type = 'ALERT_EVENT'", nativeQuery = true)
-    int deleteByProcessId(UUID processId);
+    }
 
-    @Modifying
-    @Query(value = "delete from generic_storage where data ->> 'disclosureId' = cast(?1 as text) and type = 'ALERT_EVENT'", nativeQuery = true)
-    int deleteByDisclosureId(UUID disclosureId);
 }
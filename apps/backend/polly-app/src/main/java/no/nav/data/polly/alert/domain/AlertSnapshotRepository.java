@@ -0,0 +1,103 @@
+package no.nav.data.polly.alert.domain;
+
+import lombok.RequiredArgsConstructor;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
+import no.nav.data.polly.alert.rule.AlertSnapshot;
+import no.nav.data.polly.alert.rule.AlertSnapshot.DisclosureFacts;
+import no.nav.data.polly.alert.rule.AlertSnapshot.PolicyFacts;
+import no.nav.data.polly.alert.rule.AlertSnapshot.ProcessFacts;
+import no.nav.data.polly.policy.domain.LegalBasesUse;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Loads the {@link AlertSnapshot} of the whole catalog, or of a page of processes or disclosures, in one query per table.
+ * The articles are found in the database, matching {@link AlertSnapshot} built from entities.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AlertSnapshotRepository {
+
+    private static final String ARTICLES = """
+            exists(select 1 from code_usage_elements(data #> '{legalBases}') lb where lb ->> 'gdpr' like :art6) as art6,
+            exists(select 1 from code_usage_elements(data #> '{legalBases}') lb where lb ->> 'gdpr' like :art9) as art9
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * All processes and disclosures, and all special category information types
+     */
+    public AlertSnapshot load() {
+        var params = params();
+        return new AlertSnapshot(loadProcesses(params, ""), loadDisclosures(params, ""), loadSpecialCategory(params, ""));
+    }
+
+    /**
+     * @param target {@link AlertTarget#PROCESS} or {@link AlertTarget#DISCLOSURE}, the snapshot has no entities of the other
+     */
+    public AlertSnapshot load(AlertTarget target, Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return new AlertSnapshot(List.of(), List.of(), Set.of());
+        }
+        var params = params().addValue("ids", ids);
+        return switch (target) {
+            case PROCESS -> new AlertSnapshot(loadProcesses(params, "where process_id in (:ids)"), List.of(),
+                    loadSpecialCategory(params, "and information_type_id in (select information_type_id from policy where process_id in (:ids))"));
+            case DISCLOSURE -> new AlertSnapshot(List.of(), loadDisclosures(params, "where disclosure_id in (:ids)"), Set.of());
+            case INFORMATION_TYPE -> throw new IllegalArgumentException("information types have no alerts of their own");
+        };
+    }
+
+    private static MapSqlParameterSource params() {
+        return new MapSqlParameterSource()
+                .addValue("art6", AlertSnapshot.ART_6_PREFIX + "%")
+                .addValue("art9", AlertSnapshot.ART_9_PREFIX + "%")
+                .addValue("sensitivity", AlertSnapshot.SENSITIVITY_ART9);
+    }
+
+    /**
+     * @param where condition on process_id, applied to the policies and the processes
+     */
+    private List<ProcessFacts> loadProcesses(MapSqlParameterSource params, String where) {
+        Map<UUID, List<PolicyFacts>> policies = new HashMap<>();
+        jdbcTemplate.query("select process_id, policy_id, information_type_id, data ->> 'legalBasesUse' as legal_bases_use, " + ARTICLES + "from policy " + where,
+                params, rs -> {
+                    var legalBasesUse = rs.getString("legal_bases_use");
+                    policies.computeIfAbsent(rs.getObject("process_id", UUID.class), id -> new ArrayList<>()).add(new PolicyFacts(
+                            rs.getObject("policy_id", UUID.class),
+                            rs.getObject("information_type_id", UUID.class),
+                            legalBasesUse == null ? null : LegalBasesUse.valueOf(legalBasesUse),
+                            rs.getBoolean("art6"),
+                            rs.getBoolean("art9")
+                    ));
+                });
+
+        return jdbcTemplate.query("select process_id, coalesce(cast(data ->> 'usesAllInformationTypes' as boolean), false) as uses_all, " + ARTICLES
+                        + "from process " + where,
+                params, (rs, rowNum) -> {
+                    var id = rs.getObject("process_id", UUID.class);
+                    return new ProcessFacts(id, rs.getBoolean("uses_all"), rs.getBoolean("art6"), rs.getBoolean("art9"), policies.getOrDefault(id, List.of()));
+                });
+    }
+
+    private Set<UUID> loadSpecialCategory(MapSqlParameterSource params, String and) {
+        return new HashSet<>(jdbcTemplate.queryForList("select information_type_id from information_type where data ->> 'sensitivity' = :sensitivity " + and,
+                params, UUID.class));
+    }
+
+    private List<DisclosureFacts> loadDisclosures(MapSqlParameterSource params, String where) {
+        return jdbcTemplate.query("select disclosure_id, " + ARTICLES + "from disclosure " + where,
+                params, (rs, rowNum) -> new DisclosureFacts(rs.getObject("disclosure_id", UUID.class), rs.getBoolean("art6")));
+    }
+}
@@ -0,0 +1,34 @@
+package no.nav.data.polly.alert.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Singular;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AlertBackfillResponse {
+
+    private int version;
+    private boolean completed;
+    @Singular
+    private List<TargetProgress> targets;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class TargetProgress {
+
+        private AlertTarget target;
+        private int partitions;
+        private int completedPartitions;
+        private long processed;
+    }
+}
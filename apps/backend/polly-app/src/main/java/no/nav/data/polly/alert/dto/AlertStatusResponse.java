@@ -0,0 +1,22 @@
+package no.nav.data.polly.alert.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AlertStatusResponse {
+
+    private boolean upToDate;
+    /**
+     * Entities waiting for alert recalculation, for all alerts or for the requested entity
+     */
+    private int pending;
+    private LocalDateTime oldestPending;
+}
@@ -0,0 +1,74 @@
+package no.nav.data.polly.alert.rule;
+
+import no.nav.data.polly.alert.domain.AlertEventType;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * An alert raised when all conditions hold for the subject. The conditions are compiled into one predicate when the rule is created.
+ *
+ * @param <T> what the rule is evaluated for, a process, a policy in its process or a disclosure
+ */
+public final class AlertRule<T> {
+
+    private final AlertEventType type;
+    private final List<Condition<T>> conditions;
+    private final Predicate<T> predicate;
+
+    private AlertRule(AlertEventType type, List<Condition<T>> conditions) {
+        this.type = type;
+        this.conditions = conditions;
+        this.predicate = conditions.stream().map(Condition::compile).reduce(Predicate::and).orElse(subject -> true);
+    }
+
+    @SafeVarargs
+    public static <T> AlertRule<T> of(AlertEventType type, Condition<T>... conditions) {
+        return new AlertRule<>(type, List.of(conditions));
+    }
+
+    public static <T> Condition<T> is(Fact<T> fact) {
+        return new Condition<>(fact, true);
+    }
+
+    public static <T> Condition<T> not(Fact<T> fact) {
+        return new Condition<>(fact, false);
+    }
+
+    public AlertEventType type() {
+        return type;
+    }
+
+    public boolean test(T subject) {
+        return predicate.test(subject);
+    }
+
+    @Override
+    public String toString() {
+        return type + " when " + conditions.stream().map(Condition::toString).collect(Collectors.joining(" and "));
+    }
+
+    /**
+     * A named property of the subject, the vocabulary rules are written in
+     */
+    public record Fact<T>(String name, Predicate<T> test) {
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public record Condition<T>(Fact<T> fact, boolean expected) {
+
+        private Predicate<T> compile() {
+            return expected ? fact.test() : fact.test().negate();
+        }
+
+        @Override
+        public String toString() {
+            return expected ? fact.name() : "not " + fact.name();
+        }
+    }
+}
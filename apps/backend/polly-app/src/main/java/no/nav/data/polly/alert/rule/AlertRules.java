@@ -0,0 +1,102 @@
+package no.nav.data.polly.alert.rule;
+
+import no.nav.data.polly.alert.domain.AlertEventType;
+import no.nav.data.polly.alert.dto.DisclosureAlert;
+import no.nav.data.polly.alert.dto.PolicyAlert;
+import no.nav.data.polly.alert.dto.ProcessAlert;
+import no.nav.data.polly.alert.rule.AlertRule.Fact;
+import no.nav.data.polly.alert.rule.AlertSnapshot.DisclosureFacts;
+import no.nav.data.polly.alert.rule.AlertSnapshot.PolicyFacts;
+import no.nav.data.polly.alert.rule.AlertSnapshot.ProcessFacts;
+import no.nav.data.polly.policy.domain.LegalBasesUse;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static no.nav.data.polly.alert.domain.AlertEventType.EXCESS_INFO;
+import static no.nav.data.polly.alert.domain.AlertEventType.MISSING_ARTICLE_6;
+import static no.nav.data.polly.alert.domain.AlertEventType.MISSING_ARTICLE_9;
+import static no.nav.data.polly.alert.domain.AlertEventType.MISSING_LEGAL_BASIS;
+import static no.nav.data.polly.alert.domain.AlertEventType.USES_ALL_INFO_TYPE;
+import static no.nav.data.polly.alert.rule.AlertRule.is;
+import static no.nav.data.polly.alert.rule.AlertRule.not;
+
+/**
+ * The alert rules. Rules only read the {@link AlertSnapshot} facts, so they are evaluated without database access.
+ */
+public final class AlertRules {
+
+    private AlertRules() {
+    }
+
+    /**
+     * A policy together with the process it belongs to
+     */
+    public record PolicySubject(ProcessFacts process, PolicyFacts policy, boolean specialCategory) {
+
+    }
+
+    // FACTS
+
+    static final Fact<ProcessFacts> USES_ALL_INFORMATION_TYPES = new Fact<>("uses all information types", ProcessFacts::usesAllInformationTypes);
+
+    static final Fact<PolicySubject> LEGAL_BASES_UNRESOLVED = new Fact<>("legal bases unresolved", s -> s.policy().legalBasesUse() == LegalBasesUse.UNRESOLVED);
+    static final Fact<PolicySubject> LEGAL_BASES_EXCESS_INFO = new Fact<>("legal bases excess info", s -> s.policy().legalBasesUse() == LegalBasesUse.EXCESS_INFO);
+    static final Fact<PolicySubject> ARTICLE_6 = new Fact<>("article 6 on policy or process", s -> s.policy().art6() || s.process().art6());
+    static final Fact<PolicySubject> ARTICLE_9 = new Fact<>("article 9 on policy or process", s -> s.policy().art9() || s.process().art9());
+    static final Fact<PolicySubject> SPECIAL_CATEGORY = new Fact<>("special category information type", PolicySubject::specialCategory);
+
+    static final Fact<DisclosureFacts> DISCLOSURE_ARTICLE_6 = new Fact<>("article 6 on disclosure", DisclosureFacts::art6);
+
+    // RULES, in the order their events are listed
+
+    static final List<AlertRule<ProcessFacts>> PROCESS_RULES = List.of(
+            AlertRule.of(USES_ALL_INFO_TYPE, is(USES_ALL_INFORMATION_TYPES))
+    );
+
+    static final List<AlertRule<PolicySubject>> POLICY_RULES = List.of(
+            AlertRule.of(MISSING_LEGAL_BASIS, is(LEGAL_BASES_UNRESOLVED)),
+            AlertRule.of(EXCESS_INFO, is(LEGAL_BASES_EXCESS_INFO)),
+            AlertRule.of(MISSING_ARTICLE_6, not(LEGAL_BASES_UNRESOLVED), not(LEGAL_BASES_EXCESS_INFO), not(ARTICLE_6)),
+            AlertRule.of(MISSING_ARTICLE_9, not(LEGAL_BASES_UNRESOLVED), not(LEGAL_BASES_EXCESS_INFO), is(SPECIAL_CATEGORY), not(ARTICLE_9))
+    );
+
+    static final List<AlertRule<DisclosureFacts>> DISCLOSURE_RULES = List.of(
+            AlertRule.of(MISSING_ARTICLE_6, not(DISCLOSURE_ARTICLE_6))
+    );
+
+    // EVALUATE
+
+    /**
+     * @param specialCategoryInformationTypes ids of information types of special category, must contain those of the process' policies
+     */
+    public static ProcessAlert checkProcess(ProcessFacts process, Set<UUID> specialCategoryInformationTypes) {
+        var processTypes = matching(PROCESS_RULES, process);
+        var alert = new ProcessAlert(process.id(), processTypes.contains(USES_ALL_INFO_TYPE), new ArrayList<>());
+        for (PolicyFacts policy : process.policies()) {
+            var subject = new PolicySubject(process, policy, specialCategoryInformationTypes.contains(policy.informationTypeId()));
+            var types = matching(POLICY_RULES, subject);
+            new PolicyAlert(policy.id(), policy.informationTypeId(),
+                    types.contains(MISSING_LEGAL_BASIS), types.contains(EXCESS_INFO), types.contains(MISSING_ARTICLE_6), types.contains(MISSING_ARTICLE_9))
+                    .resolve().ifPresent(alert.getPolicies()::add);
+        }
+        return alert;
+    }
+
+    public static DisclosureAlert checkDisclosure(DisclosureFacts disclosure) {
+        return new DisclosureAlert(disclosure.id(), matching(DISCLOSURE_RULES, disclosure).contains(MISSING_ARTICLE_6));
+    }
+
+    private static <T> Set<AlertEventType> matching(List<AlertRule<T>> rules, T subject) {
+        var types = EnumSet.noneOf(AlertEventType.class);
+        for (AlertRule<T> rule : rules) {
+            if (rule.test(subject)) {
+                types.add(rule.type());
+            }
+        }
+        return types;
+    }
+}
@@ -0,0 +1,57 @@
+package no.nav.data.polly.alert.rule;
+
+import no.nav.data.polly.disclosure.domain.Disclosure;
+import no.nav.data.polly.legalbasis.domain.LegalBasis;
+import no.nav.data.polly.policy.domain.LegalBasesUse;
+import no.nav.data.polly.policy.domain.Policy;
+import no.nav.data.polly.process.domain.Process;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static no.nav.data.common.utils.StreamUtils.convert;
+import static no.nav.data.common.utils.StreamUtils.safeStream;
+
+/**
+ * What the alert rules read of processes, policies, information types and disclosures, with the legal bases reduced to the articles present.
+ * Built from loaded entities, or for a page of the catalog by {@link no.nav.data.polly.alert.domain.AlertSnapshotRepository}.
+ *
+ * @param specialCategoryInformationTypes ids of information types of special category, requiring article 9
+ */
+public record AlertSnapshot(List<ProcessFacts> processes, List<DisclosureFacts> disclosures, Set<UUID> specialCategoryInformationTypes) {
+
+    public static final String SENSITIVITY_ART9 = "SAERLIGE";
+    public static final String ART_6_PREFIX = "ART6";
+    public static final String ART_9_PREFIX = "ART9";
+
+    public record ProcessFacts(UUID id, boolean usesAllInformationTypes, boolean art6, boolean art9, List<PolicyFacts> policies) {
+
+        public static ProcessFacts of(Process process, Collection<Policy> policies) {
+            var legalBases = process.getData().getLegalBases();
+            return new ProcessFacts(process.getId(), process.getData().isUsesAllInformationTypes(),
+                    containsArticle(legalBases, ART_6_PREFIX), containsArticle(legalBases, ART_9_PREFIX), convert(policies, PolicyFacts::of));
+        }
+    }
+
+    public record PolicyFacts(UUID id, UUID informationTypeId, LegalBasesUse legalBasesUse, boolean art6, boolean art9) {
+
+        public static PolicyFacts of(Policy policy) {
+            var legalBases = policy.getData().getLegalBases();
+            return new PolicyFacts(policy.getId(), policy.getInformationTypeId(), policy.getData().getLegalBasesUse(),
+                    containsArticle(legalBases, ART_6_PREFIX), containsArticle(legalBases, ART_9_PREFIX));
+        }
+    }
+
+    public record DisclosureFacts(UUID id, boolean art6) {
+
+        public static DisclosureFacts of(Disclosure disclosure) {
+            return new DisclosureFacts(disclosure.getId(), containsArticle(disclosure.getData().getLegalBases(), ART_6_PREFIX));
+        }
+    }
+
+    private static boolean containsArticle(List<LegalBasis> legalBases, String articlePrefix) {
+        return safeStream(legalBases).anyMatch(lb -> lb.getGdpr().startsWith(articlePrefix));
+    }
+}
@@ -2,32 +2,37 @@ package no.nav.data.polly.codelist;
 
 import no.nav.data.polly.codelist.domain.Codelist;
 import no.nav.data.polly.codelist.domain.ListName;
+import no.nav.data.polly.codelist.dto.CodelistResponse;
 import org.springframework.util.Assert;
 
+import java.util.Collection;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static java.util.Collections.unmodifiableMap;
+
 /**
  * Should not be used outside {@link CodelistService}
+ * <p>
+ * Readers get an immutable snapshot without locking. Changes copy the lists they touch into a new snapshot, which replaces the current one.
+ * The {@link CodelistResponse} of each code is built once per snapshot and shared, it must not be changed by the caller.
  */
 final class CodelistCache {
-    
-    // TODO: Denne bør skrives om til en self-contained @Component. Det inkluderer å flytte funksjonalitet for periodisk refresh inn til den.
 
-    private CodelistCache() {
-    }
+    // TODO: Denne bør skrives om til en self-contained @Component. Det inkluderer å flytte funksjonalitet for periodisk refresh inn til den.
 
-    private static CodelistCache cache;
+    private static volatile Snapshot snapshot = new Snapshot(0, emptyLists(), List.of());
 
     private final Map<ListName, Map<String, Codelist>> codelists = new EnumMap<>(ListName.class);
+    private final Set<ListName> changed = EnumSet.noneOf(ListName.class);
 
-    static {
-        CodelistCache.init();
+    private CodelistCache() {
     }
 
     static synchronized void init() {
@@ -37,34 +42,66 @@ final class CodelistCache {
     static synchronized void init(Consumer<CodelistCache> consumer) {
         var newCache = new CodelistCache();
         Stream.of(ListName.values()).forEach(listName -> newCache.codelists.put(listName, new HashMap<>()));
+        newCache.changed.addAll(EnumSet.allOf(ListName.class));
         if (consumer != null) {
             consumer.accept(newCache);
         }
-        cache = newCache;
+        newCache.publish();
+    }
+
+    /**
+     * Increases with every change of the cache
+     */
+    static long version() {
+        return snapshot.version();
     }
 
-    static synchronized List<Codelist> getAll() {
-        return cache.codelists.values().stream().flatMap(e -> e.values().stream()).collect(Collectors.toList());
+    static List<Codelist> getAll() {
+        return snapshot.all();
     }
 
-    static synchronized List<Codelist> getCodelist(ListName name) {
-        return List.copyOf(cache.codelists.get(name).values());
+    static List<Codelist> getCodelist(ListName name) {
+        return snapshot.lists().get(name).values();
     }
 
-    static synchronized Codelist getCodelist(ListName listName, String code) {
-        return cache.codelists.get(listName).get(code);
+    static Codelist getCodelist(ListName listName, String code) {
+        return snapshot.lists().get(listName).codelists().get(code);
     }
 
-    static synchronized boolean contains(ListName listName, String code) {
-        return cache.codelists.get(listName).containsKey(code);
+    static CodelistResponse getCodelistResponse(ListName listName, String code) {
+        return snapshot.lists().get(listName).responses().get(code);
+    }
+
+    static boolean contains(ListName listName, String code) {
+        return snapshot.lists().get(listName).codelists().containsKey(code);
     }
 
     static synchronized void remove(ListName listName, String code) {
-        cache.codelists.get(listName).remove(code);
+        var newCache = new CodelistCache();
+        newCache.list(listName).remove(code);
+        newCache.publish();
     }
 
     static synchronized void set(Codelist codelist) {
-        cache.setCode(codelist);
+        setAll(List.of(codelist));
+    }
+
+    static synchronized void setAll(Collection<Codelist> codelists) {
+        var newCache = new CodelistCache();
+        codelists.forEach(newCache::setCode);
+        newCache.publish();
+    }
+
+    /**
+     * Replaces the codes of the lists
+     */
+    static synchronized void replace(Map<ListName, ? extends Collection<Codelist>> lists) {
+        var newCache = new CodelistCache();
+        lists.forEach((listName, codelists) -> {
+            newCache.list(listName).clear();
+            codelists.forEach(newCache::setCode);
+        });
+        newCache.publish();
     }
 
     void setCode(Codelist codelist) {
@@ -72,8 +109,42 @@ final class CodelistCache {
         Assert.notNull(codelist.getCode(), "code cannot be null");
         Assert.notNull(codelist.getShortName(), "shortName cannot be null");
         Assert.notNull(codelist.getDescription(), "description cannot be null");
-        synchronized(CodelistCache.class) { 
-            codelists.get(codelist.getList()).put(codelist.getCode(), codelist);
+        list(codelist.getList()).put(codelist.getCode(), codelist);
+    }
+
+    /**
+     * Lists are copied from the current snapshot when first changed
+     */
+    private Map<String, Codelist> list(ListName listName) {
+        if (changed.add(listName)) {
+            codelists.put(listName, new HashMap<>(snapshot.lists().get(listName).codelists()));
+        }
+        return codelists.get(listName);
+    }
+
+    private void publish() {
+        var current = snapshot;
+        Map<ListName, Codes> lists = new EnumMap<>(current.lists());
+        changed.forEach(listName -> lists.put(listName, Codes.of(codelists.get(listName))));
+        snapshot = new Snapshot(current.version() + 1, lists, lists.values().stream().flatMap(codes -> codes.values().stream()).toList());
+    }
+
+    private static Map<ListName, Codes> emptyLists() {
+        Map<ListName, Codes> lists = new EnumMap<>(ListName.class);
+        Stream.of(ListName.values()).forEach(listName -> lists.put(listName, Codes.of(Map.of())));
+        return lists;
+    }
+
+    private record Snapshot(long version, Map<ListName, Codes> lists, List<Codelist> all) {
+
+    }
+
+    private record Codes(Map<String, Codelist> codelists, Map<String, CodelistResponse> responses, List<Codelist> values) {
+
+        static Codes of(Map<String, Codelist> codelists) {
+            Map<String, CodelistResponse> responses = new HashMap<>();
+            codelists.forEach((code, codelist) -> responses.put(code, CodelistResponse.buildFrom(codelist)));
+            return new Codes(unmodifiableMap(new HashMap<>(codelists)), unmodifiableMap(responses), List.copyOf(codelists.values()));
         }
     }
 }
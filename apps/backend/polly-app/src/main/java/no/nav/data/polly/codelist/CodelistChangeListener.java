@@ -0,0 +1,116 @@
+package no.nav.data.polly.codelist;
+
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.polly.codelist.domain.ListName;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Listens for the notifications sent by the CODELIST_CHANGED trigger, see V1.43__codelist_notify.sql, and reloads the lists changed.
+ * <p>
+ * LISTEN needs a connection of its own for as long as the pod runs, so it is opened outside the pool.
+ * After a (re)connect notifications may have been missed, so the lists are checked by {@link CodelistService#refreshChanged()}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "codelist.refresh.listen", havingValue = "true", matchIfMissing = true)
+public class CodelistChangeListener implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    static final String CHANNEL = "codelist_changed";
+    private static final int POLL_MILLIS = 10_000;
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(30);
+
+    private final CodelistService codelistService;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public CodelistChangeListener(CodelistService codelistService,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password) {
+        this.codelistService = codelistService;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ApplicationReadyEvent event) {
+        if (thread == null) {
+            thread = Thread.ofPlatform().name("codelist-listener").daemon().start(this::run);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("listen " + CHANNEL);
+                }
+                log.info("Listening for codelist changes");
+                codelistService.refreshChanged();
+                listen(connection.unwrap(PGConnection.class));
+            } catch (SQLException | RuntimeException e) {
+                if (running) {
+                    log.warn("Codelist listener failed, reconnecting in {}", RECONNECT_DELAY, e);
+                    sleep();
+                }
+            }
+        }
+    }
+
+    private void listen(PGConnection connection) throws SQLException {
+        while (running) {
+            PGNotification[] notifications = connection.getNotifications(POLL_MILLIS);
+            if (notifications == null || notifications.length == 0) {
+                continue;
+            }
+            Set<ListName> lists = EnumSet.noneOf(ListName.class);
+            for (PGNotification notification : notifications) {
+                try {
+                    lists.add(ListName.valueOf(notification.getParameter()));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Unknown codelist {}", notification.getParameter());
+                }
+            }
+            if (!lists.isEmpty()) {
+                codelistService.refreshLists(lists);
+            }
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(RECONNECT_DELAY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
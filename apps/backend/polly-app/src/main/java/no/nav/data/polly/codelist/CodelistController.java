@@ -19,7 +19,9 @@ import no.nav.data.polly.codelist.dto.AllCodelistResponse;
 import no.nav.data.polly.codelist.dto.CodelistRequest;
 import no.nav.data.polly.codelist.dto.CodelistRequestValidator;
 import no.nav.data.polly.codelist.dto.CodelistResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -28,12 +30,12 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static no.nav.data.common.utils.StreamUtils.convert;
 import static no.nav.data.common.utils.StringUtils.toUpperCaseAndTrim;
@@ -50,24 +52,26 @@ public class CodelistController {
     private final CodelistRequestValidator requestValidator;
 
     @Operation(summary = "Get the entire Codelist")
-    @ApiResponse(description = "Entire Codelist fetched")
+    @ApiResponse(description = "Entire Codelist fetched", content = @Content(schema = @Schema(implementation = AllCodelistResponse.class)))
     @GetMapping
-    public AllCodelistResponse findAll(@RequestParam(value = "refresh", required = false, defaultValue = "false") boolean refresh) {
+    public ResponseEntity<byte[]> findAll(@RequestParam(value = "refresh", required = false, defaultValue = "false") boolean refresh,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("Received a request for and returned the entire Codelist {}", refresh ? "refreshed" : "");
         if (refresh) {
             service.refreshCache();
         }
-        return new AllCodelistResponse(CodelistStaticService.getAll().stream().map(CodelistResponse::buildFrom).collect(Collectors.groupingBy(CodelistResponse::getList)));
+        return CodelistPayloads.getAll().toResponse(acceptEncoding);
     }
 
     @Operation(summary = "Get codes and descriptions for listName")
     @ApiResponse(description = "Fetched codes for listName", content = @Content(array = @ArraySchema(schema = @Schema(implementation = CodelistResponse.class))))
     @GetMapping("/{listName}")
-    public List<CodelistResponse> getByListName(@PathVariable String listName) {
+    public ResponseEntity<byte[]> getByListName(@PathVariable String listName,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         String listUpper = toUpperCaseAndTrim(listName);
         log.info("Received a request for all codelists with listName={}", listUpper);
         requestValidator.validateListName(listUpper);
-        return CodelistResponse.convertToCodelistResponses(CodelistStaticService.getCodelists(ListName.valueOf(listUpper)));
+        return CodelistPayloads.getList(ListName.valueOf(listUpper)).toResponse(acceptEncoding);
     }
 
     @Operation(summary = "Get for code in listName")
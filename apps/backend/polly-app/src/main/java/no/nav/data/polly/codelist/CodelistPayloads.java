@@ -0,0 +1,112 @@
+package no.nav.data.polly.codelist;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import no.nav.data.common.exceptions.TechnicalException;
+import no.nav.data.common.utils.JsonUtils;
+import no.nav.data.polly.codelist.domain.ListName;
+import no.nav.data.polly.codelist.dto.AllCodelistResponse;
+import no.nav.data.polly.codelist.dto.CodelistResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized codelist responses, built once per version of {@link CodelistCache} and served as bytes.
+ * <p>
+ * The ETag is a hash of the json, so it is the same on all pods. The gzip variant has its own ETag.
+ */
+final class CodelistPayloads {
+
+    private static volatile Payloads payloads = new Payloads(-1, null, Map.of());
+
+    private CodelistPayloads() {
+    }
+
+    static Payload getAll() {
+        return current().all();
+    }
+
+    static Payload getList(ListName listName) {
+        return current().lists().get(listName);
+    }
+
+    private static Payloads current() {
+        var current = payloads;
+        if (current.version() == CodelistCache.version()) {
+            return current;
+        }
+        synchronized (CodelistPayloads.class) {
+            long version = CodelistCache.version();
+            if (payloads.version() != version) {
+                payloads = build(version);
+            }
+            return payloads;
+        }
+    }
+
+    private static Payloads build(long version) {
+        Map<ListName, List<CodelistResponse>> all = new EnumMap<>(ListName.class);
+        Map<ListName, Payload> lists = new EnumMap<>(ListName.class);
+        for (ListName listName : ListName.values()) {
+            var responses = CodelistResponse.convertToCodelistResponses(CodelistCache.getCodelist(listName));
+            if (!responses.isEmpty()) {
+                all.put(listName, responses);
+            }
+            lists.put(listName, Payload.of(responses));
+        }
+        return new Payloads(version, Payload.of(new AllCodelistResponse(all)), lists);
+    }
+
+    private record Payloads(long version, Payload all, Map<ListName, Payload> lists) {
+
+    }
+
+    record Payload(byte[] json, String etag, byte[] gzip, String gzipEtag) {
+
+        static Payload of(Object response) {
+            try {
+                byte[] json = JsonUtils.getObjectMapper().writeValueAsBytes(response);
+                String hash = DigestUtils.md5DigestAsHex(json);
+                return new Payload(json, "\"" + hash + "\"", gzip(json), "\"" + hash + "-gzip\"");
+            } catch (JsonProcessingException e) {
+                throw new TechnicalException("cannot serialize codelist", e);
+            }
+        }
+
+        /**
+         * The payload, gzipped if accepted by the client. Spring answers a matching If-None-Match with 304 based on the ETag.
+         */
+        ResponseEntity<byte[]> toResponse(String acceptEncoding) {
+            boolean gzipped = acceptEncoding != null && acceptEncoding.contains("gzip");
+            String tag = gzipped ? gzipEtag : etag;
+            var response = ResponseEntity.ok()
+                    .eTag(tag)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON);
+            if (gzipped) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+            }
+            return response.body(json);
+        }
+
+        private static byte[] gzip(byte[] json) {
+            var bytes = new ByteArrayOutputStream(json.length / 4);
+            try (var out = new GZIPOutputStream(bytes)) {
+                out.write(json);
+            } catch (IOException e) {
+                throw new TechnicalException("cannot gzip codelist", e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
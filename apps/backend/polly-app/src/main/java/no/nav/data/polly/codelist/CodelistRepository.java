@@ -3,9 +3,12 @@ package no.nav.data.polly.codelist;
 import no.nav.data.polly.codelist.domain.Codelist;
 import no.nav.data.polly.codelist.domain.ListName;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +16,22 @@ public interface CodelistRepository extends JpaRepository<Codelist, Integer> {
 
     Optional<Codelist> findByListAndCode(@Param("list") ListName list, @Param("code") String code);
 
+    List<Codelist> findByList(ListName list);
+
+    @Query(value = "select list_name as list, count(*) as codes, max(coalesce(last_modified_date, created_date)) as lastModified from codelist group by list_name",
+            nativeQuery = true)
+    List<ListVersion> findListVersions();
+
+    /**
+     * Changes when a code in the list is added, changed or removed
+     */
+    interface ListVersion {
+
+        String getList();
+
+        long getCodes();
+
+        LocalDateTime getLastModified();
+    }
+
 }
@@ -3,6 +3,7 @@ package no.nav.data.polly.codelist;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import no.nav.data.common.exceptions.CodelistNotFoundException;
+import no.nav.data.polly.codelist.CodelistRepository.ListVersion;
 import no.nav.data.polly.codelist.domain.Codelist;
 import no.nav.data.polly.codelist.domain.ListName;
 import no.nav.data.polly.codelist.dto.CodelistRequest;
@@ -15,10 +16,20 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Codes are cached on each pod. Changes are picked up by {@link CodelistChangeListener} as they are committed,
+ * and by a periodic check of the version of each list in case a change was missed.
+ */
 @Slf4j
 @Lazy(false)
 @Component
@@ -28,18 +39,56 @@ public class CodelistService implements ApplicationListener<ApplicationReadyEven
     private final CodelistRepository codelistRepository;
     private final CodelistRequestValidator codelistRequestValidator; // TODO: Avhengighet utover
 
-    @Scheduled(initialDelayString = "${codelist.refresh.initial-delay:PT1M}", fixedRateString = "${codelist.refresh.rate:PT1M}")
-    @Transactional
-    public void refreshCache() {
+    private volatile Map<ListName, Version> versions = Map.of();
+
+    /**
+     * Reloads every list
+     */
+    public synchronized void refreshCache() {
         log.info("Refreshing codelist cache");
+        var current = findVersions();
         List<Codelist> allCodelists = codelistRepository.findAll();
         CodelistCache.init(cache -> allCodelists.forEach(cache::setCode));
+        versions = current;
+    }
+
+    /**
+     * Reloads the lists that changed since they were loaded
+     */
+    @Scheduled(initialDelayString = "${codelist.refresh.initial-delay:PT1M}", fixedRateString = "${codelist.refresh.rate:PT1M}")
+    public synchronized void refreshChanged() {
+        var current = findVersions();
+        var changed = Stream.of(ListName.values())
+                .filter(listName -> !Objects.equals(current.get(listName), versions.get(listName)))
+                .toList();
+        if (!changed.isEmpty()) {
+            refreshLists(changed);
+        }
+    }
+
+    public synchronized void refreshLists(Collection<ListName> lists) {
+        log.info("Refreshing codelists {}", lists);
+        var current = findVersions();
+        Map<ListName, List<Codelist>> reloaded = new EnumMap<>(ListName.class);
+        lists.forEach(listName -> reloaded.put(listName, codelistRepository.findByList(listName)));
+        CodelistCache.replace(reloaded);
+
+        Map<ListName, Version> updated = new EnumMap<>(ListName.class);
+        updated.putAll(versions);
+        lists.forEach(listName -> {
+            if (current.containsKey(listName)) {
+                updated.put(listName, current.get(listName));
+            } else {
+                updated.remove(listName);
+            }
+        });
+        versions = updated;
     }
 
     @Transactional
     public List<Codelist> save(List<Codelist> codelists) {
         List<Codelist> saved = codelistRepository.saveAll(codelists);
-        saved.forEach(CodelistCache::set);
+        CodelistCache.setAll(saved);
         return saved;
     }
 
@@ -50,7 +99,7 @@ public class CodelistService implements ApplicationListener<ApplicationReadyEven
                 .map(this::updateDescriptionInRepository)
                 .collect(Collectors.toList());
         List<Codelist> saved = codelistRepository.saveAll(codelists);
-        saved.forEach(CodelistCache::set);
+        CodelistCache.setAll(saved);
         return saved;
     }
 
@@ -81,4 +130,20 @@ public class CodelistService implements ApplicationListener<ApplicationReadyEven
         log.info("init codelist cache");
         refreshCache();
     }
-}
\ No newline at end of file
+
+    private Map<ListName, Version> findVersions() {
+        Map<ListName, Version> current = new EnumMap<>(ListName.class);
+        for (ListVersion version : codelistRepository.findListVersions()) {
+            try {
+                current.put(ListName.valueOf(version.getList()), new Version(version.getCodes(), version.getLastModified()));
+            } catch (IllegalArgumentException e) {
+                log.warn("Unknown codelist {}", version.getList());
+            }
+        }
+        return current;
+    }
+
+    private record Version(long codes, LocalDateTime lastModified) {
+
+    }
+}
@@ -22,11 +22,11 @@ public final class CodelistStaticService {
         if (code == null) {
             return null;
         }
-        Codelist codelist = getCodelist(listName, code);
-        if (codelist == null) {
+        CodelistResponse response = CodelistCache.getCodelistResponse(listName, code);
+        if (response == null) {
             return new CodelistResponse(listName, code, null, null);
         }
-        return CodelistResponse.buildFrom(codelist);
+        return response;
     }
 
     public static List<Codelist> getCodelists(ListName listName) {
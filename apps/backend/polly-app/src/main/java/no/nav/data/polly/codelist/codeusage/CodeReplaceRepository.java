@@ -0,0 +1,232 @@
+package no.nav.data.polly.codelist.codeusage;
+
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Graph;
+import jakarta.persistence.PersistenceContext;
+import no.nav.data.common.auditing.AuditVersionListener;
+import no.nav.data.common.auditing.AuditWriter;
+import no.nav.data.common.auditing.domain.Action;
+import no.nav.data.common.auditing.domain.AuditVersion;
+import no.nav.data.common.utils.MdcUtils;
+import no.nav.data.polly.codelist.domain.ListName;
+import no.nav.data.polly.disclosure.domain.Disclosure;
+import no.nav.data.polly.document.domain.Document;
+import no.nav.data.polly.informationtype.domain.InformationType;
+import no.nav.data.polly.policy.domain.Policy;
+import no.nav.data.polly.process.domain.Process;
+import no.nav.data.polly.process.dpprocess.domain.DpProcess;
+import no.nav.data.polly.processor.domain.Processor;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Replaces a code with one UPDATE statement per table, using the jsonb functions in V1.42__code_replace.sql.
+ * Rows are selected through the code usage index, see {@link CodeUsageRepository}.
+ * <p>
+ * The statements bypass hibernate and {@link AuditVersionListener}, so the audit versions are given to the {@link AuditWriter} here,
+ * and written with the batch of the transaction.
+ * The audit data is written from the updated entities with {@link AuditVersionListener#toJson(Object)}, the same as by the listener.
+ * They are loaded with one query per table and {@value CHUNK} rows, with the relations written as ids fetched in the same query,
+ * and are detached once written, so the persistence context holds no stale copy from the usage read and does not grow with the rows replaced.
+ */
+@Repository
+public class CodeReplaceRepository {
+
+    private static final int CHUNK = 1000;
+    private static final String NEW_CODE = "to_jsonb(cast(:newCode as text))";
+    private static final String NEW_CODE_NAME = "coalesce(to_jsonb(cast(:newCodeName as text)), cast('null' as jsonb))";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final AuditWriter auditWriter;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CodeReplaceRepository(NamedParameterJdbcTemplate jdbcTemplate, AuditWriter auditWriter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditWriter = auditWriter;
+    }
+
+    /**
+     * Must run in the transaction reading the usage, so the rows replaced are the rows reported
+     *
+     * @return rows updated by table, tables without updates are left out
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<String, Integer> replace(ListName listName, String oldCode, String newCode, String newCodeName) {
+        String user = Optional.ofNullable(MdcUtils.getUser()).orElse("no-user-set");
+        LocalDateTime now = LocalDateTime.now();
+        var params = new MapSqlParameterSource()
+                .addValue("listName", listName.name())
+                .addValue("oldCode", oldCode)
+                .addValue("newCode", newCode)
+                .addValue("newCodeName", newCodeName)
+                .addValue("user", user)
+                .addValue("now", now);
+
+        // Changes pending in the persistence context are written before the rows are updated beneath it
+        entityManager.flush();
+        Map<String, Integer> replaced = new LinkedHashMap<>();
+        for (Replacement replacement : replacements(listName)) {
+            Table table = replacement.table();
+            List<UUID> ids = jdbcTemplate.queryForList(table.update(replacement.data()), params, UUID.class);
+            forEachUpdated(table, ids, entity -> auditWriter.write(AuditVersion.builder()
+                    .action(Action.UPDATE)
+                    .table(table.name())
+                    .tableId(AuditVersionListener.getIdForObject(entity))
+                    .time(now)
+                    .user(user)
+                    .data(AuditVersionListener.toJson(entity))
+                    .build()));
+            if (!ids.isEmpty()) {
+                replaced.merge(table.name(), ids.size(), Integer::sum);
+            }
+        }
+        return replaced;
+    }
+
+    /**
+     * Gives the updated rows as entities, detached after the consumer. Copies already in the persistence context are detached first,
+     * getReference finds them without a query.
+     */
+    private <T> void forEachUpdated(Table table, List<UUID> ids, Consumer<Object> consumer) {
+        @SuppressWarnings("unchecked")
+        Class<T> type = (Class<T>) table.entity;
+        ids.forEach(id -> entityManager.detach(entityManager.getReference(type, id)));
+        for (int from = 0; from < ids.size(); from += CHUNK) {
+            var criteria = entityManager.getCriteriaBuilder().createQuery(type);
+            var root = criteria.from(type);
+            criteria.select(root).where(root.get("id").in(ids.subList(from, Math.min(from + CHUNK, ids.size()))));
+            List<T> entities = entityManager.createQuery(criteria)
+                    .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, table.graph(entityManager))
+                    .getResultList();
+            entities.forEach(consumer);
+            entities.forEach(entityManager::detach);
+        }
+    }
+
+    /**
+     * Same changes as the entity based replacement this replaced, per list
+     */
+    private static List<Replacement> replacements(ListName listName) {
+        return switch (listName) {
+            case PURPOSE -> List.of(
+                    Table.PROCESS.replace(array("purposes")),
+                    Table.POLICY.replace(array("purposes"))
+            );
+            case CATEGORY -> List.of(Table.INFORMATION_TYPE.replace(array("categories")));
+            case THIRD_PARTY -> List.of(
+                    Table.INFORMATION_TYPE.replace(array("sources")),
+                    Table.DISCLOSURE.replace(set("data", "recipient", NEW_CODE)),
+                    Table.PROCESS.replace(set("data", "commonExternalProcessResponsible", NEW_CODE)),
+                    Table.DP_PROCESS.replace(set("data", "externalProcessResponsible", NEW_CODE))
+            );
+            case SENSITIVITY -> List.of(Table.INFORMATION_TYPE.replace(set("data", "sensitivity", NEW_CODE)));
+            case SUBJECT_CATEGORY -> List.of(
+                    Table.POLICY.replace(array("subjectCategories")),
+                    Table.DOCUMENT.replace("code_replace_nested_array(data, '{informationTypes}', 'subjectCategories', :oldCode, :newCode)")
+            );
+            case NATIONAL_LAW -> List.of(
+                    Table.PROCESS.replace(legalBases("nationalLaw")),
+                    Table.POLICY.replace(legalBases("nationalLaw")),
+                    Table.DISCLOSURE.replace(legalBases("nationalLaw"))
+            );
+            case GDPR_ARTICLE -> List.of(
+                    Table.PROCESS.replace(legalBases("gdpr")),
+                    Table.POLICY.replace(legalBases("gdpr")),
+                    Table.DISCLOSURE.replace(legalBases("gdpr"))
+            );
+            case DEPARTMENT -> List.of(
+                    Table.PROCESS.replace(set(set("data", "affiliation,nomDepartmentId", NEW_CODE), "affiliation,nomDepartmentName", NEW_CODE_NAME)),
+                    Table.DP_PROCESS.replace(set(set("data", "affiliation,nomDepartmentId", NEW_CODE), "affiliation,nomDepartmentName", NEW_CODE_NAME)),
+                    Table.DISCLOSURE.replace(set(set("data", "nomDepartmentId", NEW_CODE), "nomDepartmentName", NEW_CODE_NAME))
+            );
+            case SUB_DEPARTMENT -> List.of(
+                    Table.PROCESS.replace(array("affiliation,subDepartments")),
+                    Table.DP_PROCESS.replace(array("affiliation,subDepartments"))
+            );
+            case SYSTEM -> List.of(
+                    Table.INFORMATION_TYPE.replace(set("data", "orgMaster", NEW_CODE)),
+                    Table.PROCESS.replace(array("affiliation,products")),
+                    Table.DP_PROCESS.replace(array("affiliation,products"))
+            );
+            case TRANSFER_GROUNDS_OUTSIDE_EU -> List.of(Table.PROCESSOR.replace(set("data", "transferGroundsOutsideEU", NEW_CODE)));
+            case DATA_ACCESS_CLASS -> List.of();
+        };
+    }
+
+    private static String array(String path) {
+        return "code_replace_array(data, '{%s}', :oldCode, :newCode)".formatted(path);
+    }
+
+    private static String legalBases(String field) {
+        return "code_replace_field(data, '{legalBases}', '%s', :oldCode, :newCode)".formatted(field);
+    }
+
+    private static String set(String data, String path, String value) {
+        return "jsonb_set(%s, '{%s}', %s)".formatted(data, path, value);
+    }
+
+    private record Replacement(Table table, String data) {
+
+    }
+
+    /**
+     * Tables with their entity, and the relations the audit data writes as ids, with the eager relations of those
+     */
+    private enum Table {
+        PROCESS("process_id", Process.class, "policies"),
+        DP_PROCESS("dp_process_id", DpProcess.class),
+        POLICY("policy_id", Policy.class, "process"),
+        INFORMATION_TYPE("information_type_id", InformationType.class, "policies", "process"),
+        DISCLOSURE("disclosure_id", Disclosure.class),
+        DOCUMENT("document_id", Document.class),
+        PROCESSOR("processor_id", Processor.class);
+
+        private final String idColumn;
+        private final Class<?> entity;
+        private final String[] fetch;
+
+        Table(String idColumn, Class<?> entity, String... fetch) {
+            this.idColumn = idColumn;
+            this.entity = entity;
+            this.fetch = fetch;
+        }
+
+        /**
+         * Each relation fetched is the parent of the next
+         */
+        EntityGraph<?> graph(EntityManager entityManager) {
+            EntityGraph<?> graph = entityManager.createEntityGraph(entity);
+            Graph<?> parent = graph;
+            for (String attribute : fetch) {
+                parent = parent.addSubgraph(attribute);
+            }
+            return graph;
+        }
+
+        Replacement replace(String data) {
+            return new Replacement(this, data);
+        }
+
+        String update(String data) {
+            return """
+                    update %1$s set data = %2$s, last_modified_by = :user, last_modified_date = :now
+                    where %3$s in (select id from code_usage where list_name = :listName and code = :oldCode and table_name = '%4$s')
+                    returning %3$s
+                    """.formatted(name().toLowerCase(), data, idColumn, name());
+        }
+    }
+}
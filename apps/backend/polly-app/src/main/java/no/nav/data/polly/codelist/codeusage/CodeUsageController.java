@@ -6,6 +6,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import no.nav.data.polly.codelist.domain.ListName;
+import no.nav.data.polly.codelist.dto.CodeUsageIndexResponse;
 import no.nav.data.polly.codelist.dto.CodeUsageResponse;
 import no.nav.data.polly.codelist.dto.CodelistUsageResponse;
 import no.nav.data.polly.codelist.dto.ReplaceCodelistRequest;
@@ -66,4 +67,19 @@ public class CodeUsageController {
         return ResponseEntity.ok(codeUsage);
     }
 
+    @Operation(summary = "Rebuild code usage index")
+    @ApiResponse(description = "Index rebuilt")
+    @PostMapping("/index/rebuild")
+    public ResponseEntity<CodeUsageIndexResponse> rebuildIndex() {
+        log.info("Received request to rebuild the code usage index");
+        return ResponseEntity.ok(service.rebuildIndex());
+    }
+
+    @Operation(summary = "Verify code usage index")
+    @ApiResponse(description = "Index compared to the usage in the data catalog")
+    @GetMapping("/index/verify")
+    public ResponseEntity<CodeUsageIndexResponse> verifyIndex() {
+        return ResponseEntity.ok(service.verifyIndex());
+    }
+
 }
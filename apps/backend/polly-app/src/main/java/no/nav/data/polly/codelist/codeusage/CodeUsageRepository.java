@@ -0,0 +1,77 @@
+package no.nav.data.polly.codelist.codeusage;
+
+import lombok.RequiredArgsConstructor;
+import no.nav.data.polly.codelist.domain.ListName;
+import no.nav.data.polly.codelist.dto.CodeUsageIndexResponse;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Inverted index of codelist usage, code to the ids of the rows using it. See V1.41__code_usage.sql
+ * <p>
+ * The index is kept up to date by triggers on the indexed tables, which derive the usage of a row from the view <code>code_usage_source</code>.
+ * {@link #rebuild()} and {@link #verify()} use the same view.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CodeUsageRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<Usage> findUsage(ListName listName, String code) {
+        return jdbcTemplate.query("select code, table_name, id from code_usage where list_name = :listName and code = :code",
+                Map.of("listName", listName.name(), "code", code), CodeUsageRepository::toUsage);
+    }
+
+    public List<Usage> findUsage(ListName listName) {
+        return jdbcTemplate.query("select code, table_name, id from code_usage where list_name = :listName",
+                Map.of("listName", listName.name()), CodeUsageRepository::toUsage);
+    }
+
+    /**
+     * @return rows in the rebuilt index
+     */
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.getJdbcOperations().update("delete from code_usage");
+        return jdbcTemplate.getJdbcOperations().update("insert into code_usage (list_name, code, table_name, id) select list_name, code, table_name, id from code_usage_source");
+    }
+
+    /**
+     * Compares the index to the usage derived from the indexed tables
+     */
+    @Transactional(readOnly = true)
+    public CodeUsageIndexResponse verify() {
+        return jdbcTemplate.getJdbcOperations().queryForObject("""
+                select (select count(*) from code_usage) as rows,
+                       (select count(*) from (select list_name, code, table_name, id from code_usage_source
+                                              except
+                                              select list_name, code, table_name, id from code_usage) missing) as missing,
+                       (select count(*) from (select list_name, code, table_name, id from code_usage
+                                              except
+                                              select list_name, code, table_name, id from code_usage_source) stale) as stale
+                """, (rs, rowNum) -> CodeUsageIndexResponse.builder()
+                .rows(rs.getLong("rows"))
+                .missing(rs.getLong("missing"))
+                .stale(rs.getLong("stale"))
+                .build());
+    }
+
+    private static Usage toUsage(ResultSet rs, int rowNum) throws SQLException {
+        return new Usage(rs.getString("code"), rs.getString("table_name"), rs.getObject("id", UUID.class));
+    }
+
+    /**
+     * @param table table name of the row, as in {@link no.nav.data.common.auditing.domain.AuditVersion#tableName(Class)}
+     */
+    public record Usage(String code, String table, UUID id) {
+
+    }
+}
@@ -1,45 +1,65 @@
 package no.nav.data.polly.codelist.codeusage;
 
 import io.prometheus.client.Summary;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.auditing.domain.Auditable;
+import no.nav.data.common.exceptions.TechnicalException;
+import no.nav.data.common.exceptions.TimeoutException;
+import no.nav.data.common.utils.MdcExecutor;
 import no.nav.data.common.utils.MetricUtils;
 import no.nav.data.polly.codelist.CodelistStaticService;
+import no.nav.data.polly.codelist.codeusage.CodeUsageRepository.Usage;
 import no.nav.data.polly.codelist.domain.ListName;
+import no.nav.data.polly.codelist.dto.CodeUsageIndexResponse;
 import no.nav.data.polly.codelist.dto.CodeUsageRequest;
 import no.nav.data.polly.codelist.dto.CodeUsageResponse;
 import no.nav.data.polly.codelist.dto.CodelistRequestValidator;
-import no.nav.data.polly.codelist.dto.UsedInInstance;
-import no.nav.data.polly.codelist.dto.UsedInInstancePurpose;
 import no.nav.data.polly.disclosure.domain.Disclosure;
 import no.nav.data.polly.disclosure.domain.DisclosureRepository;
 import no.nav.data.polly.document.domain.Document;
 import no.nav.data.polly.document.domain.DocumentRepository;
 import no.nav.data.polly.informationtype.InformationTypeRepository;
 import no.nav.data.polly.informationtype.domain.InformationType;
-import no.nav.data.polly.legalbasis.domain.LegalBasis;
 import no.nav.data.polly.policy.domain.Policy;
 import no.nav.data.polly.policy.domain.PolicyRepository;
 import no.nav.data.polly.process.domain.Process;
 import no.nav.data.polly.process.domain.repo.ProcessRepository;
 import no.nav.data.polly.process.dpprocess.domain.DpProcess;
 import no.nav.data.polly.process.dpprocess.domain.repo.DpProcessRepository;
-import no.nav.data.polly.process.dpprocess.dto.DpProcessShortResponse;
-import no.nav.data.polly.process.dto.ProcessShortResponse;
 import no.nav.data.polly.processor.domain.Processor;
 import no.nav.data.polly.processor.domain.repo.ProcessorRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
-import static java.util.Collections.replaceAll;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
+import static no.nav.data.common.auditing.domain.AuditVersion.tableName;
 import static no.nav.data.common.utils.StreamUtils.convert;
-import static no.nav.data.common.utils.StreamUtils.nullToEmptyList;
 
+@Slf4j
 @Service
 @Transactional
 public class CodeUsageService {
@@ -51,12 +71,19 @@ public class CodeUsageService {
     private final DisclosureRepository disclosureRepository;
     private final DocumentRepository documentRepository;
     private final ProcessorRepository processorRepository;
+    private final CodeUsageRepository codeUsageRepository;
+    private final CodeReplaceRepository codeReplaceRepository;
     private final Summary summary;
     private final CodelistRequestValidator requestValidator;
+    private final MdcExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration timeout;
 
     public CodeUsageService(ProcessRepository processRepository, DpProcessRepository dpProcessRepository, PolicyRepository policyRepository,
             InformationTypeRepository informationTypeRepository, DisclosureRepository disclosureRepository, DocumentRepository documentRepository,
-            ProcessorRepository processorRepository, CodelistRequestValidator requestValidator) {
+            ProcessorRepository processorRepository, CodeUsageRepository codeUsageRepository, CodeReplaceRepository codeReplaceRepository,
+            CodelistRequestValidator requestValidator, PlatformTransactionManager transactionManager,
+            @Value("${polly.codeusage.concurrency:4}") int concurrency, @Value("${polly.codeusage.timeout:20s}") Duration timeout) {
         this.processRepository = processRepository;
         this.dpProcessRepository = dpProcessRepository;
         this.policyRepository = policyRepository;
@@ -64,6 +91,8 @@ public class CodeUsageService {
         this.disclosureRepository = disclosureRepository;
         this.documentRepository = documentRepository;
         this.processorRepository = processorRepository;
+        this.codeUsageRepository = codeUsageRepository;
+        this.codeReplaceRepository = codeReplaceRepository;
         List<String[]> listnames = Stream.of(ListName.values()).map(e -> new String[]{e.name()}).collect(toList());
         this.summary = MetricUtils.summary()
                 .labels(listnames)
@@ -75,6 +104,12 @@ public class CodeUsageService {
                 .ageBuckets(6)
                 .register();
         this.requestValidator = requestValidator;
+        this.executor = MdcExecutor.newThreadPool(concurrency, "codeusage");
+        this.executor.setRejectedExecutionHandler(new CallerRunsPolicy());
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, timeout.toSeconds()));
+        this.timeout = timeout;
     }
 
     public void validateListName(String list) {
@@ -93,201 +128,123 @@ public class CodeUsageService {
         requestValidator.validateCodeUsageRequests(requests);
     }
 
+    /**
+     * Usage of every code in the list, read from the index in one query. Each type is loaded once for all codes, concurrently outside a transaction.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<CodeUsageResponse> findCodeUsageOfList(ListName list) {
-        return CodelistStaticService.getCodelist(list).stream().map(c -> findCodeUsage(c.getList(), c.getCode())).collect(toList());
+        return summary.labels(list.name()).time(() -> {
+            Map<String, CodeUsageResponse> responses = new LinkedHashMap<>();
+            CodelistStaticService.getCodelist(list).forEach(c -> responses.put(c.getCode(), new CodeUsageResponse(list, c.getCode())));
+            hydrate(responses, codeUsageRepository.findUsage(list));
+            return new ArrayList<>(responses.values());
+        });
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public CodeUsageResponse findCodeUsage(ListName listName, String code) {
         return summary.labels(listName.name()).time(() -> {
             CodeUsageResponse codeUsage = new CodeUsageResponse(listName, code);
-            codeUsage.setProcesses(findProcesses(listName, code));
-            codeUsage.setDpProcesses(findDpProcesses(listName, code));
-            codeUsage.setPolicies(findPolicies(listName, code));
-            codeUsage.setInformationTypes(findInformationTypes(listName, code));
-            codeUsage.setDisclosures(findDisclosures(listName, code));
-            codeUsage.setDocuments(findDocuments(listName, code));
-            codeUsage.setProcessors(findProcessors(listName, code));
+            hydrate(Map.of(code, codeUsage), codeUsageRepository.findUsage(listName, code));
             return codeUsage;
         });
     }
 
-    @SuppressWarnings({"ResultOfMethodCallIgnored"})
+    public CodeUsageIndexResponse rebuildIndex() {
+        int rows = codeUsageRepository.rebuild();
+        log.info("Rebuilt code usage index with {} rows", rows);
+        return codeUsageRepository.verify();
+    }
+
+    public CodeUsageIndexResponse verifyIndex() {
+        return codeUsageRepository.verify();
+    }
+
+    /**
+     * Replaces the code in every row using it, see {@link CodeReplaceRepository}
+     *
+     * @return the usage before replacing, with the rows replaced by table
+     */
     public CodeUsageResponse replaceUsage(ListName listName, String oldCode, String newCode, String newCodeName) {
         var usage = findCodeUsage(listName, oldCode);
         if (usage.isInUse()) {
-            switch (listName) {
-                case PURPOSE -> {
-                    getProcesses(usage).forEach(p -> replaceAll(p.getData().getPurposes(), oldCode, newCode));
-                    getPolicies(usage).forEach(p -> replaceAll(p.getData().getPurposes(), oldCode, newCode));
-                }
-                case CATEGORY -> getInformationTypes(usage).forEach(it -> replaceAll(it.getData().getCategories(), oldCode, newCode));
-                case THIRD_PARTY -> {
-                    getInformationTypes(usage).forEach(it -> replaceAll(it.getData().getSources(), oldCode, newCode));
-                    getDisclosures(usage).forEach(d -> d.getData().setRecipient(newCode));
-                    getProcesses(usage).forEach(d -> d.getData().setCommonExternalProcessResponsible(newCode));
-                    getDpProcesses(usage).forEach(d -> d.getData().setExternalProcessResponsible(newCode));
-                }
-                case SENSITIVITY -> getInformationTypes(usage).forEach(it -> it.getData().setSensitivity(newCode));
-                case SUBJECT_CATEGORY -> {
-                    getPolicies(usage).forEach(p -> replaceAll(p.getData().getSubjectCategories(), oldCode, newCode));
-                    getDocuments(usage).forEach(d -> nullToEmptyList(d.getData().getInformationTypes())
-                            .forEach(it -> replaceAll(nullToEmptyList(it.getSubjectCategories()), oldCode, newCode)));
-                }
-                case NATIONAL_LAW -> replaceNationalLaw(
-                        oldCode, newCode,
-                        convert(getProcesses(usage), p -> p.getData().getLegalBases()),
-                        convert(getPolicies(usage), p -> p.getData().getLegalBases()),
-                        convert(getDisclosures(usage), p -> p.getData().getLegalBases())
-                );
-                case GDPR_ARTICLE -> replaceGdprArticle(
-                        oldCode, newCode,
-                        convert(getProcesses(usage), p -> p.getData().getLegalBases()),
-                        convert(getPolicies(usage), p -> p.getData().getLegalBases()),
-                        convert(getDisclosures(usage), p -> p.getData().getLegalBases())
-                );
-                case DEPARTMENT -> {
-                    getProcesses(usage).forEach(p -> {
-                        p.getData().getAffiliation().setNomDepartmentId(newCode);
-                        p.getData().getAffiliation().setNomDepartmentName(newCodeName);
-                    });
-                    getDpProcesses(usage).forEach(p -> {
-                        p.getData().getAffiliation().setNomDepartmentId(newCode);
-                        p.getData().getAffiliation().setNomDepartmentName(newCodeName);
-                    });
-                    getDisclosures(usage).forEach(d -> {
-                        d.getData().setNomDepartmentId(newCode);
-                        d.getData().setNomDepartmentName(newCodeName);
-                    });
-                }
-                case SUB_DEPARTMENT -> {
-                    getProcesses(usage).forEach(p -> replaceAll(p.getData().getAffiliation().getSubDepartments(), oldCode, newCode));
-                    getDpProcesses(usage).forEach(p -> replaceAll(p.getData().getAffiliation().getSubDepartments(), oldCode, newCode));
-                }
-                case SYSTEM -> {
-                    getInformationTypes(usage).forEach(it -> it.getData().setOrgMaster(newCode));
-                    getProcesses(usage).forEach(p -> replaceAll(p.getData().getAffiliation().getProducts(), oldCode, newCode));
-                    getDpProcesses(usage).forEach(p -> replaceAll(p.getData().getAffiliation().getProducts(), oldCode, newCode));
-                }
-                case TRANSFER_GROUNDS_OUTSIDE_EU -> {
-                    getProcessors(usage).forEach(p -> p.getData().setTransferGroundsOutsideEU(newCode));
-                }
-                case DATA_ACCESS_CLASS -> {} // TODO: Er det riktig at dette er en no-op?
-            }
+            var replaced = codeReplaceRepository.replace(listName, oldCode, newCode, newCodeName);
+            log.info("Replaced code {} with {} in list {}, rows replaced {}", oldCode, newCode, listName, replaced);
+            usage.setReplaced(replaced);
         }
         return usage;
     }
 
-    @SafeVarargs
-    private void replaceNationalLaw(String oldCode, String newCode, List<List<LegalBasis>>... legalBases) {
-        Stream.of(legalBases)
-                .flatMap(Collection::stream).flatMap(Collection::stream)
-                .filter(lb -> lb.getNationalLaw().equals(oldCode))
-                .forEach(lb -> lb.setNationalLaw(newCode));
-    }
-
-    @SafeVarargs
-    private void replaceGdprArticle(String oldCode, String newCode, List<List<LegalBasis>>... legalBases) {
-        Stream.of(legalBases)
-                .flatMap(Collection::stream).flatMap(Collection::stream)
-                .filter(lb -> lb.getGdpr().equals(oldCode))
-                .forEach(lb -> lb.setGdpr(newCode));
-    }
-
-    private List<ProcessShortResponse> findProcesses(ListName listName, String code) {
-        return convert(switch (listName) {
-            case PURPOSE -> processRepository.findByPurpose(code);
-            case DEPARTMENT -> processRepository.findByDepartment(code);
-            case SUB_DEPARTMENT -> processRepository.findBySubDepartment(code);
-            case GDPR_ARTICLE -> processRepository.findByGDPRArticle(code);
-            case NATIONAL_LAW -> processRepository.findByNationalLaw(code);
-            case SYSTEM -> processRepository.findByProduct(code);
-            case THIRD_PARTY -> processRepository.findByCommonExternalProcessResponsible(code);
-            default -> List.<Process>of();
-        }, Process::convertToShortResponse);
-    }
-
-    private List<DpProcessShortResponse> findDpProcesses(ListName listName, String code) {
-        return convert(switch (listName) {
-            case DEPARTMENT -> dpProcessRepository.findByDepartment(code);
-            case SUB_DEPARTMENT -> dpProcessRepository.findBySubDepartment(code);
-            case SYSTEM -> dpProcessRepository.findByProduct(code);
-            case THIRD_PARTY -> dpProcessRepository.findByExternalProcessResponsible(code);
-            default -> List.<DpProcess>of();
-        }, DpProcess::convertToShortResponse);
-    }
-
-    private List<UsedInInstancePurpose> findPolicies(ListName listName, String code) {
-        return convert(switch (listName) {
-            case PURPOSE -> policyRepository.findByPurpose(code);
-            case SUBJECT_CATEGORY -> policyRepository.findBySubjectCategory(code);
-            case GDPR_ARTICLE -> policyRepository.findByGDPRArticle(code);
-            case NATIONAL_LAW -> policyRepository.findByNationalLaw(code);
-            default -> List.<Policy>of();
-        }, Policy::getInstanceIdentification);
-    }
-
-    private List<UsedInInstance> findInformationTypes(ListName listName, String code) {
-        return convert(switch (listName) {
-            case SENSITIVITY -> informationTypeRepository.findBySensitivity(code);
-            case SYSTEM -> informationTypeRepository.findByOrgMaster(code);
-            case CATEGORY -> informationTypeRepository.findByCategory(code);
-            case THIRD_PARTY -> informationTypeRepository.findBySource(code);
-            default -> List.<InformationType>of();
-        }, InformationType::getInstanceIdentification);
-    }
-
-    private List<UsedInInstance> findDisclosures(ListName listName, String code) {
-        return convert(switch (listName) {
-            case GDPR_ARTICLE -> disclosureRepository.findByGDPRArticle(code);
-            case DEPARTMENT -> disclosureRepository.findByDepartment(code);
-            case NATIONAL_LAW -> disclosureRepository.findByNationalLaw(code);
-            case THIRD_PARTY -> disclosureRepository.findByRecipient(code);
-            default -> List.<Disclosure>of();
-        }, Disclosure::getInstanceIdentification);
-    }
-
-    private List<UsedInInstance> findDocuments(ListName listName, String code) {
-        if (listName == ListName.SUBJECT_CATEGORY) {
-            return documentRepository.findBySubjectCategory(code).stream().map(Document::getInstanceIdentification).collect(toList());
-        } else if(listName == ListName.DATA_ACCESS_CLASS) {
-            return documentRepository.findByDataAccessClass(code).stream().map(Document::getInstanceIdentification).collect(toList());
+    /**
+     * Loads the types used. In a transaction they are loaded one after another in it, so the usage includes the caller's own changes,
+     * as for {@link #replaceUsage(ListName, String, String, String)}.
+     * Outside a transaction they are loaded concurrently on the codeusage threads, each in its own read only transaction with the query timeout,
+     * and from the replica where there is one. The threads, polly.codeusage.concurrency, are shared by all requests, when they are all busy
+     * the caller loads the type itself. The loads are waited for up to polly.codeusage.timeout in total.
+     */
+    private void hydrate(Map<String, CodeUsageResponse> responses, List<Usage> usages) {
+        var lookups = Stream.of(
+                        lookup(responses, usages, Process.class, processRepository, Process::convertToShortResponse, CodeUsageResponse::getProcesses),
+                        lookup(responses, usages, DpProcess.class, dpProcessRepository, DpProcess::convertToShortResponse, CodeUsageResponse::getDpProcesses),
+                        lookup(responses, usages, Policy.class, policyRepository, Policy::getInstanceIdentification, CodeUsageResponse::getPolicies),
+                        lookup(responses, usages, InformationType.class, informationTypeRepository, InformationType::getInstanceIdentification,
+                                CodeUsageResponse::getInformationTypes),
+                        lookup(responses, usages, Disclosure.class, disclosureRepository, Disclosure::getInstanceIdentification, CodeUsageResponse::getDisclosures),
+                        lookup(responses, usages, Document.class, documentRepository, Document::getInstanceIdentification, CodeUsageResponse::getDocuments),
+                        lookup(responses, usages, Processor.class, processorRepository, Processor::getInstanceIdentification, CodeUsageResponse::getProcessors)
+                )
+                .filter(Objects::nonNull)
+                .toList();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            lookups.forEach(lookup -> lookup.get().run());
+        } else {
+            concurrently(lookups);
         }
-        return List.of();
     }
 
-    private List<UsedInInstance> findProcessors(ListName listName, String code) {
-        if (listName == ListName.TRANSFER_GROUNDS_OUTSIDE_EU) {
-            return convert(processorRepository.findByTransferGroundsOutsideEU(code), Processor::getInstanceIdentification);
+    private void concurrently(List<Supplier<Runnable>> lookups) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<Future<Runnable>> loads = convert(lookups, lookup -> executor.submit(() -> readOnlyTransaction.execute(status -> lookup.get())));
+        try {
+            for (var load : loads) {
+                load.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS).run();
+            }
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new TimeoutException("code usage lookup timed out after " + timeout, e);
+        } catch (ExecutionException e) {
+            throw new TechnicalException("code usage lookup failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TechnicalException("code usage lookup interrupted", e);
+        } finally {
+            loads.forEach(load -> load.cancel(true));
         }
-        return List.of();
-    }
-
-    private List<InformationType> getInformationTypes(CodeUsageResponse usage) {
-        return informationTypeRepository.findAllById(convert(usage.getInformationTypes(), UsedInInstance::getIdAsUUID));
-    }
-
-    private List<Policy> getPolicies(CodeUsageResponse usage) {
-        return policyRepository.findAllById(convert(usage.getPolicies(), UsedInInstancePurpose::getIdAsUUID));
-    }
-
-    private List<Process> getProcesses(CodeUsageResponse usage) {
-        return processRepository.findAllById(convert(usage.getProcesses(), ProcessShortResponse::getId));
-    }
-
-    private List<DpProcess> getDpProcesses(CodeUsageResponse usage) {
-        return dpProcessRepository.findAllById(convert(usage.getDpProcesses(), DpProcessShortResponse::getId));
-    }
-
-    private List<Disclosure> getDisclosures(CodeUsageResponse usage) {
-        return disclosureRepository.findAllById(convert(usage.getDisclosures(), UsedInInstance::getIdAsUUID));
     }
 
-    private List<Document> getDocuments(CodeUsageResponse usage) {
-        return documentRepository.findAllById(convert(usage.getDocuments(), UsedInInstance::getIdAsUUID));
+    /**
+     * Loads the rows of one type used by any of the codes
+     *
+     * @return the load, giving what adds the rows to the usage of each code they use, to be run on the calling thread. Null if the type is not used
+     */
+    private <T extends Auditable, R> Supplier<Runnable> lookup(Map<String, CodeUsageResponse> responses, List<Usage> usages, Class<T> type,
+            JpaRepository<T, UUID> repository, Function<T, R> converter, Function<CodeUsageResponse, List<R>> target) {
+        String table = tableName(type);
+        Map<UUID, List<String>> codesById = usages.stream()
+                .filter(usage -> usage.table().equals(table) && responses.containsKey(usage.code()))
+                .collect(groupingBy(Usage::id, mapping(Usage::code, toList())));
+        if (codesById.isEmpty()) {
+            return null;
+        }
+        return () -> {
+            List<Map.Entry<List<String>, R>> found = convert(repository.findAllById(codesById.keySet()),
+                    instance -> Map.entry(codesById.get(instance.getId()), converter.apply(instance)));
+            return () -> found.forEach(entry -> entry.getKey().forEach(code -> target.apply(responses.get(code)).add(entry.getValue())));
+        };
     }
 
-    private List<Processor> getProcessors(CodeUsageResponse usage) {
-        return processorRepository.findAllById(convert(usage.getProcessors(), UsedInInstance::getIdAsUUID));
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
     }
 
 }
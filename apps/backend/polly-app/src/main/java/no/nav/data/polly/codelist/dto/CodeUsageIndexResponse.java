@@ -0,0 +1,29 @@
+package no.nav.data.polly.codelist.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"rows", "missing", "stale", "consistent"})
+public class CodeUsageIndexResponse {
+
+    private long rows;
+    /**
+     * Usages not in the index
+     */
+    private long missing;
+    /**
+     * Index entries no longer in use
+     */
+    private long stale;
+
+    public boolean isConsistent() {
+        return missing == 0 && stale == 0;
+    }
+}
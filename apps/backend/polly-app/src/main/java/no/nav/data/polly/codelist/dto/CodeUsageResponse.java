@@ -1,5 +1,7 @@
 package no.nav.data.polly.codelist.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -9,12 +11,14 @@ import no.nav.data.polly.process.dpprocess.dto.DpProcessShortResponse;
 import no.nav.data.polly.process.dto.ProcessShortResponse;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@JsonPropertyOrder({"code", "informationTypes", "policies", "processes", "dpProcesses", "disclosures", "documents", "processors"})
+@JsonPropertyOrder({"code", "informationTypes", "policies", "processes", "dpProcesses", "disclosures", "documents", "processors", "replaced"})
 public class CodeUsageResponse {
 
     private ListName listName;
@@ -26,6 +30,11 @@ public class CodeUsageResponse {
     private List<UsedInInstance> disclosures = new ArrayList<>();
     private List<UsedInInstance> documents = new ArrayList<>();
     private List<UsedInInstance> processors = new ArrayList<>();
+    /**
+     * Rows changed by table, when replacing the code
+     */
+    @JsonInclude(Include.NON_EMPTY)
+    private Map<String, Integer> replaced = new LinkedHashMap<>();
 
     public CodeUsageResponse(ListName listName, String code) {
         this.listName = listName;
@@ -0,0 +1,149 @@
+package no.nav.data.polly.dashboard;
+
+import lombok.RequiredArgsConstructor;
+import no.nav.data.common.utils.JsonUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Dashboard counters and the contribution of each source row to them, see V1.44__dashboard_counter.sql.
+ * The views in V1.45__dashboard_source.sql derive the same from the source tables, and are used to verify and rebuild the counters.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DashboardCounterRepository {
+
+    private static final Comparator<Counter> KEY_ORDER = Comparator.comparing(Counter::status)
+            .thenComparing(Counter::dimension)
+            .thenComparing(Counter::key)
+            .thenComparing(Counter::counter);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Locks the source row, if present, until the end of the transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<DashboardSource> lockSource(UUID id) {
+        return jdbcTemplate.query("select data from dashboard_source where id = :id for update", Map.of("id", id),
+                (rs, rowNum) -> JsonUtils.toObject(rs.getString("data"), DashboardSource.class)).stream().findFirst();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void saveSource(UUID id, DashboardSource source) {
+        jdbcTemplate.update("""
+                insert into dashboard_source (id, data) values (:id, cast(:data as jsonb))
+                on conflict (id) do update set data = excluded.data
+                """, new MapSqlParameterSource().addValue("id", id).addValue("data", JsonUtils.toJson(source)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteSource(UUID id) {
+        jdbcTemplate.update("delete from dashboard_source where id = :id", Map.of("id", id));
+    }
+
+    /**
+     * Adds the deltas to the counters. Counters reaching zero are removed, so dimensions without anything counted are left out of the dashboard.
+     * The counters are written in key order, so concurrent transactions lock the counter rows in the same order and do not deadlock.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(Collection<Counter> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        var params = deltas.stream().sorted(KEY_ORDER).map(DashboardCounterRepository::params).toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("""
+                insert into dashboard_counter (process_status, dimension, dimension_key, counter, value, label)
+                values (:status, :dimension, :key, :counter, :value, :label)
+                on conflict (process_status, dimension, dimension_key, counter)
+                    do update set value = dashboard_counter.value + excluded.value, label = coalesce(excluded.label, dashboard_counter.label)
+                """, params);
+        jdbcTemplate.batchUpdate("""
+                delete from dashboard_counter
+                where process_status = :status and dimension = :dimension and dimension_key = :key and counter = :counter and value = 0
+                """, params);
+    }
+
+    /**
+     * @param statuses process statuses to include, counters for dp-processes and disclosures are always included
+     */
+    public List<Counter> findCounters(Collection<String> statuses) {
+        return jdbcTemplate.query("""
+                select process_status, dimension, dimension_key, counter, value, label from dashboard_counter
+                where process_status = '' or process_status in (:statuses)
+                """, Map.of("statuses", statuses), DashboardCounterRepository::toCounter);
+    }
+
+    /**
+     * Compares the counters to the counters derived from the processes, dp-processes and disclosures, see V1.45__dashboard_source.sql
+     *
+     * @return number of counters that differ
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int verify() {
+        return jdbcTemplate.getJdbcOperations().queryForObject("""
+                select count(*) from dashboard_counter_derived derived
+                full join dashboard_counter stored using (process_status, dimension, dimension_key, counter)
+                where derived.value is distinct from stored.value
+                """, Integer.class);
+    }
+
+    /**
+     * Replaces the sources and counters with those derived from the processes, dp-processes and disclosures
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void rebuild() {
+        var jdbc = jdbcTemplate.getJdbcOperations();
+        jdbc.update("delete from dashboard_source");
+        jdbc.update("delete from dashboard_counter");
+        jdbc.update("insert into dashboard_source (id, data) select id, data from dashboard_source_derived");
+        jdbc.update("""
+                insert into dashboard_counter (process_status, dimension, dimension_key, counter, value, label)
+                select process_status, dimension, dimension_key, counter, value, label from dashboard_counter_derived
+                """);
+    }
+
+    /**
+     * Only one pod reconciles at a time, the lock is released with the transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryReconcileLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.getJdbcOperations().queryForObject("select pg_try_advisory_xact_lock(hashtext('dashboard_reconcile'))", Boolean.class));
+    }
+
+    private static Counter toCounter(ResultSet rs, int rowNum) throws SQLException {
+        return new Counter(rs.getString("process_status"), rs.getString("dimension"), rs.getString("dimension_key"), rs.getString("counter"),
+                rs.getLong("value"), rs.getString("label"));
+    }
+
+    private static SqlParameterSource params(Counter counter) {
+        return new MapSqlParameterSource()
+                .addValue("status", counter.status())
+                .addValue("dimension", counter.dimension())
+                .addValue("key", counter.key())
+                .addValue("counter", counter.counter())
+                .addValue("value", counter.value())
+                .addValue("label", counter.label());
+    }
+
+    /**
+     * @param status process status, empty for dp-processes and disclosures
+     * @param counter name of the counter in {@link no.nav.data.polly.dashboard.dto.DashResponse.DashCount}, nested counters as <code>dpia.yes</code>
+     */
+    public record Counter(String status, String dimension, String key, String counter, long value, String label) {
+
+    }
+}
@@ -0,0 +1,371 @@
+package no.nav.data.polly.dashboard;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.exceptions.TechnicalException;
+import no.nav.data.common.jpa.RepoUtil;
+import no.nav.data.common.utils.JsonUtils;
+import no.nav.data.integration.nom.NomGraphClient;
+import no.nav.data.integration.nom.domain.OrgEnhet;
+import no.nav.data.polly.alert.domain.AlertEvent;
+import no.nav.data.polly.alert.domain.AlertRepository;
+import no.nav.data.polly.dashboard.DashboardCounterRepository.Counter;
+import no.nav.data.polly.dashboard.DashboardSource.Dimension;
+import no.nav.data.polly.dashboard.DashboardSource.DimensionType;
+import no.nav.data.polly.dashboard.dto.DashResponse;
+import no.nav.data.polly.dashboard.dto.DashResponse.DashCount;
+import no.nav.data.polly.disclosure.domain.Disclosure;
+import no.nav.data.polly.disclosure.domain.DisclosureRepository;
+import no.nav.data.polly.process.domain.Process;
+import no.nav.data.polly.process.domain.ProcessData;
+import no.nav.data.polly.process.domain.ProcessStatus;
+import no.nav.data.polly.process.domain.repo.ProcessRepository;
+import no.nav.data.polly.process.domain.sub.Affiliation;
+import no.nav.data.polly.process.domain.sub.DataProcessing;
+import no.nav.data.polly.process.domain.sub.Dpia;
+import no.nav.data.polly.process.domain.sub.Retention;
+import no.nav.data.polly.process.dpprocess.domain.DpProcess;
+import no.nav.data.polly.process.dpprocess.domain.repo.DpProcessRepository;
+import no.nav.data.polly.process.dto.ProcessStateRequest.ProcessStatusFilter;
+import no.nav.data.polly.teams.TeamService;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toMap;
+import static no.nav.data.common.utils.StreamUtils.convert;
+import static no.nav.data.common.utils.StreamUtils.nullToEmptyList;
+import static no.nav.data.polly.alert.domain.AlertEventType.MISSING_ARTICLE_6;
+import static no.nav.data.polly.alert.domain.AlertEventType.MISSING_ARTICLE_9;
+import static no.nav.data.polly.alert.domain.AlertEventType.MISSING_LEGAL_BASIS;
+import static org.springframework.util.CollectionUtils.isEmpty;
+
+/**
+ * The dashboard is read from counters in the database, so reading it does not depend on the number of processes.
+ * <p>
+ * The counters are updated in the transaction changing a process, dp-process, disclosure or the alert events of a process.
+ * Each row stores what it adds to the counters, so a change is applied as the difference between the old and the new contribution.
+ * Rows changed outside the services, such as code replacements, are corrected by {@link #reconcile()}.
+ * The contributions are also derived in SQL, see V1.45__dashboard_source.sql, the two must count the same.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DashboardService {
+
+    /**
+     * Process status of dp-processes and disclosures
+     */
+    private static final String NOT_A_PROCESS = "";
+    private static final String LAYOUT = "layout";
+
+    private final ProcessRepository processRepository;
+    private final DpProcessRepository dpProcessRepository;
+    private final DisclosureRepository disclosureRepository;
+    private final AlertRepository alertRepository;
+    private final DashboardCounterRepository counterRepository;
+    private final NomGraphClient nomGraphClient;
+    private final TeamService teamService;
+    private final JdbcTemplate jdbcTemplate;
+    private final LoadingCache<String, Layout> layoutCache = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(3))
+            .maximumSize(1).build(k -> loadLayout());
+
+    @Transactional(readOnly = true)
+    public DashResponse getDashboard(ProcessStatusFilter filter) {
+        var dash = new DashResponse();
+        layoutCache.get(LAYOUT).init(dash);
+
+        var statuses = filter.processStatus == null ? convert(List.of(ProcessStatus.values()), Enum::name) : List.of(filter.processStatus.name());
+        Map<DashCount, Map<String, Long>> counts = new IdentityHashMap<>();
+        for (Counter counter : counterRepository.findCounters(statuses)) {
+            DashCount dashCount = switch (DimensionType.valueOf(counter.dimension())) {
+                case ALL -> dash.getAll();
+                case DEPARTMENT -> dash.department(counter.key());
+                case NO_SEKSJON -> dash.noSeksjonForDepartment(counter.key());
+                case SEKSJON -> dash.seksjon(counter.key(), counter.label());
+                // A team might be stored that doesnt exist, producing nulls here
+                case TEAM -> dash.team(counter.key());
+            };
+            if (dashCount != null) {
+                counts.computeIfAbsent(dashCount, d -> new HashMap<>()).merge(counter.counter(), counter.value(), Long::sum);
+            }
+        }
+        counts.forEach(DashboardService::setCounts);
+        return dash;
+    }
+
+    // UPDATE
+
+    @Transactional
+    public void updateProcess(UUID processId) {
+        updateProcesses(List.of(processId));
+    }
+
+    /**
+     * Processes no longer existing are removed from the counters
+     */
+    @Transactional
+    public void updateProcesses(Collection<UUID> processIds) {
+        // Sorted so concurrent updates lock the source rows in the same order
+        var ids = processIds.stream().distinct().sorted().toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        var processes = processRepository.findAllById(ids).stream().collect(toMap(Process::getId, Function.identity()));
+        var alerts = alertRepository.findByProcessIds(ids).stream().collect(groupingBy(AlertEvent::getProcessId));
+        // One batch for all the processes, so the counters are locked in key order across them
+        Map<CounterKey, Counter> deltas = new LinkedHashMap<>();
+        ids.forEach(id -> update(id, Optional.ofNullable(processes.get(id)).map(p -> processSource(p, alerts.getOrDefault(id, List.of()))), deltas));
+        addDeltas(deltas);
+    }
+
+    @Transactional
+    public void updateDpProcess(UUID dpProcessId) {
+        update(dpProcessId, dpProcessRepository.findById(dpProcessId).map(DashboardService::dpProcessSource));
+    }
+
+    @Transactional
+    public void updateDisclosure(UUID disclosureId) {
+        update(disclosureId, disclosureRepository.findById(disclosureId).map(DashboardService::disclosureSource));
+    }
+
+    private void update(UUID id, Optional<DashboardSource> current) {
+        Map<CounterKey, Counter> deltas = new LinkedHashMap<>();
+        update(id, current, deltas);
+        addDeltas(deltas);
+    }
+
+    /**
+     * Saves the source of the row and collects what it changes in the counters
+     */
+    private void update(UUID id, Optional<DashboardSource> current, Map<CounterKey, Counter> deltas) {
+        var previous = counterRepository.lockSource(id);
+        if (previous.equals(current)) {
+            return;
+        }
+        previous.ifPresent(source -> source.toCounters().forEach(c -> add(deltas, c, -c.value())));
+        current.ifPresent(source -> source.toCounters().forEach(c -> add(deltas, c, c.value())));
+        current.ifPresentOrElse(source -> counterRepository.saveSource(id, source), () -> counterRepository.deleteSource(id));
+    }
+
+    private void addDeltas(Map<CounterKey, Counter> deltas) {
+        counterRepository.add(deltas.values().stream().filter(c -> c.value() != 0).toList());
+    }
+
+    // RECONCILE
+
+    /**
+     * Compares the counters to the counters derived in SQL from the processes, dp-processes, disclosures and alert events, and rebuilds them if they differ.
+     * Repeatable read gives a consistent comparison, and fails rather than overwriting counters updated meanwhile.
+     *
+     * @return number of counters that differed
+     */
+    @Scheduled(initialDelayString = "${polly.dashboard.reconcile.initial-delay:PT2M}", fixedRateString = "${polly.dashboard.reconcile.rate:PT1H}")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int reconcile() {
+        if (!counterRepository.tryReconcileLock()) {
+            log.info("Dashboard reconcile running elsewhere, skipping");
+            return 0;
+        }
+        RepoUtil.disableStatementTimeout(jdbcTemplate);
+        int differing = counterRepository.verify();
+        if (differing > 0) {
+            log.warn("Dashboard counters differed at {} counters, rebuilding", differing);
+            counterRepository.rebuild();
+        } else {
+            log.info("Dashboard counters verified");
+        }
+        return differing;
+    }
+
+    // SOURCES
+
+    static DashboardSource processSource(Process process, List<AlertEvent> alerts) {
+        var pd = Optional.of(process.getData());
+        var count = new DashCount();
+        count.processes();
+        switch (process.getData().getStatus()) {
+            case COMPLETED -> count.processesCompleted();
+            case IN_PROGRESS -> count.processesInProgress();
+            case NEEDS_REVISION -> count.processesNeedsRevision();
+        }
+
+        if (process.getData().isUsesAllInformationTypes()) {
+            count.processesUsingAllInfoTypes();
+        }
+
+        if (alerts.stream().anyMatch(a -> a.getType() == MISSING_LEGAL_BASIS)) {
+            count.processesMissingLegalBases();
+        }
+        if (alerts.stream().anyMatch(a -> a.getType() == MISSING_ARTICLE_6)) {
+            count.processesMissingArt6();
+        }
+        if (alerts.stream().anyMatch(a -> a.getType() == MISSING_ARTICLE_9)) {
+            count.processesMissingArt9();
+        }
+
+        Optional<Dpia> dpia = pd.map(ProcessData::getDpia);
+        count(count.getDpia(), dpia.map(Dpia::getNeedForDpia).orElse(null));
+        if (dpia.map(Dpia::getNeedForDpia).orElse(false) && StringUtils.isBlank(dpia.map(Dpia::getRefToDpia).orElse(null))) {
+            count.dpiaReferenceMissing();
+        }
+
+        count(count.getAiUsage(), pd.map((data) -> data.getAiUsageDescription().getAiUsage()).orElse(null));
+        count(count.getProfiling(), pd.map(ProcessData::getProfiling).orElse(null));
+        count(count.getAutomation(), pd.map(ProcessData::getAutomaticProcessing).orElse(null));
+        var ret = pd.map(ProcessData::getRetention);
+        count(count.getRetention(), ret.map(Retention::getRetentionPlan).orElse(null));
+        var retStart = ret.map(Retention::getRetentionStart).orElse(null);
+        var retMonths = ret.map(Retention::getRetentionMonths).orElse(null);
+        if (retStart == null || retMonths == null) {
+            count.retentionDataIncomplete();
+        }
+
+        var dataProc = pd.map(ProcessData::getDataProcessing);
+        count(count.getDataProcessor(), dataProc.map(DataProcessing::getDataProcessor).orElse(null));
+        pd.map(ProcessData::getCommonExternalProcessResponsible).ifPresent(c -> count.commonExternalProcessResponsible());
+
+        return new DashboardSource(process.getData().getStatus().name(), dimensions(process.getData().getAffiliation()), counts(count));
+    }
+
+    static DashboardSource dpProcessSource(DpProcess dpProcess) {
+        var count = new DashCount();
+        count.dpProcesses();
+        return new DashboardSource(NOT_A_PROCESS, dimensions(dpProcess.getData().getAffiliation()), counts(count));
+    }
+
+    static DashboardSource disclosureSource(Disclosure disclosure) {
+        var count = new DashCount();
+        count.disclosures();
+        if (isEmpty(disclosure.getData().getLegalBases())) {
+            count.disclosuresIncomplete();
+        }
+        return new DashboardSource(NOT_A_PROCESS, List.of(new Dimension(DimensionType.ALL, "")), counts(count));
+    }
+
+    private static List<Dimension> dimensions(Affiliation affiliation) {
+        var dimensions = new ArrayList<Dimension>();
+        dimensions.add(new Dimension(DimensionType.ALL, ""));
+        var depId = affiliation.getNomDepartmentId();
+        if (depId != null && !depId.isEmpty()) {
+            dimensions.add(new Dimension(DimensionType.DEPARTMENT, depId));
+        } else {
+            dimensions.add(new Dimension(DimensionType.DEPARTMENT, ""));
+        }
+        var seksjonerList = nullToEmptyList(affiliation.getSeksjoner());
+        if (seksjonerList.isEmpty() && depId != null && !depId.isEmpty()) {
+            dimensions.add(new Dimension(DimensionType.NO_SEKSJON, depId));
+        }
+        seksjonerList.forEach(s -> dimensions.add(new Dimension(DimensionType.SEKSJON, Objects.toString(s.getNomSeksjonId(), ""), s.getNomSeksjonName())));
+        nullToEmptyList(affiliation.getProductTeams()).stream().filter(Objects::nonNull).forEach(t -> dimensions.add(new Dimension(DimensionType.TEAM, t)));
+        return dimensions;
+    }
+
+    private static void count(DashResponse.Counter counter, Boolean value) {
+        if (value == null) {
+            counter.unknown();
+        } else if (value) {
+            counter.yes();
+        } else {
+            counter.no();
+        }
+    }
+
+    // COUNTERS
+
+    /**
+     * Non zero counters of the DashCount, nested counters as <code>dpia.yes</code>
+     */
+    private static Map<String, Long> counts(DashCount count) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        JsonUtils.toMap(count).forEach((name, value) -> {
+            if (value instanceof Number number && number.longValue() != 0) {
+                counts.put(name, number.longValue());
+            } else if (value instanceof Map<?, ?> nested) {
+                nested.forEach((nestedName, nestedValue) -> {
+                    if (nestedValue instanceof Number number && number.longValue() != 0) {
+                        counts.put(name + "." + nestedName, number.longValue());
+                    }
+                });
+            }
+        });
+        return counts;
+    }
+
+    private static void setCounts(DashCount dashCount, Map<String, Long> counts) {
+        Map<String, Object> values = new HashMap<>();
+        counts.forEach((name, value) -> {
+            int dot = name.indexOf('.');
+            if (dot < 0) {
+                values.put(name, value);
+            } else {
+                @SuppressWarnings("unchecked")
+                var nested = (Map<String, Object>) values.computeIfAbsent(name.substring(0, dot), n -> new HashMap<String, Object>());
+                nested.put(name.substring(dot + 1), value);
+            }
+        });
+        try {
+            JsonUtils.getObjectMapper().updateValue(dashCount, values);
+        } catch (JsonMappingException e) {
+            throw new TechnicalException("cannot set dashboard counters", e);
+        }
+    }
+
+    private static void add(Map<CounterKey, Counter> counters, Counter counter, long value) {
+        counters.merge(CounterKey.of(counter), new Counter(counter.status(), counter.dimension(), counter.key(), counter.counter(), value, counter.label()),
+                (a, b) -> new Counter(a.status(), a.dimension(), a.key(), a.counter(), a.value() + b.value(), Optional.ofNullable(b.label()).orElse(a.label())));
+    }
+
+    private record CounterKey(String status, String dimension, String key, String counter) {
+
+        static CounterKey of(Counter counter) {
+            return new CounterKey(counter.status(), counter.dimension(), counter.key(), counter.counter());
+        }
+    }
+
+    // LAYOUT
+
+    /**
+     * All departments and seksjoner are shown, also those without processes, and teams are counted for their product area
+     */
+    private Layout loadLayout() {
+        var orgTree = nomGraphClient.getOrgTree();
+        var departments = orgTree.avdelinger();
+        var seksjoner = new LinkedHashMap<String, String>();
+        departments.forEach(avdeling -> orgTree.getSeksjoner(avdeling.getId())
+                .forEach(seksjon -> seksjoner.putIfAbsent(seksjon.getId(), seksjon.getNavn())));
+        var teams = new LinkedHashMap<String, String>();
+        teamService.getAllTeams().forEach(t -> teams.put(t.getId(), t.getProductAreaId()));
+        return new Layout(convert(departments, OrgEnhet::getId), seksjoner, teams);
+    }
+
+    private record Layout(List<String> departments, Map<String, String> seksjoner, Map<String, String> teamProductAreas) {
+
+        void init(DashResponse dash) {
+            departments.forEach(dash::department);
+            seksjoner.forEach(dash::seksjon);
+            teamProductAreas.forEach(dash::registerTeam);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package no.nav.data.polly.dashboard;
+
+import no.nav.data.polly.dashboard.DashboardCounterRepository.Counter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a process, dp-process or disclosure adds to the dashboard. Each count is added to every dimension, a dimension listed twice is counted twice.
+ *
+ * @param status process status, empty for dp-processes and disclosures
+ * @param counts counters of {@link no.nav.data.polly.dashboard.dto.DashResponse.DashCount}, nested counters as <code>dpia.yes</code>
+ */
+public record DashboardSource(String status, List<Dimension> dimensions, Map<String, Long> counts) {
+
+    public List<Counter> toCounters() {
+        var counters = new ArrayList<Counter>();
+        dimensions.forEach(dimension -> counts.forEach((counter, value) ->
+                counters.add(new Counter(status, dimension.type().name(), dimension.key(), counter, value, dimension.label()))));
+        return counters;
+    }
+
+    public record Dimension(DimensionType type, String key, String label) {
+
+        public Dimension(DimensionType type, String key) {
+            this(type, key, null);
+        }
+    }
+
+    public enum DimensionType {
+        ALL,
+        DEPARTMENT,
+        /**
+         * Processes in a department without seksjon, key is the department
+         */
+        NO_SEKSJON,
+        SEKSJON,
+        /**
+         * Counted for the product area of the team when read
+         */
+        TEAM
+    }
+}
@@ -4,12 +4,14 @@ package no.nav.data.polly.disclosure;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import no.nav.data.common.exceptions.ValidationException;
 import no.nav.data.common.rest.PageParameters;
 import no.nav.data.common.rest.RestResponsePage;
+import no.nav.data.common.rest.RestResponsePageWriter;
 import no.nav.data.polly.disclosure.domain.Disclosure;
 import no.nav.data.polly.disclosure.domain.DisclosureRepository;
 import no.nav.data.polly.disclosure.dto.DisclosureRequest;
@@ -21,6 +23,7 @@ import no.nav.data.polly.informationtype.InformationTypeRepository;
 import no.nav.data.polly.informationtype.domain.InformationType;
 import no.nav.data.polly.process.domain.Process;
 import no.nav.data.polly.process.domain.repo.ProcessRepository;
+import no.nav.data.polly.process.domain.repo.ProcessVeryShort;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -63,6 +66,7 @@ public class DisclosureController {
     private final DocumentService documentService;
     private final InformationTypeRepository informationTypeRepository;
     private final ProcessRepository processRepository;
+    private final RestResponsePageWriter pageWriter;
 
     @Operation(summary = "Get All Disclosures")
     @ApiResponse(description = "All Disclosures fetched")
@@ -96,15 +100,14 @@ public class DisclosureController {
     @Operation(summary = "Get All Disclosure summaries")
     @ApiResponse(description = "All Disclosure summaries fetched")
     @GetMapping("/summary")
-    public ResponseEntity<RestResponsePage<DisclosureSummaryResponse>> getSummary() {
+    public ResponseEntity<RestResponsePage<DisclosureSummaryResponse>> getSummary(HttpServletResponse response) {
         log.info("Received request for all Disclosure summaries");
-        var discs = repository.findAll();
-        var processIds = convertFlat(discs, d -> d.getData().getProcessIds());
-        var processes = processRepository.findSummaryById(processIds);
-        return ResponseEntity.ok(new RestResponsePage<>(convert(discs, d -> {
-            var procsForDisc = filter(processes, p ->  contains(d.getData().getProcessIds(), p.getId()));
-            return d.convertToSummary(procsForDisc);
-        })));
+        pageWriter.<DisclosureSummaryResponse>write(response, repository::count, summaries -> repository.forEachChunk(discs -> {
+            var processIds = convertFlat(discs, d -> d.getData().getProcessIds());
+            var processes = processIds.isEmpty() ? List.<ProcessVeryShort>of() : processRepository.findSummaryById(processIds);
+            discs.forEach(d -> summaries.accept(d.convertToSummary(filter(processes, p -> contains(d.getData().getProcessIds(), p.getId())))));
+        }));
+        return null;
     }
 
     @Operation(summary = "Search disclosures")
@@ -4,7 +4,10 @@ import lombok.RequiredArgsConstructor;
 import no.nav.data.common.utils.StreamUtils;
 import no.nav.data.common.validator.RequestElement;
 import no.nav.data.common.validator.RequestValidator;
+import no.nav.data.polly.alert.AlertOutboxService;
 import no.nav.data.polly.alert.AlertService;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
+import no.nav.data.polly.dashboard.DashboardService;
 import no.nav.data.polly.disclosure.domain.Disclosure;
 import no.nav.data.polly.disclosure.domain.DisclosureRepository;
 import no.nav.data.polly.disclosure.dto.DisclosureRequest;
@@ -23,26 +26,32 @@ public class DisclosureService {
 
     private final DisclosureRepository repository;
     private final AlertService alertService;
+    private final AlertOutboxService alertOutboxService;
+    private final DashboardService dashboardService;
 
 
     @Transactional
     public Disclosure save(DisclosureRequest request) {
         Disclosure disclosure = repository.save(new Disclosure().convertFromRequest(request));
-        alertService.calculateEventsForDisclosure(disclosure.getId());
+        alertOutboxService.markDisclosure(disclosure.getId());
+        dashboardService.updateDisclosure(disclosure.getId());
         return disclosure;
     }
 
     @Transactional
     public Disclosure update(DisclosureRequest request) {
         Disclosure disclosure = repository.findById(request.getIdAsUUID()).orElseThrow().convertFromRequest(request);
-        alertService.calculateEventsForDisclosure(disclosure.getId());
+        alertOutboxService.markDisclosure(disclosure.getId());
+        dashboardService.updateDisclosure(disclosure.getId());
         return disclosure;
     }
 
     @Transactional
     public void deleteById(UUID id) {
+        alertOutboxService.unmark(AlertTarget.DISCLOSURE, id);
         repository.deleteById(id);
         alertService.deleteEventsForDisclosure(id);
+        dashboardService.updateDisclosure(id);
     }
 
 }
@@ -2,6 +2,7 @@ package no.nav.data.polly.disclosure.domain;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface DisclosureRepositoryCustom {
 
@@ -16,4 +17,9 @@ public interface DisclosureRepositoryCustom {
     List<Disclosure> findByProcessId(UUID processId);
 
     List<Disclosure> findByProductTeam(String productTeam);
+
+    /**
+     * @see no.nav.data.common.jpa.JsonbFinder#forEachChunk
+     */
+    void forEachChunk(Consumer<List<Disclosure>> consumer);
 }
@@ -1,78 +1,60 @@
 package no.nav.data.polly.disclosure.domain;
 
-import org.springframework.context.annotation.Lazy;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import lombok.RequiredArgsConstructor;
+import no.nav.data.common.jpa.JsonbFinder;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+
+import static no.nav.data.common.jpa.RepoUtil.jsonArrayOf;
 
 @Repository
+@RequiredArgsConstructor
 public class DisclosureRepositoryImpl implements DisclosureRepositoryCustom {
 
-    private final NamedParameterJdbcTemplate jdbcTemplate;
-    private final DisclosureRepository disclosureRepository;
+    private final JsonbFinder finder;
 
-    public DisclosureRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate, @Lazy DisclosureRepository disclosureRepository) {
-        this.jdbcTemplate = jdbcTemplate;
-        this.disclosureRepository = disclosureRepository;
+    @Override
+    public void forEachChunk(Consumer<List<Disclosure>> consumer) {
+        finder.forEachChunk(Disclosure.class, "true", Map.of(), consumer);
     }
 
     @Override
     public List<Disclosure> findByGDPRArticle(String gdpr) {
-        var resp = jdbcTemplate.queryForList("select disclosure_id from disclosure where data #>'{legalBases}' @> :gdpr::jsonb",
-                new MapSqlParameterSource().addValue("gdpr", String.format("[{\"gdpr\": \"%s\"}]", gdpr)));
-        return getDisclosures(resp);
+        return finder.find(Disclosure.class, "data #>'{legalBases}' @> cast(:gdpr as jsonb)", "gdpr", jsonArrayOf(Map.of("gdpr", gdpr)));
     }
 
     @Override
     public List<Disclosure> findByNationalLaw(String nationalLaw) {
-        var resp = jdbcTemplate.queryForList("select disclosure_id from disclosure where data #>'{legalBases}' @> :nationalLaw::jsonb",
-                new MapSqlParameterSource().addValue("nationalLaw", String.format("[{\"nationalLaw\": \"%s\"}]", nationalLaw)));
-        return getDisclosures(resp);
+        return finder.find(Disclosure.class, "data #>'{legalBases}' @> cast(:nationalLaw as jsonb)", "nationalLaw", jsonArrayOf(Map.of("nationalLaw", nationalLaw)));
     }
 
     @Override
     public List<Disclosure> findByRecipient(String recipient) {
-        var resp = jdbcTemplate.queryForList("select disclosure_id from disclosure where data #>>'{recipient}' = :recipient ",
-                new MapSqlParameterSource().addValue("recipient", recipient));
-        return getDisclosures(resp);
+        return finder.find(Disclosure.class, "data #>>'{recipient}' = :recipient ", "recipient", recipient);
     }
 
     @Override
     public List<Disclosure> findByProcessId(UUID id) {
-        var resp = jdbcTemplate.queryForList("select disclosure_id from disclosure where data #>'{processIds}' ?? :processId ",
-                new MapSqlParameterSource().addValue("processId", id.toString()));
-        return getDisclosures(resp);
+        return finder.find(Disclosure.class, "data #>'{processIds}' @> cast(:processId as jsonb) ", "processId", jsonArrayOf(id));
     }
 
     @Override
     public List<Disclosure> findByInformationTypeId(UUID informationTypeId) {
-        var resp = jdbcTemplate.queryForList("""
-                        select disclosure_id from disclosure di 
-                          where 
-                            exists(select 1 from document d
-                                where di.data ->> 'documentId' = d.document_id::text and  data #>'{informationTypes}' @> :informationTypeIdJson::jsonb)
-                            or data #> '{informationTypeIds}' ?? :informationTypeId
-                                       """,
-                new MapSqlParameterSource()
-                        .addValue("informationTypeIdJson", String.format("[{\"informationTypeId\": \"%s\"}]", informationTypeId))
-                        .addValue("informationTypeId", informationTypeId.toString()));
-        return getDisclosures(resp);
-    }
-
-    private List<Disclosure> getDisclosures(List<Map<String, Object>> resp) {
-        List<UUID> ids = resp.stream().map(i -> ((UUID) i.values().iterator().next())).collect(Collectors.toList());
-        return disclosureRepository.findAllById(ids);
+        return finder.find(Disclosure.class, """
+                        exists(select 1 from document d
+                            where disclosure.data ->> 'documentId' = cast(d.document_id as text) and d.data #>'{informationTypes}' @> cast(:informationTypeIdJson as jsonb))
+                        or data #> '{informationTypeIds}' @> cast(:informationTypeId as jsonb)
+                        """,
+                Map.of("informationTypeIdJson", jsonArrayOf(Map.of("informationTypeId", informationTypeId)),
+                        "informationTypeId", jsonArrayOf(informationTypeId)));
     }
 
     @Override
     public List<Disclosure> findByProductTeam(String productTeam) {
-        var resp = jdbcTemplate.queryForList("select disclosure_id from disclosure where data #>'{productTeams}' ?? :productTeam",
-                new MapSqlParameterSource().addValue("productTeam", productTeam));
-        return getDisclosures(resp);
+        return finder.find(Disclosure.class, "data #>'{productTeams}' @> cast(:productTeam as jsonb)", "productTeam", jsonArrayOf(productTeam));
     }
 }
@@ -73,7 +73,7 @@ public class ExportController {
         byte[] doc;
         String filename;
         if (processId != null) {
-            Optional<Process> process = processRepository.findById(processId);
+            Optional<Process> process = processRepository.findWithPoliciesById(processId);
             if (process.isEmpty()) {
                 throw new NotFoundException("Couldn't find process " + processId);
             }
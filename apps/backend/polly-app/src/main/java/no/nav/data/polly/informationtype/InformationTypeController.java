@@ -4,12 +4,14 @@ package no.nav.data.polly.informationtype;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import no.nav.data.common.exceptions.ValidationException;
 import no.nav.data.common.rest.PageParameters;
 import no.nav.data.common.rest.RestResponsePage;
+import no.nav.data.common.rest.RestResponsePageWriter;
 import no.nav.data.common.utils.StreamUtils;
 import no.nav.data.polly.informationtype.domain.InformationType;
 import no.nav.data.polly.informationtype.dto.InformationTypeRequest;
@@ -39,7 +41,6 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static java.util.Comparator.comparing;
-import static no.nav.data.common.utils.StartsWithComparator.startsWith;
 import static no.nav.data.common.utils.StreamUtils.convert;
 
 @Slf4j
@@ -55,6 +56,7 @@ public class InformationTypeController {
     private final InformationTypeService service;
     private final InformationTypeRequestValidator requestValidator;
     private final TeamService teamService;
+    private final RestResponsePageWriter pageWriter;
 
     @Operation(summary = "Get InformationType")
     @ApiResponse(description = "InformationType fetched")
@@ -78,8 +80,7 @@ public class InformationTypeController {
         if (name.length() < 3) {
             throw new ValidationException("Search term must be at least 3 characters");
         }
-        List<InformationType> infoTypes = repository.findBySuggestLike(name);
-        infoTypes.sort(comparing(it -> it.getData().getSuggest(), startsWith(name)));
+        List<InformationType> infoTypes = service.search(name);
         log.info("Returned {} InformationTypes", infoTypes.size());
         return new ResponseEntity<>(new RestResponsePage<>(convert(infoTypes, InformationType::convertToResponse)), HttpStatus.OK);
     }
@@ -87,7 +88,7 @@ public class InformationTypeController {
     @Operation(summary = "Get All InformationTypes")
     @ApiResponse(description = "InformationTypes fetched")
     @GetMapping
-    public ResponseEntity<RestResponsePage<InformationTypeResponse>> findAll(PageParameters page,
+    public ResponseEntity<RestResponsePage<InformationTypeResponse>> findAll(PageParameters page, HttpServletResponse response,
             @RequestParam(required = false) String source,
             @RequestParam(required = false) String orgMaster,
             @RequestParam(required = false) String term,
@@ -100,7 +101,9 @@ public class InformationTypeController {
         if (term != null) {
             infoTypes = repository.findByTermId(term);
         } else if (source != null) {
-            infoTypes = repository.findBySource(source);
+            pageWriter.<InformationTypeResponse>write(response, () -> repository.countBySource(source), responses ->
+                    repository.forEachChunkBySource(source, chunk -> chunk.forEach(it -> responses.accept(it.convertToResponse()))));
+            return null;
         } else if (orgMaster != null) {
             infoTypes = repository.findByOrgMaster(orgMaster);
         } else if (productTeam != null) {
@@ -125,8 +128,9 @@ public class InformationTypeController {
     @Operation(summary = "Get All InformationTypes short")
     @ApiResponse(description = "InformationTypes short fetched")
     @GetMapping("/short")
-    public ResponseEntity<RestResponsePage<InformationTypeShortResponse>> shorts() {
-        return ResponseEntity.ok(new RestResponsePage<>(repository.findAllShort()));
+    public ResponseEntity<RestResponsePage<InformationTypeShortResponse>> shorts(HttpServletResponse response) {
+        pageWriter.write(response, repository::count, repository::forEachShort);
+        return null;
     }
 
     @Operation(summary = "Count all InformationTypes")
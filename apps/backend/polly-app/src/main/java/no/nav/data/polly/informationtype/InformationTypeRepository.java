@@ -22,9 +22,6 @@ public interface InformationTypeRepository extends JpaRepository<InformationType
     @Query(value = "select * from information_type where data->>'orgMaster' = ?1", nativeQuery = true)
     List<InformationType> findByOrgMaster(String orgMaster);
 
-    @Query(value = "select * from information_type where data ->>'suggest' ilike %?1%", nativeQuery = true)
-    List<InformationType> findBySuggestLike(String name);
-
     List<InformationType> findByTermId(String term);
 
     @Query(value = "select it.termId as term, count(it) as count from InformationType it group by it.termId")
@@ -4,6 +4,9 @@ import no.nav.data.polly.informationtype.domain.InformationType;
 import no.nav.data.polly.informationtype.dto.InformationTypeShortResponse;
 
 import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface InformationTypeRepositoryCustom {
 
@@ -11,9 +14,24 @@ public interface InformationTypeRepositoryCustom {
 
     List<InformationType> findBySource(String source);
 
+    /**
+     * Ordered by name, see {@link no.nav.data.common.jpa.JsonbFinder#forEachChunk}
+     */
+    void forEachChunkBySource(String source, Consumer<List<InformationType>> consumer);
+
+    long countBySource(String source);
+
     List<InformationType> findByProductTeam(String productTeam);
 
     List<InformationType> findByProductTeams(List<String> productTeams);
 
-    List<InformationTypeShortResponse> findAllShort();
+    /**
+     * Reads through a server side cursor, must be called in a transaction
+     */
+    void forEachShort(Consumer<InformationTypeShortResponse> consumer);
+
+    /**
+     * Passes the id and suggest text of every information type
+     */
+    void forEachSuggest(BiConsumer<UUID, String> consumer);
 }
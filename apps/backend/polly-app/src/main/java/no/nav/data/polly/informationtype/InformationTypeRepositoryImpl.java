@@ -1,49 +1,59 @@
 package no.nav.data.polly.informationtype;
 
+import lombok.RequiredArgsConstructor;
+import no.nav.data.common.jpa.JsonbFinder;
 import no.nav.data.polly.codelist.CodelistStaticService;
 import no.nav.data.polly.codelist.domain.ListName;
 import no.nav.data.polly.informationtype.domain.InformationType;
 import no.nav.data.polly.informationtype.dto.InformationTypeShortResponse;
-import org.springframework.context.annotation.Lazy;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static no.nav.data.common.jpa.RepoUtil.jsonArrayOf;
+import static no.nav.data.common.jpa.RepoUtil.jsonArraysOf;
 
 @Repository
+@RequiredArgsConstructor
 public class InformationTypeRepositoryImpl implements InformationTypeRepositoryCustom {
 
-    private final NamedParameterJdbcTemplate jdbcTemplate;
-    private final InformationTypeRepository informationTypeRepository;
+    private static final int FETCH_SIZE = 500;
+    private static final String SOURCE = "data #> '{sources}' @> cast(:source as jsonb)";
 
-    public InformationTypeRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate, @Lazy InformationTypeRepository informationTypeRepository) {
-        this.jdbcTemplate = jdbcTemplate;
-        this.informationTypeRepository = informationTypeRepository;
-    }
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final JsonbFinder finder;
 
     @Override
     public List<InformationType> findByCategory(String category) {
-        var resp = jdbcTemplate.queryForList("select information_type_id from information_type where data #> '{categories}' ?? :category ",
-                new MapSqlParameterSource().addValue("category", category));
-        return fetch(resp);
+        return finder.find(InformationType.class, "data #> '{categories}' @> cast(:category as jsonb) ", "category", jsonArrayOf(category));
     }
 
     @Override
     public List<InformationType> findBySource(String source) {
-        var resp = jdbcTemplate.queryForList("select information_type_id from information_type where data #> '{sources}' ?? :source ",
-                new MapSqlParameterSource().addValue("source", source));
-        return fetch(resp);
+        return finder.find(InformationType.class, "data #> '{sources}' @> cast(:source as jsonb) ", "source", jsonArrayOf(source));
+    }
+
+    @Override
+    public void forEachChunkBySource(String source, Consumer<List<InformationType>> consumer) {
+        // Lower case compared by code point, the order of String.CASE_INSENSITIVE_ORDER rather than of the database locale
+        finder.forEachChunk(InformationType.class, SOURCE + " order by lower(data ->> 'name') collate \"C\"", Map.of("source", jsonArrayOf(source)), consumer);
+    }
+
+    @Override
+    public long countBySource(String source) {
+        return finder.count(InformationType.class, SOURCE, Map.of("source", jsonArrayOf(source)));
     }
 
     @Override
     public List<InformationType> findByProductTeam(String productTeam) {
-        var resp = jdbcTemplate.queryForList("select information_type_id from information_type where data #> '{productTeams}' ?? :productTeam",
-                new MapSqlParameterSource().addValue("productTeam", productTeam));
-        return fetch(resp);
+        return finder.find(InformationType.class, "data #> '{productTeams}' @> cast(:productTeam as jsonb)", "productTeam", jsonArrayOf(productTeam));
     }
 
 
@@ -52,23 +62,33 @@ public class InformationTypeRepositoryImpl implements InformationTypeRepositoryC
         if (productTeams.isEmpty()) {
             return List.of();
         }
-        var resp = jdbcTemplate.queryForList("select information_type_id from information_type where data #>'{productTeams}' ??| array[ :productTeams ]",
-                new MapSqlParameterSource().addValue("productTeams", productTeams));
-        return fetch(resp);
+        return finder.find(InformationType.class, "data #>'{productTeams}' @> any(cast(array[ :productTeams ] as jsonb[]))",
+                "productTeams", jsonArraysOf(productTeams));
+    }
+
+    @Override
+    public void forEachShort(Consumer<InformationTypeShortResponse> consumer) {
+        jdbcTemplate.getJdbcOperations().query(con -> {
+            var statement = con.prepareStatement("select information_type_id, data->>'name', data->>'sensitivity' from information_type");
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> consumer.accept(toShort(rs)));
     }
 
     @Override
-    public List<InformationTypeShortResponse> findAllShort() {
-        return jdbcTemplate.query("select information_type_id, data->>'name', data->>'sensitivity' from information_type",
-                (rs, rowNum) -> InformationTypeShortResponse.builder()
-                        .id(UUID.fromString(rs.getString(1)))
-                        .name(rs.getString(2))
-                        .sensitivity(CodelistStaticService.getCodelistResponse(ListName.SENSITIVITY, rs.getString(3)))
-                        .build());
+    public void forEachSuggest(BiConsumer<UUID, String> consumer) {
+        jdbcTemplate.getJdbcOperations().query(con -> {
+            var statement = con.prepareStatement("select information_type_id, data->>'suggest' from information_type");
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> consumer.accept(UUID.fromString(rs.getString(1)), rs.getString(2)));
     }
 
-    private List<InformationType> fetch(List<Map<String, Object>> resp) {
-        List<UUID> ids = resp.stream().map(i -> ((UUID) i.values().iterator().next())).collect(Collectors.toList());
-        return informationTypeRepository.findAllById(ids);
+    private static InformationTypeShortResponse toShort(ResultSet rs) throws SQLException {
+        return InformationTypeShortResponse.builder()
+                .id(UUID.fromString(rs.getString(1)))
+                .name(rs.getString(2))
+                .sensitivity(CodelistStaticService.getCodelistResponse(ListName.SENSITIVITY, rs.getString(3)))
+                .build();
     }
 }
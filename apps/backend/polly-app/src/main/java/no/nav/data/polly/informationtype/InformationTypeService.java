@@ -4,7 +4,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import no.nav.data.common.exceptions.NotFoundException;
 import no.nav.data.common.exceptions.ValidationException;
+import no.nav.data.polly.alert.AlertOutboxService;
 import no.nav.data.polly.alert.AlertService;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
 import no.nav.data.polly.disclosure.domain.Disclosure;
 import no.nav.data.polly.disclosure.domain.DisclosureRepository;
 import no.nav.data.polly.document.domain.Document;
@@ -16,10 +18,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static no.nav.data.common.utils.StreamUtils.convert;
 
 @Slf4j
@@ -33,6 +39,18 @@ public class InformationTypeService {
     private final DocumentRepository documentRepository;
     private final DisclosureRepository disclosureRepository;
     private final AlertService alertService;
+    private final AlertOutboxService alertOutboxService;
+    private final InformationTypeSuggestIndex suggestIndex;
+
+    /**
+     * Type-ahead search on name, keywords and description, best match first
+     */
+    @Transactional(readOnly = true)
+    public List<InformationType> search(String term) {
+        List<UUID> ids = suggestIndex.search(term);
+        Map<UUID, InformationType> informationTypes = repository.findAllById(ids).stream().collect(toMap(InformationType::getId, Function.identity()));
+        return ids.stream().map(informationTypes::get).filter(Objects::nonNull).collect(toList());
+    }
 
     public InformationType save(InformationTypeRequest request) {
         return saveAll(List.of(request)).get(0);
@@ -45,7 +63,8 @@ public class InformationTypeService {
     public List<InformationType> saveAll(List<InformationTypeRequest> requests) {
         List<InformationType> informationTypes = requests.stream().map(this::convertNew).collect(toList());
         List<InformationType> all = repository.saveAll(informationTypes);
-        all.forEach(it -> alertService.calculateEventsForInforamtionType(it.getId()));
+        alertOutboxService.markInformationTypes(convert(all, InformationType::getId));
+        suggestIndex.put(all);
         return all;
     }
 
@@ -55,7 +74,8 @@ public class InformationTypeService {
 
         requests.forEach(request -> find(informationTypes, request.getIdAsUUID()).ifPresent(informationType -> convertUpdate(request, informationType)));
         List<InformationType> all = repository.saveAll(informationTypes);
-        all.forEach(it -> alertService.calculateEventsForInforamtionType(it.getId()));
+        alertOutboxService.markInformationTypes(convert(all, InformationType::getId));
+        suggestIndex.put(all);
         return all;
     }
 
@@ -74,8 +94,10 @@ public class InformationTypeService {
         }
 
         log.info("InformationType with id={} deleted", id);
+        alertOutboxService.unmark(AlertTarget.INFORMATION_TYPE, infoType.getId());
         repository.delete(infoType);
         alertService.deleteEventsForInformationType(infoType.getId());
+        suggestIndex.remove(infoType.getId());
         return infoType;
     }
 
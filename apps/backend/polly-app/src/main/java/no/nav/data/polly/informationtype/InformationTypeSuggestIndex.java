@@ -0,0 +1,200 @@
+package no.nav.data.polly.informationtype;
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.utils.MetricUtils;
+import no.nav.data.polly.informationtype.domain.InformationType;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static java.util.Comparator.comparing;
+import static no.nav.data.common.utils.StartsWithComparator.startsWith;
+import static no.nav.data.common.utils.StreamUtils.convert;
+
+/**
+ * In memory substring index over the suggest text (name, keywords and description) of all information types, finding and ranking the matches of
+ * type-ahead searches without scanning the table. Only ids and suggest texts are kept, the responses are built from the information types as stored
+ * and the current codelists when searched, see {@link InformationTypeService#search(String)}. Matches and ranking are the same as <code>suggest ilike %term%</code> sorted with {@link no.nav.data.common.utils.StartsWithComparator}.
+ * <p>
+ * Each suggest text is indexed by its trigrams, a search only verifies the entries of the rarest trigram in the term.
+ * Saves and deletes through {@link InformationTypeService} are applied after commit, the index is also rebuilt on a schedule to pick up any other changes.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class InformationTypeSuggestIndex implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final int GRAM = 3;
+
+    private final InformationTypeRepository repository;
+    private final Gauge size;
+    private final Summary rebuildTime;
+
+    private volatile Index index = new Index();
+
+    public InformationTypeSuggestIndex(InformationTypeRepository repository) {
+        this.repository = repository;
+        this.size = MetricUtils.gauge()
+                .name("polly_informationtype_suggest_index_size")
+                .help("Information types in the suggest index")
+                .register();
+        this.rebuildTime = MetricUtils.summary()
+                .name("polly_informationtype_suggest_index_rebuild_seconds")
+                .help("Time taken to rebuild the suggest index")
+                .quantile(.5, .01).quantile(.99, .001)
+                .maxAgeSeconds(Duration.ofHours(6).getSeconds())
+                .ageBuckets(6)
+                .register();
+    }
+
+    /**
+     * @return ids of information types with suggest text containing the term, ignoring case, best match first
+     */
+    public List<UUID> search(String term) {
+        var current = index;
+        String lowerTerm = lower(term);
+        Collection<Entry> candidates = current.candidates(lowerTerm);
+        Comparator<Entry> ranking = comparing(Entry::suggest, startsWith(term));
+        return candidates.stream()
+                .filter(entry -> entry.lowerSuggest().contains(lowerTerm))
+                .sorted(ranking)
+                .map(Entry::id)
+                .toList();
+    }
+
+    @Scheduled(initialDelayString = "${informationtype.suggest.rebuild.initial-delay:PT10M}", fixedRateString = "${informationtype.suggest.rebuild.rate:PT10M}")
+    public synchronized void rebuild() {
+        try (var ignored = rebuildTime.startTimer()) {
+            var newIndex = new Index();
+            repository.forEachSuggest((id, suggest) -> newIndex.put(new Entry(id, suggest)));
+            index = newIndex;
+            size.set(newIndex.entries.size());
+            log.info("Rebuilt information type suggest index with {} entries", newIndex.entries.size());
+        }
+    }
+
+    /**
+     * Indexes the information types once the current transaction commits
+     */
+    public void put(Collection<InformationType> informationTypes) {
+        var entries = convert(informationTypes, it -> new Entry(it.getId(), it.getData().getSuggest()));
+        afterCommit(() -> update(current -> entries.forEach(current::put)));
+    }
+
+    /**
+     * Removes the information type once the current transaction commits
+     */
+    public void remove(UUID id) {
+        afterCommit(() -> update(current -> current.remove(id)));
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        rebuild();
+    }
+
+    private synchronized void update(Consumer<Index> change) {
+        change.accept(index);
+        size.set(index.entries.size());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static String lower(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(UUID id, String suggest, String lowerSuggest) {
+
+        private Entry(UUID id, String suggest) {
+            this(id, suggest == null ? "" : suggest, suggest == null ? "" : lower(suggest));
+        }
+    }
+
+    /**
+     * Entries and trigram postings, changed in place under the index lock and read without locking
+     */
+    private static class Index {
+
+        private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+        private final Map<String, Set<UUID>> grams = new ConcurrentHashMap<>();
+
+        void put(Entry entry) {
+            remove(entry.id());
+            entries.put(entry.id(), entry);
+            grams(entry.lowerSuggest()).forEach(gram -> grams.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(entry.id()));
+        }
+
+        void remove(UUID id) {
+            var entry = entries.remove(id);
+            if (entry != null) {
+                grams(entry.lowerSuggest()).forEach(gram -> grams.computeIfPresent(gram, (g, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                }));
+            }
+        }
+
+        Collection<Entry> candidates(String lowerTerm) {
+            if (lowerTerm.length() < GRAM) {
+                return entries.values();
+            }
+            Set<UUID> rarest = null;
+            for (String gram : grams(lowerTerm)) {
+                var ids = grams.get(gram);
+                if (ids == null) {
+                    return List.of();
+                }
+                if (rarest == null || ids.size() < rarest.size()) {
+                    rarest = ids;
+                }
+            }
+            Map<UUID, Entry> candidates = new HashMap<>();
+            for (UUID id : rarest) {
+                var entry = entries.get(id);
+                if (entry != null) {
+                    candidates.put(id, entry);
+                }
+            }
+            return candidates.values();
+        }
+
+        private static Set<String> grams(String text) {
+            Set<String> result = new HashSet<>();
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                result.add(text.substring(i, i + GRAM));
+            }
+            return result;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import no.nav.data.polly.informationtype.dto.InformationTypeResponse;
 import no.nav.data.polly.informationtype.dto.InformationTypeShortResponse;
 import no.nav.data.polly.policy.domain.Policy;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Type;
 
 import java.util.HashSet;
@@ -39,6 +40,7 @@ import static no.nav.data.common.utils.StreamUtils.copyOf;
 @EqualsAndHashCode(callSuper = false, exclude = {"policies"})
 @Entity
 @Table(name = "INFORMATION_TYPE")
+@BatchSize(size = 100)
 public class InformationType extends Auditable {
 
     @Id
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import no.nav.data.common.exceptions.ValidationException;
 import no.nav.data.common.validator.RequestValidator;
 import no.nav.data.common.validator.ValidationError;
+import no.nav.data.polly.alert.AlertOutboxService;
 import no.nav.data.polly.alert.AlertService;
 import no.nav.data.polly.informationtype.InformationTypeRepository;
 import no.nav.data.polly.informationtype.domain.InformationType;
@@ -34,6 +35,7 @@ public class PolicyService {
 
     private final PolicyRepository policyRepository;
     private final AlertService alertService;
+    private final AlertOutboxService alertOutboxService;
 
     @Transactional
     public List<Policy> saveAll(List<Policy> policies) {
@@ -59,7 +61,7 @@ public class PolicyService {
         if (delete) {
             policies.forEach(alertService::deleteEventsForPolicy);
         } else {
-            policies.forEach(alertService::calculateEventsForPolicy);
+            alertOutboxService.markProcesses(convert(policies, policy -> policy.getProcess().getId()));
         }
     }
 
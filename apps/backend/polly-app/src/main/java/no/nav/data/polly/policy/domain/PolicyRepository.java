@@ -1,5 +1,8 @@
 package no.nav.data.polly.policy.domain;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -12,10 +15,16 @@ import java.util.UUID;
 @Repository
 public interface PolicyRepository extends JpaRepository<Policy, UUID>, PolicyRepositoryCustom {
 
+    @EntityGraph(attributePaths = {"process", "informationType"})
     List<Policy> findByInformationTypeId(UUID informationTypeId);
 
+    @EntityGraph(attributePaths = {"process", "informationType"})
     List<Policy> findByProcessId(UUID processId);
 
+    @Override
+    @EntityGraph(attributePaths = {"process", "informationType"})
+    Page<Policy> findAll(Pageable pageable);
+
     long countByInformationTypeId(UUID informationTypeId);
 
     @Modifying
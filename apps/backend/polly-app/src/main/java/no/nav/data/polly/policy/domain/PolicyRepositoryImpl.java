@@ -1,63 +1,43 @@
 package no.nav.data.polly.policy.domain;
 
-import org.springframework.context.annotation.Lazy;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import lombok.RequiredArgsConstructor;
+import no.nav.data.common.jpa.JsonbFinder;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+
+import static no.nav.data.common.jpa.RepoUtil.jsonArrayOf;
 
 @Repository
+@RequiredArgsConstructor
 public class PolicyRepositoryImpl implements PolicyRepositoryCustom {
 
-    private final NamedParameterJdbcTemplate jdbcTemplate;
-    private final PolicyRepository policyRepository;
-
-    public PolicyRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate, @Lazy PolicyRepository policyRepository) {
-        this.jdbcTemplate = jdbcTemplate;
-        this.policyRepository = policyRepository;
-    }
+    private final JsonbFinder finder;
 
     @Override
     public List<Policy> findByPurpose(String purpose) {
-        var resp = jdbcTemplate.queryForList("select policy_id from policy where data #>'{purposes}' ?? :purpose",
-                new MapSqlParameterSource().addValue("purpose", purpose));
-        return getPolicies(resp);
+        return finder.find(Policy.class, "data #>'{purposes}' @> cast(:purpose as jsonb)", "purpose", jsonArrayOf(purpose));
     }
 
     @Override
     public List<Policy> findBySubjectCategory(String subjectCategory) {
-        var resp = jdbcTemplate.queryForList("select policy_id from policy where data #> '{subjectCategories}' ?? :subjectCategory",
-                new MapSqlParameterSource().addValue("subjectCategory", subjectCategory));
-        return getPolicies(resp);
+        return finder.find(Policy.class, "data #> '{subjectCategories}' @> cast(:subjectCategory as jsonb)", "subjectCategory", jsonArrayOf(subjectCategory));
     }
 
     @Override
     public List<Policy> findByGDPRArticle(String gdpr) {
-        var resp = jdbcTemplate.queryForList("select policy_id from policy where data #> '{legalBases}' @> :gdpr::jsonb",
-                new MapSqlParameterSource().addValue("gdpr", String.format("[{\"gdpr\": \"%s\"}]", gdpr)));
-        return getPolicies(resp);
+        return finder.find(Policy.class, "data #> '{legalBases}' @> cast(:gdpr as jsonb)", "gdpr", jsonArrayOf(Map.of("gdpr", gdpr)));
     }
 
     @Override
     public List<Policy> findByNationalLaw(String nationalLaw) {
-        var resp = jdbcTemplate.queryForList("select policy_id from policy where data #> '{legalBases}' @> :nationalLaw::jsonb",
-                new MapSqlParameterSource().addValue("nationalLaw", String.format("[{\"nationalLaw\": \"%s\"}]", nationalLaw)));
-        return getPolicies(resp);
+        return finder.find(Policy.class, "data #> '{legalBases}' @> cast(:nationalLaw as jsonb)", "nationalLaw", jsonArrayOf(Map.of("nationalLaw", nationalLaw)));
     }
 
     @Override
     public List<Policy> findByDocumentId(UUID id) {
-        var resp = jdbcTemplate.queryForList("select policy_id from policy where data #> '{documentIds}' ?? :documentId",
-                new MapSqlParameterSource().addValue("documentId", id.toString()));
-        return getPolicies(resp);
-    }
-
-    private List<Policy> getPolicies(List<Map<String, Object>> resp) {
-        List<UUID> ids = resp.stream().map(i -> ((UUID) i.values().iterator().next())).collect(Collectors.toList());
-        return policyRepository.findAllById(ids);
+        return finder.find(Policy.class, "data #> '{documentIds}' @> cast(:documentId as jsonb)", "documentId", jsonArrayOf(id));
     }
 }
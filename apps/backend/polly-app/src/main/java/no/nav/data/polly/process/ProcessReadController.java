@@ -2,7 +2,6 @@ package no.nav.data.polly.process;
 
 
 import static java.util.Comparator.comparing;
-import static java.util.stream.Collectors.toList;
 import static no.nav.data.common.utils.StartsWithComparator.startsWith;
 import static no.nav.data.common.utils.StreamUtils.convert;
 import static no.nav.data.common.utils.StreamUtils.filter;
@@ -36,13 +35,17 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import no.nav.data.common.auditing.AuditService;
 import no.nav.data.common.auditing.dto.AuditMetadata;
 import no.nav.data.common.exceptions.ValidationException;
+import no.nav.data.common.jpa.Keyset;
+import no.nav.data.common.rest.CursorParameters;
 import no.nav.data.common.rest.PageParameters;
 import no.nav.data.common.rest.RestResponsePage;
+import no.nav.data.common.rest.RestResponsePageWriter;
 import no.nav.data.common.security.SecurityUtils;
 import no.nav.data.common.security.dto.UserInfo;
 import no.nav.data.common.utils.JsonUtils;
@@ -74,6 +77,7 @@ public class ProcessReadController {
     private final ProcessRepository repository;
     private final ProcessService processService;
     private final AuditService auditService;
+    private final RestResponsePageWriter pageWriter;
 
     @Operation(summary = "Get Process with InformationTypes for Id or process number")
     @ApiResponse(description = "Process fetched")
@@ -83,9 +87,9 @@ public class ProcessReadController {
         log.info("Received request for Process with id/number={}", id);
         Optional<Process> process;
         if (StringUtils.isNumeric(id)) {
-            process = repository.findByProcessNumber(Integer.parseInt(id));
+            process = repository.findIdByProcessNumber(Integer.parseInt(id)).flatMap(repository::findWithPoliciesById);
         } else {
-            process = repository.findById(UUID.fromString(id));
+            process = repository.findWithPoliciesById(UUID.fromString(id));
         }
         if (process.isEmpty()) {
             log.info("Cannot find the Process with id={}", id);
@@ -94,10 +98,10 @@ public class ProcessReadController {
         return ResponseEntity.ok(process.get().convertToResponseWithPolicies());
     }
 
-    @Operation(summary = "Get All Processes, parameters filters are not combined unless stated otherwise")
+    @Operation(summary = "Get All Processes, parameters filters are not combined unless stated otherwise. Filtered processes are only paged with after/limit")
     @ApiResponse(description = "All Processes fetched")
     @GetMapping
-    public ResponseEntity<RestResponsePage<ProcessResponse>> getAllProcesses(PageParameters pageParameters,
+    public ResponseEntity<RestResponsePage<ProcessResponse>> getAllProcesses(PageParameters pageParameters, CursorParameters cursorParameters,
             @RequestParam(required = false) String productTeam,
             @RequestParam(required = false) String productArea,
             @RequestParam(required = false) String seksjonId,
@@ -106,38 +110,42 @@ public class ProcessReadController {
             @Parameter(description = "Can be combined with nationalLaw") @RequestParam(required = false) String gdprArticle,
             @Parameter(description = "Can be combined with gdprArticle") @RequestParam(required = false) String nationalLaw
     ) {
+        Keyset keyset = cursorParameters.createKeyset();
         if (productTeam != null) {
             log.info("Received request for Processeses for productTeam {}", productTeam);
-            var processes = repository.findByProductTeam(productTeam);
-            return ResponseEntity.ok(new RestResponsePage<>(convert(processes, Process::convertToResponse)));
+            var processes = repository.findByProductTeam(productTeam, keyset);
+            return ResponseEntity.ok(toPage(processes, keyset));
         }
         if (productArea != null) {
             log.info("Received request for Processeses for productArea {}", productArea);
             var teams = teamService.getTeamsForProductArea(productArea);
-            var processes = repository.findByProductTeams(convert(teams, Team::getId));
-            return ResponseEntity.ok(new RestResponsePage<>(convert(processes, Process::convertToResponse)));
+            var processes = repository.findByProductTeams(convert(teams, Team::getId), keyset);
+            return ResponseEntity.ok(toPage(processes, keyset));
         }
         if (seksjonId != null) {
             log.info("Received request for Processeses for seksjon {}", seksjonId);
-            var processes = repository.findBySeksjoner(List.of((seksjonId)));
-            return ResponseEntity.ok(new RestResponsePage<>(convert(processes, Process::convertToResponse)));
+            var processes = repository.findBySeksjoner(List.of((seksjonId)), keyset);
+            return ResponseEntity.ok(toPage(processes, keyset));
         }
         if (documentId != null) {
             log.info("Received request for Processeses for documentId {}", documentId);
-            var processes = repository.findByDocumentId(documentId);
-            return ResponseEntity.ok(new RestResponsePage<>(convert(processes, Process::convertToResponse)));
+            var processes = repository.findByDocumentId(documentId, keyset);
+            return ResponseEntity.ok(toPage(processes, keyset));
         }
         if (processorId != null) {
             log.info("Received request for Processeses for processorId {}", processorId);
-            var processes = repository.findByProcessor(processorId);
-            return ResponseEntity.ok(new RestResponsePage<>(convert(processes, Process::convertToResponse)));
+            var processes = repository.findByProcessor(processorId, keyset);
+            return ResponseEntity.ok(toPage(processes, keyset));
         }
         if (gdprArticle != null || nationalLaw != null) {
             log.info("Received request for Processeses for gdprArticle {} nationalLaw {}", gdprArticle, nationalLaw);
-            var processes = processService.getAllProcessesForGdprAndLaw(gdprArticle, nationalLaw);
-            return ResponseEntity.ok(new RestResponsePage<>(convert(processes, Process::convertToResponse)));
+            var processes = processService.getAllProcessesForGdprAndLaw(gdprArticle, nationalLaw, keyset);
+            return ResponseEntity.ok(toPage(processes, keyset));
         }
         log.info("Received request for all Processes");
+        if (keyset != null) {
+            return ResponseEntity.ok(toPage(repository.findAll(keyset), keyset));
+        }
         Page<ProcessResponse> page = repository.findAllSortedByNumber(pageParameters.createPage()).map(Process::convertToResponse);
         return ResponseEntity.ok(new RestResponsePage<>(page));
     }
@@ -146,36 +154,44 @@ public class ProcessReadController {
     @ApiResponse(description = "Get All Processes by information type sensitivity")
     @GetMapping("/sensitivity")
     public ResponseEntity<RestResponsePage<ProcessResponse>> getProcessesByInformationTypeSensitivity(
-            PageParameters pageParameters,
+            CursorParameters cursorParameters,
             @RequestParam String sensitivity
     ) {
-            var processes = processService.fetchAllProcessesByInformationTypeSensitivity(sensitivity);
-            return ResponseEntity.ok(new RestResponsePage<>(convert(processes, Process::convertToResponse)));
+            Keyset keyset = cursorParameters.createKeyset();
+            var processes = processService.fetchAllProcessesByInformationTypeSensitivity(sensitivity, keyset);
+            return ResponseEntity.ok(toPage(processes, keyset));
     }
 
     @Operation(summary = "Get Processes with no department")
     @ApiResponse(description = "Processes without department fetched")
     @GetMapping("/nodepartment")
-    public ResponseEntity<RestResponsePage<ProcessShortResponse>> getProcessesWithNoDepartment() {
+    public ResponseEntity<RestResponsePage<ProcessShortResponse>> getProcessesWithNoDepartment(CursorParameters cursorParameters) {
         log.info("Received request for processes with no department");
-        var processes = repository.findByDepartment("").stream().map(Process::convertToShortResponse).collect(toList());
-        return ResponseEntity.ok(new RestResponsePage<>(processes));
+        Keyset keyset = cursorParameters.createKeyset();
+        var processes = repository.findByDepartment("", keyset);
+        return ResponseEntity.ok(RestResponsePage.ofKeyset(processes, keyset, p -> p.getData().getNumber()).convert(Process::convertToShortResponse));
     }
 
     @Operation(summary = "Get Processes for Purpose")
     @ApiResponse(description = "Processes fetched")
     @GetMapping("/purpose/{purpose}")
     @Transactional // TODO: Flytt til tjenestelaget
-    public ResponseEntity<RestResponsePage<ProcessResponse>> getPurpose(@PathVariable String purpose) {
+    public ResponseEntity<RestResponsePage<ProcessResponse>> getPurpose(@PathVariable String purpose, CursorParameters cursorParameters, HttpServletResponse response) {
         log.info("Get processes for purpose={}", purpose);
         Codelist codelist = CodelistStaticService.getCodelist(ListName.PURPOSE, purpose);
         if (codelist == null) {
             return ResponseEntity.notFound().build();
         }
         String code = codelist.getCode();
-        var processes = repository.findByPurpose(code).stream().map(Process::convertToResponse).collect(toList());
+        Keyset keyset = cursorParameters.createKeyset();
+        if (keyset == null) {
+            pageWriter.<ProcessResponse>write(response, () -> repository.countByPurpose(code), responses ->
+                    repository.forEachChunkByPurpose(code, chunk -> chunk.forEach(p -> responses.accept(p.convertToResponse()))));
+            return null;
+        }
+        var processes = repository.findByPurpose(code, keyset);
         log.info("Got {} processes", processes.size());
-        return ResponseEntity.ok(new RestResponsePage<>(processes));
+        return ResponseEntity.ok(toPage(processes, keyset));
     }
 
     @Operation(summary = "Get last edited processes by logged in user")
@@ -291,6 +307,10 @@ public class ProcessReadController {
         return "".equals(value) || BooleanUtils.toBoolean(value);
     }
 
+    private static RestResponsePage<ProcessResponse> toPage(List<Process> processes, Keyset keyset) {
+        return RestResponsePage.ofKeyset(processes, keyset, p -> p.getData().getNumber()).convert(Process::convertToResponse);
+    }
+
     static class ProcessPage extends RestResponsePage<ProcessResponse> {
     }
 
@@ -2,16 +2,20 @@ package no.nav.data.polly.process;
 
 import lombok.RequiredArgsConstructor;
 import no.nav.data.common.exceptions.ValidationException;
+import no.nav.data.common.jpa.Keyset;
 import no.nav.data.common.mail.EmailService;
 import no.nav.data.common.mail.MailTask;
 import no.nav.data.common.template.TemplateService;
+import no.nav.data.polly.alert.AlertOutboxService;
 import no.nav.data.polly.alert.AlertService;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
 import no.nav.data.polly.codelist.codeusage.CodeUsageService;
 import no.nav.data.polly.codelist.domain.ListName;
 import no.nav.data.polly.codelist.dto.CodeUsageResponse;
+import no.nav.data.polly.codelist.dto.UsedInInstance;
+import no.nav.data.polly.dashboard.DashboardService;
 import no.nav.data.polly.disclosure.domain.Disclosure;
 import no.nav.data.polly.disclosure.domain.DisclosureRepository;
-import no.nav.data.polly.policy.domain.PolicyRepository;
 import no.nav.data.polly.process.domain.Process;
 import no.nav.data.polly.process.domain.ProcessStatus;
 import no.nav.data.polly.process.domain.repo.ProcessRepository;
@@ -25,12 +29,10 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
 import static no.nav.data.common.security.SecurityUtils.changeStampToIdent;
@@ -46,16 +48,17 @@ public class ProcessService {
     private final DisclosureRepository disclosureRepository;
     private final ResourceService resourceService;
     private final AlertService alertService;
+    private final AlertOutboxService alertOutboxService;
     private final CodeUsageService codeUsageService;
+    private final DashboardService dashboardService;
     private final TemplateService templateService;
     private final EmailService emailService;
-    private final PolicyRepository policyRepository;
-
 
     @Transactional
     public Process save(Process process) {
         var saved = processRepository.save(process);
-        alertService.calculateEventsForProcess(saved.getId());
+        alertOutboxService.markProcess(saved.getId());
+        dashboardService.updateProcess(saved.getId());
         return saved;
     }
 
@@ -77,17 +80,19 @@ public class ProcessService {
             throw new ValidationException(String.format("Process %s is used by %d disclosure(s)", id, disclosures.size()));
         }
 
+        alertOutboxService.unmark(AlertTarget.PROCESS, id);
         processRepository.deleteById(id);
         alertService.deleteEventsForProcess(id);
+        dashboardService.updateProcess(id);
     }
 
-    public List<Process> getAllProcessesForGdprAndLaw(String gdprArticle, String nationalLaw) {
+    public List<Process> getAllProcessesForGdprAndLaw(String gdprArticle, String nationalLaw, Keyset keyset) {
         var gdpr = Optional.ofNullable(gdprArticle).map(a -> codeUsageService.findCodeUsage(ListName.GDPR_ARTICLE, a)).orElse(new CodeUsageResponse());
         var law = Optional.ofNullable(nationalLaw).map(a -> codeUsageService.findCodeUsage(ListName.NATIONAL_LAW, a)).orElse(new CodeUsageResponse());
-        return fetchAllProcessesAndFilter(gdpr, law);
+        return fetchAllProcessesAndFilter(gdpr, law, keyset);
     }
 
-    private List<Process> fetchAllProcessesAndFilter(CodeUsageResponse gdpr, CodeUsageResponse law) {
+    private List<Process> fetchAllProcessesAndFilter(CodeUsageResponse gdpr, CodeUsageResponse law, Keyset keyset) {
         var gdprIds = getAllProcessIds(gdpr);
         var lawIds = getAllProcessIds(law);
 
@@ -98,7 +103,7 @@ public class ProcessService {
         if (law.getCode() != null) {
             all = filter(all, lawIds::contains);
         }
-        return processRepository.findAllById(all);
+        return processRepository.findByIds(all, keyset);
     }
 
     private List<UUID> getAllProcessIds(CodeUsageResponse usage) {
@@ -108,16 +113,9 @@ public class ProcessService {
         ).stream().distinct().collect(toList());
     }
 
-    public List<Process> fetchAllProcessesByInformationTypeSensitivity(String sensitivity) {
-        CodeUsageResponse codeUsageResponse = codeUsageService.findCodeUsage(ListName.SENSITIVITY,sensitivity);
-        List<Process> processes = new ArrayList<>();
-        codeUsageResponse.getInformationTypes().forEach(it->{
-            var policies = policyRepository.findByInformationTypeId(it.getIdAsUUID());
-            policies.forEach(policy -> {
-                processes.add(policy.getProcess());
-            });
-        });
-        return processes.stream().distinct().collect(Collectors.toList());
+    public List<Process> fetchAllProcessesByInformationTypeSensitivity(String sensitivity, Keyset keyset) {
+        CodeUsageResponse codeUsageResponse = codeUsageService.findCodeUsage(ListName.SENSITIVITY, sensitivity);
+        return processRepository.findByInformationTypeIds(convert(codeUsageResponse.getInformationTypes(), UsedInInstance::getIdAsUUID), keyset);
     }
 
     @Transactional
@@ -136,6 +134,7 @@ public class ProcessService {
             p.getData().setStatus(ProcessStatus.NEEDS_REVISION);
             p.getData().setRevisionText(revisionText);
         });
+        dashboardService.updateProcesses(convert(processes, Process::getId));
 
         String lastModifiedBy = processes.get(0).getLastModifiedBy();
         changeStampToIdent(lastModifiedBy)
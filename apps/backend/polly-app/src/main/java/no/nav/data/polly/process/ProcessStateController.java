@@ -13,6 +13,8 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import no.nav.data.common.exceptions.ValidationException;
+import no.nav.data.common.jpa.Keyset;
+import no.nav.data.common.rest.CursorParameters;
 import no.nav.data.common.rest.RestResponsePage;
 import no.nav.data.integration.nom.NomGraphClient;
 import no.nav.data.polly.process.domain.Process;
@@ -44,7 +46,7 @@ public class ProcessStateController {
     @Operation(summary = "Get Process for state")
     @ApiResponse(description = "Process fetched")
     @GetMapping
-    public RestResponsePage<ProcessShortResponse> getProcesses(ProcessStateRequest request) {
+    public RestResponsePage<ProcessShortResponse> getProcesses(ProcessStateRequest request, CursorParameters cursorParameters) {
         request.validateFieldsAndThrow();
         if (request.getDepartment() != null && nomGraphClient.getAvdelingById(request.getDepartment()).isEmpty()) {
             throw new ValidationException("Invalid department id: " + request.getDepartment());
@@ -56,9 +58,11 @@ public class ProcessStateController {
         if (request.getProductAreaId() != null) {
             teamIds = convert(teamService.getTeamsForProductArea(request.getProductAreaId()), Team::getId);
         }
+        Keyset keyset = cursorParameters.createKeyset();
         List<Process> processes = processRepository.findForState(
-                new StateDbRequest(request.getProcessField(), request.getProcessState(), request.getDepartment(), request.getSeksjonId(), teamIds, request.getProcessStatus().processStatus));
-        return new RestResponsePage<>(convert(processes, Process::convertToShortResponse));
+                new StateDbRequest(request.getProcessField(), request.getProcessState(), request.getDepartment(), request.getSeksjonId(), teamIds, request.getProcessStatus().processStatus),
+                keyset);
+        return RestResponsePage.ofKeyset(processes, keyset, p -> p.getData().getNumber()).convert(Process::convertToShortResponse);
     }
 
     static class ProcessShortPage extends RestResponsePage<ProcessShortResponse> {
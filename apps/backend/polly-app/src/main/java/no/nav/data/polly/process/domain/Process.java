@@ -4,6 +4,9 @@ import io.hypersistence.utils.hibernate.type.json.JsonBinaryType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import jakarta.validation.Valid;
@@ -31,6 +34,7 @@ import no.nav.data.polly.process.dto.sub.AffiliationResponse;
 import no.nav.data.polly.process.dto.sub.AiUsageDescriptionRequest;
 import no.nav.data.polly.process.dto.sub.DataProcessingRequest;
 import no.nav.data.polly.process.dto.sub.DataProcessingResponse;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Type;
 
 import java.util.HashSet;
@@ -52,8 +56,17 @@ import static no.nav.data.polly.process.domain.sub.Retention.convertRetention;
 @NoArgsConstructor
 @Entity
 @Table(name = "PROCESS")
+@BatchSize(size = 100)
+@NamedEntityGraph(name = Process.GRAPH_POLICIES,
+        attributeNodes = @NamedAttributeNode(value = "policies", subgraph = "policy"),
+        subgraphs = @NamedSubgraph(name = "policy", attributeNodes = @NamedAttributeNode("informationType")))
 public class Process extends Auditable {
 
+    /**
+     * Process with policies and their information types, everything needed by {@link #convertToResponseWithPolicies()} in one statement
+     */
+    public static final String GRAPH_POLICIES = "Process.policies";
+
     @Id
     @Column(name = "PROCESS_ID")
     private UUID id;
@@ -66,6 +79,7 @@ public class Process extends Auditable {
     private ProcessData data = new ProcessData();
 
     @Builder.Default
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "process")
     private Set<Policy> policies = new HashSet<>();
 
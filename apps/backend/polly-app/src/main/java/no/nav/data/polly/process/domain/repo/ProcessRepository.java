@@ -6,6 +6,7 @@ import java.util.UUID;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -16,6 +17,10 @@ import no.nav.data.polly.process.domain.Process;
 @Repository
 public interface ProcessRepository extends JpaRepository<Process, UUID>, ProcessRepositoryCustom {
 
+    @EntityGraph(Process.GRAPH_POLICIES)
+    @Query("select p from Process p where p.id = ?1")
+    Optional<Process> findWithPoliciesById(UUID id);
+
     @Query(value = "select * from process where data #>> '{affiliation,nomDepartmentId}' = ?1 or (?1 = '' and (data #>> '{affiliation,nomDepartmentId}' is null ))", nativeQuery = true)
     List<Process> findByDepartment(String department);
 
@@ -25,8 +30,11 @@ public interface ProcessRepository extends JpaRepository<Process, UUID>, Process
     @Query(value = "select * from process where data ->> 'commonExternalProcessResponsible' = ?1", nativeQuery = true)
     List<Process> findByCommonExternalProcessResponsible(String thirdParty);
 
-    @Query(value = "select * from process where data -> 'number' = to_jsonb(?1)", nativeQuery = true)
-    Optional<Process> findByProcessNumber(Integer number);
+    /**
+     * Load the process with {@link #findWithPoliciesById}, entity graphs do not apply to native queries
+     */
+    @Query(value = "select cast(process_id as text) from process where process_number = ?1", nativeQuery = true)
+    Optional<UUID> findIdByProcessNumber(Integer number);
 
     @Query(value = "select * from process where data ->> 'number' like %?1%", nativeQuery = true)
     Optional<List<Process>> searchByProcessNumber(String number);
@@ -66,7 +74,7 @@ public interface ProcessRepository extends JpaRepository<Process, UUID>, Process
     @Query(value = "select cast(process_id as text) as id, last_modified_by as lastModifiedBy from process where process_id in ?1", nativeQuery = true)
     List<LastModified> getLastModifiedBy(List<UUID> ids);
 
-    @Query(value = "select * from process order by data -> 'number' desc",
+    @Query(value = "select * from process order by process_number desc",
             countQuery = "select count(1) from process", nativeQuery = true)
     Page<Process> findAllSortedByNumber(Pageable pageable);
 
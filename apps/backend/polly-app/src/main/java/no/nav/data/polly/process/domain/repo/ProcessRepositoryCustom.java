@@ -1,20 +1,37 @@
 package no.nav.data.polly.process.domain.repo;
 
+import no.nav.data.common.jpa.Keyset;
 import no.nav.data.polly.process.domain.Process;
 import no.nav.data.polly.process.dto.StateDbRequest;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+/**
+ * Finders taking a {@link Keyset} return processes ordered by process number, a null keyset returns all matching processes
+ */
 public interface ProcessRepositoryCustom {
 
     Optional<Process> findByNameAndPurposes(String name, List<String> purposes);
 
     List<Process> findByPurpose(String purpose);
 
+    List<Process> findByPurpose(String purpose, Keyset keyset);
+
+    /**
+     * @see no.nav.data.common.jpa.JsonbFinder#forEachChunk
+     */
+    void forEachChunkByPurpose(String purpose, Consumer<List<Process>> consumer);
+
+    long countByPurpose(String purpose);
+
     List<Process> findByProcessor(UUID processor);
 
+    List<Process> findByProcessor(UUID processor, Keyset keyset);
+
     List<Process> findByGDPRArticle(String gdpr);
 
     List<Process> findByNationalLaw(String nationalLaw);
@@ -25,12 +42,30 @@ public interface ProcessRepositoryCustom {
 
     List<Process> findByProductTeam(String productTeam);
 
+    List<Process> findByProductTeam(String productTeam, Keyset keyset);
+
     List<Process> findByProductTeams(List<String> productTeams);
 
+    List<Process> findByProductTeams(List<String> productTeams, Keyset keyset);
+
     List<Process> findBySeksjoner(List<String> seksjoner);
 
+    List<Process> findBySeksjoner(List<String> seksjoner, Keyset keyset);
+
     List<Process> findByDocumentId(UUID documentId);
 
+    List<Process> findByDocumentId(UUID documentId, Keyset keyset);
+
     List<Process> findForState(StateDbRequest stateDbRequest);
 
+    List<Process> findForState(StateDbRequest stateDbRequest, Keyset keyset);
+
+    List<Process> findByDepartment(String department, Keyset keyset);
+
+    List<Process> findByInformationTypeIds(Collection<UUID> informationTypeIds, Keyset keyset);
+
+    List<Process> findByIds(Collection<UUID> ids, Keyset keyset);
+
+    List<Process> findAll(Keyset keyset);
+
 }
@@ -1,149 +1,187 @@
 package no.nav.data.polly.process.domain.repo;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
-import org.springframework.context.annotation.Lazy;
-import org.springframework.dao.DataAccessException;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import lombok.extern.slf4j.Slf4j;
-import no.nav.data.common.utils.StreamUtils;
+import lombok.RequiredArgsConstructor;
+import no.nav.data.common.jpa.JsonbFinder;
+import no.nav.data.common.jpa.Keyset;
+import no.nav.data.common.utils.JsonUtils;
 import no.nav.data.polly.process.domain.Process;
 import no.nav.data.polly.process.dto.ProcessStateRequest.ProcessField;
 import no.nav.data.polly.process.dto.ProcessStateRequest.ProcessState;
 import no.nav.data.polly.process.dto.StateDbRequest;
 
-@Slf4j
+import static no.nav.data.common.jpa.RepoUtil.jsonArrayOf;
+import static no.nav.data.common.jpa.RepoUtil.jsonArraysOf;
+import static no.nav.data.common.utils.StreamUtils.convert;
+
 @Repository
+@RequiredArgsConstructor
 public class ProcessRepositoryImpl implements ProcessRepositoryCustom {
 
-    private final NamedParameterJdbcTemplate jdbcTemplate;
-    private final ProcessRepository processRepository;
+    /**
+     * Generated from data.number, see V1.39__process_number.sql
+     */
+    private static final String KEY_COLUMN = "process_number";
+    private static final String PURPOSE = "data #>'{purposes}' @> cast(:purpose as jsonb)";
 
-    public ProcessRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate, @Lazy ProcessRepository processRepository) {
-        this.jdbcTemplate = jdbcTemplate;
-        this.processRepository = processRepository;
-    }
+    private final JsonbFinder finder;
 
     @Override
     public Optional<Process> findByNameAndPurposes(String name, List<String> purposes) {
-        try {
-            UUID resp = jdbcTemplate.queryForObject(
-                    "select process_id from process where data #>'{purposes}' ??& array [ :purposes ] and jsonb_array_length(data #>'{purposes}') = :purposesLength and data ->> 'name' = :name",
-                    new MapSqlParameterSource()
-                            .addValue("purposes", purposes)
-                            .addValue("purposesLength", purposes.size())
-                            .addValue("name", name), UUID.class);
-            return processRepository.findById(resp);
-        } catch (DataAccessException e) {
-            log.trace("no process for name and purpose", e);
-            return Optional.empty();
-        }
+        return finder.findOne(Process.class,
+                "data #>'{purposes}' @> cast(:purposes as jsonb) and jsonb_array_length(data #>'{purposes}') = :purposesLength and data ->> 'name' = :name",
+                Map.of("purposes", JsonUtils.toJson(purposes),
+                        "purposesLength", purposes.size(),
+                        "name", name));
     }
 
     @Override
     public List<Process> findByPurpose(String purpose) {
-        var resp = jdbcTemplate.queryForList("select process_id from process where data #>'{purposes}' ?? :purpose",
-                new MapSqlParameterSource().addValue("purpose", purpose));
-        return getProcesses(resp);
+        return findByPurpose(purpose, null);
+    }
+
+    @Override
+    public List<Process> findByPurpose(String purpose, Keyset keyset) {
+        return find("data #>'{purposes}' @> cast(:purpose as jsonb)", Map.of("purpose", jsonArrayOf(purpose)), keyset);
+    }
+
+    @Override
+    public void forEachChunkByPurpose(String purpose, Consumer<List<Process>> consumer) {
+        finder.forEachChunk(Process.class, PURPOSE, Map.of("purpose", jsonArrayOf(purpose)), consumer);
+    }
+
+    @Override
+    public long countByPurpose(String purpose) {
+        return finder.count(Process.class, PURPOSE, Map.of("purpose", jsonArrayOf(purpose)));
     }
 
     @Override
     public List<Process> findByProcessor(UUID processor) {
-        var resp = jdbcTemplate.queryForList("select process_id from process where data #>'{dataProcessing,processors}' ?? :processor::text",
-                new MapSqlParameterSource().addValue("processor", processor));
-        return getProcesses(resp);
+        return findByProcessor(processor, null);
+    }
+
+    @Override
+    public List<Process> findByProcessor(UUID processor, Keyset keyset) {
+        return find("data #>'{dataProcessing,processors}' @> cast(:processor as jsonb)", Map.of("processor", jsonArrayOf(processor)), keyset);
     }
 
     @Override
     public List<Process> findByGDPRArticle(String gdpr) {
-        var resp = jdbcTemplate.queryForList("select process_id from process where data #>'{legalBases}' @> :gdpr::jsonb",
-                new MapSqlParameterSource().addValue("gdpr", String.format("[{\"gdpr\": \"%s\"}]", gdpr)));
-        return getProcesses(resp);
+        return finder.find(Process.class, "data #>'{legalBases}' @> cast(:gdpr as jsonb)", "gdpr", jsonArrayOf(Map.of("gdpr", gdpr)));
     }
 
     @Override
     public List<Process> findByNationalLaw(String nationalLaw) {
-        var resp = jdbcTemplate.queryForList("select process_id from process where data #>'{legalBases}' @> :nationalLaw::jsonb",
-                new MapSqlParameterSource().addValue("nationalLaw", String.format("[{\"nationalLaw\": \"%s\"}]", nationalLaw)));
-        return getProcesses(resp);
+        return finder.find(Process.class, "data #>'{legalBases}' @> cast(:nationalLaw as jsonb)", "nationalLaw", jsonArrayOf(Map.of("nationalLaw", nationalLaw)));
     }
 
     @Override
     public List<Process> findByProduct(String product) {
-        var resp = jdbcTemplate.queryForList("select process_id from process where data #>'{affiliation,products}' ?? :product",
-                new MapSqlParameterSource().addValue("product", product));
-        return getProcesses(resp);
+        return finder.find(Process.class, "data #>'{affiliation,products}' @> cast(:product as jsonb)", "product", jsonArrayOf(product));
     }
 
     @Override
     public List<Process> findBySubDepartment(String subDepartment) {
-        var resp = jdbcTemplate.queryForList("select process_id from process where data #>'{affiliation,subDepartments}' ?? :subDepartment",
-                new MapSqlParameterSource().addValue("subDepartment", subDepartment));
-        return getProcesses(resp);
+        return finder.find(Process.class, "data #>'{affiliation,subDepartments}' @> cast(:subDepartment as jsonb)", "subDepartment", jsonArrayOf(subDepartment));
     }
 
     @Override
     public List<Process> findByProductTeam(String productTeam) {
-        var resp = jdbcTemplate.queryForList("select process_id from process where data #>'{affiliation,productTeams}' ?? :productTeam",
-                new MapSqlParameterSource().addValue("productTeam", productTeam));
-        return getProcesses(resp);
+        return findByProductTeam(productTeam, null);
+    }
+
+    @Override
+    public List<Process> findByProductTeam(String productTeam, Keyset keyset) {
+        return find("data #>'{affiliation,productTeams}' @> cast(:productTeam as jsonb)", Map.of("productTeam", jsonArrayOf(productTeam)), keyset);
     }
 
     @Override
     public List<Process> findByProductTeams(List<String> productTeams) {
+        return findByProductTeams(productTeams, null);
+    }
+
+    @Override
+    public List<Process> findByProductTeams(List<String> productTeams, Keyset keyset) {
         if (productTeams.isEmpty()) {
             return List.of();
         }
-        var resp = jdbcTemplate.queryForList("select process_id from process where data #>'{affiliation,productTeams}' ??| array[ :productTeams ]",
-                new MapSqlParameterSource().addValue("productTeams", productTeams));
-        return getProcesses(resp);
+        return find("data #>'{affiliation,productTeams}' @> any(cast(array[ :productTeams ] as jsonb[]))", Map.of("productTeams", jsonArraysOf(productTeams)), keyset);
     }
 
     @Override
     public List<Process> findBySeksjoner(List<String> seksjoner) {
+        return findBySeksjoner(seksjoner, null);
+    }
+
+    @Override
+    public List<Process> findBySeksjoner(List<String> seksjoner, Keyset keyset) {
         if (seksjoner.isEmpty()) {
             return List.of();
         }
-        var resp = jdbcTemplate.queryForList(
-                "SELECT process_id FROM process " +
-                        "WHERE jsonb_typeof(data #>'{affiliation,seksjoner}') = 'array' " +
-                        "AND EXISTS (" +
-                        "  SELECT 1 FROM jsonb_array_elements(data #>'{affiliation,seksjoner}') AS seksjonList " +
-                        "  WHERE seksjonList->>'nomSeksjonId' IN (:seksjoner)" +
-                        ")",
-                new MapSqlParameterSource().addValue("seksjoner", seksjoner)
-        );
-
-        return getProcesses(resp);
+        return find("data #>'{affiliation,seksjoner}' @> any(cast(array[ :seksjoner ] as jsonb[]))",
+                Map.of("seksjoner", jsonArraysOf(convert(seksjoner, s -> Map.of("nomSeksjonId", s)))), keyset);
     }
 
     @Override
     public List<Process> findByDocumentId(UUID documentId) {
-        var resp = jdbcTemplate.queryForList("select distinct(process_id) from policy where data #>'{documentIds}' ?? :documentId",
-                new MapSqlParameterSource().addValue("documentId", documentId.toString()));
-        return getProcesses(resp);
+        return findByDocumentId(documentId, null);
+    }
+
+    @Override
+    public List<Process> findByDocumentId(UUID documentId, Keyset keyset) {
+        return find("process_id in (select process_id from policy where data #>'{documentIds}' @> cast(:documentId as jsonb))",
+                Map.of("documentId", jsonArrayOf(documentId)), keyset);
+    }
+
+    @Override
+    public List<Process> findByDepartment(String department, Keyset keyset) {
+        return find("data #>> '{affiliation,nomDepartmentId}' = :department or (:department = '' and (data #>> '{affiliation,nomDepartmentId}' is null))",
+                Map.of("department", department), keyset);
+    }
+
+    @Override
+    public List<Process> findByInformationTypeIds(Collection<UUID> informationTypeIds, Keyset keyset) {
+        if (informationTypeIds.isEmpty()) {
+            return List.of();
+        }
+        return find("process_id in (select process_id from policy where information_type_id in (:informationTypeIds))",
+                Map.of("informationTypeIds", informationTypeIds), keyset);
+    }
+
+    @Override
+    public List<Process> findByIds(Collection<UUID> ids, Keyset keyset) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return find("process_id in (:ids)", Map.of("ids", ids), keyset);
+    }
+
+    @Override
+    public List<Process> findAll(Keyset keyset) {
+        return find("true", Map.of(), keyset);
     }
 
     @Override
     public List<Process> findForState(StateDbRequest stateDbRequest) {
-        List<Map<String, Object>> resp = queryForState(stateDbRequest);
-        return getProcesses(resp);
+        return findForState(stateDbRequest, null);
     }
 
-    private List<Map<String, Object>> queryForState(StateDbRequest stateDbRequest) {
+    @Override
+    public List<Process> findForState(StateDbRequest stateDbRequest, Keyset keyset) {
         var alertQuery = """
-                     process_id in ( 
-                     select cast(data ->> 'processId' as uuid) 
-                     from generic_storage 
-                     where type = 'ALERT_EVENT' 
-                       and data ->> 'type' = '%s' 
+                     process_id in (
+                     select process_id
+                     from alert_event
+                     where type = '%s'
                  )
                 """;
         String query;
@@ -153,26 +191,28 @@ public class ProcessRepositoryImpl implements ProcessRepositoryCustom {
             query = stateQuery(stateDbRequest.getProcessField(), stateDbRequest.getProcessState());
         }
 
-        var sql = "select distinct(process_id) from process where " + query;
-
         Map<String, Object> params = new HashMap<>();
         if (stateDbRequest.getDepartment() != null) {
-            sql += " and data #>> '{affiliation,nomDepartmentId}' = :department";
+            query += " and data #>> '{affiliation,nomDepartmentId}' = :department";
             params.put("department", stateDbRequest.getDepartment());
         }
         if (stateDbRequest.getSeksjonId() != null) {
-            sql += " and data #> '{affiliation,seksjoner}' @> cast(:seksjonFilter as jsonb)";
-            params.put("seksjonFilter", "[{\"nomSeksjonId\":\"" + stateDbRequest.getSeksjonId() + "\"}]");
+            query += " and data #> '{affiliation,seksjoner}' @> cast(:seksjonFilter as jsonb)";
+            params.put("seksjonFilter", jsonArrayOf(Map.of("nomSeksjonId", stateDbRequest.getSeksjonId())));
         }
         if (stateDbRequest.getTeamIds() != null) {
-            sql += " and data #> '{affiliation,productTeams}' ??| array[ :productTeams ]";
-            params.put("productTeams", stateDbRequest.getTeamIds());
+            query += " and data #> '{affiliation,productTeams}' @> any(cast(array[ :productTeams ] as jsonb[]))";
+            params.put("productTeams", jsonArraysOf(stateDbRequest.getTeamIds()));
         }
         if (stateDbRequest.getStatus() != null) {
-            sql += " and data ->> 'status' = :status";
+            query += " and data ->> 'status' = :status";
             params.put("status", stateDbRequest.getStatus().name());
         }
-        return jdbcTemplate.queryForList(sql, params);
+        return find(query, params, keyset);
+    }
+
+    private List<Process> find(String condition, Map<String, ?> params, Keyset keyset) {
+        return finder.find(Process.class, condition, params, KEY_COLUMN, keyset);
     }
 
     private String stateQuery(ProcessField processField, ProcessState processState) {
@@ -193,21 +233,17 @@ public class ProcessRepositoryImpl implements ProcessRepositoryCustom {
             // UNKNOWN counts empty, YES/NO doesnt make sense and will always return false
             case DPIA_REFERENCE_MISSING -> {
                 processState = ProcessState.UNKNOWN;
-                yield " data #> '{dpia,needForDpia}' = 'true'::jsonb and data #> '{dpia,refToDpia}' %s ";
+                yield " data #> '{dpia,needForDpia}' = cast('true' as jsonb) and data #> '{dpia,refToDpia}' %s ";
             }
             default -> throw new IllegalArgumentException("invalid field for stateQuery " + processField);
         };
 
         var equate = switch (processState) {
-            case YES -> " = 'true'::jsonb";
-            case NO -> " = 'false'::jsonb";
+            case YES -> " = cast('true' as jsonb)";
+            case NO -> " = cast('false' as jsonb)";
             // '->> 0' forces jsonb null to sql null, also helps on array length lookups
             case UNKNOWN -> " ->> 0 is null ";
         };
         return "(" + loc.formatted(equate) + ")";
     }
-
-    private List<Process> getProcesses(List<Map<String, Object>> resp) {
-        return processRepository.findAllById(StreamUtils.convert(resp, i -> (UUID) i.values().iterator().next()));
-    }
 }
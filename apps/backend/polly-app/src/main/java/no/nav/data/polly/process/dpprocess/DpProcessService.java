@@ -1,6 +1,7 @@
 package no.nav.data.polly.process.dpprocess;
 
 import lombok.RequiredArgsConstructor;
+import no.nav.data.polly.dashboard.DashboardService;
 import no.nav.data.polly.process.dpprocess.domain.DpProcess;
 import no.nav.data.polly.process.dpprocess.domain.repo.DpProcessRepository;
 import no.nav.data.polly.process.dpprocess.dto.DpProcessRequest;
@@ -14,10 +15,13 @@ import java.util.UUID;
 public class DpProcessService {
 
     private final DpProcessRepository repository;
+    private final DashboardService dashboardService;
 
     @Transactional
     public DpProcess save(DpProcess process) {
-        return repository.save(process);
+        var saved = repository.save(process);
+        dashboardService.updateDpProcess(saved.getId());
+        return saved;
     }
 
     @Transactional
@@ -30,6 +34,7 @@ public class DpProcessService {
     @Transactional
     public void deleteById(UUID uuid) {
         repository.deleteById(uuid);
+        dashboardService.updateDpProcess(uuid);
     }
 
 }
@@ -1,46 +1,34 @@
 package no.nav.data.polly.process.dpprocess.domain.repo;
 
+import lombok.RequiredArgsConstructor;
+import no.nav.data.common.jpa.JsonbFinder;
 import no.nav.data.polly.process.dpprocess.domain.DpProcess;
-import org.springframework.context.annotation.Lazy;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.stream.Collectors;
+
+import static no.nav.data.common.jpa.RepoUtil.jsonArrayOf;
+import static no.nav.data.common.jpa.RepoUtil.jsonArraysOf;
 
 @Repository
+@RequiredArgsConstructor
 public class DpProcessRepositoryImpl implements DpProcessRepositoryCustom {
 
-    private final NamedParameterJdbcTemplate jdbcTemplate;
-    private final DpProcessRepository processRepository;
-
-    public DpProcessRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate, @Lazy DpProcessRepository processRepository) {
-        this.jdbcTemplate = jdbcTemplate;
-        this.processRepository = processRepository;
-    }
+    private final JsonbFinder finder;
 
     @Override
     public List<DpProcess> findByProduct(String product) {
-        var resp = jdbcTemplate.queryForList("select dp_process_id from dp_process where data #>'{affiliation,products}' ?? :product",
-                new MapSqlParameterSource().addValue("product", product));
-        return getDpProcesses(resp);
+        return finder.find(DpProcess.class, "data #>'{affiliation,products}' @> cast(:product as jsonb)", "product", jsonArrayOf(product));
     }
 
     @Override
     public List<DpProcess> findBySubDepartment(String subDepartment) {
-        var resp = jdbcTemplate.queryForList("select dp_process_id from dp_process where data #>'{affiliation,subDepartments}' ?? :subDepartment",
-                new MapSqlParameterSource().addValue("subDepartment", subDepartment));
-        return getDpProcesses(resp);
+        return finder.find(DpProcess.class, "data #>'{affiliation,subDepartments}' @> cast(:subDepartment as jsonb)", "subDepartment", jsonArrayOf(subDepartment));
     }
 
     @Override
     public List<DpProcess> findByProductTeam(String productTeam) {
-        var resp = jdbcTemplate.queryForList("select dp_process_id from dp_process where data #>'{affiliation,productTeams}' ?? :productTeam",
-                new MapSqlParameterSource().addValue("productTeam", productTeam));
-        return getDpProcesses(resp);
+        return finder.find(DpProcess.class, "data #>'{affiliation,productTeams}' @> cast(:productTeam as jsonb)", "productTeam", jsonArrayOf(productTeam));
     }
 
     @Override
@@ -48,13 +36,7 @@ public class DpProcessRepositoryImpl implements DpProcessRepositoryCustom {
         if (productTeams.isEmpty()) {
             return List.of();
         }
-        var resp = jdbcTemplate.queryForList("select dp_process_id from dp_process where data #>'{affiliation,productTeams}' ??| array[ :productTeams ]",
-                new MapSqlParameterSource().addValue("productTeams", productTeams));
-        return getDpProcesses(resp);
-    }
-
-    private List<DpProcess> getDpProcesses(List<Map<String, Object>> resp) {
-        List<UUID> ids = resp.stream().map(i -> ((UUID) i.values().iterator().next())).collect(Collectors.toList());
-        return processRepository.findAllById(ids);
+        return finder.find(DpProcess.class, "data #>'{affiliation,productTeams}' @> any(cast(array[ :productTeams ] as jsonb[]))",
+                "productTeams", jsonArraysOf(productTeams));
     }
 }
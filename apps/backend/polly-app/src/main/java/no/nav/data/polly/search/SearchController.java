@@ -0,0 +1,50 @@
+package no.nav.data.polly.search;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.exceptions.ValidationException;
+import no.nav.data.common.rest.RestResponsePage;
+import no.nav.data.polly.search.dto.SearchResultResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.EnumSet;
+import java.util.List;
+
+@Slf4j
+@RestController
+@Tag(name = "Search")
+@RequiredArgsConstructor
+@RequestMapping("/search")
+public class SearchController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final SearchRepository repository;
+
+    @Operation(summary = "Search processes, dp-processes, information types, disclosures, documents and processors")
+    @ApiResponse(description = "Results fetched, grouped by type and ranked within each type")
+    @GetMapping
+    public ResponseEntity<RestResponsePage<SearchResultResponse>> search(@RequestParam String term,
+            @RequestParam(required = false) List<SearchType> type,
+            @RequestParam(defaultValue = "10") int limit) {
+        log.info("Received request for search term={} type={} limit={}", term, type, limit);
+        if (term.length() < 3) {
+            throw new ValidationException("Search term must be at least 3 characters");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ValidationException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        var types = type == null || type.isEmpty() ? EnumSet.allOf(SearchType.class) : EnumSet.copyOf(type);
+        return ResponseEntity.ok(new RestResponsePage<>(repository.search(term, types, limit)));
+    }
+
+    static class SearchPage extends RestResponsePage<SearchResultResponse> {
+    }
+}
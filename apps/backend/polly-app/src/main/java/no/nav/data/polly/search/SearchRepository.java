@@ -0,0 +1,80 @@
+package no.nav.data.polly.search;
+
+import lombok.RequiredArgsConstructor;
+import no.nav.data.polly.search.dto.SearchResultResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.joining;
+
+@Repository
+@RequiredArgsConstructor
+public class SearchRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Searches all types in a single statement, with a ranked and limited subquery per type.
+     * Within a type, rows where the term occurs earlier come first as with {@link no.nav.data.common.utils.StartsWithComparator},
+     * then rows more similar to the term, then by name.
+     * <p>
+     * Processes are also matched on number when the term is digits, optionally prefixed with B, as in /process/search.
+     */
+    public List<SearchResultResponse> search(String term, Collection<SearchType> types, int limit) {
+        String processNumber = processNumber(term);
+        var params = new MapSqlParameterSource()
+                .addValue("term", term)
+                .addValue("pattern", "%" + escapeLike(term) + "%")
+                .addValue("numberPattern", processNumber == null ? null : "%" + processNumber + "%")
+                .addValue("limit", limit);
+        String sql = "select * from (" + types.stream().map(type -> query(type, processNumber != null)).collect(joining(" union all ")) + ") results"
+                + " order by type_order, rank";
+        return jdbcTemplate.query(sql, params, SearchRepository::toResult);
+    }
+
+    private static String query(SearchType type, boolean byNumber) {
+        String match = type.getMatchColumn();
+        String condition = match + " ilike :pattern";
+        if (type == SearchType.PROCESS && byNumber) {
+            condition += " or data ->> 'number' like :numberPattern";
+        }
+        String rank = "nullif(strpos(lower(%1$s), lower(:term)), 0) nulls last, similarity(%1$s, :term) desc, lower(data ->> 'name')".formatted(match);
+        return """
+                (select '%1$s' as type, %2$d as type_order, row_number() over (order by %3$s) as rank,
+                        cast(%4$s as text) as id, data ->> 'name' as name, cast(data ->> 'number' as integer) as number, similarity(%5$s, :term) as score
+                 from %6$s
+                 where %7$s
+                 order by %3$s
+                 limit :limit)
+                """.formatted(type.name(), type.ordinal(), rank, type.getIdColumn(), match, type.getTable(), condition);
+    }
+
+    private static String processNumber(String term) {
+        if (term.toLowerCase().matches("b[0-9]+")) {
+            return term.substring(1);
+        }
+        return StringUtils.isNumeric(term) ? term : null;
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static SearchResultResponse toResult(ResultSet rs, int rowNum) throws SQLException {
+        return SearchResultResponse.builder()
+                .type(SearchType.valueOf(rs.getString("type")))
+                .id(UUID.fromString(rs.getString("id")))
+                .name(rs.getString("name"))
+                .number(rs.getObject("number", Integer.class))
+                .score(rs.getDouble("score"))
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package no.nav.data.polly.search;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Searchable tables, <code>matchColumn</code> is the expression covered by the trigram indexes in V1.40__trigram_indexes.sql
+ */
+@Getter
+@RequiredArgsConstructor
+public enum SearchType {
+
+    PROCESS("process", "process_id", "data ->> 'name'"),
+    DP_PROCESS("dp_process", "dp_process_id", "data ->> 'name'"),
+    INFORMATION_TYPE("information_type", "information_type_id", "data ->> 'suggest'"),
+    DISCLOSURE("disclosure", "disclosure_id", "data ->> 'name'"),
+    DOCUMENT("document", "document_id", "data ->> 'name'"),
+    PROCESSOR("processor", "processor_id", "data ->> 'name'");
+
+    private final String table;
+    private final String idColumn;
+    private final String matchColumn;
+
+}
@@ -0,0 +1,28 @@
+package no.nav.data.polly.search.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import no.nav.data.polly.search.SearchType;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonPropertyOrder({"type", "id", "name", "number", "score"})
+public class SearchResultResponse {
+
+    private SearchType type;
+    private UUID id;
+    private String name;
+    @JsonInclude(Include.NON_NULL)
+    private Integer number;
+    private double score;
+
+}
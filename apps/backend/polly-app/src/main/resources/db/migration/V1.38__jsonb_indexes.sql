@@ -0,0 +1,42 @@
+-- Containment (@>) lookups on json arrays, see *RepositoryImpl
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_PURPOSES ON PROCESS USING GIN ((DATA #> '{purposes}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_PRODUCTS ON PROCESS USING GIN ((DATA #> '{affiliation,products}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_SUB_DEPARTMENTS ON PROCESS USING GIN ((DATA #> '{affiliation,subDepartments}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_PRODUCT_TEAMS ON PROCESS USING GIN ((DATA #> '{affiliation,productTeams}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_SEKSJONER ON PROCESS USING GIN ((DATA #> '{affiliation,seksjoner}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_PROCESSORS ON PROCESS USING GIN ((DATA #> '{dataProcessing,processors}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_LEGAL_BASES ON PROCESS USING GIN ((DATA #> '{legalBases}') jsonb_path_ops);
+
+CREATE INDEX IF NOT EXISTS POLICY_IDX_PURPOSES ON POLICY USING GIN ((DATA #> '{purposes}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS POLICY_IDX_SUBJECT_CATEGORIES ON POLICY USING GIN ((DATA #> '{subjectCategories}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS POLICY_IDX_LEGAL_BASES ON POLICY USING GIN ((DATA #> '{legalBases}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS POLICY_IDX_DOCUMENT_IDS ON POLICY USING GIN ((DATA #> '{documentIds}') jsonb_path_ops);
+
+CREATE INDEX IF NOT EXISTS DP_PROCESS_IDX_PRODUCTS ON DP_PROCESS USING GIN ((DATA #> '{affiliation,products}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS DP_PROCESS_IDX_SUB_DEPARTMENTS ON DP_PROCESS USING GIN ((DATA #> '{affiliation,subDepartments}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS DP_PROCESS_IDX_PRODUCT_TEAMS ON DP_PROCESS USING GIN ((DATA #> '{affiliation,productTeams}') jsonb_path_ops);
+
+CREATE INDEX IF NOT EXISTS INFORMATION_TYPE_IDX_CATEGORIES ON INFORMATION_TYPE USING GIN ((DATA #> '{categories}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS INFORMATION_TYPE_IDX_SOURCES ON INFORMATION_TYPE USING GIN ((DATA #> '{sources}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS INFORMATION_TYPE_IDX_PRODUCT_TEAMS ON INFORMATION_TYPE USING GIN ((DATA #> '{productTeams}') jsonb_path_ops);
+
+CREATE INDEX IF NOT EXISTS DISCLOSURE_IDX_LEGAL_BASES ON DISCLOSURE USING GIN ((DATA #> '{legalBases}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS DISCLOSURE_IDX_PROCESS_IDS ON DISCLOSURE USING GIN ((DATA #> '{processIds}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS DISCLOSURE_IDX_INFORMATION_TYPE_IDS ON DISCLOSURE USING GIN ((DATA #> '{informationTypeIds}') jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS DISCLOSURE_IDX_PRODUCT_TEAMS ON DISCLOSURE USING GIN ((DATA #> '{productTeams}') jsonb_path_ops);
+
+CREATE INDEX IF NOT EXISTS DOCUMENT_IDX_INFORMATION_TYPES ON DOCUMENT USING GIN ((DATA #> '{informationTypes}') jsonb_path_ops);
+
+-- Equality lookups on scalar values
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_NOM_DEPARTMENT ON PROCESS ((DATA #>> '{affiliation,nomDepartmentId}'));
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_COMMON_EXT_RESPONSIBLE ON PROCESS ((DATA ->> 'commonExternalProcessResponsible'));
+CREATE INDEX IF NOT EXISTS DP_PROCESS_IDX_NOM_DEPARTMENT ON DP_PROCESS ((DATA #>> '{affiliation,nomDepartmentId}'));
+CREATE INDEX IF NOT EXISTS INFORMATION_TYPE_IDX_SENSITIVITY ON INFORMATION_TYPE ((DATA ->> 'sensitivity'));
+CREATE INDEX IF NOT EXISTS INFORMATION_TYPE_IDX_ORG_MASTER ON INFORMATION_TYPE ((DATA ->> 'orgMaster'));
+CREATE INDEX IF NOT EXISTS DISCLOSURE_IDX_NOM_DEPARTMENT ON DISCLOSURE ((DATA ->> 'nomDepartmentId'));
+CREATE INDEX IF NOT EXISTS DISCLOSURE_IDX_RECIPIENT ON DISCLOSURE ((DATA #>> '{recipient}'));
+CREATE INDEX IF NOT EXISTS DISCLOSURE_IDX_DOCUMENT_ID ON DISCLOSURE ((DATA ->> 'documentId'));
+
+-- Foreign keys
+CREATE INDEX IF NOT EXISTS POLICY_IDX_PROCESS_ID ON POLICY (PROCESS_ID);
+CREATE INDEX IF NOT EXISTS POLICY_IDX_INFORMATION_TYPE_ID ON POLICY (INFORMATION_TYPE_ID);
@@ -0,0 +1,3 @@
+-- Keyset pagination of process listings, see ProcessRepositoryImpl
+ALTER TABLE PROCESS ADD COLUMN IF NOT EXISTS PROCESS_NUMBER INTEGER GENERATED ALWAYS AS (CAST(DATA ->> 'number' AS INTEGER)) STORED;
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_PROCESS_NUMBER ON PROCESS (PROCESS_NUMBER);
@@ -0,0 +1,10 @@
+CREATE EXTENSION IF NOT EXISTS PG_TRGM;
+
+-- Substring (ilike '%term%') and similarity lookups, see SearchRepository and the *Repository search finders
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_NAME_TRGM ON PROCESS USING GIN ((DATA ->> 'name') gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS PROCESS_IDX_NUMBER_TRGM ON PROCESS USING GIN ((DATA ->> 'number') gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS DP_PROCESS_IDX_NAME_TRGM ON DP_PROCESS USING GIN ((DATA ->> 'name') gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS INFORMATION_TYPE_IDX_SUGGEST_TRGM ON INFORMATION_TYPE USING GIN ((DATA ->> 'suggest') gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS DISCLOSURE_IDX_NAME_TRGM ON DISCLOSURE USING GIN ((DATA ->> 'name') gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS DOCUMENT_IDX_NAME_TRGM ON DOCUMENT USING GIN ((DATA ->> 'name') gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS PROCESSOR_IDX_NAME_TRGM ON PROCESSOR USING GIN ((DATA ->> 'name') gin_trgm_ops);
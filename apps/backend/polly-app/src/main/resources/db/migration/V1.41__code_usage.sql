@@ -0,0 +1,122 @@
+-- Inverted index of codelist usage, see CodeUsageRepository
+CREATE TABLE IF NOT EXISTS CODE_USAGE
+(
+    LIST_NAME  TEXT NOT NULL,
+    CODE       TEXT NOT NULL,
+    TABLE_NAME TEXT NOT NULL,
+    ID         UUID NOT NULL,
+    PRIMARY KEY (LIST_NAME, CODE, TABLE_NAME, ID)
+);
+
+CREATE INDEX IF NOT EXISTS CODE_USAGE_IDX_TABLE_ID ON CODE_USAGE (TABLE_NAME, ID);
+
+CREATE OR REPLACE FUNCTION CODE_USAGE_ELEMENTS(ARR JSONB) RETURNS SETOF JSONB
+    LANGUAGE SQL IMMUTABLE AS
+$$
+SELECT JSONB_ARRAY_ELEMENTS(CASE WHEN JSONB_TYPEOF(ARR) = 'array' THEN ARR ELSE CAST('[]' AS JSONB) END)
+$$;
+
+-- Codes used by each row, must match the finders used by CodeUsageService before this index
+CREATE OR REPLACE VIEW CODE_USAGE_SOURCE AS
+SELECT DISTINCT LIST_NAME, CODE, TABLE_NAME, ID
+FROM (
+         SELECT 'PURPOSE' AS LIST_NAME, E #>> '{}' AS CODE, 'PROCESS' AS TABLE_NAME, PROCESS_ID AS ID FROM PROCESS, CODE_USAGE_ELEMENTS(DATA #> '{purposes}') E
+         UNION ALL
+         SELECT 'DEPARTMENT', COALESCE(DATA #>> '{affiliation,nomDepartmentId}', ''), 'PROCESS', PROCESS_ID FROM PROCESS
+         UNION ALL
+         SELECT 'SUB_DEPARTMENT', E #>> '{}', 'PROCESS', PROCESS_ID FROM PROCESS, CODE_USAGE_ELEMENTS(DATA #> '{affiliation,subDepartments}') E
+         UNION ALL
+         SELECT 'GDPR_ARTICLE', E ->> 'gdpr', 'PROCESS', PROCESS_ID FROM PROCESS, CODE_USAGE_ELEMENTS(DATA #> '{legalBases}') E
+         UNION ALL
+         SELECT 'NATIONAL_LAW', E ->> 'nationalLaw', 'PROCESS', PROCESS_ID FROM PROCESS, CODE_USAGE_ELEMENTS(DATA #> '{legalBases}') E
+         UNION ALL
+         SELECT 'SYSTEM', E #>> '{}', 'PROCESS', PROCESS_ID FROM PROCESS, CODE_USAGE_ELEMENTS(DATA #> '{affiliation,products}') E
+         UNION ALL
+         SELECT 'THIRD_PARTY', DATA ->> 'commonExternalProcessResponsible', 'PROCESS', PROCESS_ID FROM PROCESS
+
+         UNION ALL
+         SELECT 'DEPARTMENT', DATA #>> '{affiliation,nomDepartmentId}', 'DP_PROCESS', DP_PROCESS_ID FROM DP_PROCESS
+         UNION ALL
+         SELECT 'SUB_DEPARTMENT', E #>> '{}', 'DP_PROCESS', DP_PROCESS_ID FROM DP_PROCESS, CODE_USAGE_ELEMENTS(DATA #> '{affiliation,subDepartments}') E
+         UNION ALL
+         SELECT 'SYSTEM', E #>> '{}', 'DP_PROCESS', DP_PROCESS_ID FROM DP_PROCESS, CODE_USAGE_ELEMENTS(DATA #> '{affiliation,products}') E
+         UNION ALL
+         SELECT 'THIRD_PARTY', DATA ->> 'externalProcessResponsible', 'DP_PROCESS', DP_PROCESS_ID FROM DP_PROCESS
+
+         UNION ALL
+         SELECT 'PURPOSE', E #>> '{}', 'POLICY', POLICY_ID FROM POLICY, CODE_USAGE_ELEMENTS(DATA #> '{purposes}') E
+         UNION ALL
+         SELECT 'SUBJECT_CATEGORY', E #>> '{}', 'POLICY', POLICY_ID FROM POLICY, CODE_USAGE_ELEMENTS(DATA #> '{subjectCategories}') E
+         UNION ALL
+         SELECT 'GDPR_ARTICLE', E ->> 'gdpr', 'POLICY', POLICY_ID FROM POLICY, CODE_USAGE_ELEMENTS(DATA #> '{legalBases}') E
+         UNION ALL
+         SELECT 'NATIONAL_LAW', E ->> 'nationalLaw', 'POLICY', POLICY_ID FROM POLICY, CODE_USAGE_ELEMENTS(DATA #> '{legalBases}') E
+
+         UNION ALL
+         SELECT 'SENSITIVITY', DATA ->> 'sensitivity', 'INFORMATION_TYPE', INFORMATION_TYPE_ID FROM INFORMATION_TYPE
+         UNION ALL
+         SELECT 'SYSTEM', DATA ->> 'orgMaster', 'INFORMATION_TYPE', INFORMATION_TYPE_ID FROM INFORMATION_TYPE
+         UNION ALL
+         SELECT 'CATEGORY', E #>> '{}', 'INFORMATION_TYPE', INFORMATION_TYPE_ID FROM INFORMATION_TYPE, CODE_USAGE_ELEMENTS(DATA #> '{categories}') E
+         UNION ALL
+         SELECT 'THIRD_PARTY', E #>> '{}', 'INFORMATION_TYPE', INFORMATION_TYPE_ID FROM INFORMATION_TYPE, CODE_USAGE_ELEMENTS(DATA #> '{sources}') E
+
+         UNION ALL
+         SELECT 'GDPR_ARTICLE', E ->> 'gdpr', 'DISCLOSURE', DISCLOSURE_ID FROM DISCLOSURE, CODE_USAGE_ELEMENTS(DATA #> '{legalBases}') E
+         UNION ALL
+         SELECT 'NATIONAL_LAW', E ->> 'nationalLaw', 'DISCLOSURE', DISCLOSURE_ID FROM DISCLOSURE, CODE_USAGE_ELEMENTS(DATA #> '{legalBases}') E
+         UNION ALL
+         SELECT 'DEPARTMENT', DATA ->> 'nomDepartmentId', 'DISCLOSURE', DISCLOSURE_ID FROM DISCLOSURE
+         UNION ALL
+         SELECT 'THIRD_PARTY', DATA #>> '{recipient}', 'DISCLOSURE', DISCLOSURE_ID FROM DISCLOSURE
+
+         UNION ALL
+         SELECT 'SUBJECT_CATEGORY', E #>> '{}', 'DOCUMENT', DOCUMENT_ID
+         FROM DOCUMENT, CODE_USAGE_ELEMENTS(DATA #> '{informationTypes}') IT, CODE_USAGE_ELEMENTS(IT -> 'subjectCategories') E
+         UNION ALL
+         SELECT 'DATA_ACCESS_CLASS', DATA ->> 'dataAccessClass', 'DOCUMENT', DOCUMENT_ID FROM DOCUMENT
+
+         UNION ALL
+         SELECT 'TRANSFER_GROUNDS_OUTSIDE_EU', DATA ->> 'transferGroundsOutsideEU', 'PROCESSOR', PROCESSOR_ID FROM PROCESSOR
+     ) USAGE
+WHERE CODE IS NOT NULL;
+
+-- Keeps the index up to date on every write, whether through the services, dirty checking or bulk updates
+CREATE OR REPLACE FUNCTION CODE_USAGE_REFRESH() RETURNS TRIGGER
+    LANGUAGE PLPGSQL AS
+$$
+DECLARE
+    ROW_ID UUID;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        ROW_ID := CAST(TO_JSONB(OLD) ->> TG_ARGV[0] AS UUID);
+    ELSE
+        ROW_ID := CAST(TO_JSONB(NEW) ->> TG_ARGV[0] AS UUID);
+    END IF;
+    DELETE FROM CODE_USAGE WHERE TABLE_NAME = UPPER(TG_TABLE_NAME) AND ID = ROW_ID;
+    IF TG_OP <> 'DELETE' THEN
+        INSERT INTO CODE_USAGE (LIST_NAME, CODE, TABLE_NAME, ID)
+        SELECT LIST_NAME, CODE, TABLE_NAME, ID FROM CODE_USAGE_SOURCE WHERE TABLE_NAME = UPPER(TG_TABLE_NAME) AND ID = ROW_ID;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER PROCESS_CODE_USAGE AFTER INSERT OR UPDATE OF DATA OR DELETE ON PROCESS
+    FOR EACH ROW EXECUTE FUNCTION CODE_USAGE_REFRESH('process_id');
+CREATE TRIGGER DP_PROCESS_CODE_USAGE AFTER INSERT OR UPDATE OF DATA OR DELETE ON DP_PROCESS
+    FOR EACH ROW EXECUTE FUNCTION CODE_USAGE_REFRESH('dp_process_id');
+CREATE TRIGGER POLICY_CODE_USAGE AFTER INSERT OR UPDATE OF DATA OR DELETE ON POLICY
+    FOR EACH ROW EXECUTE FUNCTION CODE_USAGE_REFRESH('policy_id');
+CREATE TRIGGER INFORMATION_TYPE_CODE_USAGE AFTER INSERT OR UPDATE OF DATA OR DELETE ON INFORMATION_TYPE
+    FOR EACH ROW EXECUTE FUNCTION CODE_USAGE_REFRESH('information_type_id');
+CREATE TRIGGER DISCLOSURE_CODE_USAGE AFTER INSERT OR UPDATE OF DATA OR DELETE ON DISCLOSURE
+    FOR EACH ROW EXECUTE FUNCTION CODE_USAGE_REFRESH('disclosure_id');
+CREATE TRIGGER DOCUMENT_CODE_USAGE AFTER INSERT OR UPDATE OF DATA OR DELETE ON DOCUMENT
+    FOR EACH ROW EXECUTE FUNCTION CODE_USAGE_REFRESH('document_id');
+CREATE TRIGGER PROCESSOR_CODE_USAGE AFTER INSERT OR UPDATE OF DATA OR DELETE ON PROCESSOR
+    FOR EACH ROW EXECUTE FUNCTION CODE_USAGE_REFRESH('processor_id');
+
+INSERT INTO CODE_USAGE (LIST_NAME, CODE, TABLE_NAME, ID)
+SELECT LIST_NAME, CODE, TABLE_NAME, ID FROM CODE_USAGE_SOURCE
+ON CONFLICT DO NOTHING;
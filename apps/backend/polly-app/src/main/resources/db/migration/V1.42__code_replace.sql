@@ -0,0 +1,34 @@
+-- Set based code replacement, see CodeReplaceRepository. Values outside of arrays, or paths that do not exist, are left as they are
+
+-- Replaces array elements equal to OLD_CODE at PATH
+CREATE OR REPLACE FUNCTION CODE_REPLACE_ARRAY(DOC JSONB, PATH TEXT[], OLD_CODE TEXT, NEW_CODE TEXT) RETURNS JSONB
+    LANGUAGE SQL IMMUTABLE AS
+$$
+SELECT CASE
+           WHEN JSONB_TYPEOF(DOC #> PATH) = 'array' THEN
+               JSONB_SET(DOC, PATH, COALESCE((SELECT JSONB_AGG(CASE WHEN E = TO_JSONB(OLD_CODE) THEN TO_JSONB(NEW_CODE) ELSE E END ORDER BY I)
+                                              FROM JSONB_ARRAY_ELEMENTS(DOC #> PATH) WITH ORDINALITY AS T(E, I)), CAST('[]' AS JSONB)))
+           ELSE DOC END
+$$;
+
+-- Sets FIELD to NEW_CODE on objects in the array at PATH where FIELD is OLD_CODE
+CREATE OR REPLACE FUNCTION CODE_REPLACE_FIELD(DOC JSONB, PATH TEXT[], FIELD TEXT, OLD_CODE TEXT, NEW_CODE TEXT) RETURNS JSONB
+    LANGUAGE SQL IMMUTABLE AS
+$$
+SELECT CASE
+           WHEN JSONB_TYPEOF(DOC #> PATH) = 'array' THEN
+               JSONB_SET(DOC, PATH, COALESCE((SELECT JSONB_AGG(CASE WHEN E ->> FIELD = OLD_CODE THEN JSONB_SET(E, ARRAY [FIELD], TO_JSONB(NEW_CODE)) ELSE E END ORDER BY I)
+                                              FROM JSONB_ARRAY_ELEMENTS(DOC #> PATH) WITH ORDINALITY AS T(E, I)), CAST('[]' AS JSONB)))
+           ELSE DOC END
+$$;
+
+-- Replaces elements equal to OLD_CODE in the array FIELD of each object in the array at PATH
+CREATE OR REPLACE FUNCTION CODE_REPLACE_NESTED_ARRAY(DOC JSONB, PATH TEXT[], FIELD TEXT, OLD_CODE TEXT, NEW_CODE TEXT) RETURNS JSONB
+    LANGUAGE SQL IMMUTABLE AS
+$$
+SELECT CASE
+           WHEN JSONB_TYPEOF(DOC #> PATH) = 'array' THEN
+               JSONB_SET(DOC, PATH, COALESCE((SELECT JSONB_AGG(CODE_REPLACE_ARRAY(E, ARRAY [FIELD], OLD_CODE, NEW_CODE) ORDER BY I)
+                                              FROM JSONB_ARRAY_ELEMENTS(DOC #> PATH) WITH ORDINALITY AS T(E, I)), CAST('[]' AS JSONB)))
+           ELSE DOC END
+$$;
@@ -0,0 +1,16 @@
+-- Signals pods to reload the changed list, see CodelistChangeListener
+CREATE OR REPLACE FUNCTION CODELIST_NOTIFY() RETURNS TRIGGER
+    LANGUAGE PLPGSQL AS
+$$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM PG_NOTIFY('codelist_changed', OLD.LIST_NAME);
+    ELSE
+        PERFORM PG_NOTIFY('codelist_changed', NEW.LIST_NAME);
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER CODELIST_CHANGED AFTER INSERT OR UPDATE OR DELETE ON CODELIST
+    FOR EACH ROW EXECUTE FUNCTION CODELIST_NOTIFY();
@@ -0,0 +1,20 @@
+-- Dashboard counters maintained by DashboardService as processes, dp-processes, disclosures and alert events change
+
+-- What each source row currently adds to the counters
+CREATE TABLE IF NOT EXISTS DASHBOARD_SOURCE
+(
+    ID   UUID PRIMARY KEY,
+    DATA JSONB NOT NULL
+);
+
+-- PROCESS_STATUS is empty for dp-processes and disclosures, which are counted regardless of the status filter
+CREATE TABLE IF NOT EXISTS DASHBOARD_COUNTER
+(
+    PROCESS_STATUS TEXT   NOT NULL,
+    DIMENSION      TEXT   NOT NULL,
+    DIMENSION_KEY  TEXT   NOT NULL,
+    COUNTER        TEXT   NOT NULL,
+    VALUE          BIGINT NOT NULL,
+    LABEL          TEXT,
+    PRIMARY KEY (PROCESS_STATUS, DIMENSION, DIMENSION_KEY, COUNTER)
+);
@@ -0,0 +1,103 @@
+-- Contribution of each process, dp-process and disclosure to the dashboard counters, derived in SQL. See DashboardCounterRepository.
+-- Must match the contributions calculated by DashboardService, which updates the counters as rows change.
+
+-- Tri-state counters of DashCount.Counter, a value that is missing or not a boolean is unknown
+CREATE OR REPLACE FUNCTION DASHBOARD_TRI_STATE(VAL JSONB) RETURNS TEXT
+    LANGUAGE SQL IMMUTABLE AS
+$$
+SELECT CASE WHEN VAL = 'true' THEN 'yes' WHEN VAL = 'false' THEN 'no' ELSE 'unknown' END
+$$;
+
+CREATE OR REPLACE FUNCTION DASHBOARD_IS_NULL(VAL JSONB) RETURNS BOOLEAN
+    LANGUAGE SQL IMMUTABLE AS
+$$
+SELECT COALESCE(JSONB_TYPEOF(VAL), 'null') = 'null'
+$$;
+
+-- Counters of each row, every counter counts one
+CREATE OR REPLACE VIEW DASHBOARD_SOURCE_COUNT AS
+SELECT P.PROCESS_ID AS ID, P.DATA ->> 'status' AS PROCESS_STATUS, C.COUNTER
+FROM PROCESS P
+         LEFT JOIN (SELECT DATA ->> 'processId'                           AS PROCESS_ID,
+                           BOOL_OR(DATA ->> 'type' = 'MISSING_LEGAL_BASIS') AS MISSING_LEGAL_BASIS,
+                           BOOL_OR(DATA ->> 'type' = 'MISSING_ARTICLE_6')   AS MISSING_ARTICLE_6,
+                           BOOL_OR(DATA ->> 'type' = 'MISSING_ARTICLE_9')   AS MISSING_ARTICLE_9
+                    FROM GENERIC_STORAGE
+                    WHERE TYPE = 'ALERT_EVENT'
+                    GROUP BY DATA ->> 'processId') A ON A.PROCESS_ID = CAST(P.PROCESS_ID AS TEXT)
+         CROSS JOIN LATERAL (VALUES ('processes', TRUE),
+                                    ('processesCompleted', P.DATA ->> 'status' = 'COMPLETED'),
+                                    ('processesInProgress', P.DATA ->> 'status' = 'IN_PROGRESS'),
+                                    ('processesNeedsRevision', P.DATA ->> 'status' = 'NEEDS_REVISION'),
+                                    ('processesUsingAllInfoTypes', P.DATA -> 'usesAllInformationTypes' = 'true'),
+                                    ('processesMissingLegalBases', COALESCE(A.MISSING_LEGAL_BASIS, FALSE)),
+                                    ('processesMissingArt6', COALESCE(A.MISSING_ARTICLE_6, FALSE)),
+                                    ('processesMissingArt9', COALESCE(A.MISSING_ARTICLE_9, FALSE)),
+                                    ('dpia.' || DASHBOARD_TRI_STATE(P.DATA #> '{dpia,needForDpia}'), TRUE),
+                                    ('dpiaReferenceMissing', P.DATA #> '{dpia,needForDpia}' = 'true' AND COALESCE(P.DATA #>> '{dpia,refToDpia}', '') !~ '\S'),
+                                    ('aiUsage.' || DASHBOARD_TRI_STATE(P.DATA #> '{aiUsageDescription,aiUsage}'), TRUE),
+                                    ('profiling.' || DASHBOARD_TRI_STATE(P.DATA -> 'profiling'), TRUE),
+                                    ('automation.' || DASHBOARD_TRI_STATE(P.DATA -> 'automaticProcessing'), TRUE),
+                                    ('retention.' || DASHBOARD_TRI_STATE(P.DATA #> '{retention,retentionPlan}'), TRUE),
+                                    ('retentionDataIncomplete', DASHBOARD_IS_NULL(P.DATA #> '{retention,retentionStart}') OR DASHBOARD_IS_NULL(P.DATA #> '{retention,retentionMonths}')),
+                                    ('dataProcessor.' || DASHBOARD_TRI_STATE(P.DATA #> '{dataProcessing,dataProcessor}'), TRUE),
+                                    ('commonExternalProcessResponsible', NOT DASHBOARD_IS_NULL(P.DATA -> 'commonExternalProcessResponsible'))
+    ) AS C(COUNTER, COUNTED)
+WHERE C.COUNTED
+UNION ALL
+SELECT DP_PROCESS_ID, '', 'dpProcesses'
+FROM DP_PROCESS
+UNION ALL
+SELECT D.DISCLOSURE_ID, '', C.COUNTER
+FROM DISCLOSURE D
+         CROSS JOIN LATERAL (VALUES ('disclosures', TRUE),
+                                    ('disclosuresIncomplete', (SELECT COUNT(*) FROM CODE_USAGE_ELEMENTS(D.DATA -> 'legalBases')) = 0)
+    ) AS C(COUNTER, COUNTED)
+WHERE C.COUNTED;
+
+-- Dimensions each row is counted for, in the order listed by DashboardService
+CREATE OR REPLACE VIEW DASHBOARD_SOURCE_DIMENSION AS
+SELECT S.ID, D.ORD, D.SUB, D.DIMENSION, D.DIMENSION_KEY, D.LABEL
+FROM (SELECT PROCESS_ID AS ID, DATA -> 'affiliation' AS AFFILIATION
+      FROM PROCESS
+      UNION ALL
+      SELECT DP_PROCESS_ID, DATA -> 'affiliation'
+      FROM DP_PROCESS) S
+         CROSS JOIN LATERAL (
+    SELECT 1 AS ORD, 0 AS SUB, 'ALL' AS DIMENSION, '' AS DIMENSION_KEY, CAST(NULL AS TEXT) AS LABEL
+    UNION ALL
+    SELECT 2, 0, 'DEPARTMENT', COALESCE(S.AFFILIATION ->> 'nomDepartmentId', ''), NULL
+    UNION ALL
+    SELECT 3, 0, 'NO_SEKSJON', S.AFFILIATION ->> 'nomDepartmentId', NULL
+    WHERE COALESCE(S.AFFILIATION ->> 'nomDepartmentId', '') <> ''
+      AND NOT EXISTS(SELECT 1 FROM CODE_USAGE_ELEMENTS(S.AFFILIATION -> 'seksjoner'))
+    UNION ALL
+    SELECT 4, CAST(E.I AS INT), 'SEKSJON', COALESCE(E.SEKSJON ->> 'nomSeksjonId', ''), E.SEKSJON ->> 'nomSeksjonName'
+    FROM CODE_USAGE_ELEMENTS(S.AFFILIATION -> 'seksjoner') WITH ORDINALITY AS E(SEKSJON, I)
+    UNION ALL
+    SELECT 5, CAST(T.I AS INT), 'TEAM', T.TEAM #>> '{}', NULL
+    FROM CODE_USAGE_ELEMENTS(S.AFFILIATION -> 'productTeams') WITH ORDINALITY AS T(TEAM, I)
+    WHERE JSONB_TYPEOF(T.TEAM) = 'string'
+    ) D
+UNION ALL
+SELECT DISCLOSURE_ID, 1, 0, 'ALL', '', NULL
+FROM DISCLOSURE;
+
+-- Same json as DashboardSource
+CREATE OR REPLACE VIEW DASHBOARD_SOURCE_DERIVED AS
+SELECT C.ID,
+       JSONB_BUILD_OBJECT('status', C.PROCESS_STATUS, 'dimensions', D.DIMENSIONS, 'counts', C.COUNTS) AS DATA
+FROM (SELECT ID, PROCESS_STATUS, JSONB_OBJECT_AGG(COUNTER, 1) AS COUNTS
+      FROM DASHBOARD_SOURCE_COUNT
+      GROUP BY ID, PROCESS_STATUS) C
+         JOIN (SELECT ID,
+                      JSONB_AGG(JSONB_BUILD_OBJECT('type', DIMENSION, 'key', DIMENSION_KEY, 'label', LABEL) ORDER BY ORD, SUB) AS DIMENSIONS
+               FROM DASHBOARD_SOURCE_DIMENSION
+               GROUP BY ID) D ON D.ID = C.ID;
+
+-- Counters as stored in DASHBOARD_COUNTER, a dimension listed twice for a row is counted twice
+CREATE OR REPLACE VIEW DASHBOARD_COUNTER_DERIVED AS
+SELECT C.PROCESS_STATUS, D.DIMENSION, D.DIMENSION_KEY, C.COUNTER, COUNT(*) AS VALUE, MAX(D.LABEL) AS LABEL
+FROM DASHBOARD_SOURCE_COUNT C
+         JOIN DASHBOARD_SOURCE_DIMENSION D ON D.ID = C.ID
+GROUP BY C.PROCESS_STATUS, D.DIMENSION, D.DIMENSION_KEY, C.COUNTER;
@@ -0,0 +1,80 @@
+-- Alert events, previously stored in GENERIC_STORAGE with type ALERT_EVENT. See AlertRepository.
+-- The ids are not foreign keys, events are removed by AlertService as the process, information type or disclosure is deleted.
+CREATE TABLE IF NOT EXISTS ALERT_EVENT
+(
+    ID                  UUID PRIMARY KEY,
+    PROCESS_ID          UUID,
+    INFORMATION_TYPE_ID UUID,
+    DISCLOSURE_ID       UUID,
+    TYPE                TEXT      NOT NULL,
+    LEVEL               TEXT      NOT NULL,
+    CREATED_BY          TEXT      NOT NULL,
+    CREATED_DATE        TIMESTAMP NOT NULL,
+    LAST_MODIFIED_BY    TEXT,
+    LAST_MODIFIED_DATE  TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS ALERT_EVENT_PROCESS_TYPE_IDX ON ALERT_EVENT (PROCESS_ID, TYPE);
+CREATE INDEX IF NOT EXISTS ALERT_EVENT_INFORMATION_TYPE_IDX ON ALERT_EVENT (INFORMATION_TYPE_ID);
+CREATE INDEX IF NOT EXISTS ALERT_EVENT_DISCLOSURE_IDX ON ALERT_EVENT (DISCLOSURE_ID);
+CREATE INDEX IF NOT EXISTS ALERT_EVENT_CREATED_DATE_IDX ON ALERT_EVENT (CREATED_DATE);
+
+INSERT INTO ALERT_EVENT (ID, PROCESS_ID, INFORMATION_TYPE_ID, DISCLOSURE_ID, TYPE, LEVEL, CREATED_BY, CREATED_DATE, LAST_MODIFIED_BY, LAST_MODIFIED_DATE)
+SELECT ID,
+       CAST(DATA ->> 'processId' AS UUID),
+       CAST(DATA ->> 'informationTypeId' AS UUID),
+       CAST(DATA ->> 'disclosureId' AS UUID),
+       DATA ->> 'type',
+       DATA ->> 'level',
+       CREATED_BY,
+       CREATED_DATE,
+       LAST_MODIFIED_BY,
+       LAST_MODIFIED_DATE
+FROM GENERIC_STORAGE
+WHERE TYPE = 'ALERT_EVENT'
+ON CONFLICT (ID) DO NOTHING;
+
+DELETE
+FROM GENERIC_STORAGE
+WHERE TYPE = 'ALERT_EVENT';
+
+-- Same counters as in V1.45, with alert events read from ALERT_EVENT
+CREATE OR REPLACE VIEW DASHBOARD_SOURCE_COUNT AS
+SELECT P.PROCESS_ID AS ID, P.DATA ->> 'status' AS PROCESS_STATUS, C.COUNTER
+FROM PROCESS P
+         LEFT JOIN (SELECT PROCESS_ID,
+                           BOOL_OR(TYPE = 'MISSING_LEGAL_BASIS') AS MISSING_LEGAL_BASIS,
+                           BOOL_OR(TYPE = 'MISSING_ARTICLE_6')   AS MISSING_ARTICLE_6,
+                           BOOL_OR(TYPE = 'MISSING_ARTICLE_9')   AS MISSING_ARTICLE_9
+                    FROM ALERT_EVENT
+                    WHERE PROCESS_ID IS NOT NULL
+                    GROUP BY PROCESS_ID) A ON A.PROCESS_ID = P.PROCESS_ID
+         CROSS JOIN LATERAL (VALUES ('processes', TRUE),
+                                    ('processesCompleted', P.DATA ->> 'status' = 'COMPLETED'),
+                                    ('processesInProgress', P.DATA ->> 'status' = 'IN_PROGRESS'),
+                                    ('processesNeedsRevision', P.DATA ->> 'status' = 'NEEDS_REVISION'),
+                                    ('processesUsingAllInfoTypes', P.DATA -> 'usesAllInformationTypes' = 'true'),
+                                    ('processesMissingLegalBases', COALESCE(A.MISSING_LEGAL_BASIS, FALSE)),
+                                    ('processesMissingArt6', COALESCE(A.MISSING_ARTICLE_6, FALSE)),
+                                    ('processesMissingArt9', COALESCE(A.MISSING_ARTICLE_9, FALSE)),
+                                    ('dpia.' || DASHBOARD_TRI_STATE(P.DATA #> '{dpia,needForDpia}'), TRUE),
+                                    ('dpiaReferenceMissing', P.DATA #> '{dpia,needForDpia}' = 'true' AND COALESCE(P.DATA #>> '{dpia,refToDpia}', '') !~ '\S'),
+                                    ('aiUsage.' || DASHBOARD_TRI_STATE(P.DATA #> '{aiUsageDescription,aiUsage}'), TRUE),
+                                    ('profiling.' || DASHBOARD_TRI_STATE(P.DATA -> 'profiling'), TRUE),
+                                    ('automation.' || DASHBOARD_TRI_STATE(P.DATA -> 'automaticProcessing'), TRUE),
+                                    ('retention.' || DASHBOARD_TRI_STATE(P.DATA #> '{retention,retentionPlan}'), TRUE),
+                                    ('retentionDataIncomplete', DASHBOARD_IS_NULL(P.DATA #> '{retention,retentionStart}') OR DASHBOARD_IS_NULL(P.DATA #> '{retention,retentionMonths}')),
+                                    ('dataProcessor.' || DASHBOARD_TRI_STATE(P.DATA #> '{dataProcessing,dataProcessor}'), TRUE),
+                                    ('commonExternalProcessResponsible', NOT DASHBOARD_IS_NULL(P.DATA -> 'commonExternalProcessResponsible'))
+    ) AS C(COUNTER, COUNTED)
+WHERE C.COUNTED
+UNION ALL
+SELECT DP_PROCESS_ID, '', 'dpProcesses'
+FROM DP_PROCESS
+UNION ALL
+SELECT D.DISCLOSURE_ID, '', C.COUNTER
+FROM DISCLOSURE D
+         CROSS JOIN LATERAL (VALUES ('disclosures', TRUE),
+                                    ('disclosuresIncomplete', (SELECT COUNT(*) FROM CODE_USAGE_ELEMENTS(D.DATA -> 'legalBases')) = 0)
+    ) AS C(COUNTER, COUNTED)
+WHERE C.COUNTED;
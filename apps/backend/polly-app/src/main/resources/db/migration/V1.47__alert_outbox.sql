@@ -0,0 +1,12 @@
+-- Entities waiting for alert recalculation, see AlertOutboxRepository.
+-- Marked in the transaction changing the entity, one row per entity however often it is marked.
+CREATE TABLE IF NOT EXISTS ALERT_OUTBOX
+(
+    TARGET_TYPE  TEXT      NOT NULL,
+    TARGET_ID    UUID      NOT NULL,
+    FIRST_MARKED TIMESTAMP NOT NULL,
+    LAST_MARKED  TIMESTAMP NOT NULL,
+    PRIMARY KEY (TARGET_TYPE, TARGET_ID)
+);
+
+CREATE INDEX IF NOT EXISTS ALERT_OUTBOX_FIRST_MARKED_IDX ON ALERT_OUTBOX (FIRST_MARKED);
@@ -0,0 +1,18 @@
+-- Checkpoints of the alert event backfill, see AlertBackfillRepository.
+-- Each entity type is split in ranges of ids, the backfill of a range continues after LAST_ID when restarted.
+CREATE TABLE IF NOT EXISTS ALERT_BACKFILL
+(
+    VERSION       INTEGER   NOT NULL,
+    TARGET_TYPE   TEXT      NOT NULL,
+    PARTITION     INTEGER   NOT NULL,
+    LOWER_ID      UUID      NOT NULL,
+    UPPER_ID      UUID,
+    LAST_ID       UUID,
+    PROCESSED     INTEGER   NOT NULL DEFAULT 0,
+    COMPLETED     BOOLEAN   NOT NULL DEFAULT FALSE,
+    CLAIMED_BY    TEXT,
+    CLAIMED_UNTIL TIMESTAMP,
+    CREATED_DATE  TIMESTAMP NOT NULL,
+    LAST_MODIFIED_DATE TIMESTAMP NOT NULL,
+    PRIMARY KEY (VERSION, TARGET_TYPE, PARTITION)
+);
@@ -0,0 +1,5 @@
+-- Alert events are paged by keyset on the sort value and id, see AlertRepository.findAlertsAfter.
+-- The time sort, with and without a type filter, seeks through these indexes instead of sorting all events.
+DROP INDEX IF EXISTS ALERT_EVENT_CREATED_DATE_IDX;
+CREATE INDEX IF NOT EXISTS ALERT_EVENT_CREATED_DATE_ID_IDX ON ALERT_EVENT (CREATED_DATE, ID);
+CREATE INDEX IF NOT EXISTS ALERT_EVENT_TYPE_CREATED_DATE_ID_IDX ON ALERT_EVENT (TYPE, CREATED_DATE, ID);
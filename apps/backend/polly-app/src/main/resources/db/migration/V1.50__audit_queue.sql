@@ -0,0 +1,13 @@
+-- Audit versions waiting to be moved to AUDIT_VERSION, written when polly.audit.mode=queue. See AuditBatchRepository.
+-- No indexes besides the key, so the business transaction only pays for the queue insert.
+CREATE TABLE IF NOT EXISTS AUDIT_QUEUE
+(
+    QUEUE_ID   BIGSERIAL PRIMARY KEY,
+    AUDIT_ID   UUID      NOT NULL,
+    ACTION     TEXT      NOT NULL,
+    TABLE_NAME TEXT      NOT NULL,
+    TABLE_ID   TEXT      NOT NULL,
+    TIME       TIMESTAMP NOT NULL,
+    USER_ID    TEXT      NOT NULL,
+    DATA       JSONB     NOT NULL
+);
@@ -0,0 +1,23 @@
+-- Audit versions are stored as JSON Patches from the previous version of the same table id, with the full data at checkpoints.
+-- See AuditDeltaService. This release rolls out while pods of the previous release still write audit versions, without VERSION and PATCH.
+-- Only the catalog is changed here, the ALTERs hold their exclusive lock for no longer than it takes to commit, and give up instead of queuing
+-- writers behind a long running transaction. The indexes are built concurrently by V1.54__audit_version_index.sql.
+-- VERSION stays nullable: existing versions, and versions written by old pods, are numbered in batches by the compaction in the background,
+-- which then turns them into patches. VERSION is made NOT NULL in a later release, once no version is left without it.
+SET LOCAL lock_timeout = '5s';
+
+ALTER TABLE AUDIT_VERSION ADD COLUMN IF NOT EXISTS VERSION INTEGER;
+ALTER TABLE AUDIT_VERSION ADD COLUMN IF NOT EXISTS PATCH JSONB;
+ALTER TABLE AUDIT_VERSION ALTER COLUMN DATA DROP NOT NULL;
+-- Existing rows all have data, the check is validated with NOT NULL on VERSION
+ALTER TABLE AUDIT_VERSION ADD CONSTRAINT AUDIT_VERSION_DATA_OR_PATCH CHECK ((DATA IS NULL) <> (PATCH IS NULL)) NOT VALID;
+
+ALTER TABLE AUDIT_QUEUE ADD COLUMN IF NOT EXISTS VERSION INTEGER;
+ALTER TABLE AUDIT_QUEUE ADD COLUMN IF NOT EXISTS PATCH JSONB;
+ALTER TABLE AUDIT_QUEUE ALTER COLUMN DATA DROP NOT NULL;
+
+-- Table ids with versions numbered but not yet compacted
+CREATE TABLE IF NOT EXISTS AUDIT_COMPACTION
+(
+    TABLE_ID TEXT PRIMARY KEY
+);
@@ -0,0 +1,15 @@
+-- Fills the dashboard counters from the views of V1.45__dashboard_source.sql, same as DashboardCounterRepository.rebuild.
+-- Without it the counters only hold the rows changed since V1.44__dashboard_counter.sql until the first reconcile.
+-- Writes from pods still running are held until the fill commits.
+LOCK TABLE DASHBOARD_SOURCE, DASHBOARD_COUNTER IN EXCLUSIVE MODE;
+
+DELETE FROM DASHBOARD_SOURCE;
+DELETE FROM DASHBOARD_COUNTER;
+
+INSERT INTO DASHBOARD_SOURCE (ID, DATA)
+SELECT ID, DATA
+FROM DASHBOARD_SOURCE_DERIVED;
+
+INSERT INTO DASHBOARD_COUNTER (PROCESS_STATUS, DIMENSION, DIMENSION_KEY, COUNTER, VALUE, LABEL)
+SELECT PROCESS_STATUS, DIMENSION, DIMENSION_KEY, COUNTER, VALUE, LABEL
+FROM DASHBOARD_COUNTER_DERIVED;
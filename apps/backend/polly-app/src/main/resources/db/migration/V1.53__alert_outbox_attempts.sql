@@ -0,0 +1,7 @@
+-- Failed recalculations of a marker, see AlertOutboxService. A marker failing polly.alert.outbox.max-attempts times is parked,
+-- it is left in the outbox but not claimed until the entity is marked again.
+ALTER TABLE ALERT_OUTBOX ADD COLUMN IF NOT EXISTS ATTEMPTS INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE ALERT_OUTBOX ADD COLUMN IF NOT EXISTS PARKED TIMESTAMP;
+
+DROP INDEX IF EXISTS ALERT_OUTBOX_FIRST_MARKED_IDX;
+CREATE INDEX IF NOT EXISTS ALERT_OUTBOX_FIRST_MARKED_IDX ON ALERT_OUTBOX (FIRST_MARKED) WHERE PARKED IS NULL;
@@ -0,0 +1,15 @@
+-- Indexes for V1.51__audit_delta.sql, built without blocking audit writes. Flyway runs this script outside a transaction, see the .conf file.
+-- A failed concurrent build leaves an invalid index behind, so each index is dropped first and the script can be run again after a repair.
+
+DROP INDEX CONCURRENTLY IF EXISTS AUDIT_VERSION_TABLE_ID_VERSION;
+-- Versions without a number are not unique, NULLs are distinct
+CREATE UNIQUE INDEX CONCURRENTLY AUDIT_VERSION_TABLE_ID_VERSION ON AUDIT_VERSION (TABLE_ID, VERSION);
+-- Versions left to number, the index shrinks as they are numbered and is dropped with NOT NULL on VERSION
+DROP INDEX CONCURRENTLY IF EXISTS AUDIT_VERSION_UNNUMBERED;
+CREATE INDEX CONCURRENTLY AUDIT_VERSION_UNNUMBERED ON AUDIT_VERSION (TABLE_ID) WHERE VERSION IS NULL;
+-- Replaced by AUDIT_VERSION_TABLE_ID_VERSION
+DROP INDEX CONCURRENTLY IF EXISTS AUDIT_VERSION_TABLE_ID;
+
+-- The previous version of a table id may still be queued when the next is written
+DROP INDEX CONCURRENTLY IF EXISTS AUDIT_QUEUE_TABLE_ID;
+CREATE INDEX CONCURRENTLY AUDIT_QUEUE_TABLE_ID ON AUDIT_QUEUE (TABLE_ID);
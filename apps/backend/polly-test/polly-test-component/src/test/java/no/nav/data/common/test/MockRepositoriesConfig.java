@@ -4,6 +4,8 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.metamodel.Metamodel;
+import no.nav.data.common.auditing.domain.AuditBatchRepository;
+import no.nav.data.common.auditing.domain.AuditDeltaRepository;
 import no.nav.data.common.auditing.domain.AuditVersionRepository;
 import no.nav.data.common.auditing.domain.MailLogRepository;
 import no.nav.data.common.mail.EmailServiceImpl;
@@ -12,6 +14,7 @@ import no.nav.data.common.security.azure.AADStatelessAuthenticationFilter;
 import no.nav.data.common.security.domain.AuthRepository;
 import no.nav.data.common.storage.StorageService;
 import no.nav.data.common.storage.domain.GenericStorageRepository;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository;
 import no.nav.data.polly.alert.domain.AlertRepository;
 import no.nav.data.polly.codelist.CodelistRepository;
 import no.nav.data.polly.disclosure.domain.DisclosureRepository;
@@ -53,10 +56,13 @@ public class MockRepositoriesConfig {
     @Bean @Primary public CodelistRepository codelistRepository() { return mock(CodelistRepository.class); }
     @Bean @Primary public GenericStorageRepository genericStorageRepository() { return mock(GenericStorageRepository.class); }
     @Bean @Primary public AuditVersionRepository auditVersionRepository() { return mock(AuditVersionRepository.class); }
+    @Bean @Primary public AuditBatchRepository auditBatchRepository() { return mock(AuditBatchRepository.class); }
+    @Bean @Primary public AuditDeltaRepository auditDeltaRepository() { return mock(AuditDeltaRepository.class); }
     @Bean @Primary public MailLogRepository mailLogRepository() { return mock(MailLogRepository.class); }
     @Bean @Primary public AuthRepository authRepository() { return mock(AuthRepository.class); }
     @Bean @Primary public AuthService authService() { return mock(AuthService.class); }
     @Bean @Primary public AlertRepository alertRepository() { return mock(AlertRepository.class); }
+    @Bean @Primary public AlertOutboxRepository alertOutboxRepository() { return mock(AlertOutboxRepository.class); }
     @Bean @Primary public DisclosureRepository disclosureRepository() { return mock(DisclosureRepository.class); }
     @Bean @Primary public DocumentRepository documentRepository() { return mock(DocumentRepository.class); }
     @Bean @Primary public InformationTypeRepository informationTypeRepository() { return mock(InformationTypeRepository.class); }
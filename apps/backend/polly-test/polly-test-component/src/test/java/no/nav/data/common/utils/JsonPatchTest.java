@@ -0,0 +1,61 @@
+package no.nav.data.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonPatchTest {
+
+    @Test
+    void diffAndApply() {
+        var source = JsonUtils.toJsonNode("""
+                {"id": "1", "data": {"name": "before", "removed": true, "list": ["a", "b"], "grown": [1], "nested": {"a/b": 1, "c~d": 2}}}""");
+        var target = JsonUtils.toJsonNode("""
+                {"id": "1", "data": {"name": "after", "list": ["a", "c"], "grown": [1, 2], "nested": {"a/b": 3, "c~d": 2}, "added": null}}""");
+
+        var patch = JsonPatch.diff(source, target);
+
+        assertThat(JsonUtils.toJson(patch)).isEqualTo("""
+                [{"op":"replace","path":"/data/name","value":"after"},\
+                {"op":"remove","path":"/data/removed"},\
+                {"op":"replace","path":"/data/list/1","value":"c"},\
+                {"op":"replace","path":"/data/grown","value":[1,2]},\
+                {"op":"replace","path":"/data/nested/a~1b","value":3},\
+                {"op":"add","path":"/data/added","value":null}]""");
+        assertThat(JsonPatch.apply(source, patch)).isEqualTo(target);
+        assertThat(source.at("/data/name").textValue()).isEqualTo("before");
+    }
+
+    @Test
+    void equalDocumentsHaveEmptyPatch() {
+        var document = JsonUtils.toJsonNode("{\"a\": [1, {\"b\": 2}]}");
+
+        assertThat(JsonPatch.diff(document, document.deepCopy())).isEmpty();
+    }
+
+    @Test
+    void replaceRoot() {
+        var source = JsonUtils.toJsonNode("{\"a\": 1}");
+        var target = JsonUtils.toJsonNode("[1]");
+
+        assertThat(JsonPatch.apply(source, JsonPatch.diff(source, target))).isEqualTo(target);
+    }
+
+    @Test
+    void applyArrayOperations() {
+        var document = JsonUtils.toJsonNode("{\"list\": [\"a\", \"c\"]}");
+        var patch = JsonUtils.toJsonNode("""
+                [{"op": "add", "path": "/list/1", "value": "b"}, {"op": "add", "path": "/list/-", "value": "d"}, {"op": "remove", "path": "/list/0"}]""");
+
+        assertThat(JsonPatch.apply(document, patch)).isEqualTo(JsonUtils.toJsonNode("{\"list\": [\"b\", \"c\", \"d\"]}"));
+    }
+
+    @Test
+    void invalidPath() {
+        var document = JsonUtils.toJsonNode("{\"a\": 1}");
+
+        assertThrows(IllegalArgumentException.class, () -> JsonPatch.apply(document, JsonUtils.toJsonNode("[{\"op\": \"remove\", \"path\": \"/b\"}]")));
+        assertThrows(IllegalArgumentException.class, () -> JsonPatch.apply(document, JsonUtils.toJsonNode("[{\"op\": \"move\", \"path\": \"/a\"}]")));
+    }
+}
@@ -2,8 +2,13 @@ package no.nav.data.common.utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
 import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
 
 class StreamUtilsTest {
 
@@ -15,4 +20,34 @@ class StreamUtilsTest {
         assertEquals(asList("a", "c"), difference.getShared());
         assertEquals(asList("e", "f"), difference.getAdded());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testDifferenceByKey() {
+        CollectionDifference<String> difference = StreamUtils.differenceByKey(asList("a1", "b1", "c1", "d1", "a2"), asList("a3", "c3", "e3", "f3", "e4"), s -> s.charAt(0));
+
+        assertEquals(asList("b1", "d1", "a2"), difference.getRemoved());
+        assertEquals(asList("a3", "c3"), difference.getShared());
+        assertEquals(asList("e3", "f3"), difference.getAdded());
+    }
+
+    /**
+     * Same difference as the comparator based difference, and linear in the size of the collections
+     */
+    @Test
+    void testDifferenceByKeyLargeCollections() {
+        List<Integer> before = IntStream.range(0, 2_000).boxed().toList();
+        List<Integer> after = IntStream.range(1_000, 3_000).boxed().toList();
+        var expected = StreamUtils.difference(before, after);
+        var actual = StreamUtils.differenceByKey(before, after, i -> i);
+        assertEquals(expected.getRemoved(), actual.getRemoved());
+        assertEquals(expected.getShared(), actual.getShared());
+        assertEquals(expected.getAdded(), actual.getAdded());
+
+        List<Integer> largeBefore = IntStream.range(0, 200_000).boxed().toList();
+        List<Integer> largeAfter = IntStream.range(100_000, 300_000).boxed().toList();
+        var largeDifference = assertTimeout(Duration.ofSeconds(5), () -> StreamUtils.differenceByKey(largeBefore, largeAfter, i -> i));
+        assertEquals(100_000, largeDifference.getRemoved().size());
+        assertEquals(100_000, largeDifference.getShared().size());
+        assertEquals(100_000, largeDifference.getAdded().size());
+    }
+}
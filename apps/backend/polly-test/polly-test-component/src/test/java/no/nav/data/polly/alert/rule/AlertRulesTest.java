@@ -0,0 +1,68 @@
+package no.nav.data.polly.alert.rule;
+
+import no.nav.data.polly.alert.dto.PolicyAlert;
+import no.nav.data.polly.alert.rule.AlertSnapshot.DisclosureFacts;
+import no.nav.data.polly.alert.rule.AlertSnapshot.PolicyFacts;
+import no.nav.data.polly.alert.rule.AlertSnapshot.ProcessFacts;
+import no.nav.data.polly.policy.domain.LegalBasesUse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class AlertRulesTest {
+
+    private final UUID informationTypeId = randomUUID();
+    private final UUID specialInformationTypeId = randomUUID();
+    private final Set<UUID> specialCategory = Set.of(specialInformationTypeId);
+
+    @Test
+    void policyAlerts() {
+        var unresolved = new PolicyFacts(randomUUID(), informationTypeId, LegalBasesUse.UNRESOLVED, false, false);
+        var excess = new PolicyFacts(randomUUID(), specialInformationTypeId, LegalBasesUse.EXCESS_INFO, false, false);
+        var noArt6 = new PolicyFacts(randomUUID(), informationTypeId, LegalBasesUse.DEDICATED_LEGAL_BASES, false, false);
+        var specialNoArt9 = new PolicyFacts(randomUUID(), specialInformationTypeId, LegalBasesUse.DEDICATED_LEGAL_BASES, true, false);
+        var ok = new PolicyFacts(randomUUID(), specialInformationTypeId, LegalBasesUse.DEDICATED_LEGAL_BASES, true, true);
+        var process = new ProcessFacts(randomUUID(), false, false, false, List.of(unresolved, excess, noArt6, specialNoArt9, ok));
+
+        var alert = AlertRules.checkProcess(process, specialCategory);
+
+        assertThat(alert.isUsesAllInformationTypes()).isFalse();
+        assertThat(alert.getPolicies())
+                .extracting(PolicyAlert::getPolicyId, PolicyAlert::isMissingLegalBasis, PolicyAlert::isExcessInfo, PolicyAlert::isMissingArt6, PolicyAlert::isMissingArt9)
+                .containsExactly(
+                        tuple(unresolved.id(), true, false, false, false),
+                        tuple(excess.id(), false, true, false, false),
+                        tuple(noArt6.id(), false, false, true, false),
+                        tuple(specialNoArt9.id(), false, false, false, true)
+                );
+    }
+
+    @Test
+    void processLegalBasesCoverPolicies() {
+        var inherited = new PolicyFacts(randomUUID(), specialInformationTypeId, LegalBasesUse.INHERITED_FROM_PROCESS, false, false);
+        var process = new ProcessFacts(randomUUID(), true, true, true, List.of(inherited));
+
+        var alert = AlertRules.checkProcess(process, specialCategory);
+
+        assertThat(alert.isUsesAllInformationTypes()).isTrue();
+        assertThat(alert.getPolicies()).isEmpty();
+    }
+
+    @Test
+    void disclosureAlerts() {
+        assertThat(AlertRules.checkDisclosure(new DisclosureFacts(randomUUID(), false)).isMissingArt6()).isTrue();
+        assertThat(AlertRules.checkDisclosure(new DisclosureFacts(randomUUID(), true)).isMissingArt6()).isFalse();
+    }
+
+    @Test
+    void rulesDescribeTheirConditions() {
+        assertThat(AlertRules.POLICY_RULES.get(2))
+                .hasToString("MISSING_ARTICLE_6 when not legal bases unresolved and not legal bases excess info and not article 6 on policy or process");
+    }
+}
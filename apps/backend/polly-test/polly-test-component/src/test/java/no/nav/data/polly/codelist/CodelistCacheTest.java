@@ -0,0 +1,54 @@
+package no.nav.data.polly.codelist;
+
+import no.nav.data.polly.codelist.domain.ListName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static no.nav.data.polly.codelist.CodelistUtils.createCodelist;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CodelistCacheTest {
+
+    @BeforeEach
+    void setUp() {
+        CodelistStub.initializeCodelist();
+    }
+
+    @Test
+    void readersKeepTheirSnapshot() {
+        var purposes = CodelistCache.getCodelist(ListName.PURPOSE);
+        var all = CodelistCache.getAll();
+        long version = CodelistCache.version();
+
+        CodelistCache.setAll(List.of(createCodelist(ListName.PURPOSE, "NEW_PURPOSE"), createCodelist(ListName.CATEGORY, "NEW_CATEGORY")));
+        CodelistCache.remove(ListName.PURPOSE, "AAP");
+
+        assertThat(purposes).extracting("code").containsExactlyInAnyOrder("KONTROLL", "AAP");
+        assertThat(all).hasSize(CodelistCache.getAll().size() - 1);
+        assertThat(CodelistCache.getCodelist(ListName.PURPOSE)).extracting("code").containsExactlyInAnyOrder("KONTROLL", "NEW_PURPOSE");
+        assertThat(CodelistCache.contains(ListName.CATEGORY, "NEW_CATEGORY")).isTrue();
+        assertThat(CodelistCache.version()).isEqualTo(version + 2);
+    }
+
+    @Test
+    void unchangedListsAndResponsesAreShared() {
+        var thirdParties = CodelistCache.getCodelist(ListName.THIRD_PARTY);
+        var response = CodelistStaticService.getCodelistResponse(ListName.PURPOSE, "KONTROLL");
+
+        CodelistCache.set(createCodelist(ListName.CATEGORY, "NEW_CATEGORY"));
+
+        assertThat(CodelistCache.getCodelist(ListName.THIRD_PARTY)).isSameAs(thirdParties);
+        assertThat(CodelistStaticService.getCodelistResponse(ListName.PURPOSE, "KONTROLL")).isSameAs(response);
+        assertThat(response.getShortName()).isEqualTo("Kontroll");
+    }
+
+    @Test
+    void unknownCode() {
+        var response = CodelistStaticService.getCodelistResponse(ListName.PURPOSE, "UNKNOWN");
+        assertThat(response.getCode()).isEqualTo("UNKNOWN");
+        assertThat(response.isInvalidCode()).isTrue();
+        assertThat(CodelistCache.getCodelist(ListName.PURPOSE, null)).isNull();
+    }
+}
@@ -19,6 +19,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -29,9 +30,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static no.nav.data.polly.codelist.CodelistUtils.createCodelist;
 import static no.nav.data.polly.codelist.CodelistUtils.createCodelistRequest;
@@ -84,6 +87,28 @@ class CodelistControllerTest {
             assertThat(returnedCodelist.getCodelist().get(ListName.CATEGORY).size()).isEqualTo(CodelistStaticService.getCodelist(ListName.CATEGORY).size());
         }
 
+        @Test
+        void findAll_shouldAnswerNotModifiedForETag() throws Exception {
+            String etag = mvc.perform(get("/codelist")).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            mvc.perform(get("/codelist").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+
+            CodelistCache.set(createCodelist(ListName.THIRD_PARTY, "NEW_CODE"));
+            mvc.perform(get("/codelist").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isOk());
+        }
+
+        @Test
+        void findAll_shouldGzip() throws Exception {
+            MockHttpServletResponse plain = mvc.perform(get("/codelist")).andReturn().getResponse();
+            MockHttpServletResponse gzipped = mvc.perform(get("/codelist").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")).andReturn().getResponse();
+
+            assertThat(gzipped.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+            assertThat(gzipped.getHeader(HttpHeaders.ETAG)).isNotEqualTo(plain.getHeader(HttpHeaders.ETAG));
+            try (var in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+                assertThat(in.readAllBytes()).isEqualTo(plain.getContentAsByteArray());
+            }
+        }
+
         @Test
         void getByListName_shouldReturnCodelist() throws Exception {
             String uri = "/codelist/THIRD_PARTY";
@@ -1,5 +1,6 @@
 package no.nav.data.polly.informationtype;
 
+import no.nav.data.polly.alert.AlertOutboxService;
 import no.nav.data.polly.codelist.CodelistStub;
 import no.nav.data.polly.informationtype.domain.InformationType;
 import no.nav.data.polly.informationtype.dto.InformationTypeRequest;
@@ -30,6 +31,10 @@ class InformationTypeServiceTest {
     private InformationTypeRepository informationTypeRepository;
     @Mock
     private TermService termService;
+    @Mock
+    private InformationTypeSuggestIndex suggestIndex;
+    @Mock
+    private AlertOutboxService alertOutboxService;
 
     @InjectMocks
     private InformationTypeService service;
@@ -46,6 +51,7 @@ class InformationTypeServiceTest {
 
         service.saveAll(List.of(request));
         verify(informationTypeRepository, times(1)).saveAll(anyList());
+        verify(alertOutboxService, times(1)).markInformationTypes(anyList());
     }
 
     @Test
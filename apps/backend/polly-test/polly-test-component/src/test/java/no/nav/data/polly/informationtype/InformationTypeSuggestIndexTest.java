@@ -0,0 +1,83 @@
+package no.nav.data.polly.informationtype;
+
+import no.nav.data.polly.informationtype.domain.InformationType;
+import no.nav.data.polly.informationtype.domain.InformationTypeData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import static java.util.Comparator.comparing;
+import static no.nav.data.common.utils.StartsWithComparator.startsWith;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class InformationTypeSuggestIndexTest {
+
+    @Mock
+    private InformationTypeRepository repository;
+
+    private final Map<UUID, String> suggests = new LinkedHashMap<>();
+    private InformationTypeSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        suggests.put(UUID.randomUUID(), "Sivilstand  Opplysning om sivilstand");
+        suggests.put(UUID.randomUUID(), "Arbeidsforhold arbeid Stand på arbeidsforhold");
+        suggests.put(UUID.randomUUID(), "Standardsats sats ");
+        suggests.put(UUID.randomUUID(), "Adresse  Bostedsadresse");
+        suggests.put(UUID.randomUUID(), "STANDARD  ");
+        doAnswer(inv -> {
+            BiConsumer<UUID, String> consumer = inv.getArgument(0);
+            suggests.forEach(consumer);
+            return null;
+        }).when(repository).forEachSuggest(any());
+
+        index = new InformationTypeSuggestIndex(repository);
+        index.rebuild();
+    }
+
+    @Test
+    void searchRanksLikeStartsWithComparator() {
+        for (String term : List.of("stand", "STA", "adresse", "sats", "arb", "d p")) {
+            assertThat(index.search(term)).as(term).isEqualTo(expected(term));
+        }
+    }
+
+    @Test
+    void searchWithoutMatch() {
+        assertThat(index.search("xyz")).isEmpty();
+    }
+
+    @Test
+    void putAndRemove() {
+        var informationType = InformationType.builder().generateId().data(InformationTypeData.builder().suggest("Standplass").build()).build();
+        index.put(List.of(informationType));
+        assertThat(index.search("standp")).containsExactly(informationType.getId());
+
+        informationType.getData().setSuggest("Flyttedato");
+        index.put(List.of(informationType));
+        assertThat(index.search("standp")).isEmpty();
+        assertThat(index.search("flytte")).containsExactly(informationType.getId());
+
+        index.remove(informationType.getId());
+        assertThat(index.search("flytte")).isEmpty();
+    }
+
+    private List<UUID> expected(String term) {
+        return suggests.entrySet().stream()
+                .filter(e -> e.getValue().toLowerCase().contains(term.toLowerCase()))
+                .sorted(comparing((Map.Entry<UUID, String> e) -> e.getValue(), startsWith(term)))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
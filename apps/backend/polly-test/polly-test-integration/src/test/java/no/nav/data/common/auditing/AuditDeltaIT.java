@@ -0,0 +1,150 @@
+package no.nav.data.common.auditing;
+
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.auditing.dto.AuditLogResponse;
+import no.nav.data.common.auditing.dto.AuditResponse;
+import no.nav.data.polly.IntegrationTestBase;
+import no.nav.data.polly.process.domain.ProcessAuditField;
+import no.nav.data.polly.test.TestRestTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that audit versions stored as patches give the same audit responses as versions stored with data,
+ * and logs the storage saved and the time to reconstruct versions
+ */
+@Slf4j
+class AuditDeltaIT extends IntegrationTestBase {
+
+    private static final int SEED_IDS = 100;
+    private static final int SEED_VERSIONS = 60;
+
+    @Autowired
+    private TestRestTemplate template;
+    @Autowired
+    private AuditDeltaService auditDeltaService;
+    @Autowired
+    private AuditService auditService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        auditRepository.deleteAll();
+    }
+
+    @Test
+    void versionsBetweenCheckpointsArePatches() {
+        var id = createAndSaveInformationType("version 0", "POL").getId();
+        for (int i = 1; i <= 5; i++) {
+            String name = "version " + i;
+            transactionTemplate.executeWithoutResult(status -> informationTypeRepository.findById(id).orElseThrow().getData().setName(name));
+        }
+
+        assertThat(jdbcTemplate.queryForList("select data is not null from audit_version where table_id = ? order by version", Boolean.class, id.toString()))
+                .containsExactly(true, false, false, false, false, false);
+
+        var log = template.getForEntity("/audit/log/{id}", AuditLogResponse.class, id).getBody();
+        assertThat(log).isNotNull();
+        assertThat(log.getAudits()).extracting(audit -> audit.getData().at("/data/name").textValue())
+                .containsExactly("version 5", "version 4", "version 3", "version 2", "version 1", "version 0");
+    }
+
+    @Test
+    void versionsWithoutNumberAreNumberedBeforeTheNext() {
+        var id = createAndSaveInformationType("old pod", "POL").getId();
+        jdbcTemplate.update("update audit_version set version = null where table_id = ?", id.toString());
+        transactionTemplate.executeWithoutResult(status -> informationTypeRepository.findById(id).orElseThrow().getData().setName("new pod"));
+
+        assertThat(jdbcTemplate.queryForList("select version from audit_version where table_id = ? order by time", Integer.class, id.toString()))
+                .containsExactly(1, 2);
+        assertThat(jdbcTemplate.queryForList("select table_id from audit_compaction", String.class)).containsExactly(id.toString());
+    }
+
+    @Test
+    void fieldChangesAreReplayedFromPatches() {
+        var process = createAndSaveProcess(PURPOSE_CODE1);
+        transactionTemplate.executeWithoutResult(status -> processRepository.findById(process.getId()).orElseThrow().getData().setPurposes(List.of(PURPOSE_CODE2)));
+
+        assertThat(auditService.countProcessesWithFieldChanges(ProcessAuditField.PURPOSES, LocalDate.now(), LocalDate.now())).isOne();
+        assertThat(auditService.countProcessesWithFieldChanges(ProcessAuditField.RETENTION, LocalDate.now(), LocalDate.now())).isZero();
+        assertThat(auditService.countProcessesWithFieldChanges(ProcessAuditField.PURPOSES, LocalDate.now().minusDays(2), LocalDate.now().minusDays(1))).isZero();
+    }
+
+    @Test
+    void fieldChangesInPeriodAreComparedToVersionBeforePeriod() {
+        var id = createAndSaveProcess(PURPOSE_CODE1).getId();
+        transactionTemplate.executeWithoutResult(status -> processRepository.findById(id).orElseThrow().getData().setPurposes(List.of(PURPOSE_CODE2)));
+        transactionTemplate.executeWithoutResult(status -> processRepository.findById(id).orElseThrow().getData().setProfiling(false));
+        jdbcTemplate.update("update audit_version set time = date '2020-01-01' + version * interval '1 day' where table_id = ?", id.toString());
+
+        // Version 2 on the 3rd changes the purposes of version 1, version 3 on the 4th changes the profiling of version 2
+        assertThat(auditService.countProcessesWithFieldChanges(ProcessAuditField.PURPOSES, LocalDate.of(2020, 1, 3), LocalDate.of(2020, 1, 3))).isOne();
+        assertThat(auditService.countProcessesWithFieldChanges(ProcessAuditField.PURPOSES, LocalDate.of(2020, 1, 4), LocalDate.of(2020, 1, 4))).isZero();
+        assertThat(auditService.countProcessesWithFieldChanges(ProcessAuditField.PROFILING, LocalDate.of(2020, 1, 4), LocalDate.of(2020, 1, 4))).isOne();
+    }
+
+    @Test
+    void compactionKeepsAuditResponses() {
+        seedVersionsWithData();
+        long bytesBefore = storedBytes();
+        String logBefore = timed("audit log with data", () -> template.getForEntity("/audit/log/{id}", String.class, "seed-1").getBody());
+        String pageBefore = timed("audit page with data", () -> template.getForEntity("/audit?pageSize=100&table=INFORMATION_TYPE", String.class).getBody());
+
+        int compacted = timed("compaction", () -> auditDeltaService.compact());
+
+        // Checkpoints at version 1, 21 and 41 of each id
+        assertThat(compacted).isEqualTo(SEED_IDS * (SEED_VERSIONS - 3));
+        assertThat(jdbcTemplate.queryForList("select version from audit_version where table_id = 'seed-1' order by time", Integer.class))
+                .isEqualTo(IntStream.rangeClosed(1, SEED_VERSIONS).boxed().toList());
+        long bytesAfter = storedBytes();
+        String logAfter = timed("audit log from patches", () -> template.getForEntity("/audit/log/{id}", String.class, "seed-1").getBody());
+        String pageAfter = timed("audit page from patches", () -> template.getForEntity("/audit?pageSize=100&table=INFORMATION_TYPE", String.class).getBody());
+        log.info("Audit storage {} bytes with data, {} bytes with patches, {}% saved", bytesBefore, bytesAfter, 100 - bytesAfter * 100 / bytesBefore);
+
+        assertThat(logAfter).isEqualTo(logBefore);
+        assertThat(pageAfter).isEqualTo(pageBefore);
+        assertThat(bytesAfter).isLessThan(bytesBefore / 2);
+
+        var latest = auditDeltaService.reconstruct(auditRepository.findByTableIdOrderByTimeDesc("seed-7")).getFirst();
+        assertThat(AuditResponse.buildFrom(latest).getData().at("/data/name").textValue()).isEqualTo("seed 7 version " + SEED_VERSIONS);
+    }
+
+    /**
+     * Versions as written before patches were stored, all with data and without a number, as after V1.51__audit_delta.sql
+     */
+    private void seedVersionsWithData() {
+        var id = createAndSaveInformationType("template", "POL").getId();
+        String template = jdbcTemplate.queryForObject("select cast(data as text) from audit_version where table_id = ?", String.class, id.toString());
+        auditRepository.deleteAll();
+
+        jdbcTemplate.update("""
+                insert into audit_version (audit_id, action, table_name, table_id, time, user_id, data)
+                select md5('audit' || i || '-' || v)::uuid, case when v = 1 then 'CREATE' else 'UPDATE' end, 'INFORMATION_TYPE', 'seed-' || i,
+                       timestamp '2020-01-01' + (i * 1000 + v) * interval '1 second', 'seed',
+                       jsonb_set(jsonb_set(cast(? as jsonb), '{id}', to_jsonb('seed-' || i)), '{data,name}', to_jsonb('seed ' || i || ' version ' || v))
+                from generate_series(1, ?) i, generate_series(1, ?) v
+                """, template, SEED_IDS, SEED_VERSIONS);
+        jdbcTemplate.execute("analyze audit_version");
+    }
+
+    private long storedBytes() {
+        return jdbcTemplate.queryForObject("select sum(coalesce(pg_column_size(data), 0) + coalesce(pg_column_size(patch), 0)) from audit_version", Long.class);
+    }
+
+    private static <T> T timed(String name, Supplier<T> action) {
+        long start = System.nanoTime();
+        T result = action.get();
+        log.info("{} took {} ms", name, (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+}
@@ -0,0 +1,108 @@
+package no.nav.data.common.auditing;
+
+import jakarta.persistence.EntityManagerFactory;
+import no.nav.data.common.auditing.domain.Action;
+import no.nav.data.common.auditing.domain.AuditBatchRepository;
+import no.nav.data.polly.IntegrationTestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditWriterIT extends IntegrationTestBase {
+
+    @Autowired
+    private AuditWriter auditWriter;
+    @Autowired
+    private AuditBatchRepository auditBatchRepository;
+    @Autowired
+    private AuditDeltaService auditDeltaService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        auditRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        AuditVersionListener.setWriter(auditWriter);
+        jdbcTemplate.update("delete from audit_queue");
+    }
+
+    @Test
+    void auditsAreWrittenAtCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            var informationType = informationTypeRepository.save(createInformationType("first", "POL", "TPS", "PERSONALIA", "SKATT"));
+            informationTypeRepository.save(createInformationType("second", "POL", "TPS", "PERSONALIA", "SKATT"));
+            informationTypeRepository.flush();
+            assertThat(countAudits("audit_version")).isZero();
+
+            // Changed without flush, the update is flushed and audited at commit
+            informationType.getData().setName("first changed");
+        });
+
+        assertThat(jdbcTemplate.queryForList("select action from audit_version where table_name = 'INFORMATION_TYPE' order by time", String.class))
+                .containsExactlyInAnyOrder("CREATE", "CREATE", "UPDATE");
+    }
+
+    @Test
+    void changeFoundByDirtyCheckingIsAudited() {
+        var id = createAndSaveInformationType("before", "POL").getId();
+        auditRepository.deleteAll();
+
+        transactionTemplate.executeWithoutResult(status -> informationTypeRepository.findById(id).orElseThrow().getData().setName("after"));
+
+        assertThat(auditRepository.findByTableIdOrderByTimeDesc(id.toString())).singleElement()
+                .satisfies(audit -> assertThat(audit.getAction()).isEqualTo(Action.UPDATE));
+    }
+
+    @Test
+    void rolledBackAuditsAreDropped() {
+        transactionTemplate.executeWithoutResult(status -> {
+            informationTypeRepository.save(createInformationType("rolled back", "POL", "TPS", "PERSONALIA", "SKATT"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(countAudits("audit_version")).isZero();
+    }
+
+    @Test
+    void queueMode() {
+        var queueWriter = new AuditWriter(auditBatchRepository, auditDeltaService, entityManagerFactory, "queue");
+        AuditVersionListener.setWriter(queueWriter);
+
+        createAndSaveInformationType("queued", "POL");
+        assertThat(countAudits("audit_queue")).isEqualTo(1);
+        assertThat(countAudits("audit_version")).isZero();
+
+        assertThat(queueWriter.drainQueue()).isEqualTo(1);
+        assertThat(countAudits("audit_queue")).isZero();
+        assertThat(auditRepository.findAll()).singleElement().satisfies(audit -> assertThat(audit.getTable()).isEqualTo("INFORMATION_TYPE"));
+    }
+
+    @Test
+    void batchModeDrainsQueueUntilEmpty() {
+        var batchWriter = new AuditWriter(auditBatchRepository, auditDeltaService, entityManagerFactory, "batch");
+        AuditVersionListener.setWriter(new AuditWriter(auditBatchRepository, auditDeltaService, entityManagerFactory, "queue"));
+        createAndSaveInformationType("queued before switch", "POL");
+
+        assertThat(batchWriter.drainQueue()).isEqualTo(1);
+        assertThat(batchWriter.drainQueue()).isZero();
+
+        // Found empty, the queue is not read again
+        createAndSaveInformationType("queued after switch", "POL");
+        assertThat(batchWriter.drainQueue()).isZero();
+        assertThat(countAudits("audit_queue")).isEqualTo(1);
+    }
+
+    private int countAudits(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+    }
+}
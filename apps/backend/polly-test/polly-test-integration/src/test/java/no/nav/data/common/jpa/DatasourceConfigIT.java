@@ -0,0 +1,89 @@
+package no.nav.data.common.jpa;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import no.nav.data.common.jpa.DatasourceProperties.Pool;
+import no.nav.data.polly.IntegrationTestBase;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatasourceConfigIT extends IntegrationTestBase {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private Flyway flyway;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+    @Value("${spring.datasource.username}")
+    private String username;
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Test
+    void statementTimeoutIsSetOnConnections() {
+        assertThat(jdbcTemplate.queryForObject("show statement_timeout", String.class)).isEqualTo("2min");
+    }
+
+    @Test
+    void statementTimeoutIsDisabledForBatchTransactions() {
+        String timeout = transactionTemplate.execute(status -> {
+            RepoUtil.disableStatementTimeout(jdbcTemplate);
+            return jdbcTemplate.queryForObject("show statement_timeout", String.class);
+        });
+
+        assertThat(timeout).isEqualTo("0");
+        assertThat(jdbcTemplate.queryForObject("show statement_timeout", String.class)).isEqualTo("2min");
+    }
+
+    @Test
+    void migrationsDoNotUsePool() {
+        assertThat(flyway.getConfiguration().getDataSource()).isNotSameAs(dataSource);
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplica() {
+        // The pools reach the same database, they are told apart by their statement timeout
+        var primaryPool = new Pool();
+        primaryPool.setStatementTimeout(Duration.ofSeconds(10));
+        var replicaPool = new Pool();
+        replicaPool.setStatementTimeout(Duration.ofSeconds(20));
+        try (var routing = new ReadReplicaRoutingDataSource(
+                DatasourceConfig.hikariDataSource("test-primary", url, username, password, primaryPool, meterRegistry),
+                DatasourceConfig.hikariDataSource("test-replica", url, username, password, replicaPool, meterRegistry))) {
+            var jdbc = new JdbcTemplate(routing);
+            var transactions = new TransactionTemplate(new DataSourceTransactionManager(routing));
+
+            String readWrite = transactions.execute(status -> jdbc.queryForObject("show statement_timeout", String.class));
+            transactions.setReadOnly(true);
+            String readOnly = transactions.execute(status -> jdbc.queryForObject("show statement_timeout", String.class));
+
+            assertThat(readWrite).isEqualTo("10s");
+            assertThat(readOnly).isEqualTo("20s");
+            assertThat(jdbc.queryForObject("show statement_timeout", String.class)).isEqualTo("10s");
+        }
+    }
+
+    @Test
+    void poolMetricsAreExported() {
+        jdbcTemplate.queryForObject("select 1", Integer.class);
+
+        assertThat(meterRegistry.find("hikaricp.connections.active").tag("pool", DatasourceConfig.PRIMARY_POOL).gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.acquire").tag("pool", DatasourceConfig.PRIMARY_POOL).timer()).isNotNull();
+    }
+}
@@ -0,0 +1,123 @@
+package no.nav.data.common.jpa;
+
+import no.nav.data.polly.IntegrationTestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that the jsonb finders of policy, dp_process, information_type and disclosure are served by the indexes in V1.38__jsonb_indexes.sql,
+ * see ProcessRepositoryIT for process.
+ * <p>
+ * Rows are seeded as copies of a row saved through the repositories, with the json paths looked up varied.
+ */
+class JsonbIndexIT extends IntegrationTestBase {
+
+    private static final int SEED_ROWS = 20_000;
+    private static final List<String> TABLES = List.of("policy", "dp_process", "information_type", "disclosure");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        var policy = createAndSavePolicy(PURPOSE_CODE1, createAndSaveInformationType());
+        var dpProcess = createDpProcess("YTA", "NAY", "TPS", "SKATTEETATEN", "OTHER");
+        var disclosure = disclosureRepository.save(createDisclosure("SKATTEETATEN", "ART61E", "FTRL"));
+
+        seed("policy", "policy_id", policy.getId(), """
+                data || jsonb_build_object(
+                        'purposes', jsonb_build_array('PURPOSE' || (i % 500)),
+                        'subjectCategories', jsonb_build_array('CATEGORY' || (i % 300)),
+                        'legalBases', jsonb_build_array(jsonb_build_object('gdpr', 'ART' || (i % 200), 'nationalLaw', 'LAW' || (i % 300))),
+                        'documentIds', jsonb_build_array(md5('document' || (i % 1000))::uuid))
+                """);
+        seed("dp_process", "dp_process_id", dpProcess.getId(), """
+                jsonb_set(data, '{affiliation}', data -> 'affiliation' || jsonb_build_object(
+                        'products', jsonb_build_array('SYSTEM' || (i % 400)),
+                        'subDepartments', jsonb_build_array('SUBDEP' || (i % 300)),
+                        'productTeams', jsonb_build_array('team' || (i % 1000))))
+                """);
+        seed("information_type", "information_type_id", policy.getInformationTypeId(), """
+                data || jsonb_build_object(
+                        'name', 'seed-' || i,
+                        'categories', jsonb_build_array('CATEGORY' || (i % 300)),
+                        'sources', jsonb_build_array('SOURCE' || (i % 400)),
+                        'productTeams', jsonb_build_array('team' || (i % 1000)))
+                """);
+        seed("disclosure", "disclosure_id", disclosure.getId(), """
+                data || jsonb_build_object(
+                        'recipient', 'RECIPIENT' || (i % 500),
+                        'legalBases', jsonb_build_array(jsonb_build_object('gdpr', 'ART' || (i % 200), 'nationalLaw', 'LAW' || (i % 300))),
+                        'processIds', jsonb_build_array(md5('process' || (i % 2000))::uuid),
+                        'productTeams', jsonb_build_array('team' || (i % 1000)))
+                """);
+        TABLES.forEach(table -> jdbcTemplate.execute("analyze " + table));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TABLES.forEach(table -> jdbcTemplate.update("delete from %s where created_by = 'seed'".formatted(table)));
+    }
+
+    @Test
+    void findersUseIndexes() {
+        var seededDocument = jdbcTemplate.queryForObject("select md5('document' || 7)::uuid", UUID.class);
+        var seededProcess = jdbcTemplate.queryForObject("select md5('process' || 7)::uuid", UUID.class);
+
+        Map<String, Supplier<List<?>>> finders = new LinkedHashMap<>();
+        finders.put("policy findByPurpose", () -> policyRepository.findByPurpose("PURPOSE7"));
+        finders.put("policy findBySubjectCategory", () -> policyRepository.findBySubjectCategory("CATEGORY7"));
+        finders.put("policy findByGDPRArticle", () -> policyRepository.findByGDPRArticle("ART7"));
+        finders.put("policy findByNationalLaw", () -> policyRepository.findByNationalLaw("LAW7"));
+        finders.put("policy findByDocumentId", () -> policyRepository.findByDocumentId(seededDocument));
+        finders.put("dp_process findByProduct", () -> dpProcessRepository.findByProduct("SYSTEM7"));
+        finders.put("dp_process findBySubDepartment", () -> dpProcessRepository.findBySubDepartment("SUBDEP7"));
+        finders.put("dp_process findByProductTeam", () -> dpProcessRepository.findByProductTeam("team7"));
+        finders.put("dp_process findByProductTeams", () -> dpProcessRepository.findByProductTeams(List.of("team7", "team8")));
+        finders.put("information_type findByCategory", () -> informationTypeRepository.findByCategory("CATEGORY7"));
+        finders.put("information_type findBySource", () -> informationTypeRepository.findBySource("SOURCE7"));
+        finders.put("information_type findByProductTeam", () -> informationTypeRepository.findByProductTeam("team7"));
+        finders.put("information_type findByProductTeams", () -> informationTypeRepository.findByProductTeams(List.of("team7", "team8")));
+        finders.put("disclosure findByGDPRArticle", () -> disclosureRepository.findByGDPRArticle("ART7"));
+        finders.put("disclosure findByNationalLaw", () -> disclosureRepository.findByNationalLaw("LAW7"));
+        finders.put("disclosure findByRecipient", () -> disclosureRepository.findByRecipient("RECIPIENT7"));
+        finders.put("disclosure findByProcessId", () -> disclosureRepository.findByProcessId(seededProcess));
+        finders.put("disclosure findByProductTeam", () -> disclosureRepository.findByProductTeam("team7"));
+
+        finders.forEach((name, finder) -> transactionTemplate.executeWithoutResult(status -> {
+            long seqScansBefore = seqScans();
+            var result = finder.get();
+            assertThat(seqScans()).as("sequential scans by %s", name).isEqualTo(seqScansBefore);
+            assertThat(result).as("result of %s", name).isNotEmpty();
+        }));
+    }
+
+    /**
+     * Copies the row with the id {@value SEED_ROWS} times, with a new id and the data given by the expression of the row number i
+     */
+    private void seed(String table, String idColumn, UUID templateId, String data) {
+        jdbcTemplate.update("""
+                insert into %1$s
+                select (jsonb_populate_record(null::%1$s, to_jsonb(t) || jsonb_build_object(
+                        '%2$s', md5('%1$s' || i)::uuid, 'created_by', 'seed', 'data', %3$s))).*
+                from %1$s t, generate_series(1, ?) i
+                where t.%2$s = ?
+                """.formatted(table, idColumn, data), SEED_ROWS, templateId);
+    }
+
+    private long seqScans() {
+        return jdbcTemplate.queryForObject("select coalesce(sum(seq_scan), 0) from pg_stat_xact_user_tables where relname = any(?)", Long.class,
+                (Object) TABLES.toArray(String[]::new));
+    }
+}
@@ -4,6 +4,7 @@ import com.github.tomakehurst.wiremock.client.WireMock;
 import io.prometheus.client.CollectorRegistry;
 import no.nav.data.AppStarter;
 import no.nav.data.common.auditing.AuditVersionListener;
+import no.nav.data.common.auditing.AuditWriter;
 import no.nav.data.common.auditing.domain.AuditVersionRepository;
 import no.nav.data.common.storage.domain.GenericStorageRepository;
 import no.nav.data.common.utils.JsonUtils;
@@ -61,6 +62,7 @@ import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.transaction.support.TransactionTemplate;
@@ -96,7 +98,7 @@ public abstract class IntegrationTestBase {
     protected static final String PURPOSE_CODE2 = "AAP";
     protected static final String INFORMATION_TYPE_NAME = "Sivilstand";
 
-    private static final PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:11.3");
+    private static final PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:16");
     @Autowired
     protected TransactionTemplate transactionTemplate;
     @Autowired
@@ -119,6 +121,8 @@ public abstract class IntegrationTestBase {
     protected AuditVersionRepository auditRepository;
     @Autowired(required = false)
     private TeamcatTeamClient teamcatTeamClient;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     static {
         postgreSQLContainer.start();
@@ -144,6 +148,11 @@ public abstract class IntegrationTestBase {
 
     private void delete() {
         genericStorageRepository.deleteAll();
+        jdbcTemplate.update("delete from alert_event");
+        jdbcTemplate.update("delete from alert_outbox");
+        jdbcTemplate.update("delete from alert_backfill");
+        jdbcTemplate.update("delete from audit_queue");
+        jdbcTemplate.update("delete from audit_compaction");
         disclosureRepository.deleteAll();
         documentRepository.deleteAll();
         policyRepository.deleteAll();
@@ -502,8 +511,8 @@ public abstract class IntegrationTestBase {
     }
     
     /*
-     * Dette er et lite vakkert men nødvendig hæck. Ellers er det ikke sikkert AuditVersionListener.setRepo blir kalt. JpaConfig har kode som kaller
-     * AuditVersionListener.setRepo. Men i test er det av ukjent grunn ikke alltid den koden er kjørt før testene kjøres (ca. 2 av 3 ganger), noe som resulterer
+     * Dette er et lite vakkert men nødvendig hæck. Ellers er det ikke sikkert AuditVersionListener.setWriter blir kalt. JpaConfig har kode som kaller
+     * AuditVersionListener.setWriter. Men i test er det av ukjent grunn ikke alltid den koden er kjørt før testene kjøres (ca. 2 av 3 ganger), noe som resulterer
      * i NPE. Hæcket må fjernes når det ikke trengs lenger, siden dette er oppførsel som skiller den fra prod (kan teoretisk medføre maskering av bugs).
      * TODO: Fjern dette hæcket når det ikke trengs lenger.
      */
@@ -511,7 +520,7 @@ public abstract class IntegrationTestBase {
     @Override
         public void onApplicationEvent(ContextRefreshedEvent event) {
             ApplicationContext ctx = event.getApplicationContext();
-            AuditVersionListener.setRepo(ctx.getBean(AuditVersionRepository.class));
+            AuditVersionListener.setWriter(ctx.getBean(AuditWriter.class));
             new SpringUtils().setApplicationContext(ctx);
         }
     }
@@ -0,0 +1,132 @@
+package no.nav.data.polly.alert;
+
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.polly.IntegrationTestBase;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
+import no.nav.data.polly.disclosure.domain.Disclosure;
+import no.nav.data.polly.disclosure.domain.DisclosureData;
+import no.nav.data.polly.legalbasis.domain.LegalBasis;
+import no.nav.data.polly.policy.domain.LegalBasesUse;
+import no.nav.data.polly.process.domain.Process;
+import no.nav.data.polly.process.domain.ProcessData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the events saved by the backfill, calculated a page at a time over a snapshot, and by the catalog check, calculated in one pass over a snapshot
+ * of the whole catalog, against the events saved entity by entity, and logs the time of each
+ */
+@Slf4j
+class AlertCatalogIT extends IntegrationTestBase {
+
+    private static final int PROCESSES = 100;
+    private static final int DISCLOSURES = 20;
+    private static final int CATALOG_PROCESSES = 1000;
+    private static final int CATALOG_DISCLOSURES = 200;
+
+    @Autowired
+    private AlertService alertService;
+    @Autowired
+    private AlertBackfillService alertBackfillService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void backfillMatchesEventsCalculatedPerEntity() {
+        seed(PROCESSES, DISCLOSURES);
+
+        long start = System.nanoTime();
+        var savedPerEntity = calculatePerEntity();
+        long perEntity = System.nanoTime() - start;
+        jdbcTemplate.update("delete from alert_event");
+
+        start = System.nanoTime();
+        alertBackfillService.run();
+        long backfill = System.nanoTime() - start;
+        log.info("Alerts of {} processes and {} disclosures: per entity {} ms, backfill {} ms", PROCESSES, DISCLOSURES, perEntity / 1_000_000, backfill / 1_000_000);
+
+        assertThat(savedPerEntity).isNotEmpty();
+        assertThat(savedEvents()).containsExactlyInAnyOrderElementsOf(savedPerEntity);
+    }
+
+    @Test
+    void catalogCheckMatchesEventsCalculatedPerEntity() {
+        seed(CATALOG_PROCESSES, CATALOG_DISCLOSURES);
+        alertBackfillService.run();
+
+        long start = System.nanoTime();
+        var savedPerEntity = calculatePerEntity();
+        long perEntity = System.nanoTime() - start;
+        // Events missed, as by changes outside the services
+        jdbcTemplate.update("delete from alert_event where disclosure_id is not null or process_id in (select process_id from process where data ->> 'name' like '%0')");
+
+        start = System.nanoTime();
+        int events = alertBackfillService.checkCatalog();
+        long catalog = System.nanoTime() - start;
+        log.info("Alerts of {} processes and {} disclosures: per entity {} ms, whole catalog {} ms", CATALOG_PROCESSES, CATALOG_DISCLOSURES, perEntity / 1_000_000,
+                catalog / 1_000_000);
+
+        assertThat(events).isEqualTo(savedPerEntity.size());
+        assertThat(savedEvents()).containsExactlyInAnyOrderElementsOf(savedPerEntity);
+    }
+
+    private void seed(int processes, int disclosures) {
+        var informationTypes = List.of(
+                createAndSaveInformationType("normal", "POL"),
+                createAndSaveInformationType("special", "SAERLIGE"),
+                createAndSaveInformationType("other", "POL")
+        );
+        var legalBasesUses = LegalBasesUse.values();
+        for (int i = 0; i < processes; i++) {
+            var process = processRepository.save(Process.builder().generateId()
+                    .data(ProcessData.builder().purpose("AAP").name("catalog " + i).usesAllInformationTypes(i % 5 == 0)
+                            .legalBases(legalBases(i % 3 == 0, i % 7 == 0))
+                            .start(LocalDate.now()).end(LocalDate.now()).build())
+                    .build());
+            for (int j = 0; j < informationTypes.size(); j++) {
+                int n = i * informationTypes.size() + j;
+                var policy = createPolicy("AAP", "BRUKER", legalBases(n % 2 == 0, n % 4 == 0));
+                policy.getData().setLegalBasesUse(legalBasesUses[n % legalBasesUses.length]);
+                policy.setInformationType(informationTypes.get(j));
+                addPolicy(process, policy);
+            }
+        }
+        for (int i = 0; i < disclosures; i++) {
+            disclosureRepository.save(Disclosure.builder().generateId()
+                    .data(DisclosureData.builder().description("catalog " + i).recipient("SKATT").legalBases(legalBases(i % 2 == 0, false)).build())
+                    .build());
+        }
+
+    }
+
+    private List<List<String>> calculatePerEntity() {
+        processRepository.findAll().forEach(process -> alertService.calculateEvents(AlertTarget.PROCESS, process.getId()));
+        disclosureRepository.findAll().forEach(disclosure -> alertService.calculateEvents(AlertTarget.DISCLOSURE, disclosure.getId()));
+        return savedEvents();
+    }
+
+    private List<List<String>> savedEvents() {
+        return jdbcTemplate.query("select process_id, information_type_id, disclosure_id, type from alert_event",
+                (rs, rowNum) -> List.of(String.valueOf(rs.getObject("process_id", UUID.class)), String.valueOf(rs.getObject("information_type_id", UUID.class)),
+                        String.valueOf(rs.getObject("disclosure_id", UUID.class)), rs.getString("type")));
+    }
+
+    private List<LegalBasis> legalBases(boolean art6, boolean art9) {
+        var legalBases = new ArrayList<LegalBasis>();
+        if (art6) {
+            legalBases.add(createLegalBasis());
+        }
+        if (art9) {
+            legalBases.add(createLegalBasis("ART92A", "FTRL", "§ 2-1"));
+        }
+        return legalBases;
+    }
+}
@@ -1,22 +1,28 @@
 package no.nav.data.polly.alert;
 
 
-import no.nav.data.common.storage.domain.GenericStorage;
-import no.nav.data.common.storage.domain.StorageType;
 import no.nav.data.polly.IntegrationTestBase;
 import no.nav.data.polly.alert.AlertController.EventPage;
 import no.nav.data.polly.alert.AlertController.EventPage.AlertSort;
 import no.nav.data.polly.alert.domain.AlertEvent;
 import no.nav.data.polly.alert.domain.AlertEventType;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.AlertTarget;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository.Marker;
+import no.nav.data.polly.alert.domain.AlertOutboxRepository;
 import no.nav.data.polly.alert.domain.AlertRepository;
+import no.nav.data.polly.alert.dto.AlertBackfillResponse;
+import no.nav.data.polly.alert.dto.AlertBackfillResponse.TargetProgress;
+import no.nav.data.polly.alert.dto.AlertStatusResponse;
 import no.nav.data.polly.alert.dto.DisclosureAlert;
 import no.nav.data.polly.disclosure.DisclosureService;
+import no.nav.data.polly.disclosure.domain.DisclosureData;
 import no.nav.data.polly.disclosure.dto.DisclosureRequest;
 import no.nav.data.polly.informationtype.domain.InformationType;
 import no.nav.data.polly.informationtype.domain.InformationTypeData;
 import no.nav.data.polly.policy.domain.LegalBasesUse;
 import no.nav.data.polly.policy.domain.Policy;
 import no.nav.data.polly.process.domain.Process;
+import no.nav.data.polly.process.ProcessService;
 import no.nav.data.polly.process.domain.ProcessData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -27,14 +33,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import no.nav.data.polly.test.TestRestTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 import static java.util.UUID.randomUUID;
-import static no.nav.data.common.utils.StreamUtils.convert;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class AlertIT extends IntegrationTestBase {
 
@@ -46,11 +54,16 @@ public class AlertIT extends IntegrationTestBase {
     private AlertRepository alertRepository;
     @Autowired
     private DisclosureService disclosureService;
-
-    @BeforeEach
-    void setUp() {
-        genericStorageRepository.deleteByType(StorageType.ALERT_EVENT);
-    }
+    @Autowired
+    private ProcessService processService;
+    @Autowired
+    private AlertOutboxService alertOutboxService;
+    @Autowired
+    private AlertOutboxRepository alertOutboxRepository;
+    @Autowired
+    private AlertBackfillService alertBackfillService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     @Nested
     class Alerts {
@@ -168,13 +181,25 @@ public class AlertIT extends IntegrationTestBase {
             var events = alertRepository.findByProcessId(policy.getProcess().getId());
 
             assertThat(events).hasSize(1);
-            AlertEvent alertEvent = events.get(0).toAlertEvent();
+            AlertEvent alertEvent = events.get(0);
             assertThat(alertEvent.getProcessId()).isEqualTo(policy.getProcess().getId());
             assertThat(alertEvent.getInformationTypeId()).isEqualTo(policy.getInformationTypeId());
             assertThat(alertEvent.getType()).isEqualTo(AlertEventType.MISSING_ARTICLE_6);
             assertThat(alertEvent.getLevel()).isEqualTo(alertEvent.getType().getLevel());
         }
 
+        @Test
+        void recalculationKeepsUnchangedEvents() {
+            processAlertEvents();
+            var policy = policyRepository.findAll().get(0);
+            var event = alertRepository.findByProcessId(policy.getProcess().getId()).get(0);
+
+            alertService.calculateEventsForProcess(policy.getProcess().getId());
+            alertService.calculateEventsForInforamtionType(policy.getInformationTypeId());
+
+            assertThat(alertRepository.findByProcessId(policy.getProcess().getId())).containsExactly(event);
+        }
+
         @Test
         void processAlertNoEvents() {
             var policy = createProcessWithOnePolicy();
@@ -224,6 +249,7 @@ public class AlertIT extends IntegrationTestBase {
             void noDiscEvents() {
                 var discReq = createDiscReq().withLegalBases(List.of(createLegalBasisRequest()));
                 var disc = disclosureService.save(discReq);
+                alertOutboxService.processOutbox();
 
                 var events = alertRepository.findByDisclosureId(disc.getId());
                 assertThat(events).isEmpty();
@@ -232,11 +258,147 @@ public class AlertIT extends IntegrationTestBase {
             @Test
             void noArt6() {
                 var disc = disclosureService.save(createDiscReq());
+                alertOutboxService.processOutbox();
                 var events = alertRepository.findByDisclosureId(disc.getId());
                 assertThat(events).hasSize(1);
             }
         }
 
+        @Nested
+        class Outbox {
+
+            @Test
+            void changesAreCoalesced() {
+                var policy = createProcessWithOnePolicyNoLegalBasis();
+                UUID processId = policy.getProcess().getId();
+                for (int i = 0; i < 3; i++) {
+                    processService.save(processRepository.findById(processId).orElseThrow());
+                }
+
+                assertThat(alertOutboxRepository.count()).isOne();
+                assertThat(alertRepository.findByProcessId(processId)).isEmpty();
+                assertThat(alertOutboxService.status(processId, null, null).isUpToDate()).isFalse();
+                assertThat(alertOutboxService.status(null, policy.getInformationTypeId(), null).isUpToDate()).isFalse();
+
+                assertThat(alertOutboxService.processOutbox()).isOne();
+
+                assertThat(alertRepository.findByProcessId(processId)).hasSize(1);
+                assertThat(alertOutboxService.status(processId, null, null).isUpToDate()).isTrue();
+                assertThat(alertOutboxService.processOutbox()).isZero();
+            }
+
+            @Test
+            void deletedEntityIsDropped() {
+                var process = createAndSaveProcess("AAP");
+                processService.save(process);
+                processRepository.deleteById(process.getId());
+
+                assertThat(alertOutboxService.processOutbox()).isOne();
+                assertThat(alertOutboxRepository.count()).isZero();
+            }
+
+            @Test
+            void eventsOfDeletedEntityAreDeleted() {
+                var policy = createProcessWithOnePolicyNoLegalBasis();
+                UUID processId = policy.getProcess().getId();
+                alertOutboxService.processOutbox();
+                assertThat(alertRepository.findByProcessId(processId)).hasSize(1);
+
+                processService.save(processRepository.findById(processId).orElseThrow());
+                jdbcTemplate.update("delete from policy where process_id = ?", processId);
+                jdbcTemplate.update("delete from process where process_id = ?", processId);
+                alertOutboxService.processOutbox();
+
+                assertThat(alertRepository.findByProcessId(processId)).isEmpty();
+                assertThat(alertOutboxRepository.count()).isZero();
+            }
+
+            @Test
+            void failingMarkerIsParkedUntilMarkedAgain() {
+                var process = createAndSaveProcess("AAP");
+                processService.save(process);
+                var marker = new Marker(AlertTarget.PROCESS, process.getId(), LocalDateTime.now());
+
+                assertThat(alertOutboxRepository.failed(marker, 2)).isFalse();
+                assertThat(alertOutboxRepository.failed(marker, 2)).isTrue();
+                assertThat(alertOutboxRepository.count()).isZero();
+                assertThat(alertOutboxRepository.countParked()).isOne();
+                assertThat(alertOutboxService.processOutbox()).isZero();
+
+                processService.save(processRepository.findById(process.getId()).orElseThrow());
+                assertThat(alertOutboxRepository.countParked()).isZero();
+                assertThat(alertOutboxService.processOutbox()).isOne();
+            }
+
+            @Test
+            void getStatus() {
+                var disc = disclosureService.save(createDiscReq());
+
+                ResponseEntity<AlertStatusResponse> all = restTemplate.getForEntity("/alert/status", AlertStatusResponse.class);
+                assertThat(all.getStatusCode()).isEqualTo(HttpStatus.OK);
+                assertThat(all.getBody()).isNotNull();
+                assertThat(all.getBody().isUpToDate()).isFalse();
+                assertThat(all.getBody().getPending()).isOne();
+                assertThat(all.getBody().getOldestPending()).isNotNull();
+
+                alertOutboxService.processOutbox();
+
+                ResponseEntity<AlertStatusResponse> forDisclosure = restTemplate.getForEntity("/alert/status?disclosureId={id}", AlertStatusResponse.class, disc.getId());
+                assertThat(forDisclosure.getBody()).isNotNull();
+                assertThat(forDisclosure.getBody().isUpToDate()).isTrue();
+                assertThat(forDisclosure.getBody().getPending()).isZero();
+            }
+        }
+
+        @Nested
+        class Backfill {
+
+            @Test
+            void calculatesEventsOfAllEntities() {
+                var policy = createProcessWithOnePolicyNoLegalBasis();
+                var disclosure = disclosureRepository.save(no.nav.data.polly.disclosure.domain.Disclosure.builder().generateId()
+                        .data(DisclosureData.builder().description("no legal bases").recipient("SKATT").build()).build());
+
+                alertBackfillService.run();
+
+                assertThat(alertRepository.findByProcessId(policy.getProcess().getId())).hasSize(1);
+                assertThat(alertRepository.findByDisclosureId(disclosure.getId())).hasSize(1);
+
+                ResponseEntity<AlertBackfillResponse> resp = restTemplate.getForEntity("/alert/backfill", AlertBackfillResponse.class);
+                assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+                assertThat(resp.getBody()).isNotNull();
+                assertThat(resp.getBody().isCompleted()).isTrue();
+                assertThat(resp.getBody().getTargets()).extracting(TargetProgress::getTarget, TargetProgress::getProcessed)
+                        .containsExactly(tuple(AlertTarget.PROCESS, 1L), tuple(AlertTarget.DISCLOSURE, 1L));
+            }
+
+            @Test
+            void resumesFromCheckpoint() {
+                var first = saveProcessUsingAllInformationTypes(UUID.fromString("00000000-0000-0000-0000-000000000001"));
+                var second = saveProcessUsingAllInformationTypes(UUID.fromString("00000000-0000-0000-0000-000000000002"));
+                alertBackfillService.run();
+                assertThat(alertBackfillService.progress().isCompleted()).isTrue();
+
+                // A pod stopped after the first process, its claim has run out
+                jdbcTemplate.update("delete from alert_event");
+                jdbcTemplate.update("update alert_backfill set completed = false, last_id = ?, claimed_by = 'stopped', claimed_until = now() - interval '1 minute' "
+                        + "where target_type = 'PROCESS' and partition = 0", first);
+
+                alertBackfillService.run();
+
+                assertThat(alertRepository.findByProcessId(first)).isEmpty();
+                assertThat(alertRepository.findByProcessId(second)).hasSize(1);
+                assertThat(alertBackfillService.progress().isCompleted()).isTrue();
+            }
+
+            private UUID saveProcessUsingAllInformationTypes(UUID id) {
+                processRepository.save(Process.builder().id(id)
+                        .data(ProcessData.builder().purpose("AAP").name("a name").usesAllInformationTypes(true).start(LocalDate.now()).end(LocalDate.now()).build())
+                        .build());
+                return id;
+            }
+        }
+
         @Nested
         class Controller {
 
@@ -248,18 +410,17 @@ public class AlertIT extends IntegrationTestBase {
 
             @BeforeEach
             void setUp() {
-                alertRepository.saveAll(convert(List.of(alertEvent1, alertEvent2, alertEvent3, alertEvent4, alertEvent5), GenericStorage::new));
+                alertRepository.saveAll(List.of(alertEvent1, alertEvent2, alertEvent3, alertEvent4, alertEvent5));
             }
 
             @ParameterizedTest
             @EnumSource(AlertSort.class)
             void getEventsWithAllParams(AlertSort sort) throws InterruptedException {
-                GenericStorage alert = new GenericStorage(
-                        new AlertEvent(alertEvent1.getProcessId(), alertEvent1.getInformationTypeId(), AlertEventType.MISSING_ARTICLE_6));
+                var alert = new AlertEvent(alertEvent1.getProcessId(), alertEvent1.getInformationTypeId(), AlertEventType.MISSING_ARTICLE_6);
                 Thread.sleep(1000);
                 saveProcesses(alertEvent1.getProcessId(), alertEvent4.getProcessId(), alertEvent5.getProcessId());
                 saveInfoTypes(alertEvent1.getInformationTypeId(), alertEvent4.getInformationTypeId(), alertEvent5.getInformationTypeId());
-                alertRepository.save(alert);
+                alertRepository.saveAll(List.of(alert));
 
                 ResponseEntity<EventPage> eventsResponse = restTemplate
                         .getForEntity("/alert/events"
@@ -305,6 +466,31 @@ public class AlertIT extends IntegrationTestBase {
                 assertThat(eventsResponse.getBody()).isNotNull();
                 assertThat(eventsResponse.getBody().getContent()).hasSize(5);
             }
+
+            @Test
+            void getEventsByCursor() {
+                var first = restTemplate.getForEntity("/alert/events?limit=2", EventPage.class).getBody();
+                assertThat(first).isNotNull();
+                assertThat(first.getContent()).hasSize(2);
+                assertThat(first.getNextCursor()).isNotNull();
+
+                var second = restTemplate.getForEntity("/alert/events?limit=2&after={after}", EventPage.class, first.getNextCursor()).getBody();
+                assertThat(second).isNotNull();
+                assertThat(second.getContent()).hasSize(2);
+                assertThat(second.getNextCursor()).isNotNull();
+
+                var last = restTemplate.getForEntity("/alert/events?limit=2&after={after}", EventPage.class, second.getNextCursor()).getBody();
+                assertThat(last).isNotNull();
+                assertThat(last.getContent()).hasSize(1);
+                assertThat(last.getNextCursor()).isNull();
+            }
+
+            @Test
+            void getEventsByInvalidCursor() {
+                var resp = restTemplate.getForEntity("/alert/events?after=invalid", String.class);
+
+                assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            }
         }
     }
 
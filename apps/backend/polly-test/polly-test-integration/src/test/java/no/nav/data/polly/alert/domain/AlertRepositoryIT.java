@@ -0,0 +1,120 @@
+package no.nav.data.polly.alert.domain;
+
+import no.nav.data.common.exceptions.ValidationException;
+import no.nav.data.polly.IntegrationTestBase;
+import no.nav.data.polly.alert.AlertController.EventPage.AlertSort;
+import no.nav.data.polly.alert.AlertController.EventPage.SortDir;
+import no.nav.data.polly.alert.domain.AlertRepository.AlertCursor;
+import no.nav.data.polly.alert.domain.AlertRepository.AlertEventRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static no.nav.data.common.utils.StreamUtils.convert;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Verifies through the query plans that name sorts join the referenced table instead of a subquery per event,
+ * and that keyset pages on time seek through the index from V1.49__alert_event_keyset.sql
+ */
+class AlertRepositoryIT extends IntegrationTestBase {
+
+    private static final int SEED_PROCESSES = 2_000;
+    private static final int SEED_EVENTS = 20_000;
+
+    @Autowired
+    private AlertRepository alertRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("""
+                insert into process (process_id, data, created_by, created_date, last_modified_by, last_modified_date)
+                select md5('alertseed' || i)::uuid, jsonb_build_object('name', 'seed-' || i, 'number', 300000 + i), 'seed', now(), 'seed', now()
+                from generate_series(1, ?) i
+                """, SEED_PROCESSES);
+        jdbcTemplate.update("""
+                insert into alert_event (id, process_id, information_type_id, type, level, created_by, created_date)
+                select md5('alertevent' || i)::uuid, md5('alertseed' || (i % ? + 1))::uuid, md5('infotype' || (i % 300))::uuid,
+                       (array['MISSING_LEGAL_BASIS', 'EXCESS_INFO', 'MISSING_ARTICLE_6', 'MISSING_ARTICLE_9'])[i % 4 + 1],
+                       'WARNING', 'seed', now() - i * interval '1 minute'
+                from generate_series(1, ?) i
+                """, SEED_PROCESSES, SEED_EVENTS);
+        jdbcTemplate.execute("analyze process");
+        jdbcTemplate.execute("analyze alert_event");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from process where created_by = 'seed'");
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = AlertSort.class, names = {"PROCESS", "INFORMATION_TYPE", "DISCLOSURE"})
+    void nameSortJoinsReferencedTable(AlertSort sort) {
+        var plan = explain(request(null, sort, SortDir.ASC, 20), null);
+
+        assertThat(plan).doesNotContain("SubPlan");
+        assertThat(plan).contains("\"Join Type\": \"Left\"");
+    }
+
+    @Test
+    void timeKeysetSeeksIndex() {
+        var middle = new AlertCursor(AlertSort.TIME, jdbcTemplate.queryForObject("select cast(localtimestamp - interval '10000 minute' as text)", String.class),
+                UUID.randomUUID());
+
+        var plan = explain(request(null, AlertSort.TIME, SortDir.DESC, 20), middle);
+
+        assertThat(plan).contains("alert_event_created_date_id_idx");
+        assertThat(plan).doesNotContain("\"Node Type\": \"Sort\"");
+    }
+
+    @Test
+    void timeCursorIsValidatedWhenDecoded() {
+        var time = jdbcTemplate.queryForObject("select cast(localtimestamp as text)", String.class);
+        var valid = new AlertCursor(AlertSort.TIME, time, UUID.randomUUID()).encode();
+        var invalid = new AlertCursor(AlertSort.TIME, "yesterday", UUID.randomUUID()).encode();
+
+        assertThat(alertRepository.findAlertsAfter(request(null, AlertSort.TIME, SortDir.DESC, 20), AlertCursor.decode(valid)).events()).isNotEmpty();
+        assertThatThrownBy(() -> AlertCursor.decode(invalid)).isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void keysetPagesCoverAllEvents() {
+        var request = request(AlertEventType.MISSING_LEGAL_BASIS, AlertSort.PROCESS, SortDir.ASC, 250);
+        var ids = new ArrayList<UUID>();
+        AlertCursor after = null;
+        do {
+            var page = alertRepository.findAlertsAfter(request, after);
+            page.events().forEach(event -> ids.add(event.getId()));
+            after = page.next();
+        } while (after != null);
+
+        var offsetIds = convert(alertRepository.findAlerts(request(AlertEventType.MISSING_LEGAL_BASIS, AlertSort.PROCESS, SortDir.ASC, SEED_EVENTS)).getContent(),
+                AlertEvent::getId);
+        assertThat(ids).hasSize(SEED_EVENTS / 4).doesNotHaveDuplicates().isEqualTo(offsetIds);
+    }
+
+    private String explain(AlertEventRequest request, AlertCursor after) {
+        var query = alertRepository.eventQuery(request, after);
+        var params = new MapSqlParameterSource(query.params().getValues()).addValue("limit", request.pageSize() + 1);
+        return namedJdbcTemplate.queryForObject("explain (format json) " + query.sql() + " limit :limit", params, String.class);
+    }
+
+    private static AlertEventRequest request(AlertEventType type, AlertSort sort, SortDir dir, int pageSize) {
+        return new AlertEventRequest(null, null, null, type, null, 0, pageSize, sort, dir);
+    }
+}
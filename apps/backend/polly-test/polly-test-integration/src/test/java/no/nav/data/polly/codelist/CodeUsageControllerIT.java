@@ -1,34 +1,51 @@
 package no.nav.data.polly.codelist;
 
+import lombok.extern.slf4j.Slf4j;
+import no.nav.data.common.auditing.AuditDeltaService;
+import no.nav.data.common.auditing.AuditVersionListener;
+import no.nav.data.common.auditing.domain.Action;
+import no.nav.data.common.utils.JsonUtils;
 import no.nav.data.polly.IntegrationTestBase;
+import no.nav.data.polly.codelist.codeusage.CodeUsageService;
 import no.nav.data.polly.codelist.domain.Codelist;
+import no.nav.data.polly.codelist.domain.ListName;
+import no.nav.data.polly.codelist.dto.CodeUsageIndexResponse;
 import no.nav.data.polly.codelist.dto.CodeUsageResponse;
 import no.nav.data.polly.codelist.dto.CodelistUsageResponse;
 import no.nav.data.polly.codelist.dto.ReplaceCodelistRequest;
 import no.nav.data.polly.informationtype.domain.InformationType;
 import no.nav.data.polly.policy.domain.Policy;
 import no.nav.data.polly.process.domain.Process;
+import no.nav.data.polly.process.dto.ProcessShortResponse;
 import no.nav.data.polly.process.dpprocess.domain.DpProcess;
 import no.nav.data.polly.processor.domain.Processor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import no.nav.data.polly.test.TestRestTemplate;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 import static no.nav.data.polly.codelist.CodelistUtils.createCodelist;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
+@Slf4j
 public class CodeUsageControllerIT extends IntegrationTestBase {
 
+    private static final int SEED_PROCESSES = 1000;
+
     @Autowired
     private TestRestTemplate restTemplate;
 
@@ -38,6 +55,15 @@ public class CodeUsageControllerIT extends IntegrationTestBase {
     @Autowired
     private CodelistRepository codelistRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditDeltaService auditDeltaService;
+
+    @Autowired
+    private CodeUsageService codeUsageService;
+
 
     @BeforeEach
     void setUp() {
@@ -149,6 +175,60 @@ public class CodeUsageControllerIT extends IntegrationTestBase {
         }
     }
 
+    @Nested
+    class lookup {
+
+        @ParameterizedTest
+        @EnumSource(value = ListName.class, names = {"PURPOSE", "SUB_DEPARTMENT", "GDPR_ARTICLE", "NATIONAL_LAW", "SUBJECT_CATEGORY", "SENSITIVITY", "SYSTEM", "CATEGORY",
+                "THIRD_PARTY", "TRANSFER_GROUNDS_OUTSIDE_EU"})
+        void usageOfListMatchesUsageOfEachCode(ListName list) {
+            var usageOfList = codeUsageService.findCodeUsageOfList(list);
+
+            assertThat(usageOfList).anyMatch(CodeUsageResponse::isInUse);
+            usageOfList.forEach(usage -> assertThat(usage).usingRecursiveComparison().ignoringCollectionOrder()
+                    .isEqualTo(codeUsageService.findCodeUsage(list, usage.getCode())));
+        }
+
+        @Test
+        void usageIncludesChangesOfCallerTransaction() {
+            transactionTemplate.executeWithoutResult(status -> {
+                var process = createProcess("Uncommitted", "DAGPENGER", "YTA", "NAY", List.of(), "TPS", "SKATTEETATEN", "OTHER");
+                processRepository.flush();
+
+                assertThat(codeUsageService.findCodeUsage(ListName.PURPOSE, "DAGPENGER").getProcesses())
+                        .extracting(ProcessShortResponse::getId).contains(process.getId());
+                status.setRollbackOnly();
+            });
+        }
+
+        /**
+         * Before: the types loaded one after another in a transaction, as before the codeusage threads. After: the endpoint, loading them concurrently.
+         */
+        @Test
+        void usageOfSeededListLoadedConcurrently() {
+            transactionTemplate.executeWithoutResult(status -> {
+                var informationType = informationTypeRepository.findAll().getFirst();
+                for (int i = 0; i < SEED_PROCESSES; i++) {
+                    String purpose = i % 2 == 0 ? "DAGPENGER" : "BARNETRYGD";
+                    var process = createProcess("Seed " + i, purpose, "YTA", "NAY", List.of(createLegalBasis("ART61E", "FTRL", "§ 2-1")), "TPS", "SKATTEETATEN", "OTHER");
+                    var policy = createPolicy(purpose, "BRUKER", List.of(createLegalBasis("ART61E", "FTRL", "§ 2-1")));
+                    informationType.addPolicy(policy);
+                    addPolicy(process, policy);
+                }
+            });
+            String path = "/codelist/usage/find/PURPOSE";
+            restTemplate.getForEntity(path, CodelistUsageResponse.class);
+
+            var before = timed("code usage of PURPOSE one type after another", () -> transactionTemplate.execute(status -> codeUsageService.findCodeUsageOfList(ListName.PURPOSE)));
+            var after = timed("code usage of PURPOSE concurrently", () -> restTemplate.getForEntity(path, CodelistUsageResponse.class).getBody());
+
+            assertThat(after).isNotNull();
+            assertThat(after.getCodesInUse()).extracting(CodeUsageResponse::getCode, usage -> usage.getProcesses().size(), usage -> usage.getPolicies().size())
+                    .containsExactlyElementsOf(before.stream().map(usage -> tuple(usage.getCode(), usage.getProcesses().size(), usage.getPolicies().size())).toList());
+            assertThat(after.getCodesInUse().stream().mapToInt(usage -> usage.getProcesses().size()).sum()).isEqualTo(SEED_PROCESSES + 2);
+        }
+    }
+
     @Nested
     class replaceCodelist {
 
@@ -176,11 +256,32 @@ public class CodeUsageControllerIT extends IntegrationTestBase {
             assertThat(replace.getDisclosures()).hasSize(disclosures);
             assertThat(replace.getDocuments()).hasSize(documents);
             assertThat(replace.getProcessors()).hasSize(processors);
+            assertThat(replace.getReplaced().values().stream().mapToInt(Integer::intValue).sum())
+                    .isEqualTo(informationTypes + policies + processes + dpProcesses + disclosures + documents + processors);
 
             var replaceSecondRun = replaceCode(list, code, newCode);
             assertThat(replaceSecondRun.isInUse()).isFalse();
         }
 
+        @Test
+        void replaceCodelistUsageWritesAudit() {
+            codelistService.save(List.of(createCodelist("PURPOSE", "REPLACECODE")));
+            var replace = replaceCode("PURPOSE", "DAGPENGER", "REPLACECODE");
+            assertThat(replace.getReplaced()).containsEntry("PROCESS", 1).containsEntry("POLICY", 1);
+
+            var processId = replace.getProcesses().getFirst().getId();
+            var audit = auditDeltaService.reconstruct(auditRepository.findByTableIdOrderByTimeDesc(processId.toString())).getFirst();
+            assertThat(audit.getAction()).isEqualTo(Action.UPDATE);
+            assertThat(audit.getTable()).isEqualTo("PROCESS");
+            var auditData = JsonUtils.toJsonNode(audit.getData());
+            assertThat(auditData.at("/data/purposes/0").textValue()).isEqualTo("REPLACECODE");
+            assertThat(auditData.get("policies").isArray()).isTrue();
+            assertThat(processRepository.findById(processId).orElseThrow().getData().getPurposes()).containsExactly("REPLACECODE");
+            // Same data as the audit listener writes for the stored process
+            String listenerData = transactionTemplate.execute(status -> AuditVersionListener.toJson(processRepository.findById(processId).orElseThrow()));
+            assertThat(auditData).isEqualTo(JsonUtils.toJsonNode(listenerData));
+        }
+
         private CodeUsageResponse replaceCode(String list, String code, String newCode) {
             ResponseEntity<CodeUsageResponse> response = restTemplate
                     .postForEntity("/codelist/usage/replace", new ReplaceCodelistRequest(list, code, newCode, ""), CodeUsageResponse.class);
@@ -190,6 +291,43 @@ public class CodeUsageControllerIT extends IntegrationTestBase {
         }
     }
 
+    @Nested
+    class codeUsageIndex {
+
+        @Test
+        void indexFollowsChanges() {
+            assertThat(verify().isConsistent()).isTrue();
+
+            var process = processRepository.findAll().getFirst();
+            process.getData().getPurposes().add("OTHER_PURP");
+            processRepository.save(process);
+            disclosureRepository.deleteAll();
+
+            var verify = verify();
+            assertThat(verify.isConsistent()).isTrue();
+            assertThat(verify.getRows()).isPositive();
+        }
+
+        @Test
+        void rebuildIndex() {
+            jdbcTemplate.update("delete from code_usage where list_name = 'PURPOSE'");
+            var verify = verify();
+            assertThat(verify.isConsistent()).isFalse();
+            assertThat(verify.getMissing()).isPositive();
+
+            ResponseEntity<CodeUsageIndexResponse> response = restTemplate.postForEntity("/codelist/usage/index/rebuild", null, CodeUsageIndexResponse.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(Objects.requireNonNull(response.getBody()).isConsistent()).isTrue();
+            assertThat(response.getBody().getRows()).isEqualTo(verify.getRows() + verify.getMissing());
+        }
+
+        private CodeUsageIndexResponse verify() {
+            ResponseEntity<CodeUsageIndexResponse> response = restTemplate.getForEntity("/codelist/usage/index/verify", CodeUsageIndexResponse.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            return Objects.requireNonNull(response.getBody());
+        }
+    }
+
     private void createTestData() {
         createCodelistsByRequests();
 
@@ -268,6 +406,13 @@ public class CodeUsageControllerIT extends IntegrationTestBase {
         codelistService.save(requests);
     }
 
+    private static <T> T timed(String name, Supplier<T> action) {
+        long start = System.nanoTime();
+        T result = action.get();
+        log.info("{} took {} ms", name, (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
     private int countInformationTypes(ResponseEntity<CodeUsageResponse> response) {
         return Objects.requireNonNull(response.getBody()).getInformationTypes().size();
     }
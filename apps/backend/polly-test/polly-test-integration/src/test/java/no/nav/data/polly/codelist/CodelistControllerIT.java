@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import no.nav.data.polly.test.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
@@ -20,6 +21,7 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
@@ -30,6 +32,7 @@ import static no.nav.data.polly.codelist.CodelistUtils.createCodelist;
 import static no.nav.data.polly.codelist.CodelistUtils.createCodelistRequest;
 import static no.nav.data.polly.codelist.CodelistUtils.createNrOfCodelistRequests;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -51,6 +54,13 @@ class CodelistControllerIT extends IntegrationTestBase {
     @Autowired
     private CodelistService service;
 
+    @Value("${spring.datasource.url}")
+    private String url;
+    @Value("${spring.datasource.username}")
+    private String username;
+    @Value("${spring.datasource.password}")
+    private String password;
+
     @AfterEach
     void cleanUp() {
         repository.deleteAll();
@@ -288,6 +298,36 @@ class CodelistControllerIT extends IntegrationTestBase {
 
     }
 
+    @Nested
+    class Refresh {
+
+        @Test
+        void refreshChangedReloadsChangedLists() {
+            service.refreshCache();
+            repository.save(createCodelist(ListName.THIRD_PARTY, "DB_CODE"));
+            CodelistCache.set(createCodelist(ListName.PURPOSE, "CACHE_CODE"));
+
+            service.refreshChanged();
+
+            assertTrue(CodelistCache.contains(ListName.THIRD_PARTY, "DB_CODE"));
+            assertTrue(CodelistCache.contains(ListName.PURPOSE, "CACHE_CODE"));
+        }
+
+        @Test
+        void listenerReloadsNotifiedList() {
+            service.refreshCache();
+            var listener = new CodelistChangeListener(service, url, username, password);
+            try {
+                listener.onApplicationEvent(null);
+                repository.save(createCodelist(ListName.THIRD_PARTY, "NOTIFIED_CODE"));
+
+                await().atMost(Duration.ofSeconds(10)).until(() -> CodelistCache.contains(ListName.THIRD_PARTY, "NOTIFIED_CODE"));
+            } finally {
+                listener.destroy();
+            }
+        }
+    }
+
     private void saveCodelist(Codelist codelist) {
         CodelistCache.set(codelist);
         repository.save(codelist);
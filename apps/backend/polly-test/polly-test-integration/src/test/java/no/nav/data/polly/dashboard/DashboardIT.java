@@ -1,14 +1,38 @@
 package no.nav.data.polly.dashboard;
 
+import no.nav.data.common.utils.JsonUtils;
 import no.nav.data.polly.IntegrationTestBase;
+import no.nav.data.polly.alert.AlertService;
+import no.nav.data.polly.alert.domain.AlertEvent;
+import no.nav.data.polly.alert.domain.AlertRepository;
 import no.nav.data.polly.dashboard.dto.DashResponse;
+import no.nav.data.polly.disclosure.domain.Disclosure;
+import no.nav.data.polly.disclosure.domain.DisclosureData;
+import no.nav.data.polly.process.ProcessService;
+import no.nav.data.polly.process.domain.Process;
+import no.nav.data.polly.process.domain.ProcessData;
+import no.nav.data.polly.process.domain.ProcessStatus;
+import no.nav.data.polly.process.domain.sub.Affiliation;
+import no.nav.data.polly.process.domain.sub.DataProcessing;
+import no.nav.data.polly.process.domain.sub.Dpia;
+import no.nav.data.polly.process.domain.sub.Retention;
+import no.nav.data.polly.process.domain.sub.nomSeksjon;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import no.nav.data.polly.test.TestRestTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.groupingBy;
+import static no.nav.data.common.utils.StreamUtils.convert;
 import static no.nav.data.common.utils.StreamUtils.get;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -16,13 +40,27 @@ class DashboardIT extends IntegrationTestBase {
 
     @Autowired
     private TestRestTemplate restTemplate;
+    @Autowired
+    private DashboardService dashboardService;
+    @Autowired
+    private ProcessService processService;
+    @Autowired
+    private AlertService alertService;
+    @Autowired
+    private AlertRepository alertRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Process process;
 
     @BeforeEach
     void setUp() {
         createAndSavePolicy(PURPOSE_CODE1, createAndSaveInformationType());
         var p2 = createAndSaveProcess(PURPOSE_CODE2);
         p2.getData().getDpia().setNeedForDpia(null);
-        processRepository.save(p2);
+        process = processRepository.save(p2);
+        // Saved through the repositories, which does not update the counters
+        dashboardService.reconcile();
     }
 
     @Test
@@ -47,4 +85,76 @@ class DashboardIT extends IntegrationTestBase {
         assertThat(response.getAll().getProcessesInProgress()).isEqualTo(2L);
     }
 
+    @Test
+    void countersFollowChanges() {
+        process.getData().setStatus(ProcessStatus.COMPLETED);
+        processService.save(process);
+
+        DashResponse response = restTemplate.getForEntity("/dash", DashResponse.class).getBody();
+        assertThat(response).isNotNull();
+        assertThat(response.getAll().getProcesses()).isEqualTo(2L);
+        assertThat(response.getAll().getProcessesInProgress()).isEqualTo(1L);
+        assertThat(response.getAll().getProcessesCompleted()).isEqualTo(1L);
+        assertThat(restTemplate.getForEntity("/dash?filter=COMPLETED", DashResponse.class).getBody().getAll().getProcesses()).isEqualTo(1L);
+
+        processService.deleteById(process.getId());
+
+        response = restTemplate.getForEntity("/dash", DashResponse.class).getBody();
+        assertThat(response).isNotNull();
+        assertThat(response.getAll().getProcesses()).isEqualTo(1L);
+        assertThat(response.getAll().getProcessesCompleted()).isZero();
+        assertThat(dashboardService.reconcile()).isZero();
+    }
+
+    @Test
+    void derivedSourcesMatchJavaCalculation() {
+        processRepository.save(Process.builder().generateId()
+                .data(ProcessData.builder()
+                        .name("edge").purpose(PURPOSE_CODE1)
+                        .status(ProcessStatus.NEEDS_REVISION)
+                        .affiliation(Affiliation.builder()
+                                .nomDepartmentId("DEP")
+                                .seksjoner(List.of(new nomSeksjon("S1", "Seksjon 1"), new nomSeksjon("S2", null), new nomSeksjon("S1", "Seksjon 1")))
+                                .productTeams(List.of("teamid1", "unknownteam", "teamid1"))
+                                .build())
+                        .profiling(false)
+                        .dpia(Dpia.builder().needForDpia(true).refToDpia(" ").build())
+                        .retention(Retention.builder().retentionPlan(false).retentionMonths(12).build())
+                        .dataProcessing(DataProcessing.builder().dataProcessor(false).build())
+                        .build())
+                .build());
+        processRepository.save(Process.builder().generateId()
+                .data(ProcessData.builder().name("empty").purpose(PURPOSE_CODE2).status(ProcessStatus.COMPLETED).affiliation(new Affiliation()).build())
+                .build());
+        createDpProcess("DEP", "SUBDEP", "PESYS", "SKATT", null);
+        disclosureRepository.save(createDisclosure("SKATT", "ART61A", "FTRL"));
+        disclosureRepository.save(Disclosure.builder().generateId().data(DisclosureData.builder().description("no legal bases").recipient("SKATT").build()).build());
+        processRepository.findAll().forEach(p -> alertService.calculateEventsForProcess(p.getId()));
+
+        Map<UUID, DashboardSource> calculated = new HashMap<>();
+        var alerts = alertRepository.findByProcessIds(convert(processRepository.findAll(), Process::getId)).stream()
+                .collect(groupingBy(AlertEvent::getProcessId));
+        processRepository.findAll().forEach(p -> calculated.put(p.getId(), DashboardService.processSource(p, alerts.getOrDefault(p.getId(), List.of()))));
+        dpProcessRepository.findAll().forEach(dpp -> calculated.put(dpp.getId(), DashboardService.dpProcessSource(dpp)));
+        disclosureRepository.findAll().forEach(d -> calculated.put(d.getId(), DashboardService.disclosureSource(d)));
+
+        Map<UUID, DashboardSource> derived = new HashMap<>();
+        jdbcTemplate.query("select id, data from dashboard_source_derived",
+                (RowCallbackHandler) rs -> derived.put(rs.getObject("id", UUID.class), JsonUtils.toObject(rs.getString("data"), DashboardSource.class)));
+
+        assertThat(alerts).isNotEmpty();
+        assertThat(derived).isEqualTo(calculated);
+        // The alert events were changed through the service, so the counters are updated by the java calculation
+        assertThat(dashboardService.reconcile()).isZero();
+    }
+
+    @Test
+    void reconcileReplacesStaleCounters() {
+        processRepository.deleteById(process.getId());
+
+        assertThat(dashboardService.reconcile()).isPositive();
+        assertThat(restTemplate.getForEntity("/dash", DashResponse.class).getBody().getAll().getProcesses()).isEqualTo(1L);
+        assertThat(dashboardService.reconcile()).isZero();
+    }
+
 }
@@ -29,6 +29,8 @@ class InformationTypeControllerIT extends IntegrationTestBase {
 
     @Autowired
     protected TestRestTemplate restTemplate;
+    @Autowired
+    private InformationTypeSuggestIndex suggestIndex;
 
     @Test
     void findForId() {
@@ -44,6 +46,7 @@ class InformationTypeControllerIT extends IntegrationTestBase {
     void searchInformationTypeByName() {
         informationTypeRepository.save(createAndSaveInformationType(UUID.randomUUID(), "InformationTypeData"));
         informationTypeRepository.save(createAndSaveInformationType(UUID.randomUUID(), "TypeData"));
+        suggestIndex.rebuild();
         ResponseEntity<InformationTypePage> responseEntity = restTemplate.getForEntity("/informationtype/search?name={search}", InformationTypePage.class, "typedata");
 
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
@@ -53,10 +56,27 @@ class InformationTypeControllerIT extends IntegrationTestBase {
         assertThat(responseEntity.getBody().getContent().get(1).getName()).isEqualTo("InformationTypeData");
     }
 
+    @Test
+    void searchInformationTypeAfterCreateAndDelete() {
+        var created = restTemplate.exchange("/informationtype", HttpMethod.POST, new HttpEntity<>(List.of(createRequest("Suggestnavn"))), InformationTypePage.class);
+        assertThat(created.getBody()).isNotNull();
+        UUID id = created.getBody().getContent().get(0).getId();
+
+        var found = restTemplate.getForEntity("/informationtype/search?name={search}", InformationTypePage.class, "suggestnav");
+        assertThat(found.getBody()).isNotNull();
+        assertThat(found.getBody().getContent()).extracting(InformationTypeResponse::getId).containsExactly(id);
+
+        restTemplate.exchange("/informationtype/{id}", DELETE, EMPTY, InformationTypeResponse.class, id);
+        found = restTemplate.getForEntity("/informationtype/search?name={search}", InformationTypePage.class, "suggestnav");
+        assertThat(found.getBody()).isNotNull();
+        assertThat(found.getBody().getContent()).isEmpty();
+    }
+
     @Test
     void searchInformationTypeByNameWithForwardSlash() {
         informationTypeRepository.save(createAndSaveInformationType(UUID.randomUUID(), "InformationType/Data"));
         informationTypeRepository.save(createAndSaveInformationType(UUID.randomUUID(), "Type/Data"));
+        suggestIndex.rebuild();
         ResponseEntity<InformationTypePage> responseEntity = restTemplate.getForEntity("/informationtype/search?name={search}", InformationTypePage.class, "type/data");
 
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
@@ -104,6 +124,33 @@ class InformationTypeControllerIT extends IntegrationTestBase {
             assertGetOne("/informationtype?source={source}", "SKATT");
         }
 
+        @Test
+        void findBySourceStreamsAllRowsSortedByName() {
+            createInformationTypeTestData(250);
+            // Ordered differently by code point than by the common database locales
+            List.of("Ab", "a c", "_b", "Æ", "z").forEach(name -> createAndSaveInformationType(name, "POL"));
+
+            ResponseEntity<InformationTypePage> resp = restTemplate.getForEntity("/informationtype?source={source}", InformationTypePage.class, "SKATT");
+
+            assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+            InformationTypePage page = resp.getBody();
+            assertThat(page).isNotNull();
+            assertThat(page.getContent()).hasSize(255);
+            assertThat(page.getTotalElements()).isEqualTo(255L);
+            assertThat(page.isPaged()).isFalse();
+            assertThat(page.getContent()).extracting(InformationTypeResponse::getName).isSortedAccordingTo(String.CASE_INSENSITIVE_ORDER);
+        }
+
+        @Test
+        void streamedPageHasFieldsInPageOrder() {
+            createInformationTypeTestData(150);
+
+            String body = restTemplate.getForEntity("/informationtype?source={source}", String.class, "SKATT").getBody();
+
+            assertThat(body).startsWith("""
+                    {"pageNumber":0,"pageSize":150,"pages":1,"numberOfElements":150,"totalElements":150,"paged":false,"content":[""");
+        }
+
         @Test
         void getForTerm() {
             createInformationTypeTestData(1);
@@ -11,12 +11,23 @@ import static no.nav.data.common.utils.JsonUtils.toJson;
 
 public class NomAvdelingMocks {
     public static void mock() {
-        stubFor(post("/nom/graphql").willReturn(okJson(toJson(nomAvdelingMockResponse()))));
+        stubFor(post("/nom/graphql").willReturn(okJson(toJson(nomAvdelingMockResponse(null)))));
     }
 
-    private static OrgEnhetGraphqlResponse nomAvdelingMockResponse() {
+    /**
+     * Avdelinger with seksjoner nested, as returned by the organisation tree query
+     */
+    public static void mockOrgTree() {
+        List<Organisering> seksjoner = List.of(
+                Organisering.builder().orgEnhet(OrgEnhet.builder().id("S1").navn("Seksjon 1").build()).build(),
+                Organisering.builder().orgEnhet(OrgEnhet.builder().id("S2").navn("Seksjon 2").build()).build()
+        );
+        stubFor(post("/nom/graphql").willReturn(okJson(toJson(nomAvdelingMockResponse(seksjoner)))));
+    }
+
+    private static OrgEnhetGraphqlResponse nomAvdelingMockResponse(List<Organisering> depSeksjoner) {
         List<Organisering> nomAvdelinger = List.of(
-                Organisering.builder().orgEnhet(OrgEnhet.builder().id("DEP").navn("dep").build()).build(),
+                Organisering.builder().orgEnhet(OrgEnhet.builder().id("DEP").navn("dep").organiseringer(depSeksjoner).build()).build(),
                 Organisering.builder().orgEnhet(OrgEnhet.builder().id("AOT").navn("Arbeids- og tjenesteavdelingen").build()).build()
         );
 
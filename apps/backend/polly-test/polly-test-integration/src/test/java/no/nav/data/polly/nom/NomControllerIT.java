@@ -1,19 +1,38 @@
 package no.nav.data.polly.nom;
 
 import no.nav.data.integration.nom.NomController.AvdelingList;
+import no.nav.data.integration.nom.NomGraphClient;
+import no.nav.data.integration.nom.domain.OrgEnhet;
 import no.nav.data.polly.IntegrationTestBase;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import no.nav.data.polly.test.TestRestTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.util.List;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.resetAllRequests;
+import static com.github.tomakehurst.wiremock.client.WireMock.serverError;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class NomControllerIT extends IntegrationTestBase {
     @Autowired
     private TestRestTemplate restTemplate;
+    @Autowired
+    private NomGraphClient nomGraphClient;
+
+    @AfterEach
+    void tearDownOrgTree() {
+        NomAvdelingMocks.mock();
+        nomGraphClient.refreshOrgTree();
+    }
 
     @Test
     void getNomAvdelinger() {
@@ -22,6 +41,37 @@ public class NomControllerIT extends IntegrationTestBase {
         assertThat(avdelinger.getBody().getContent()).hasSize(2);
     }
 
+    @Test
+    void lookupsAreServedFromOrgTree() {
+        NomAvdelingMocks.mockOrgTree();
+        nomGraphClient.refreshOrgTree();
+        resetAllRequests();
+
+        ResponseEntity<OrgEnhet[]> seksjoner = restTemplate.getForEntity("/nom/seksjon/avdeling/{id}", OrgEnhet[].class, "DEP");
+        assertThat(seksjoner.getBody()).extracting(OrgEnhet::getId).containsExactly("S1", "S2");
+        assertThat(restTemplate.getForEntity("/nom/seksjon/avdeling/{id}", OrgEnhet[].class, "AOT").getBody()).isEmpty();
+
+        ResponseEntity<OrgEnhet> avdeling = restTemplate.getForEntity("/nom/avdeling/{id}", OrgEnhet.class, "DEP");
+        assertThat(avdeling.getBody()).isNotNull();
+        assertThat(avdeling.getBody().getNavn()).isEqualTo("dep");
+        assertThat(avdeling.getBody().getOrganiseringer()).isNull();
+        assertThat(restTemplate.getForEntity("/nom/{id}", OrgEnhet.class, "S2").getBody().getNavn()).isEqualTo("Seksjon 2");
+        assertThat(restTemplate.getForEntity("/nom/avdeling/{id}", OrgEnhet.class, "S1").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        verify(0, postRequestedFor(urlEqualTo("/nom/graphql")));
+    }
+
+    @Test
+    void failedRefreshKeepsLastOrgTree() {
+        NomAvdelingMocks.mockOrgTree();
+        nomGraphClient.refreshOrgTree();
+
+        stubFor(post("/nom/graphql").willReturn(serverError()));
+        nomGraphClient.refreshOrgTree();
 
+        assertThat(nomGraphClient.getAllAvdelinger()).extracting(OrgEnhet::getId).containsExactly("DEP", "AOT");
+        assertThat(nomGraphClient.getAllSeksjonForAvdeling("DEP")).extracting(OrgEnhet::getId).containsExactly("S1", "S2");
+        verify(postRequestedFor(urlEqualTo("/nom/graphql")));
+    }
 
 }
@@ -5,6 +5,7 @@ import no.nav.data.common.security.azure.AzureConstants;
 import no.nav.data.common.security.azure.AzureUserInfo;
 import no.nav.data.common.utils.MdcUtils;
 import no.nav.data.polly.IntegrationTestBase;
+import no.nav.data.polly.alert.AlertOutboxService;
 import no.nav.data.polly.codelist.CodelistStaticService;
 import no.nav.data.polly.codelist.domain.ListName;
 import no.nav.data.polly.informationtype.dto.InformationTypeShortResponse;
@@ -17,6 +18,7 @@ import no.nav.data.polly.policy.rest.PolicyRestController.PolicyPage;
 import no.nav.data.polly.process.ProcessReadController.LastEditedPage;
 import no.nav.data.polly.process.ProcessReadController.ProcessPage;
 import no.nav.data.polly.process.ProcessStateController.ProcessShortPage;
+import no.nav.data.polly.process.domain.Process;
 import no.nav.data.polly.process.dto.ProcessCountResponse;
 import no.nav.data.polly.process.dto.ProcessRequest;
 import no.nav.data.polly.process.dto.ProcessResponse;
@@ -48,6 +50,8 @@ class ProcessControllerIT extends IntegrationTestBase {
     private TestRestTemplate restTemplate;
     @Autowired
     private ProcessService processService;
+    @Autowired
+    private AlertOutboxService alertOutboxService;
 
     @Test
     void getProcess() {
@@ -161,6 +165,7 @@ class ProcessControllerIT extends IntegrationTestBase {
             p.getProcess().getData().setLegalBases(List.of());
             p.getProcess().getData().setUsesAllInformationTypes(true);
             processService.save(p.getProcess());
+            alertOutboxService.processOutbox();
 
             ResponseEntity<ProcessShortPage> resp = get(field, ProcessState.YES);
 
@@ -242,6 +247,31 @@ class ProcessControllerIT extends IntegrationTestBase {
             assertThat(processPage.getContent().get(0).getNumber()).isEqualTo(policy2.getProcess().getData().getNumber());
         }
 
+        @Test
+        void getAllProcessWithCursor() {
+            List<Process> processes = List.of(createAndSaveProcess(PURPOSE_CODE1), createAndSaveProcess(PURPOSE_CODE2), createAndSaveProcess(PURPOSE_CODE1 + 2));
+            for (int i = 0; i < processes.size(); i++) {
+                processes.get(i).getData().setNumber(101 + i);
+                processRepository.save(processes.get(i));
+            }
+
+            ResponseEntity<ProcessPage> first = restTemplate.getForEntity("/process?limit={limit}", ProcessPage.class, 2);
+            assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(first.getBody()).isNotNull();
+            assertThat(first.getBody().getContent()).extracting(ProcessResponse::getNumber).containsExactly(103, 102);
+            assertThat(first.getBody().getNext()).isEqualTo(102);
+
+            ResponseEntity<ProcessPage> last = restTemplate.getForEntity("/process?limit={limit}&after={after}", ProcessPage.class, 2, first.getBody().getNext());
+            assertThat(last.getBody()).isNotNull();
+            assertThat(last.getBody().getContent()).extracting(ProcessResponse::getNumber).containsExactly(101);
+            assertThat(last.getBody().getNext()).isNull();
+
+            // Same order as the offset pages
+            ResponseEntity<ProcessPage> offset = restTemplate.getForEntity("/process?pageSize={pageSize}", ProcessPage.class, 2);
+            assertThat(offset.getBody()).isNotNull();
+            assertThat(offset.getBody().getContent()).extracting(ProcessResponse::getNumber).isEqualTo(List.of(103, 102));
+        }
+
         @Test
         void getForProductTeam() {
             createAndSavePolicy(PURPOSE_CODE1, createAndSaveInformationType());
@@ -0,0 +1,110 @@
+package no.nav.data.polly.process;
+
+import jakarta.persistence.EntityManagerFactory;
+import no.nav.data.polly.IntegrationTestBase;
+import no.nav.data.polly.alert.dto.ProcessAlert;
+import no.nav.data.polly.policy.rest.PolicyRestController.PolicyPage;
+import no.nav.data.polly.process.domain.Process;
+import no.nav.data.polly.process.dto.ProcessResponse;
+import no.nav.data.polly.test.TestRestTemplate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Loading a process with many policies must not fan out into a statement per policy or information type
+ */
+class ProcessFetchIT extends IntegrationTestBase {
+
+    private static final int POLICIES = 30;
+    private static final long MAX_STATEMENTS = 6;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Process process;
+
+    @BeforeEach
+    void setUp() {
+        process = createAndSaveProcess(PURPOSE_CODE1);
+        for (int i = 0; i < POLICIES; i++) {
+            var policy = createPolicy(PURPOSE_CODE1, "BRUKER", List.of(createLegalBasis()));
+            policy.setInformationType(createAndSaveInformationType("Opplysningstype " + i, "POL"));
+            addPolicy(process, policy);
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void getProcess() {
+        ResponseEntity<ProcessResponse> resp = countStatements(() -> restTemplate.getForEntity("/process/{id}", ProcessResponse.class, process.getId()));
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(resp.getBody()).isNotNull();
+        assertThat(resp.getBody().getPolicies()).hasSize(POLICIES);
+    }
+
+    @Test
+    void getProcessByNumber() {
+        transactionTemplate.executeWithoutResult(status -> processRepository.findById(process.getId()).orElseThrow().getData().setNumber(4711));
+
+        ResponseEntity<ProcessResponse> resp = countStatements(() -> restTemplate.getForEntity("/process/{number}", ProcessResponse.class, 4711));
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(resp.getBody()).isNotNull();
+        assertThat(resp.getBody().getId()).isEqualTo(process.getId());
+        assertThat(resp.getBody().getPolicies()).hasSize(POLICIES);
+    }
+
+    @Test
+    void getPoliciesForProcess() {
+        ResponseEntity<PolicyPage> resp = countStatements(() -> restTemplate.getForEntity("/policy?processId={id}", PolicyPage.class, process.getId()));
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(resp.getBody()).isNotNull();
+        assertThat(resp.getBody().getContent()).hasSize(POLICIES);
+    }
+
+    @Test
+    void getAllPolicies() {
+        ResponseEntity<PolicyPage> resp = countStatements(() -> restTemplate.getForEntity("/policy?pageSize={size}", PolicyPage.class, POLICIES));
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(resp.getBody()).isNotNull();
+        assertThat(resp.getBody().getContent()).hasSize(POLICIES);
+    }
+
+    @Test
+    void getAlertsForProcess() {
+        ResponseEntity<ProcessAlert> resp = countStatements(() -> restTemplate.getForEntity("/alert/process/{id}", ProcessAlert.class, process.getId()));
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(resp.getBody()).isNotNull();
+    }
+
+    private <T> T countStatements(Supplier<T> request) {
+        statistics.clear();
+        T result = request.get();
+        assertThat(statistics.getPrepareStatementCount()).as("statements for %d policies", POLICIES).isLessThanOrEqualTo(MAX_STATEMENTS);
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+package no.nav.data.polly.process.domain.repo;
+
+import no.nav.data.common.jpa.Keyset;
+import no.nav.data.polly.IntegrationTestBase;
+import no.nav.data.polly.process.domain.Process;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that the jsonb finders are served by the indexes in V1.38__jsonb_indexes.sql and never fall back to a sequential scan of process,
+ * and that keyset pages seek through the process_number index from V1.39__process_number.sql
+ */
+class ProcessRepositoryIT extends IntegrationTestBase {
+
+    private static final int SEED_ROWS = 20_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("""
+                insert into process (process_id, data, created_by, created_date, last_modified_by, last_modified_date)
+                select md5('seed' || i)::uuid,
+                       jsonb_build_object(
+                               'name', 'seed-' || i,
+                               'number', 100000 + i,
+                               'status', 'IN_PROGRESS',
+                               'purposes', jsonb_build_array('PURPOSE' || (i % 500)),
+                               'affiliation', jsonb_build_object(
+                                       'nomDepartmentId', 'DEP' || (i % 50),
+                                       'products', jsonb_build_array('SYSTEM' || (i % 400)),
+                                       'subDepartments', jsonb_build_array('SUBDEP' || (i % 300)),
+                                       'productTeams', jsonb_build_array('team' || (i % 1000)),
+                                       'seksjoner', jsonb_build_array(jsonb_build_object('nomSeksjonId', 'seksjon' || (i % 700)))
+                                   ),
+                               'dataProcessing', jsonb_build_object('processors', jsonb_build_array(md5('processor' || (i % 2000))::uuid)),
+                               'legalBases', jsonb_build_array(jsonb_build_object('gdpr', 'ART' || (i % 200), 'nationalLaw', 'LAW' || (i % 300)))
+                           ),
+                       'seed', now(), 'seed', now()
+                from generate_series(1, ?) i
+                """, SEED_ROWS);
+        jdbcTemplate.execute("analyze process");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from process where created_by = 'seed'");
+    }
+
+    @Test
+    void findersUseIndexes() {
+        var seededProcessor = jdbcTemplate.queryForObject("select md5('processor' || 7)::uuid", UUID.class);
+
+        Map<String, Supplier<List<?>>> finders = new LinkedHashMap<>();
+        finders.put("findByPurpose", () -> processRepository.findByPurpose("PURPOSE7"));
+        finders.put("findByProduct", () -> processRepository.findByProduct("SYSTEM7"));
+        finders.put("findBySubDepartment", () -> processRepository.findBySubDepartment("SUBDEP7"));
+        finders.put("findByProductTeam", () -> processRepository.findByProductTeam("team7"));
+        finders.put("findByProductTeams", () -> processRepository.findByProductTeams(List.of("team7", "team8")));
+        finders.put("findBySeksjoner", () -> processRepository.findBySeksjoner(List.of("seksjon7", "seksjon8")));
+        finders.put("findByProcessor", () -> processRepository.findByProcessor(seededProcessor));
+        finders.put("findByGDPRArticle", () -> processRepository.findByGDPRArticle("ART7"));
+        finders.put("findByNationalLaw", () -> processRepository.findByNationalLaw("LAW7"));
+        finders.put("findByDepartment", () -> processRepository.findByDepartment("DEP7"));
+
+        finders.forEach((name, finder) -> transactionTemplate.executeWithoutResult(status -> {
+            long seqScansBefore = seqScans();
+            var result = finder.get();
+            assertThat(seqScans()).as("sequential scans of process by %s", name).isEqualTo(seqScansBefore);
+            assertThat(result).as("result of %s", name).isNotEmpty();
+        }));
+    }
+
+    @Test
+    void keysetPageSeeksByProcessNumber() {
+        transactionTemplate.executeWithoutResult(status -> {
+            long seqScansBefore = seqScans();
+            var page = processRepository.findAll(new Keyset(100000 + SEED_ROWS - 100, 20));
+            assertThat(seqScans()).isEqualTo(seqScansBefore);
+            assertThat(page).hasSize(21);
+            assertThat(page).extracting(p -> p.getData().getNumber()).isSortedAccordingTo(Comparator.reverseOrder()).first().isEqualTo(100000 + SEED_ROWS - 101);
+        });
+    }
+
+    @Test
+    void keysetPagesCoverAllProcesses() {
+        transactionTemplate.executeWithoutResult(status -> {
+            var team = processRepository.findByProductTeam("team7");
+            Integer after = null;
+            int found = 0;
+            List<Process> page;
+            do {
+                page = processRepository.findByProductTeam("team7", new Keyset(after, 3));
+                var content = page.subList(0, Math.min(3, page.size()));
+                found += content.size();
+                after = content.isEmpty() ? after : content.get(content.size() - 1).getData().getNumber();
+            } while (page.size() > 3);
+            assertThat(found).isEqualTo(team.size());
+        });
+    }
+
+    private long seqScans() {
+        return jdbcTemplate.queryForObject("select coalesce(sum(seq_scan), 0) from pg_stat_xact_user_tables where relname = 'process'", Long.class);
+    }
+}
@@ -0,0 +1,68 @@
+package no.nav.data.polly.search;
+
+import no.nav.data.polly.IntegrationTestBase;
+import no.nav.data.polly.search.SearchController.SearchPage;
+import no.nav.data.polly.search.dto.SearchResultResponse;
+import no.nav.data.polly.test.TestRestTemplate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SearchControllerIT extends IntegrationTestBase {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void searchAllTypes() {
+        var process = createAndSaveProcess(PURPOSE_CODE1);
+        createAndSaveInformationType("Auto navn", "POL");
+        createAndSaveInformationType("Tekst om auto", "POL");
+        var document = documentRepository.save(createDocument("BRUKER", createAndSaveInformationType().getId()));
+
+        var resp = restTemplate.getForEntity("/search?term={term}", SearchPage.class, "auto");
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(resp.getBody()).isNotNull();
+        assertThat(resp.getBody().getContent()).extracting(SearchResultResponse::getType, SearchResultResponse::getName)
+                .containsExactly(
+                        tuple(SearchType.PROCESS, process.getData().getName()),
+                        tuple(SearchType.INFORMATION_TYPE, "Auto navn"),
+                        tuple(SearchType.INFORMATION_TYPE, "Tekst om auto")
+                );
+
+        resp = restTemplate.getForEntity("/search?term={term}&type={type}", SearchPage.class, "doc name", SearchType.DOCUMENT);
+        assertThat(resp.getBody()).isNotNull();
+        assertThat(resp.getBody().getContent()).extracting(SearchResultResponse::getId).containsExactly(document.getId());
+    }
+
+    @Test
+    void searchLimitPerType() {
+        for (int i = 0; i < 5; i++) {
+            createAndSaveInformationType("Opplysning " + i, "POL");
+        }
+
+        var resp = restTemplate.getForEntity("/search?term={term}&limit={limit}", SearchPage.class, "opplysning", 3);
+        assertThat(resp.getBody()).isNotNull();
+        assertThat(resp.getBody().getContent()).extracting(SearchResultResponse::getName).containsExactly("Opplysning 0", "Opplysning 1", "Opplysning 2");
+    }
+
+    @Test
+    void searchProcessNumber() {
+        var process = createAndSaveProcess(PURPOSE_CODE1);
+        process.getData().setNumber(4711);
+        processRepository.save(process);
+
+        var resp = restTemplate.getForEntity("/search?term={term}&type={type}", SearchPage.class, "B4711", SearchType.PROCESS);
+        assertThat(resp.getBody()).isNotNull();
+        assertThat(resp.getBody().getContent()).extracting(SearchResultResponse::getId).contains(process.getId());
+    }
+
+    @Test
+    void searchTermTooShort() {
+        var resp = restTemplate.getForEntity("/search?term={term}", String.class, "au");
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+}